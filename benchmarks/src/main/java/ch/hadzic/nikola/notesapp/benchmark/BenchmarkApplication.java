@@ -0,0 +1,68 @@
+package ch.hadzic.nikola.notesapp.benchmark;
+
+import ch.hadzic.nikola.notesapp.config.cache.CacheConfig;
+import ch.hadzic.nikola.notesapp.config.cache.EntityCache;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
+import ch.hadzic.nikola.notesapp.data.service.ChangeLogService;
+import ch.hadzic.nikola.notesapp.data.service.NoteContentService;
+import ch.hadzic.nikola.notesapp.data.service.NoteRevisionService;
+import ch.hadzic.nikola.notesapp.data.service.NoteService;
+import ch.hadzic.nikola.notesapp.data.service.StatsService;
+import ch.hadzic.nikola.notesapp.search.NoteSearchIndex;
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Persistence layer of the app on an embedded H2 database, without web and security.
+ * The same beans as in the {@code @DataJpaTest} integration tests are loaded.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@EntityScan(basePackageClasses = Note.class)
+@EnableJpaRepositories(basePackageClasses = NoteRepository.class)
+@Import({NoteService.class, NoteSearchIndex.class, EntityCache.class, CacheConfig.class, ChangeLogService.class,
+        NoteContentService.class, NoteRevisionService.class, StatsService.class})
+public class BenchmarkApplication {
+
+    /**
+     * Starts a context on a fresh in-memory database and logs in {@code userId} for all threads.
+     */
+    public static ConfigurableApplicationContext start(String userId) {
+        SecurityContextHolder.setStrategyName(SecurityContextHolder.MODE_GLOBAL);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(userId, "pw"));
+
+        // command line arguments take precedence over the application.yml of the app
+        return new SpringApplicationBuilder(BenchmarkApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .run("--spring.profiles.active=benchmark",
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driverClassName=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--logging.level.root=WARN");
+    }
+
+    /**
+     * Text of the given length built from a fixed vocabulary, so runs are comparable.
+     */
+    public static String text(int length) {
+        String words = "lorem ipsum dolor sit amet consectetur adipiscing elit sed do eiusmod tempor ";
+        StringBuilder text = new StringBuilder(length);
+        while (text.length() < length) {
+            text.append(words, 0, Math.min(words.length(), length - text.length()));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,75 @@
+package ch.hadzic.nikola.notesapp.benchmark;
+
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.entity.Tag;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of a {@link Note} with its tag set, with the same mapper defaults as the app.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NoteJsonBenchmark {
+
+    @Param({"0", "10", "100"})
+    int tagsPerNote;
+
+    @Param({"100", "2500"})
+    int contentLength;
+
+    private ObjectMapper objectMapper;
+    private Note note;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        Set<Tag> tags = new HashSet<>();
+        for (long i = 0; i < tagsPerNote; i++) {
+            tags.add(Tag.builder().id(i).name("tag" + i).userId("benchmark-user").build());
+        }
+        note = Note.builder()
+                .id(1L)
+                .title("Benchmark note")
+                .content(BenchmarkApplication.text(contentLength))
+                .tags(tags)
+                .userId("benchmark-user")
+                .createdAt(LocalDateTime.of(2025, 1, 1, 12, 0))
+                .updatedAt(LocalDateTime.of(2025, 1, 2, 12, 0))
+                .build();
+        json = objectMapper.writeValueAsBytes(note);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(note);
+    }
+
+    @Benchmark
+    public Note deserialize() throws IOException {
+        return objectMapper.readValue(json, Note.class);
+    }
+}
@@ -0,0 +1,81 @@
+package ch.hadzic.nikola.notesapp.benchmark;
+
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.entity.Tag;
+import ch.hadzic.nikola.notesapp.data.repository.TagRepository;
+import ch.hadzic.nikola.notesapp.data.service.NoteService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link NoteService#setTags} with a tag that is already on {@code taggedNotes} other notes.
+ * Each call alternately adds and removes the popular tag on the same note, so the cost
+ * should not grow with the number of notes carrying the tag.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NoteTagBenchmark {
+
+    private static final String USER_ID = "benchmark-user";
+
+    @Param({"1000", "100000"})
+    int taggedNotes;
+
+    private ConfigurableApplicationContext context;
+    private NoteService noteService;
+    private Long noteId;
+    private Set<Long> withPopular;
+    private Set<Long> withoutPopular;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(USER_ID);
+        noteService = context.getBean(NoteService.class);
+        TagRepository tagRepository = context.getBean(TagRepository.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        Tag popular = tagRepository.save(Tag.builder().name("popular").userId(USER_ID).build());
+        Tag other = tagRepository.save(Tag.builder().name("other").userId(USER_ID).build());
+        // written directly, creating this many notes through the service would take minutes
+        jdbcTemplate.update("""
+                insert into note (id, title, user_id, created_at, updated_at, is_favorite, is_archived)
+                select next value for note_seq, 'Note ' || x, ?, now(), now(), false, false
+                from system_range(1, ?)""", USER_ID, taggedNotes);
+        jdbcTemplate.update("insert into note_tag (note_id, tag_id) select id, ? from note", popular.getId());
+
+        noteId = noteService.createNote(Note.builder().title("Tagged note").tags(Set.of(other)).build()).getId();
+        withPopular = Set.of(other.getId(), popular.getId());
+        withoutPopular = Set.of(other.getId());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Note setTags() {
+        return noteService.setTags(noteId, next++ % 2 == 0 ? withPopular : withoutPopular, null);
+    }
+}
@@ -0,0 +1,92 @@
+package ch.hadzic.nikola.notesapp.benchmark;
+
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.entity.Tag;
+import ch.hadzic.nikola.notesapp.data.repository.TagRepository;
+import ch.hadzic.nikola.notesapp.data.service.NoteService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link NoteService#updateNote(Note)} against H2, including search indexing, cache eviction
+ * and the change log. Each call rewrites the content and the full tag set of the next note.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NoteUpdateBenchmark {
+
+    private static final String USER_ID = "benchmark-user";
+
+    @Param({"100", "1000"})
+    int notesPerUser;
+
+    @Param({"1", "10"})
+    int tagsPerNote;
+
+    @Param({"100", "2500"})
+    int contentLength;
+
+    private ConfigurableApplicationContext context;
+    private NoteService noteService;
+    private final List<Long> noteIds = new ArrayList<>();
+    private Set<Tag> tags;
+    private String content;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(USER_ID);
+        noteService = context.getBean(NoteService.class);
+        TagRepository tagRepository = context.getBean(TagRepository.class);
+
+        tags = new HashSet<>();
+        for (int i = 0; i < tagsPerNote; i++) {
+            Tag tag = tagRepository.save(Tag.builder().name("tag" + i).userId(USER_ID).build());
+            tags.add(Tag.builder().id(tag.getId()).build());
+        }
+        content = BenchmarkApplication.text(contentLength);
+        for (int i = 0; i < notesPerUser; i++) {
+            Note note = Note.builder().title("Note " + i).content(content).tags(new HashSet<>(tags)).build();
+            noteIds.add(noteService.createNote(note).getId());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Note updateNote() {
+        Long id = noteIds.get(next++ % noteIds.size());
+        Note update = Note.builder()
+                .id(id)
+                .title("Note " + id + " " + next)
+                .content(content)
+                .tags(new HashSet<>(tags))
+                .build();
+        return noteService.updateNote(update);
+    }
+}
@@ -0,0 +1,65 @@
+package ch.hadzic.nikola.notesapp.benchmark;
+
+import ch.hadzic.nikola.notesapp.data.dto.NoteExportRow;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.util.PdfExportUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PdfExportUtil} rendering of a full export and of a single note.
+ * The export is written to a discarding stream so only rendering is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfExportBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int notesPerUser;
+
+    @Param({"100", "2500"})
+    int contentLength;
+
+    private final List<NoteExportRow> rows = new ArrayList<>();
+    private Note note;
+
+    @Setup
+    public void setUp() {
+        String content = BenchmarkApplication.text(contentLength);
+        LocalDateTime createdAt = LocalDateTime.of(2025, 1, 1, 12, 0);
+        for (long i = 0; i < notesPerUser; i++) {
+            rows.add(new NoteExportRow(i, "Note " + i, content, null, List.of(), false, createdAt, createdAt));
+        }
+        note = Note.builder().id(1L).title("Note").content(content).createdAt(createdAt).build();
+    }
+
+    @Benchmark
+    public void exportNotes() throws IOException {
+        PdfExportUtil.exportNotesToPdf(rows.stream(), OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public byte[] exportNote() {
+        return PdfExportUtil.exportNoteToPdf(note);
+    }
+}
@@ -0,0 +1,61 @@
+package ch.hadzic.nikola.notesapp.benchmark;
+
+import ch.hadzic.nikola.notesapp.config.security.AuthenticationRoleConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * {@link AuthenticationRoleConverter#convert(Jwt)}, which runs on every authenticated request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoleConverterBenchmark {
+
+    private static final String APP_NAME = "NotesApp";
+
+    @Param({"1", "10", "50"})
+    int roles;
+
+    private AuthenticationRoleConverter converter;
+    private Jwt jwt;
+
+    @Setup
+    public void setUp() {
+        converter = new AuthenticationRoleConverter(APP_NAME);
+        List<String> roleNames = IntStream.range(0, roles).mapToObj(i -> "role" + i).toList();
+        jwt = Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject("benchmark-user")
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(3600))
+                .claim("roles", roleNames)
+                .claim("resource_access", Map.of(APP_NAME, Map.of("roles", roleNames)))
+                .build();
+    }
+
+    @Benchmark
+    public AbstractAuthenticationToken convert() {
+        return converter.convert(jwt);
+    }
+}
@@ -0,0 +1,12 @@
+package ch.hadzic.nikola.notesapp.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * SchedulingConfig enables the {@code @Scheduled} housekeeping jobs of the application.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,33 @@
+package ch.hadzic.nikola.notesapp.config.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * CacheConfig sets up the caches in front of the note, tag and notebook repositories,
+ * and the cache of the tag name tries used for autocompletion.
+ * The caches are Caffeine backed; size and expiry come from {@code notesapp.cache.spec}.
+ * Any other {@link CacheManager} providing the same cache names can be plugged in instead.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String NOTES = "notes";
+    public static final String TAGS = "tags";
+    public static final String NOTEBOOKS = "notebooks";
+    public static final String TAG_TRIES = "tagTries";
+
+    @Bean
+    public CacheManager cacheManager(
+            @Value("${notesapp.cache.spec:maximumSize=10000,expireAfterWrite=10m}") String spec) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(NOTES, TAGS, NOTEBOOKS, TAG_TRIES);
+        cacheManager.setCacheSpecification(spec + ",recordStats");
+        cacheManager.setAllowNullValues(false);
+        return cacheManager;
+    }
+}
@@ -0,0 +1,154 @@
+package ch.hadzic.nikola.notesapp.config.cache;
+
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.entity.Notebook;
+import ch.hadzic.nikola.notesapp.data.entity.Tag;
+import ch.hadzic.nikola.notesapp.search.TagTrie;
+import ch.hadzic.nikola.notesapp.util.TransactionUtil;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Read-through access to the entity caches, partitioned by user.
+ * Every key contains the owner, so an entry can only be served to the user it was loaded for.
+ * Evictions are applied after the surrounding transaction has committed; evicting earlier
+ * would let a concurrent reader put the old row back before the new one is visible. A reader that
+ * loaded the old row before the commit can still finish after the eviction, so every eviction
+ * advances a generation of its key, and a reader whose key has advanced while it was loading
+ * removes the value it has just put.
+ * Cached entities are shared between requests and must not be modified.
+ * <p>
+ * Next to the caches it keeps a listing version per user that changes whenever a note of the
+ * user, or a tag or notebook shown on one, is written. It is used as entity tag of the listings.
+ * Versions are drawn from one counter seeded with the start time, so a version handed out before
+ * a restart is not handed out again.
+ */
+@Component
+public class EntityCache {
+
+    private static final int GENERATION_STRIPES = 256;
+
+    private final Cache notes;
+    private final Cache tags;
+    private final Cache notebooks;
+    private final Cache tagTries;
+    private final AtomicLong versionCounter = new AtomicLong(System.currentTimeMillis() * 1_000);
+    private final Map<String, Long> listingVersions = new ConcurrentHashMap<>();
+    // eviction generations, shared by the keys hashing to the same stripe
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public EntityCache(CacheManager cacheManager) {
+        this.notes = cacheManager.getCache(CacheConfig.NOTES);
+        this.tags = cacheManager.getCache(CacheConfig.TAGS);
+        this.notebooks = cacheManager.getCache(CacheConfig.NOTEBOOKS);
+        this.tagTries = cacheManager.getCache(CacheConfig.TAG_TRIES);
+    }
+
+    private record NoteKey(String userId, Long noteId) {
+    }
+
+    public Note getNote(String userId, Long noteId, Supplier<Note> loader) {
+        return readThrough(notes, new NoteKey(userId, noteId), loader);
+    }
+
+    /**
+     * Returns the cached note without loading it.
+     *
+     * @return the note, {@code null} if it is not cached
+     */
+    public Note peekNote(String userId, Long noteId) {
+        Cache.ValueWrapper cached = notes.get(new NoteKey(userId, noteId));
+        return cached == null ? null : (Note) cached.get();
+    }
+
+    public long getListingVersion(String userId) {
+        return listingVersions.computeIfAbsent(userId, key -> versionCounter.get());
+    }
+
+    public List<Tag> getTags(String userId, Supplier<List<Tag>> loader) {
+        return readThrough(tags, userId, () -> List.copyOf(loader.get()));
+    }
+
+    public TagTrie getTagTrie(String userId, Supplier<TagTrie> loader) {
+        return readThrough(tagTries, userId, loader);
+    }
+
+    public List<Notebook> getNotebooks(String userId, Supplier<List<Notebook>> loader) {
+        return readThrough(notebooks, userId, () -> List.copyOf(loader.get()));
+    }
+
+    public void evictNote(String userId, Long noteId) {
+        TransactionUtil.afterCommit(() -> {
+            evict(notes, new NoteKey(userId, noteId));
+            bumpListingVersion(userId);
+        });
+    }
+
+    public void evictNotes(String userId, Collection<Long> noteIds) {
+        List<NoteKey> keys = noteIds.stream().map(noteId -> new NoteKey(userId, noteId)).toList();
+        TransactionUtil.afterCommit(() -> {
+            keys.forEach(key -> evict(notes, key));
+            bumpListingVersion(userId);
+        });
+    }
+
+    /**
+     * Invalidates the listings of a user without evicting single notes, e.g. after a note was created.
+     */
+    public void evictListings(String userId) {
+        TransactionUtil.afterCommit(() -> bumpListingVersion(userId));
+    }
+
+    public void evictTags(String userId) {
+        TransactionUtil.afterCommit(() -> {
+            evict(tags, userId);
+            evict(tagTries, userId);
+        });
+    }
+
+    public void evictNotebooks(String userId) {
+        TransactionUtil.afterCommit(() -> evict(notebooks, userId));
+    }
+
+    private void bumpListingVersion(String userId) {
+        listingVersions.put(userId, versionCounter.incrementAndGet());
+    }
+
+    private void evict(Cache cache, Object key) {
+        // advanced before evicting, so a reader that checks before the increment has put before the eviction
+        generations.incrementAndGet(stripe(key));
+        cache.evict(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T readThrough(Cache cache, Object key, Supplier<T> loader) {
+        Cache.ValueWrapper cached = cache.get(key);
+        if (cached != null) {
+            return (T) cached.get();
+        }
+        int stripe = stripe(key);
+        long generation = generations.get(stripe);
+        // not using Cache#get(key, Callable), it would wrap the exceptions of the loader
+        T value = loader.get();
+        cache.put(key, value);
+        if (generations.get(stripe) != generation) {
+            // evicted while loading, the value may predate the write
+            cache.evict(key);
+        }
+        return value;
+    }
+
+    private static int stripe(Object key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+}
@@ -0,0 +1,11 @@
+package ch.hadzic.nikola.notesapp.config.execptions;
+
+/**
+ * Custom exception class for handling rejected event streams.
+ * This exception is thrown when a user already has the maximum number of open event streams.
+ */
+public class EventStreamLimitException extends RuntimeException {
+    public EventStreamLimitException(String message) {
+        super(message);
+    }
+}
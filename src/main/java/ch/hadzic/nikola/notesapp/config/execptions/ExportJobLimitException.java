@@ -0,0 +1,12 @@
+package ch.hadzic.nikola.notesapp.config.execptions;
+
+/**
+ * Custom exception class for handling rejected export jobs.
+ * This exception is thrown when a user already has the maximum number of
+ * running exports or the export queue is full.
+ */
+public class ExportJobLimitException extends RuntimeException {
+    public ExportJobLimitException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package ch.hadzic.nikola.notesapp.config.execptions;
+
+/**
+ * Custom exception class for handling cases where an export job is not found.
+ * It is also thrown for jobs of other users, so their existence is not revealed.
+ */
+public class ExportJobNotFoundException extends RuntimeException {
+    public ExportJobNotFoundException(String message) {
+        super(message);
+    }
+}
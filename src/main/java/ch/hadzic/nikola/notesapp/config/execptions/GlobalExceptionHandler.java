@@ -1,5 +1,6 @@
 package ch.hadzic.nikola.notesapp.config.execptions;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -18,13 +19,77 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(NoteNotFoundException.class)
     public ResponseEntity<Object> handleNoteNotFound(NoteNotFoundException ex, WebRequest request) {
+        return buildResponse(HttpStatus.NOT_FOUND, ex.getMessage(), request);
+    }
+
+    @ExceptionHandler(NotebookNotFoundException.class)
+    public ResponseEntity<Object> handleNotebookNotFound(NotebookNotFoundException ex, WebRequest request) {
+        return buildResponse(HttpStatus.NOT_FOUND, ex.getMessage(), request);
+    }
+
+    @ExceptionHandler(TodoNotFoundException.class)
+    public ResponseEntity<Object> handleTodoNotFound(TodoNotFoundException ex, WebRequest request) {
+        return buildResponse(HttpStatus.NOT_FOUND, ex.getMessage(), request);
+    }
+
+    @ExceptionHandler(RevisionNotFoundException.class)
+    public ResponseEntity<Object> handleRevisionNotFound(RevisionNotFoundException ex, WebRequest request) {
+        return buildResponse(HttpStatus.NOT_FOUND, ex.getMessage(), request);
+    }
+
+    @ExceptionHandler(TagNotFoundException.class)
+    public ResponseEntity<Object> handleTagNotFound(TagNotFoundException ex, WebRequest request) {
+        return buildResponse(HttpStatus.BAD_REQUEST, ex.getMessage(), request);
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<Object> handleInvalidCursor(InvalidCursorException ex, WebRequest request) {
+        return buildResponse(HttpStatus.BAD_REQUEST, ex.getMessage(), request);
+    }
+
+    @ExceptionHandler(ExportJobNotFoundException.class)
+    public ResponseEntity<Object> handleExportJobNotFound(ExportJobNotFoundException ex, WebRequest request) {
+        return buildResponse(HttpStatus.NOT_FOUND, ex.getMessage(), request);
+    }
+
+    @ExceptionHandler(ExportJobLimitException.class)
+    public ResponseEntity<Object> handleExportJobLimit(ExportJobLimitException ex, WebRequest request) {
+        return buildResponse(HttpStatus.TOO_MANY_REQUESTS, ex.getMessage(), request);
+    }
+
+    @ExceptionHandler(ImportJobNotFoundException.class)
+    public ResponseEntity<Object> handleImportJobNotFound(ImportJobNotFoundException ex, WebRequest request) {
+        return buildResponse(HttpStatus.NOT_FOUND, ex.getMessage(), request);
+    }
+
+    @ExceptionHandler(ImportJobLimitException.class)
+    public ResponseEntity<Object> handleImportJobLimit(ImportJobLimitException ex, WebRequest request) {
+        return buildResponse(HttpStatus.TOO_MANY_REQUESTS, ex.getMessage(), request);
+    }
+
+    @ExceptionHandler(InvalidImportException.class)
+    public ResponseEntity<Object> handleInvalidImport(InvalidImportException ex, WebRequest request) {
+        return buildResponse(HttpStatus.BAD_REQUEST, ex.getMessage(), request);
+    }
+
+    @ExceptionHandler(EventStreamLimitException.class)
+    public ResponseEntity<Object> handleEventStreamLimit(EventStreamLimitException ex, WebRequest request) {
+        return buildResponse(HttpStatus.TOO_MANY_REQUESTS, ex.getMessage(), request);
+    }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<Object> handlePreconditionFailed(PreconditionFailedException ex, WebRequest request) {
+        return buildResponse(HttpStatus.PRECONDITION_FAILED, ex.getMessage(), request);
+    }
+
+    private ResponseEntity<Object> buildResponse(HttpStatus status, String message, WebRequest request) {
         Map<String, Object> body = new LinkedHashMap<>();
         body.put("timestamp", LocalDateTime.now());
-        body.put("status", 404);
-        body.put("error", "Not Found");
-        body.put("message", ex.getMessage());
+        body.put("status", status.value());
+        body.put("error", status.getReasonPhrase());
+        body.put("message", message);
         body.put("path", request.getDescription(false).replace("uri=", ""));
 
-        return ResponseEntity.status(404).body(body);
+        return ResponseEntity.status(status).body(body);
     }
 }
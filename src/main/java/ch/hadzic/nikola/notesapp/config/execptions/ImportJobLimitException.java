@@ -0,0 +1,12 @@
+package ch.hadzic.nikola.notesapp.config.execptions;
+
+/**
+ * Custom exception class for handling rejected import jobs.
+ * This exception is thrown when a user already has the maximum number of
+ * running imports or the import queue is full.
+ */
+public class ImportJobLimitException extends RuntimeException {
+    public ImportJobLimitException(String message) {
+        super(message);
+    }
+}
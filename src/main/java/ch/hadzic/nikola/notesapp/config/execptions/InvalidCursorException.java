@@ -0,0 +1,12 @@
+package ch.hadzic.nikola.notesapp.config.execptions;
+
+/**
+ * Custom exception class for handling cursors that cannot be decoded.
+ * This exception is thrown when a client sends a pagination cursor
+ * that was not issued by the server or has been tampered with.
+ */
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
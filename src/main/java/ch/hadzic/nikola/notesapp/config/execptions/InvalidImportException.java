@@ -0,0 +1,11 @@
+package ch.hadzic.nikola.notesapp.config.execptions;
+
+/**
+ * Custom exception class for handling archives that cannot be imported,
+ * because their format is unknown or they cannot be parsed.
+ */
+public class InvalidImportException extends RuntimeException {
+    public InvalidImportException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package ch.hadzic.nikola.notesapp.config.execptions;
+
+/**
+ * Custom exception class for handling cases where a notebook is not found.
+ * It is also thrown for notebooks of other users, so their existence is not revealed.
+ */
+public class NotebookNotFoundException extends RuntimeException {
+    public NotebookNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package ch.hadzic.nikola.notesapp.config.execptions;
+
+/**
+ * Custom exception class for handling failed {@code If-Match} preconditions.
+ * This exception is thrown when a client updates a resource based on a
+ * version that has been changed in the meantime.
+ */
+public class PreconditionFailedException extends RuntimeException {
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package ch.hadzic.nikola.notesapp.config.execptions;
+
+/**
+ * Custom exception class for handling cases where a note revision is not found.
+ * This exception is thrown when a revision has never existed or has been removed by compaction.
+ */
+public class RevisionNotFoundException extends RuntimeException {
+    public RevisionNotFoundException(String message) {
+        super(message);
+    }
+}
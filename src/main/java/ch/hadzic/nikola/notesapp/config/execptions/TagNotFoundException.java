@@ -0,0 +1,11 @@
+package ch.hadzic.nikola.notesapp.config.execptions;
+
+/**
+ * Custom exception class for handling cases where a note refers to a tag that is not found.
+ * This exception is thrown when the tag does not exist or belongs to another user.
+ */
+public class TagNotFoundException extends RuntimeException {
+    public TagNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package ch.hadzic.nikola.notesapp.config.execptions;
+
+/**
+ * Custom exception class for handling cases where a todo is not found.
+ * This exception is thrown when a todo does not exist or belongs to another user.
+ */
+public class TodoNotFoundException extends RuntimeException {
+    public TodoNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,27 @@
+package ch.hadzic.nikola.notesapp.config.logging;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+
+/**
+ * One line of the access log.
+ *
+ * @param route          matched path template, e.g. {@code /api/notes/{id}}, {@code null} if no handler matched
+ * @param durationMicros time from entering the filter until the response was complete
+ * @param bytesIn        request body bytes read by the application
+ * @param bytesOut       response body bytes, {@code -1} if unknown
+ * @param body           start of the request body, only for sampled or failed requests
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record AccessLogEntry(
+        Instant timestamp,
+        String method,
+        String route,
+        String uri,
+        int status,
+        long durationMicros,
+        long bytesIn,
+        long bytesOut,
+        String body) {
+}
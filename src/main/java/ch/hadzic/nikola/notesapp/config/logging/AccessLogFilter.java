@@ -0,0 +1,307 @@
+package ch.hadzic.nikola.notesapp.config.logging;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Access log with one entry per request: method, matched route, status, latency and body sizes.
+ * Bodies are not buffered; the request and response streams are wrapped to count bytes as they
+ * pass through. For sampled requests, and for requests answered with an error status if enabled,
+ * the first {@code max-body-bytes} of the request body are kept as they are read and logged.
+ * Entries are handed to the {@link AccessLogWriter} so that no logging happens on the request thread.
+ * Runs ahead of the security filter chain so that rejected requests are logged too.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class AccessLogFilter extends OncePerRequestFilter {
+
+    private final AccessLogWriter writer;
+    private final boolean enabled;
+    private final double sampleRate;
+    private final boolean captureErrors;
+    private final int maxBodyBytes;
+
+    public AccessLogFilter(AccessLogWriter writer,
+                           @Value("${notesapp.access-log.enabled:true}") boolean enabled,
+                           @Value("${notesapp.access-log.sample-rate:0.0}") double sampleRate,
+                           @Value("${notesapp.access-log.capture-errors:true}") boolean captureErrors,
+                           @Value("${notesapp.access-log.max-body-bytes:1024}") int maxBodyBytes) {
+        this.writer = writer;
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+        this.captureErrors = captureErrors;
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        boolean sampled = sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+        CountingRequest countingRequest = new CountingRequest(request, sampled || captureErrors ? maxBodyBytes : 0);
+        CountingResponse countingResponse = new CountingResponse(response);
+
+        boolean failed = true;
+        try {
+            filterChain.doFilter(countingRequest, countingResponse);
+            failed = false;
+        } finally {
+            if (!failed && countingRequest.isAsyncStarted()) {
+                countingRequest.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        submit(countingRequest, countingResponse, start, sampled, false);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                submit(countingRequest, countingResponse, start, sampled, failed);
+            }
+        }
+    }
+
+    private void submit(CountingRequest request, CountingResponse response, long start, boolean sampled, boolean failed) {
+        // an exception escaping the chain is turned into a 500 by the container after this filter
+        int status = failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus();
+        boolean withBody = sampled || (captureErrors && status >= 400);
+        Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+
+        writer.submit(new AccessLogEntry(
+                Instant.now(),
+                request.getMethod(),
+                route != null ? route.toString() : null,
+                request.getRequestURI(),
+                status,
+                (System.nanoTime() - start) / 1_000,
+                request.getBytesRead(),
+                response.getBytesWritten(),
+                withBody ? request.getCapturedBody() : null));
+    }
+
+    private static Charset charsetOf(String encoding) {
+        try {
+            return encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+        } catch (IllegalArgumentException e) {
+            return StandardCharsets.UTF_8;
+        }
+    }
+
+    static final class CountingRequest extends HttpServletRequestWrapper {
+
+        private final int captureLimit;
+        private CountingInputStream stream;
+        private BufferedReader reader;
+
+        CountingRequest(HttpServletRequest request, int captureLimit) {
+            super(request);
+            this.captureLimit = captureLimit;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (stream == null) {
+                stream = new CountingInputStream(super.getInputStream(), captureLimit);
+            }
+            return stream;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            if (reader == null) {
+                reader = new BufferedReader(new InputStreamReader(getInputStream(), charsetOf(getCharacterEncoding())));
+            }
+            return reader;
+        }
+
+        long getBytesRead() {
+            return stream != null ? stream.count : 0;
+        }
+
+        String getCapturedBody() {
+            if (stream == null || stream.captured == null) {
+                return null;
+            }
+            String body = stream.captured.toString(charsetOf(getCharacterEncoding()));
+            return stream.count > stream.captured.size() ? body + "..." : body;
+        }
+    }
+
+    static final class CountingResponse extends HttpServletResponseWrapper {
+
+        private CountingOutputStream stream;
+
+        CountingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (stream == null) {
+                stream = new CountingOutputStream(super.getOutputStream());
+            }
+            return stream;
+        }
+
+        /**
+         * Bytes written through the output stream. Responses written through the writer are
+         * not counted; for those the declared Content-Length is used if there is one.
+         */
+        long getBytesWritten() {
+            if (stream != null) {
+                return stream.count;
+            }
+            String contentLength = getHeader(HttpHeaders.CONTENT_LENGTH);
+            if (contentLength != null) {
+                try {
+                    return Long.parseLong(contentLength);
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+            return isCommitted() ? -1 : 0;
+        }
+    }
+
+    private static final class CountingInputStream extends ServletInputStream {
+
+        private final ServletInputStream delegate;
+        private final int captureLimit;
+        private ByteArrayOutputStream captured;
+        private long count;
+
+        CountingInputStream(ServletInputStream delegate, int captureLimit) {
+            this.delegate = delegate;
+            this.captureLimit = captureLimit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = delegate.read();
+            if (b >= 0) {
+                if (count < captureLimit) {
+                    captureBuffer().write(b);
+                }
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = delegate.read(b, off, len);
+            if (n > 0) {
+                if (count < captureLimit) {
+                    captureBuffer().write(b, off, (int) Math.min(n, captureLimit - count));
+                }
+                count += n;
+            }
+            return n;
+        }
+
+        private ByteArrayOutputStream captureBuffer() {
+            if (captured == null) {
+                captured = new ByteArrayOutputStream(Math.min(captureLimit, 256));
+            }
+            return captured;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return delegate.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            delegate.setReadListener(readListener);
+        }
+    }
+
+    private static final class CountingOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+        private long count;
+
+        CountingOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package ch.hadzic.nikola.notesapp.config.logging;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Writes access log entries as JSON lines to the {@code ACCESS} logger on a background thread.
+ * Request threads only put entries into a bounded queue; if it is full the entry is dropped
+ * and counted rather than slowing down the request. The writer thread takes entries in batches
+ * of up to {@value #BATCH_SIZE}.
+ */
+@Slf4j
+@Component
+public class AccessLogWriter implements DisposableBean {
+
+    private static final Logger ACCESS_LOG = LoggerFactory.getLogger("ACCESS");
+    private static final int BATCH_SIZE = 256;
+
+    private final BlockingQueue<AccessLogEntry> queue;
+    private final ObjectWriter jsonWriter;
+    private final Consumer<String> sink;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    @Autowired
+    public AccessLogWriter(ObjectMapper objectMapper,
+                           @Value("${notesapp.access-log.queue-capacity:10000}") int queueCapacity) {
+        this(objectMapper, queueCapacity, ACCESS_LOG::info);
+    }
+
+    AccessLogWriter(ObjectMapper objectMapper, int queueCapacity, Consumer<String> sink) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.jsonWriter = objectMapper.writerFor(AccessLogEntry.class);
+        this.sink = sink;
+        this.thread = Thread.ofPlatform().name("access-log").daemon(true).start(this::drain);
+    }
+
+    /**
+     * Queues an entry without blocking.
+     */
+    public void submit(AccessLogEntry entry) {
+        if (!queue.offer(entry)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Stops the writer thread after the queued entries have been written.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        thread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void drain() {
+        List<AccessLogEntry> batch = new ArrayList<>(BATCH_SIZE);
+        while (running || !queue.isEmpty()) {
+            try {
+                AccessLogEntry first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                batch.forEach(this::write);
+                batch.clear();
+
+                long lost = dropped.getAndSet(0);
+                if (lost > 0) {
+                    log.warn("Access log queue full, dropped {} entries", lost);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void write(AccessLogEntry entry) {
+        try {
+            sink.accept(jsonWriter.writeValueAsString(entry));
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Could not write access log entry", e);
+        }
+    }
+}
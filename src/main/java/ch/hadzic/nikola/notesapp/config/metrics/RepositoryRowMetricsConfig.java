@@ -0,0 +1,100 @@
+package ch.hadzic.nikola.notesapp.config.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.lang.NonNull;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records how many rows each repository method returns as {@code notesapp.repository.rows},
+ * tagged with repository and method. Timings of the same calls are recorded by Spring Boot
+ * as {@code spring.data.repository.invocations}.
+ * Only collections, pages, slices and optionals are counted; streams are consumed lazily
+ * by the caller and scalar results such as counts are not row counts.
+ */
+@Configuration(proxyBeanMethods = false)
+public class RepositoryRowMetricsConfig {
+
+    @Bean
+    static BeanPostProcessor repositoryRowMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(@NonNull Object bean, @NonNull String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, information) -> proxyFactory.addAdvice(new RowCountInterceptor(
+                                    meterRegistry, information.getRepositoryInterface().getSimpleName()))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    static final class RowCountInterceptor implements MethodInterceptor {
+
+        private final ObjectProvider<MeterRegistry> meterRegistry;
+        private final String repository;
+        private final Map<Method, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+        RowCountInterceptor(ObjectProvider<MeterRegistry> meterRegistry, String repository) {
+            this.meterRegistry = meterRegistry;
+            this.repository = repository;
+        }
+
+        @Override
+        public Object invoke(@NonNull MethodInvocation invocation) throws Throwable {
+            Object result = invocation.proceed();
+            long rows = rows(result);
+            if (rows >= 0) {
+                DistributionSummary summary = summary(invocation.getMethod());
+                if (summary != null) {
+                    summary.record(rows);
+                }
+            }
+            return result;
+        }
+
+        private DistributionSummary summary(Method method) {
+            DistributionSummary summary = summaries.get(method);
+            if (summary == null) {
+                MeterRegistry registry = meterRegistry.getIfAvailable();
+                if (registry == null) {
+                    return null;
+                }
+                summary = summaries.computeIfAbsent(method, m -> DistributionSummary.builder("notesapp.repository.rows")
+                        .description("Rows returned per repository call")
+                        .baseUnit("rows")
+                        .tag("repository", repository)
+                        .tag("method", m.getName())
+                        .register(registry));
+            }
+            return summary;
+        }
+
+        private static long rows(Object result) {
+            if (result instanceof Collection<?> collection) {
+                return collection.size();
+            }
+            if (result instanceof Slice<?> slice) {
+                return slice.getNumberOfElements();
+            }
+            if (result instanceof Optional<?> optional) {
+                return optional.isPresent() ? 1 : 0;
+            }
+            return -1;
+        }
+    }
+}
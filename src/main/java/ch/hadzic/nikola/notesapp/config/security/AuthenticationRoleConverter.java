@@ -1,5 +1,6 @@
 package ch.hadzic.nikola.notesapp.config.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.AbstractAuthenticationToken;
@@ -9,50 +10,77 @@ import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
 
+import java.time.Instant;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Converter to extract roles from JWT token and convert them into Spring Security authorities.
+ * The authorities of a token are cached until it expires, and authority objects are shared
+ * between tokens with the same roles.
  */
 public class AuthenticationRoleConverter implements Converter<Jwt, AbstractAuthenticationToken> {
+
+    private static final long DEFAULT_CACHE_SIZE = 10_000;
+
     private final JwtGrantedAuthoritiesConverter defaultGrantedAuthoritiesConverter = new JwtGrantedAuthoritiesConverter();
 
     private final String appName;
+    // the roles are defined by the identity provider, so this stays small
+    private final Map<String, GrantedAuthority> internedAuthorities = new ConcurrentHashMap<>();
+    private final Cache<String, TokenAuthorities> authoritiesByToken;
 
     public AuthenticationRoleConverter(String appName) {
+        this(appName, DEFAULT_CACHE_SIZE);
+    }
+
+    public AuthenticationRoleConverter(String appName, long cacheSize) {
         defaultGrantedAuthoritiesConverter.setAuthoritiesClaimName("roles");
         defaultGrantedAuthoritiesConverter.setAuthorityPrefix("ROLE_");
         this.appName = appName;
+        this.authoritiesByToken = TokenCaches.create(cacheSize, TokenAuthorities::expiresAt);
     }
 
-    private Collection<? extends GrantedAuthority> extractResourceRoles(final Jwt jwt) {
+    private void addResourceRoles(final Jwt jwt, final Set<GrantedAuthority> authorities) {
         Map<String, Object> resourceAccess = jwt.getClaim("resource_access");
-        if (resourceAccess != null) {
-            Object appObj = resourceAccess.get(appName);
-            if (appObj instanceof Map<?, ?> appMap) {
-                Object rolesObj = appMap.get("roles");
-                if (rolesObj instanceof Collection<?> roles) {
-                    return roles.stream()
-                            .filter(String.class::isInstance)
-                            .map(String.class::cast)
-                            .map(SimpleGrantedAuthority::new)
-                            .collect(Collectors.toSet());
+        if (resourceAccess != null
+                && resourceAccess.get(appName) instanceof Map<?, ?> appMap
+                && appMap.get("roles") instanceof Collection<?> roles) {
+            for (Object role : roles) {
+                if (role instanceof String name) {
+                    authorities.add(intern(name));
                 }
             }
         }
-        return Collections.emptySet();
     }
 
+    private TokenAuthorities extractAuthorities(final Jwt jwt) {
+        Set<GrantedAuthority> authorities = new HashSet<>();
+        for (GrantedAuthority authority : defaultGrantedAuthoritiesConverter.convert(jwt)) {
+            authorities.add(intern(authority.getAuthority()));
+        }
+        addResourceRoles(jwt, authorities);
+        return new TokenAuthorities(Set.copyOf(authorities), jwt.getExpiresAt());
+    }
+
+    private GrantedAuthority intern(String authority) {
+        return internedAuthorities.computeIfAbsent(authority, SimpleGrantedAuthority::new);
+    }
+
+    /**
+     * A new token is returned for every call, as the authentication provider sets the request
+     * details on it; only its authorities are shared.
+     */
     @Override
     public AbstractAuthenticationToken convert(@NonNull final Jwt source) {
-        Collection<GrantedAuthority> authorities = Stream.concat(
-                        defaultGrantedAuthoritiesConverter.convert(source).stream(),
-                        extractResourceRoles(source).stream())
-                .collect(Collectors.toSet());
-        return new JwtAuthenticationToken(source, authorities);
+        TokenAuthorities authorities = authoritiesByToken.get(TokenCaches.key(source.getTokenValue()),
+                key -> extractAuthorities(source));
+        return new JwtAuthenticationToken(source, authorities.authorities());
+    }
+
+    private record TokenAuthorities(Set<GrantedAuthority> authorities, Instant expiresAt) {
     }
 }
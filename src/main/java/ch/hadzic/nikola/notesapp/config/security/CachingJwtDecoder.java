@@ -0,0 +1,33 @@
+package ch.hadzic.nikola.notesapp.config.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+/**
+ * Remembers successfully decoded tokens until they expire, so a client sending the same token
+ * with every request gets its signature and claims checked only once.
+ * Tokens that fail validation are not cached.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final Cache<String, Jwt> decoded;
+
+    public CachingJwtDecoder(JwtDecoder delegate, long maximumSize) {
+        this.delegate = delegate;
+        this.decoded = TokenCaches.create(maximumSize, Jwt::getExpiresAt);
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String key = TokenCaches.key(token);
+        Jwt jwt = decoded.getIfPresent(key);
+        if (jwt == null) {
+            jwt = delegate.decode(token);
+            decoded.put(key, jwt);
+        }
+        return jwt;
+    }
+}
@@ -0,0 +1,78 @@
+package ch.hadzic.nikola.notesapp.config.security;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.jwk.source.JWKSourceBuilder;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * JwtDecoderConfig sets up token validation against the signing keys of the issuer.
+ * The key set is cached for {@code notesapp.jwt.jwks-ttl} and refreshed in the background
+ * before it expires, and kept for {@code notesapp.jwt.jwks-outage-tolerance} if the issuer cannot
+ * be reached, so requests don't wait for the issuer. Decoded tokens are cached until they expire,
+ * see {@link CachingJwtDecoder}.
+ */
+@Slf4j
+@Configuration(proxyBeanMethods = false)
+public class JwtDecoderConfig {
+
+    @Bean
+    public JWKSource<SecurityContext> jwkSource(
+            @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri,
+            @Value("${notesapp.jwt.jwks-ttl:15m}") Duration ttl,
+            @Value("${notesapp.jwt.jwks-refresh-ahead:1m}") Duration refreshAhead,
+            @Value("${notesapp.jwt.jwks-outage-tolerance:24h}") Duration outageTolerance) throws MalformedURLException {
+        return JWKSourceBuilder.create(URI.create(jwkSetUri).toURL())
+                .cache(ttl.toMillis(), JWKSourceBuilder.DEFAULT_CACHE_REFRESH_TIMEOUT)
+                .refreshAheadCache(refreshAhead.toMillis(), true)
+                .outageTolerant(outageTolerance.toMillis())
+                .retrying(true)
+                .build();
+    }
+
+    @Bean
+    public JwtDecoder jwtDecoder(JWKSource<SecurityContext> jwkSource,
+                                 @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}") String issuerUri,
+                                 @Value("${notesapp.jwt.token-cache-size:10000}") long tokenCacheSize) {
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwkSource));
+        // claims are checked by the Spring Security validators below
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(jwtProcessor);
+        decoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(issuerUri));
+        return new CachingJwtDecoder(decoder, tokenCacheSize);
+    }
+
+    /**
+     * Loads the key set once after startup, in the background, so that the first request
+     * finds it in the cache and refreshes are scheduled from then on.
+     */
+    @Bean
+    public ApplicationRunner jwkSetPrefetch(JWKSource<SecurityContext> jwkSource) {
+        return args -> Thread.ofVirtual().name("jwks-prefetch").start(() -> {
+            try {
+                jwkSource.get(new JWKSelector(new JWKMatcher.Builder().build()), null);
+            } catch (Exception e) {
+                log.warn("Could not load the JWK set, retrying with the first request: {}", e.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,62 @@
+package ch.hadzic.nikola.notesapp.config.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.function.Function;
+
+/**
+ * Helpers for caches of data derived from bearer tokens. Entries are keyed by a SHA-256 digest of
+ * the token, so the tokens themselves are not kept in memory, and expire when the token does.
+ */
+final class TokenCaches {
+
+    private TokenCaches() {
+    }
+
+    /**
+     * Creates a cache whose entries live until the expiry returned by {@code expiresAt};
+     * entries without expiry are dropped right away.
+     */
+    static <V> Cache<String, V> create(long maximumSize, Function<V, Instant> expiresAt) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, V>() {
+                    @Override
+                    public long expireAfterCreate(String key, V value, long currentTime) {
+                        Instant expiry = expiresAt.apply(value);
+                        if (expiry == null) {
+                            return 0;
+                        }
+                        return Math.max(0, Duration.between(Instant.now(), expiry).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, V value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, V value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    static String key(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
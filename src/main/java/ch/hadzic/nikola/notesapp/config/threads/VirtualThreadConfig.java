@@ -0,0 +1,61 @@
+package ch.hadzic.nikola.notesapp.config.threads;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.lang.NonNull;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Additions for {@code spring.threads.virtual.enabled=true}, where Spring Boot runs Tomcat requests,
+ * {@code @Scheduled} jobs and async tasks on virtual threads.
+ * Access to the database is limited to {@code notesapp.db.max-concurrency} threads,
+ * see {@link ConcurrencyLimitedDataSource}, and pinned virtual threads are reported by
+ * the {@link PinnedThreadMonitor}.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean
+    static BeanPostProcessor concurrencyLimitedDataSourcePostProcessor(Environment environment,
+                                                                       ObjectProvider<MeterRegistry> meterRegistry) {
+        // read from the environment, @Value placeholders are not resolved yet for post processors
+        int maxConcurrency = environment.getProperty("notesapp.db.max-concurrency", Integer.class,
+                environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10));
+        Duration permitTimeout = environment.getProperty("notesapp.db.permit-timeout", Duration.class,
+                Duration.ofSeconds(30));
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(@NonNull Object bean, @NonNull String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ConcurrencyLimitedDataSource)) {
+                    ConcurrencyLimitedDataSource limited =
+                            new ConcurrencyLimitedDataSource(dataSource, maxConcurrency, permitTimeout);
+                    meterRegistry.ifAvailable(registry -> {
+                        Gauge.builder("notesapp.db.permits.available", limited,
+                                ConcurrencyLimitedDataSource::getAvailablePermits).register(registry);
+                        Gauge.builder("notesapp.db.permits.waiting", limited,
+                                ConcurrencyLimitedDataSource::getWaitingThreads).register(registry);
+                    });
+                    return limited;
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    PinnedThreadMonitor pinnedThreadMonitor(
+            @Value("${notesapp.virtual-threads.pinned-threshold:20ms}") Duration threshold,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        return new PinnedThreadMonitor(threshold, meterRegistry.getIfAvailable());
+    }
+}
@@ -1,54 +1,109 @@
 package ch.hadzic.nikola.notesapp.controller;
 
+import ch.hadzic.nikola.notesapp.data.dto.ExportJobStatus;
+import ch.hadzic.nikola.notesapp.data.dto.ExportScope;
+import ch.hadzic.nikola.notesapp.data.dto.NoteExportRow;
 import ch.hadzic.nikola.notesapp.data.entity.Note;
 import ch.hadzic.nikola.notesapp.data.service.NoteService;
-import ch.hadzic.nikola.notesapp.util.PdfExportUtil;
+import ch.hadzic.nikola.notesapp.export.ExportFormat;
+import ch.hadzic.nikola.notesapp.export.ExportJob;
+import ch.hadzic.nikola.notesapp.export.ExportJobService;
+import ch.hadzic.nikola.notesapp.export.NoteExporter;
+import ch.hadzic.nikola.notesapp.export.NoteExporters;
+import ch.hadzic.nikola.notesapp.export.PdfRenderer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 /**
- * ExportController handles the export of notes as PDF files.
- * It provides endpoints to export all notes or a specific note as a PDF file.
+ * ExportController handles the export of notes as PDF, Markdown, NDJSON, HTML or zip files.
+ * It provides endpoints to export all notes, the notes of a notebook or tag, or a specific
+ * note as a PDF file, and to run exports as background jobs whose files can be downloaded later.
  * This controller is secured with JWT authentication.
  */
 @RestController
 @SecurityRequirement(name = "bearerAuth")
 @RequestMapping("/api/export")
-@Tag(name = "Export Controller", description = "Export notes as PDF")
+@Tag(name = "Export Controller", description = "Export notes as PDF, Markdown, NDJSON, HTML or zip")
 public class ExportController {
 
     private final NoteService noteService;
+    private final ExportJobService exportJobService;
+    private final NoteExporters exporters;
+    private final PdfRenderer pdfRenderer;
 
-    public ExportController(NoteService noteService) {
+    public ExportController(NoteService noteService, ExportJobService exportJobService, NoteExporters exporters,
+                            PdfRenderer pdfRenderer) {
         this.noteService = noteService;
+        this.exportJobService = exportJobService;
+        this.exporters = exporters;
+        this.pdfRenderer = pdfRenderer;
     }
 
-    @Operation(summary = "Export all notes as PDF")
+    @Operation(summary = "Export notes in the format of the Accept header, PDF for */*")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "PDF file generated successfully"),
+            @ApiResponse(responseCode = "200", description = "File generated successfully"),
+            @ApiResponse(responseCode = "406", description = "None of the accepted types can be exported"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
-    @GetMapping("/notes/pdf")
-    public ResponseEntity<byte[]> exportNotesAsPdf() {
-        List<Note> notes = noteService.getNotesForCurrentUser();
-        byte[] pdfBytes = PdfExportUtil.exportNotesToPdf(notes);
+    @GetMapping("/notes")
+    public ResponseEntity<StreamingResponseBody> exportNotes(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestParam(required = false) Long notebookId,
+            @RequestParam(required = false) Long tagId) {
+        Optional<ExportFormat> format = exporters.negotiate(
+                accept == null ? List.of() : MediaType.parseMediaTypes(accept));
+        if (format.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE).build();
+        }
+        return export(format.get(), new ExportScope(notebookId, tagId), acceptEncoding, true);
+    }
 
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=notes.pdf")
-                .contentType(MediaType.APPLICATION_PDF)
-                .body(pdfBytes);
+    @Operation(summary = "Export notes as pdf, md, ndjson, html or zip")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "File generated successfully"),
+            @ApiResponse(responseCode = "404", description = "Unknown format"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/notes/{extension}")
+    public ResponseEntity<StreamingResponseBody> exportNotesAs(
+            @PathVariable String extension,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestParam(required = false) Long notebookId,
+            @RequestParam(required = false) Long tagId) {
+        Optional<ExportFormat> format = ExportFormat.ofExtension(extension);
+        if (format.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return export(format.get(), new ExportScope(notebookId, tagId), acceptEncoding, false);
     }
 
     @Operation(summary = "Export a specific note as PDF")
@@ -64,11 +119,117 @@ public class ExportController {
             return ResponseEntity.notFound().build();
         }
 
-        byte[] pdfBytes = PdfExportUtil.exportNoteToPdf(note);
+        byte[] pdfBytes = pdfRenderer.renderNote(note);
 
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=note_" + id + ".pdf")
                 .contentType(MediaType.APPLICATION_PDF)
                 .body(pdfBytes);
     }
+
+    @Operation(summary = "Starts a background export of all notes")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Export job queued"),
+            @ApiResponse(responseCode = "429", description = "Too many running exports")
+    })
+    @PostMapping("/jobs")
+    public ResponseEntity<ExportJobStatus> createJob(@RequestParam(defaultValue = "PDF") ExportFormat format,
+                                                     @RequestParam(required = false) Long notebookId,
+                                                     @RequestParam(required = false) Long tagId) {
+        ExportJob job = exportJobService.submit(format, new ExportScope(notebookId, tagId));
+        URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                .path("/{id}")
+                .buildAndExpand(job.getId())
+                .toUri();
+
+        return ResponseEntity.accepted()
+                .location(location)
+                .body(ExportJobStatus.of(job, location + "/download"));
+    }
+
+    @Operation(summary = "Reports the progress of an export job")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Job status retrieved successfully"),
+            @ApiResponse(responseCode = "404", description = "Job not found or expired")
+    })
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<ExportJobStatus> getJob(@PathVariable String id) {
+        ExportJob job = exportJobService.getJob(id);
+        String download = ServletUriComponentsBuilder.fromCurrentRequest().path("/download").toUriString();
+        return ResponseEntity.ok(ExportJobStatus.of(job, download));
+    }
+
+    @Operation(summary = "Downloads the file of a finished export job, supports Range requests")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "File returned"),
+            @ApiResponse(responseCode = "206", description = "Requested byte range returned"),
+            @ApiResponse(responseCode = "404", description = "Job not found or expired"),
+            @ApiResponse(responseCode = "409", description = "Job not finished yet")
+    })
+    @GetMapping("/jobs/{id}/download")
+    public ResponseEntity<Resource> downloadJob(@PathVariable String id) {
+        ExportJob job = exportJobService.getJob(id);
+        if (job.getStatus() != ExportJob.Status.DONE) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+
+        // Spring answers Range headers on Resource bodies with 206 partial content
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=notes." + job.getFormat().getExtension())
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .eTag(job.getId())
+                .lastModified(job.getFinishedAt())
+                .contentType(job.getFormat().getMediaType())
+                .body(new FileSystemResource(job.getFile()));
+    }
+
+    private ResponseEntity<StreamingResponseBody> export(ExportFormat format, ExportScope scope,
+                                                         String acceptEncoding, boolean negotiated) {
+        NoteExporter exporter = exporters.get(format);
+        boolean gzip = format.isCompressible() && acceptsGzip(acceptEncoding);
+        // resolved on the request thread, the rows are then paged in while the file is written
+        Stream<NoteExportRow> notes = noteService.streamNotesForExport(scope);
+        StreamingResponseBody body = out -> {
+            try (notes) {
+                if (gzip) {
+                    // finished, not closed: the container owns the response stream
+                    GZIPOutputStream compressed = new GZIPOutputStream(out, true);
+                    exporter.export(notes, compressed);
+                    compressed.finish();
+                    out.flush();
+                } else {
+                    exporter.export(notes, out);
+                }
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=notes." + format.getExtension())
+                .contentType(format.getMediaType());
+        List<String> vary = new ArrayList<>();
+        if (negotiated) {
+            vary.add(HttpHeaders.ACCEPT);
+        }
+        if (format.isCompressible()) {
+            vary.add(HttpHeaders.ACCEPT_ENCODING);
+        }
+        if (!vary.isEmpty()) {
+            response.varyBy(vary.toArray(String[]::new));
+        }
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        return Arrays.stream(acceptEncoding.toLowerCase(Locale.ROOT).split(","))
+                .map(coding -> coding.replace(" ", ""))
+                .filter(coding -> coding.equals("gzip") || coding.startsWith("gzip;"))
+                .anyMatch(coding -> !coding.matches("gzip;q=0(\\.0*)?"));
+    }
 }
@@ -0,0 +1,77 @@
+package ch.hadzic.nikola.notesapp.controller;
+
+import ch.hadzic.nikola.notesapp.config.security.Roles;
+import ch.hadzic.nikola.notesapp.data.dto.ImportJobStatus;
+import ch.hadzic.nikola.notesapp.importer.ImportFormat;
+import ch.hadzic.nikola.notesapp.importer.ImportJob;
+import ch.hadzic.nikola.notesapp.importer.ImportJobService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.annotation.security.RolesAllowed;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RequestPart;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.net.URI;
+
+/**
+ * ImportController handles the import of notes from archives.
+ * Archives are imported as background jobs whose progress can be polled.
+ * This controller is secured with JWT authentication.
+ */
+@RestController
+@SecurityRequirement(name = "bearerAuth")
+@RequestMapping("/api/import")
+@Tag(name = "Import Controller", description = "Import notes from Markdown or JSON archives")
+public class ImportController {
+
+    private final ImportJobService importJobService;
+
+    public ImportController(ImportJobService importJobService) {
+        this.importJobService = importJobService;
+    }
+
+    @Operation(summary = "Uploads an archive and starts importing its notes in the background")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Import job queued"),
+            @ApiResponse(responseCode = "400", description = "Empty archive or unknown format"),
+            @ApiResponse(responseCode = "413", description = "Archive too large"),
+            @ApiResponse(responseCode = "429", description = "Too many running imports")
+    })
+    @RolesAllowed(Roles.Create)
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ImportJobStatus> createJob(@RequestPart("file") MultipartFile file,
+                                                     @RequestParam(required = false) ImportFormat format) {
+        ImportJob job = importJobService.submit(file, format);
+        URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                .path("/jobs/{id}")
+                .buildAndExpand(job.getId())
+                .toUri();
+
+        return ResponseEntity.accepted()
+                .location(location)
+                .body(ImportJobStatus.of(job));
+    }
+
+    @Operation(summary = "Reports the progress of an import job")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Job status retrieved successfully"),
+            @ApiResponse(responseCode = "404", description = "Job not found or expired")
+    })
+    @RolesAllowed(Roles.Read)
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<ImportJobStatus> getJob(@PathVariable String id) {
+        return ResponseEntity.ok(ImportJobStatus.of(importJobService.getJob(id)));
+    }
+}
@@ -1,6 +1,8 @@
 package ch.hadzic.nikola.notesapp.controller;
 
 import ch.hadzic.nikola.notesapp.config.security.Roles;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -8,6 +10,7 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.annotation.security.RolesAllowed;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -21,6 +24,7 @@ import java.time.Duration;
 import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -36,14 +40,16 @@ import java.util.Map;
 public class MetaController {
 
     private final DataSource dataSource;
+    private final CacheManager cacheManager;
     private final Instant startTime = Instant.now();
     @Value("${spring.app.name}")
     private String appName;
     @Value("${spring.app.version}")
     private String appVersion;
 
-    public MetaController(DataSource dataSource) {
+    public MetaController(DataSource dataSource, CacheManager cacheManager) {
         this.dataSource = dataSource;
+        this.cacheManager = cacheManager;
     }
 
     @Operation(summary = "Returns basic app info (name and version)")
@@ -104,4 +110,26 @@ public class MetaController {
             return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("DB Connection FAILED");
         }
     }
+
+    @Operation(summary = "Returns hit, miss and eviction counts of the entity caches")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Cache statistics retrieved successfully")
+    })
+    @GetMapping("/caches")
+    public ResponseEntity<Map<String, Map<String, Object>>> getCacheStats() {
+        Map<String, Map<String, Object>> caches = new LinkedHashMap<>();
+        for (String name : cacheManager.getCacheNames()) {
+            if (cacheManager.getCache(name).getNativeCache() instanceof Cache<?, ?> cache) {
+                CacheStats stats = cache.stats();
+                Map<String, Object> info = new LinkedHashMap<>();
+                info.put("size", cache.estimatedSize());
+                info.put("hits", stats.hitCount());
+                info.put("misses", stats.missCount());
+                info.put("hitRate", stats.hitRate());
+                info.put("evictions", stats.evictionCount());
+                caches.put(name, info);
+            }
+        }
+        return ResponseEntity.ok(caches);
+    }
 }
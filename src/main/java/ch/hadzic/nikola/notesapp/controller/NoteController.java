@@ -1,8 +1,19 @@
 package ch.hadzic.nikola.notesapp.controller;
 
 import ch.hadzic.nikola.notesapp.config.security.Roles;
+import ch.hadzic.nikola.notesapp.data.dto.CursorPage;
+import ch.hadzic.nikola.notesapp.data.dto.NoteBatchRequest;
+import ch.hadzic.nikola.notesapp.data.dto.NoteBatchResult;
+import ch.hadzic.nikola.notesapp.data.dto.NoteSearchHit;
+import ch.hadzic.nikola.notesapp.data.dto.NoteSummary;
+import ch.hadzic.nikola.notesapp.data.dto.NoteVersion;
 import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.repository.NoteFilter;
+import ch.hadzic.nikola.notesapp.data.repository.NoteListing;
+import ch.hadzic.nikola.notesapp.data.repository.NoteSort;
+import ch.hadzic.nikola.notesapp.data.service.NoteBatchService;
 import ch.hadzic.nikola.notesapp.data.service.NoteService;
+import ch.hadzic.nikola.notesapp.events.ChangeEventStreamService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -11,17 +22,30 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
 
 /**
  * NoteController handles CRUD operations for notes.
  * It provides endpoints to create, read, update, and delete notes.
  * This controller is secured with JWT authentication.
+ * Reads carry entity tags and answer matching {@code If-None-Match} requests with 304
+ * before the note or page is loaded; updates honour {@code If-Match}.
  */
 @RestController
 @SecurityRequirement(name = "bearerAuth")
@@ -30,10 +54,17 @@ import java.util.List;
 @RequestMapping("/api/notes")
 public class NoteController {
 
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     private final NoteService noteService;
+    private final NoteBatchService noteBatchService;
+    private final ChangeEventStreamService changeEventStreamService;
 
-    public NoteController(NoteService noteService) {
+    public NoteController(NoteService noteService, NoteBatchService noteBatchService,
+                          ChangeEventStreamService changeEventStreamService) {
         this.noteService = noteService;
+        this.noteBatchService = noteBatchService;
+        this.changeEventStreamService = changeEventStreamService;
     }
 
     @Operation(summary = "Creates a new note")
@@ -48,74 +79,160 @@ public class NoteController {
         return ResponseEntity.ok(noteService.createNote(note));
     }
 
+    @Operation(summary = "Creates, updates and deletes many notes in one request",
+            description = "Each operation needs the role of its single-item endpoint and gets its own result.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch processed, see the status of each result"),
+            @ApiResponse(responseCode = "400", description = "No operations or more than "
+                    + NoteBatchService.MAX_OPERATIONS)
+    })
+    @RolesAllowed({Roles.Create, Roles.Update, Roles.Delete})
+    @PostMapping("/batch")
+    public ResponseEntity<List<NoteBatchResult>> applyBatch(@Valid @RequestBody NoteBatchRequest request) {
+        return ResponseEntity.ok(noteBatchService.apply(request.operations()));
+    }
 
-    @Operation(summary = "Gives all not archived notes for the current user")
+    @Operation(summary = "Gives a page of the current user's notes matching the filters, newest first",
+            description = "Filters are combined with and; a filter that is not given is left out, so archived and "
+                    + "not archived notes are listed unless archived is given. Several tag ids match notes with any "
+                    + "of them, or with all of them if tagMatch is ALL. Ranges include their start and exclude their "
+                    + "end. Notes with the same sort key are ordered by id.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Notes retrieved successfully"),
-            @ApiResponse(responseCode = "204", description = "No notes found")
+            @ApiResponse(responseCode = "304", description = "Not modified since the given ETag"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or filter")
     })
     @RolesAllowed(Roles.Read)
     @GetMapping
-    public ResponseEntity<List<Note>> getNotes() {
-        List<Note> notes = noteService.getNotesForCurrentUser();
-        return ResponseEntity.ok(notes);
+    public ResponseEntity<CursorPage<NoteSummary>> getNotes(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(name = "tag", required = false) Set<Long> tagIds,
+            @RequestParam(defaultValue = "ANY") NoteFilter.TagMatch tagMatch,
+            @RequestParam(name = "notebook", required = false) Long notebookId,
+            @RequestParam(required = false) Boolean favorite,
+            @RequestParam(required = false) Boolean archived,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime createdFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime createdTo,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime updatedFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime updatedTo,
+            @RequestParam(required = false) Boolean hasOpenTodos,
+            @RequestParam(defaultValue = "UPDATED_AT") NoteSort sort,
+            @RequestParam(defaultValue = "DESC") Sort.Direction direction,
+            WebRequest request) {
+        NoteFilter filter = new NoteFilter(tagIds, tagMatch, notebookId, favorite, archived, createdFrom, createdTo,
+                updatedFrom, updatedTo, hasOpenTodos);
+        return pageResponse(filter, sort, direction, cursor, limit, request);
     }
 
-    @Operation(summary = "Gives all archived notes for the current user")
+    @Operation(summary = "Gives a page of archived notes for the current user, newest first")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Archived notes retrieved successfully"),
-            @ApiResponse(responseCode = "204", description = "No archived notes found")
+            @ApiResponse(responseCode = "304", description = "Not modified since the given ETag"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor")
     })
     @RolesAllowed(Roles.Read)
     @GetMapping("/archived")
-    public ResponseEntity<List<Note>> getArchivedNotes() {
-        List<Note> notes = noteService.getArchivedNotesForCurrentUser();
-        return ResponseEntity.ok(notes);
+    public ResponseEntity<CursorPage<NoteSummary>> getArchivedNotes(@RequestParam(required = false) String cursor,
+                                                             @RequestParam(defaultValue = "50") int limit,
+                                                             WebRequest request) {
+        return pageResponse(NoteFilter.of(NoteListing.ARCHIVED), NoteSort.UPDATED_AT, Sort.Direction.DESC, cursor,
+                limit, request);
     }
 
-    @Operation(summary = "Gives all favourite notes for the current user")
+    @Operation(summary = "Gives a page of favourite notes for the current user, newest first")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Favourite notes retrieved successfully"),
-            @ApiResponse(responseCode = "204", description = "No favourite notes found")
+            @ApiResponse(responseCode = "304", description = "Not modified since the given ETag"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor")
     })
     @RolesAllowed(Roles.Read)
     @GetMapping("/favourite")
-    public ResponseEntity<List<Note>> getFavouriteNotes() {
-        List<Note> notes = noteService.getFavouriteNotesForCurrentUser();
-        return ResponseEntity.ok(notes);
+    public ResponseEntity<CursorPage<NoteSummary>> getFavouriteNotes(@RequestParam(required = false) String cursor,
+                                                              @RequestParam(defaultValue = "50") int limit,
+                                                              WebRequest request) {
+        return pageResponse(NoteFilter.of(NoteListing.FAVOURITE), NoteSort.UPDATED_AT, Sort.Direction.DESC, cursor,
+                limit, request);
+    }
+
+    @Operation(summary = "Searches titles and contents of the current user's notes")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Search hits ordered by relevance")
+    })
+    @RolesAllowed(Roles.Read)
+    @GetMapping("/search")
+    public ResponseEntity<List<NoteSearchHit>> searchNotes(@RequestParam("q") String query,
+                                                           @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(noteService.searchNotesForCurrentUser(query, limit));
+    }
+
+    @Operation(summary = "Streams changes of the current user's notes, tags, notebooks and todos as server-sent events",
+            description = "Event ids are sync tokens. Reconnecting with Last-Event-ID replays the missed changes, "
+                    + "a reset event means the client has to catch up through /api/sync first.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Event stream opened"),
+            @ApiResponse(responseCode = "429", description = "Too many open event streams")
+    })
+    @RolesAllowed(Roles.Read)
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents(@RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+        return changeEventStreamService.subscribe(lastEventId);
     }
 
     @Operation(summary = "Gives a note by ID")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Note retrieved successfully"),
+            @ApiResponse(responseCode = "304", description = "Not modified since the given ETag or date"),
             @ApiResponse(responseCode = "404", description = "Note not found")
     })
     @RolesAllowed(Roles.Read)
     @GetMapping("/{id}")
-    public ResponseEntity<Note> getById(@PathVariable Long id) {
+    public ResponseEntity<Note> getById(@PathVariable Long id, WebRequest request) {
+        NoteVersion version = noteService.getNoteVersion(id);
+        if (request.checkNotModified(version.eTag(), version.lastModified())) {
+            return null;
+        }
+
         Note note = noteService.getNoteById(id);
 
         if (note == null) {
             return ResponseEntity.notFound().build();
         }
 
-        return ResponseEntity.ok(note);
+        return versioned(note);
     }
 
     @Operation(summary = "Updates a note by ID")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Note updated successfully"),
-            @ApiResponse(responseCode = "404", description = "Note not found")
+            @ApiResponse(responseCode = "404", description = "Note not found"),
+            @ApiResponse(responseCode = "412", description = "Note changed since the ETag given in If-Match")
     })
     @PatchMapping("/{id}")
     @RolesAllowed(Roles.Update)
-    public ResponseEntity<Note> updateNote(@PathVariable Long id, @RequestBody @Valid Note note) {
+    public ResponseEntity<Note> updateNote(@PathVariable Long id, @RequestBody @Valid Note note,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         note.setId(id);
-        Note updated = noteService.updateNote(note);
+        Note updated = noteService.updateNote(note, ifMatch);
         if (updated == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(updated);
+        return versioned(updated);
+    }
+
+    @Operation(summary = "Replaces the tags of a note",
+            description = "Takes the ids of all tags the note should carry; tags not listed are removed.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Tags replaced successfully"),
+            @ApiResponse(responseCode = "400", description = "Tag not found"),
+            @ApiResponse(responseCode = "404", description = "Note not found"),
+            @ApiResponse(responseCode = "412", description = "Note changed since the ETag given in If-Match")
+    })
+    @PutMapping("/{id}/tags")
+    @RolesAllowed(Roles.Update)
+    public ResponseEntity<Note> setTags(@PathVariable Long id, @RequestBody Set<Long> tagIds,
+                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return versioned(noteService.setTags(id, tagIds, ifMatch));
     }
 
     @Operation(summary = "Deletes a note by ID")
@@ -134,4 +251,35 @@ public class NoteController {
             return ResponseEntity.notFound().build();
         }
     }
+
+    private ResponseEntity<Note> versioned(Note note) {
+        NoteVersion version = NoteVersion.of(note);
+        return ResponseEntity.ok()
+                .eTag(version.eTag())
+                .lastModified(version.lastModified())
+                .cacheControl(REVALIDATE)
+                .body(note);
+    }
+
+    private ResponseEntity<CursorPage<NoteSummary>> pageResponse(NoteFilter filter, NoteSort sort,
+                                                                 Sort.Direction direction, String cursor, int limit,
+                                                                 WebRequest request) {
+        String eTag = noteService.getListingETagForCurrentUser();
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+
+        CursorPage<NoteSummary> page = noteService.getNotePageForCurrentUser(filter, sort, direction, cursor, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(eTag).cacheControl(REVALIDATE);
+        if (page.nextCursor() == null) {
+            return response.body(page);
+        }
+
+        String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("cursor", page.nextCursor())
+                .toUriString();
+        return response
+                .header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+                .body(page.withNext(next));
+    }
 }
@@ -0,0 +1,71 @@
+package ch.hadzic.nikola.notesapp.controller;
+
+import ch.hadzic.nikola.notesapp.config.security.Roles;
+import ch.hadzic.nikola.notesapp.data.dto.NoteRevisionDetail;
+import ch.hadzic.nikola.notesapp.data.dto.NoteRevisionSummary;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.service.NoteService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.annotation.security.RolesAllowed;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * NoteRevisionController gives access to the revision history of a note.
+ * Every change of the title or content of a note is kept as revision, numbered from 1.
+ */
+@RestController
+@SecurityRequirement(name = "bearerAuth")
+@Tag(name = "Note Revision Controller", description = "API for the revision history of notes")
+@RequestMapping("/api/notes/{id}/revisions")
+public class NoteRevisionController {
+
+    private final NoteService noteService;
+
+    public NoteRevisionController(NoteService noteService) {
+        this.noteService = noteService;
+    }
+
+    @Operation(summary = "Lists the revisions of a note, newest first",
+            description = "Pass the number of the last listed revision as before to get the next page.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Revisions retrieved successfully"),
+            @ApiResponse(responseCode = "404", description = "Note not found")
+    })
+    @RolesAllowed(Roles.Read)
+    @GetMapping
+    public ResponseEntity<List<NoteRevisionSummary>> getRevisions(@PathVariable Long id,
+                                                                  @RequestParam(required = false) Integer before,
+                                                                  @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(noteService.getRevisions(id, before, limit));
+    }
+
+    @Operation(summary = "Gives title and content of a note as of a revision")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Revision retrieved successfully"),
+            @ApiResponse(responseCode = "404", description = "Note or revision not found")
+    })
+    @RolesAllowed(Roles.Read)
+    @GetMapping("/{number}")
+    public ResponseEntity<NoteRevisionDetail> getRevision(@PathVariable Long id, @PathVariable int number) {
+        return ResponseEntity.ok(noteService.getRevision(id, number));
+    }
+
+    @Operation(summary = "Sets title and content of a note back to a revision",
+            description = "The restored state becomes a new revision.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Revision restored successfully"),
+            @ApiResponse(responseCode = "404", description = "Note or revision not found")
+    })
+    @RolesAllowed(Roles.Update)
+    @PostMapping("/{number}/restore")
+    public ResponseEntity<Note> restoreRevision(@PathVariable Long id, @PathVariable int number) {
+        return ResponseEntity.ok(noteService.restoreRevision(id, number));
+    }
+}
@@ -1,7 +1,15 @@
 package ch.hadzic.nikola.notesapp.controller;
 
 import ch.hadzic.nikola.notesapp.config.security.Roles;
+import ch.hadzic.nikola.notesapp.data.dto.CursorPage;
+import ch.hadzic.nikola.notesapp.data.dto.NoteBulkResult;
+import ch.hadzic.nikola.notesapp.data.dto.NoteMoveRequest;
+import ch.hadzic.nikola.notesapp.data.dto.NoteSummary;
+import ch.hadzic.nikola.notesapp.data.dto.NotebookUsage;
 import ch.hadzic.nikola.notesapp.data.entity.Notebook;
+import ch.hadzic.nikola.notesapp.data.repository.NoteFilter;
+import ch.hadzic.nikola.notesapp.data.repository.NoteSort;
+import ch.hadzic.nikola.notesapp.data.service.NoteService;
 import ch.hadzic.nikola.notesapp.data.service.NotebookService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -10,11 +18,16 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Size;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @SecurityRequirement(name = "bearerAuth")
@@ -23,21 +36,92 @@ import java.util.List;
 public class NotebookController {
 
     private final NotebookService notebookService;
+    private final NoteService noteService;
 
-    public NotebookController(NotebookService notebookService) {
+    public NotebookController(NotebookService notebookService, NoteService noteService) {
         this.notebookService = notebookService;
+        this.noteService = noteService;
     }
 
-    @Operation(summary = "Gives all notebooks for the current user")
+    @Operation(summary = "Gives all notebooks for the current user with their number of notes and the last change "
+            + "of any of them, ordered by name")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Notebooks retrieved successfully"),
             @ApiResponse(responseCode = "204", description = "No notebooks found")
     })
     @RolesAllowed(Roles.Read)
     @GetMapping
-    public ResponseEntity<List<Notebook>> getAll() {
+    public ResponseEntity<List<NotebookUsage>> getAll() {
         String userId = SecurityContextHolder.getContext().getAuthentication().getName();
-        return ResponseEntity.ok(notebookService.getAllForUser(userId));
+        return ResponseEntity.ok(notebookService.getUsagesForUser(userId));
+    }
+
+    @Operation(summary = "Gives a page of the notes in a notebook of the current user, by default the not archived "
+            + "ones, newest first")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Notes retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor"),
+            @ApiResponse(responseCode = "404", description = "Notebook not found")
+    })
+    @RolesAllowed(Roles.Read)
+    @GetMapping("/{id}/notes")
+    public ResponseEntity<CursorPage<NoteSummary>> getNotes(@PathVariable Long id,
+                                                            @RequestParam(defaultValue = "false") Boolean archived,
+                                                            @RequestParam(required = false) String cursor,
+                                                            @RequestParam(defaultValue = "50") int limit) {
+        if (notebookService.getOwnedById(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        NoteFilter filter = new NoteFilter(null, NoteFilter.TagMatch.ANY, id, null, archived, null, null,
+                null, null, null);
+        CursorPage<NoteSummary> page = noteService.getNotePageForCurrentUser(filter, NoteSort.UPDATED_AT,
+                Sort.Direction.DESC, cursor, limit);
+        if (page.nextCursor() == null) {
+            return ResponseEntity.ok(page);
+        }
+
+        String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("cursor", page.nextCursor())
+                .toUriString();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+                .body(page.withNext(next));
+    }
+
+    @Operation(summary = "Moves notes of a notebook to another notebook of the current user",
+            description = "Without noteIds all notes of the notebook are moved, without targetNotebookId the notes "
+                    + "are taken out of any notebook. Ids of notes outside the notebook are ignored.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Notes moved, see the number of moved notes"),
+            @ApiResponse(responseCode = "400", description = "More than " + NotebookService.MAX_SELECTED_NOTES
+                    + " note ids"),
+            @ApiResponse(responseCode = "404", description = "Notebook or target notebook not found")
+    })
+    @RolesAllowed(Roles.Update)
+    @PostMapping("/{id}/notes/move")
+    public ResponseEntity<NoteBulkResult> moveNotes(@PathVariable Long id,
+                                                    @Valid @RequestBody NoteMoveRequest request) {
+        return ResponseEntity.ok(new NoteBulkResult(
+                notebookService.moveNotes(id, request.noteIds(), request.targetNotebookId())));
+    }
+
+    @Operation(summary = "Deletes notes of a notebook of the current user together with their todos",
+            description = "Without ids all notes of the notebook are deleted, the notebook itself is kept. Ids of "
+                    + "notes outside the notebook are ignored.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Notes deleted, see the number of deleted notes"),
+            @ApiResponse(responseCode = "400", description = "More than " + NotebookService.MAX_SELECTED_NOTES
+                    + " note ids"),
+            @ApiResponse(responseCode = "404", description = "Notebook not found")
+    })
+    @RolesAllowed(Roles.Delete)
+    @DeleteMapping("/{id}/notes")
+    public ResponseEntity<NoteBulkResult> deleteNotes(
+            @PathVariable Long id,
+            @RequestParam(name = "id", required = false)
+            @Size(max = NotebookService.MAX_SELECTED_NOTES) Set<Long> noteIds) {
+        return ResponseEntity.ok(new NoteBulkResult(notebookService.deleteNotes(id, noteIds)));
     }
 
     @Operation(summary = "Gives a notebook by ID")
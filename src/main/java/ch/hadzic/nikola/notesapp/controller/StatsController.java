@@ -0,0 +1,44 @@
+package ch.hadzic.nikola.notesapp.controller;
+
+import ch.hadzic.nikola.notesapp.config.security.Roles;
+import ch.hadzic.nikola.notesapp.data.dto.UserStats;
+import ch.hadzic.nikola.notesapp.data.service.StatsService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.annotation.security.RolesAllowed;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * StatsController serves the dashboard statistics of the current user.
+ * The counts are kept up to date on every write, so the request reads a few counters
+ * instead of the notes and todos themselves.
+ */
+@RestController
+@SecurityRequirement(name = "bearerAuth")
+@Tag(name = "Stats Controller", description = "Dashboard statistics")
+@RequestMapping("/api/stats")
+public class StatsController {
+
+    private final StatsService statsService;
+
+    public StatsController(StatsService statsService) {
+        this.statsService = statsService;
+    }
+
+    @Operation(summary = "Gives the number of notes, favorites, archived notes, open and overdue todos, "
+            + "and notes per notebook and tag of the current user")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Statistics retrieved successfully")
+    })
+    @RolesAllowed(Roles.Read)
+    @GetMapping
+    public ResponseEntity<UserStats> getStats() {
+        return ResponseEntity.ok(statsService.getStatsForCurrentUser());
+    }
+}
@@ -0,0 +1,45 @@
+package ch.hadzic.nikola.notesapp.controller;
+
+import ch.hadzic.nikola.notesapp.config.security.Roles;
+import ch.hadzic.nikola.notesapp.data.dto.SyncChanges;
+import ch.hadzic.nikola.notesapp.data.service.SyncService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.annotation.security.RolesAllowed;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * SyncController lets offline-first clients fetch what changed since their last sync.
+ * This controller is secured with JWT authentication.
+ */
+@RestController
+@SecurityRequirement(name = "bearerAuth")
+@RequestMapping("/api/sync")
+@Tag(name = "Sync Controller", description = "Delta sync of notes, tags, notebooks and todos")
+public class SyncController {
+
+    private final SyncService syncService;
+
+    public SyncController(SyncService syncService) {
+        this.syncService = syncService;
+    }
+
+    @Operation(summary = "Gives the changes of the current user since a sync token")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Changes retrieved, or a reset if the token is unknown or too old"),
+            @ApiResponse(responseCode = "400", description = "Invalid sync token")
+    })
+    @RolesAllowed(Roles.Read)
+    @GetMapping
+    public ResponseEntity<SyncChanges> getChanges(@RequestParam(required = false) String since,
+                                                  @RequestParam(defaultValue = "500") int limit) {
+        return ResponseEntity.ok(syncService.getChangesForCurrentUser(since, limit));
+    }
+}
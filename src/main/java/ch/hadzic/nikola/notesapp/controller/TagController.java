@@ -1,7 +1,13 @@
 package ch.hadzic.nikola.notesapp.controller;
 
 import ch.hadzic.nikola.notesapp.config.security.Roles;
+import ch.hadzic.nikola.notesapp.data.dto.CursorPage;
+import ch.hadzic.nikola.notesapp.data.dto.NoteSummary;
+import ch.hadzic.nikola.notesapp.data.dto.TagUsage;
 import ch.hadzic.nikola.notesapp.data.entity.Tag;
+import ch.hadzic.nikola.notesapp.data.repository.NoteFilter;
+import ch.hadzic.nikola.notesapp.data.repository.NoteSort;
+import ch.hadzic.nikola.notesapp.data.service.NoteService;
 import ch.hadzic.nikola.notesapp.data.service.TagService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -9,11 +15,15 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.validation.Valid;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @SecurityRequirement(name = "bearerAuth")
@@ -22,21 +32,69 @@ import java.util.List;
 public class TagController {
 
     private final TagService tagService;
+    private final NoteService noteService;
 
-    public TagController(TagService tagService) {
+    public TagController(TagService tagService, NoteService noteService) {
         this.tagService = tagService;
+        this.noteService = noteService;
     }
 
-    @Operation(summary = "Gives all tags for the current user")
+    @Operation(summary = "Gives all tags for the current user with the number of notes carrying them, ordered by name")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Tags retrieved successfully"),
             @ApiResponse(responseCode = "204", description = "No tags found")
     })
     @RolesAllowed(Roles.Read)
     @GetMapping
-    public ResponseEntity<List<Tag>> getAll() {
+    public ResponseEntity<List<TagUsage>> getAll() {
         String userId = SecurityContextHolder.getContext().getAuthentication().getName();
-        return ResponseEntity.ok(tagService.getAllForUser(userId));
+        return ResponseEntity.ok(tagService.getUsagesForUser(userId));
+    }
+
+    @Operation(summary = "Suggests tags of the current user starting with a prefix, most used first")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Suggestions retrieved successfully")
+    })
+    @RolesAllowed(Roles.Read)
+    @GetMapping("/suggest")
+    public ResponseEntity<List<TagUsage>> suggest(@RequestParam(defaultValue = "") String prefix,
+                                                  @RequestParam(defaultValue = "10") int limit) {
+        String userId = SecurityContextHolder.getContext().getAuthentication().getName();
+        return ResponseEntity.ok(tagService.suggest(userId, prefix, limit));
+    }
+
+    @Operation(summary = "Gives a page of the current user's notes carrying a tag, by default the not archived ones, "
+            + "newest first")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Notes retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor"),
+            @ApiResponse(responseCode = "404", description = "Tag not found")
+    })
+    @RolesAllowed(Roles.Read)
+    @GetMapping("/{id}/notes")
+    public ResponseEntity<CursorPage<NoteSummary>> getNotes(@PathVariable Long id,
+                                                            @RequestParam(defaultValue = "false") Boolean archived,
+                                                            @RequestParam(required = false) String cursor,
+                                                            @RequestParam(defaultValue = "50") int limit) {
+        String userId = SecurityContextHolder.getContext().getAuthentication().getName();
+        if (tagService.getById(id).filter(tag -> tag.getUserId().equals(userId)).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        NoteFilter filter = new NoteFilter(Set.of(id), NoteFilter.TagMatch.ANY, null, null, archived, null, null,
+                null, null, null);
+        CursorPage<NoteSummary> page = noteService.getNotePageForCurrentUser(filter, NoteSort.UPDATED_AT,
+                Sort.Direction.DESC, cursor, limit);
+        if (page.nextCursor() == null) {
+            return ResponseEntity.ok(page);
+        }
+
+        String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("cursor", page.nextCursor())
+                .toUriString();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+                .body(page.withNext(next));
     }
 
     @Operation(summary = "Gives a tag by ID")
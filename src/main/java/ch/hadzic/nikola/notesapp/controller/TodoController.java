@@ -1,14 +1,21 @@
 package ch.hadzic.nikola.notesapp.controller;
 
+import ch.hadzic.nikola.notesapp.config.security.Roles;
+import ch.hadzic.nikola.notesapp.data.dto.CursorPage;
+import ch.hadzic.nikola.notesapp.data.dto.TodoSummary;
 import ch.hadzic.nikola.notesapp.data.entity.Todo;
+import ch.hadzic.nikola.notesapp.data.repository.TodoAgenda;
 import ch.hadzic.nikola.notesapp.data.service.TodoService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.annotation.security.RolesAllowed;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.util.List;
 
@@ -24,59 +31,79 @@ public class TodoController {
         this.todoService = todoService;
     }
 
-    @Operation(summary = "Gives all todos for the current user")
+    @Operation(summary = "Gives a page of the current user's todos, ordered by id")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Todos retrieved successfully"),
-            @ApiResponse(responseCode = "204", description = "No todos found")
+            @ApiResponse(responseCode = "400", description = "Invalid cursor")
     })
+    @RolesAllowed(Roles.Read)
     @GetMapping
-    public List<Todo> getAll() {
-        return todoService.getAll();
+    public ResponseEntity<CursorPage<TodoSummary>> getAll(@RequestParam(required = false) Boolean done,
+                                                          @RequestParam(required = false) String cursor,
+                                                          @RequestParam(defaultValue = "50") int limit) {
+        return pageResponse(todoService.getPageForCurrentUser(done, cursor, limit));
     }
 
-    @Operation(summary = "Gives a todo by ID")
+    @Operation(summary = "Gives a page of the current user's open todos that are overdue, due today or due in the "
+            + "next seven days, ordered by due date")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Todos retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor")
+    })
+    @RolesAllowed(Roles.Read)
+    @GetMapping("/agenda")
+    public ResponseEntity<CursorPage<TodoSummary>> getAgenda(@RequestParam TodoAgenda range,
+                                                             @RequestParam(required = false) String cursor,
+                                                             @RequestParam(defaultValue = "50") int limit) {
+        return pageResponse(todoService.getAgendaForCurrentUser(range, cursor, limit));
+    }
+
+    @Operation(summary = "Gives a todo of the current user by ID")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Todo retrieved successfully"),
             @ApiResponse(responseCode = "404", description = "Todo not found")
     })
+    @RolesAllowed(Roles.Read)
     @GetMapping("/{id}")
-    public ResponseEntity<Todo> getById(@PathVariable Long id) {
+    public ResponseEntity<TodoSummary> getById(@PathVariable Long id) {
         return todoService.getById(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
-    @Operation(summary = "Gives all todos for a specific note")
+    @Operation(summary = "Gives all todos for a specific note of the current user")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Todos retrieved successfully"),
             @ApiResponse(responseCode = "404", description = "Note not found")
     })
+    @RolesAllowed(Roles.Read)
     @GetMapping("/note/{noteId}")
-    public List<Todo> getByNoteId(@PathVariable Long noteId) {
+    public List<TodoSummary> getByNoteId(@PathVariable Long noteId) {
         return todoService.getByNoteId(noteId);
     }
 
-    @Operation(summary = "Creates a new todo")
+    @Operation(summary = "Creates a new todo on a note of the current user")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Todo created successfully")
+            @ApiResponse(responseCode = "200", description = "Todo created successfully"),
+            @ApiResponse(responseCode = "404", description = "Note not found")
     })
+    @RolesAllowed(Roles.Create)
     @PostMapping
-    public ResponseEntity<Todo> create(@RequestBody Todo todo) {
-        return ResponseEntity.ok(todoService.create(todo));
+    public ResponseEntity<TodoSummary> create(@RequestBody Todo todo) {
+        todo.setId(null);
+        return ResponseEntity.ok(TodoSummary.of(todoService.create(todo)));
     }
 
     @Operation(summary = "Updates a todo by ID")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Todo updated successfully"),
-            @ApiResponse(responseCode = "404", description = "Todo not found")
+            @ApiResponse(responseCode = "404", description = "Todo or note not found")
     })
+    @RolesAllowed(Roles.Update)
     @PatchMapping("/{id}")
-    public ResponseEntity<Todo> update(@PathVariable Long id, @RequestBody Todo todo) {
-        if (todoService.getById(id).isEmpty()) {
-            return ResponseEntity.notFound().build();
-        }
+    public ResponseEntity<TodoSummary> update(@PathVariable Long id, @RequestBody Todo todo) {
         todo.setId(id);
-        return ResponseEntity.ok(todoService.update(todo));
+        return ResponseEntity.ok(TodoSummary.of(todoService.update(todo)));
     }
 
     @Operation(summary = "Deletes a todo by ID")
@@ -84,12 +111,23 @@ public class TodoController {
             @ApiResponse(responseCode = "204", description = "Todo deleted successfully"),
             @ApiResponse(responseCode = "404", description = "Todo not found")
     })
+    @RolesAllowed(Roles.Delete)
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable Long id) {
-        if (todoService.getById(id).isEmpty()) {
-            return ResponseEntity.notFound().build();
-        }
         todoService.delete(id);
         return ResponseEntity.noContent().build();
     }
+
+    private static ResponseEntity<CursorPage<TodoSummary>> pageResponse(CursorPage<TodoSummary> page) {
+        if (page.nextCursor() == null) {
+            return ResponseEntity.ok(page);
+        }
+
+        String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("cursor", page.nextCursor())
+                .toUriString();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+                .body(page.withNext(next));
+    }
 }
@@ -0,0 +1,17 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+import java.util.List;
+
+/**
+ * One page of a cursor-paginated listing.
+ *
+ * @param items      the items of this page
+ * @param nextCursor opaque token for the following page, {@code null} on the last page
+ * @param next       absolute link to the following page, {@code null} on the last page
+ */
+public record CursorPage<T>(List<T> items, String nextCursor, String next) {
+
+    public CursorPage<T> withNext(String next) {
+        return new CursorPage<>(items, nextCursor, next);
+    }
+}
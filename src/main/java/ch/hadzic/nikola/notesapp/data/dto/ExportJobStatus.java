@@ -0,0 +1,41 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+import ch.hadzic.nikola.notesapp.export.ExportFormat;
+import ch.hadzic.nikola.notesapp.export.ExportJob;
+
+import java.time.Instant;
+
+/**
+ * Progress report of an export job.
+ *
+ * @param processed number of notes written so far
+ * @param total     number of notes to write, known once the job is running
+ * @param size      size of the finished file in bytes
+ * @param download  link to the finished file, {@code null} until the job is done
+ */
+public record ExportJobStatus(
+        String id,
+        ExportFormat format,
+        ExportJob.Status status,
+        long processed,
+        long total,
+        long size,
+        Instant createdAt,
+        Instant finishedAt,
+        String error,
+        String download) {
+
+    public static ExportJobStatus of(ExportJob job, String download) {
+        return new ExportJobStatus(
+                job.getId(),
+                job.getFormat(),
+                job.getStatus(),
+                job.getProcessed(),
+                job.getTotal(),
+                job.getSize(),
+                job.getCreatedAt(),
+                job.getFinishedAt(),
+                job.getError(),
+                job.getStatus() == ExportJob.Status.DONE ? download : null);
+    }
+}
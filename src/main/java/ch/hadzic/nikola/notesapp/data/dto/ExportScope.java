@@ -0,0 +1,13 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+/**
+ * Which notes of a user an export contains: the not archived notes, optionally only those
+ * of one notebook and/or with one tag. Notebooks and tags of other users match no notes.
+ *
+ * @param notebookId notebook the notes must be in, {@code null} for any
+ * @param tagId      tag the notes must have, {@code null} for any
+ */
+public record ExportScope(Long notebookId, Long tagId) {
+
+    public static final ExportScope ALL = new ExportScope(null, null);
+}
@@ -0,0 +1,47 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+import ch.hadzic.nikola.notesapp.importer.ImportFormat;
+import ch.hadzic.nikola.notesapp.importer.ImportJob;
+
+import java.time.Instant;
+
+/**
+ * Progress report of an import job.
+ *
+ * @param read       number of notes read from the archive so far
+ * @param imported   number of notes written so far
+ * @param duplicates number of notes left out as the user already has them
+ * @param skipped    number of notes left out as they have no title or too long a content
+ * @param bytesRead  bytes of the archive read so far
+ * @param size       size of the archive in bytes
+ */
+public record ImportJobStatus(
+        String id,
+        ImportFormat format,
+        ImportJob.Status status,
+        long read,
+        long imported,
+        long duplicates,
+        long skipped,
+        long bytesRead,
+        long size,
+        Instant createdAt,
+        Instant finishedAt,
+        String error) {
+
+    public static ImportJobStatus of(ImportJob job) {
+        return new ImportJobStatus(
+                job.getId(),
+                job.getFormat(),
+                job.getStatus(),
+                job.getRead(),
+                job.getImported(),
+                job.getDuplicates(),
+                job.getSkipped(),
+                job.getBytesRead(),
+                job.getSize(),
+                job.getCreatedAt(),
+                job.getFinishedAt(),
+                job.getError());
+    }
+}
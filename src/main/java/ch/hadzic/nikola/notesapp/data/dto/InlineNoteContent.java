@@ -0,0 +1,7 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+/**
+ * Content of a note still stored in the note row, see {@code NoteContentService#migrateInlineContent()}.
+ */
+public record InlineNoteContent(Long id, String content) {
+}
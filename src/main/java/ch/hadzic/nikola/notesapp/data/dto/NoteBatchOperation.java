@@ -0,0 +1,19 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+
+/**
+ * One operation of a note batch.
+ *
+ * @param type kind of operation
+ * @param id   note to update or delete, ignored for creates
+ * @param note new state of the note for creates and updates, same fields as the single-item endpoints
+ */
+public record NoteBatchOperation(Type type, Long id, Note note) {
+
+    public enum Type {
+        CREATE,
+        UPDATE,
+        DELETE
+    }
+}
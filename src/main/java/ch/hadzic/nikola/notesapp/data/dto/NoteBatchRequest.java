@@ -0,0 +1,14 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+import ch.hadzic.nikola.notesapp.data.service.NoteBatchService;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Operations to apply in one batch request, in order.
+ */
+public record NoteBatchRequest(
+        @NotNull @Size(max = NoteBatchService.MAX_OPERATIONS) List<NoteBatchOperation> operations) {
+}
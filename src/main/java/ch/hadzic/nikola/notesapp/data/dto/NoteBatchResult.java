@@ -0,0 +1,20 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+/**
+ * Outcome of one operation of a note batch.
+ *
+ * @param index  position of the operation in the request
+ * @param id     id of the affected note, for creates the generated one
+ * @param status HTTP status the single-item endpoint would have answered with
+ * @param error  reason if the operation was not applied
+ */
+public record NoteBatchResult(int index, NoteBatchOperation.Type type, Long id, int status, String error) {
+
+    public static NoteBatchResult applied(int index, NoteBatchOperation.Type type, Long id, int status) {
+        return new NoteBatchResult(index, type, id, status, null);
+    }
+
+    public static NoteBatchResult failed(int index, NoteBatchOperation operation, int status, String error) {
+        return new NoteBatchResult(index, operation.type(), operation.id(), status, error);
+    }
+}
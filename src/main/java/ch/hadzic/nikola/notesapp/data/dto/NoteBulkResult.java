@@ -0,0 +1,9 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+/**
+ * Outcome of a bulk operation on the notes of a notebook.
+ *
+ * @param notes number of notes moved or deleted
+ */
+public record NoteBulkResult(int notes) {
+}
@@ -0,0 +1,80 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+import ch.hadzic.nikola.notesapp.config.execptions.InvalidCursorException;
+import ch.hadzic.nikola.notesapp.data.repository.NoteSort;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Keyset position inside a note listing.
+ * Listings are ordered by their sort key and id, so the last note of a page is enough to
+ * continue with the next one. The cursor also names the order it was issued for, a cursor
+ * cannot be used with another one. It is handed to clients as an opaque URL-safe token.
+ *
+ * @param sort      sort key of the listing
+ * @param direction direction of the listing
+ * @param key       sort key of the last note, as given by {@link NoteSort#format(NoteSummary)}
+ * @param id        id of the last note
+ */
+public record NoteCursor(NoteSort sort, Sort.Direction direction, String key, Long id) {
+
+    private static final char SEPARATOR = '|';
+    private static final char ORDER_SEPARATOR = ':';
+
+    public static NoteCursor of(NoteSummary note, NoteSort sort, Sort.Direction direction) {
+        return new NoteCursor(sort, direction, sort.format(note), note.id());
+    }
+
+    /**
+     * Returns the sort key of the last note as value of the sorted attribute.
+     */
+    public Comparable<?> value() {
+        return sort.parse(key);
+    }
+
+    public String encode() {
+        String raw = sort.name() + ORDER_SEPARATOR + direction.name() + SEPARATOR + key + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode()}. Tokens from before sorting was added,
+     * which only carry the update time and id, continue the listing by update time.
+     *
+     * @param token opaque cursor token
+     * @return decoded cursor
+     * @throws InvalidCursorException if the token is malformed
+     */
+    public static NoteCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int first = raw.indexOf(SEPARATOR);
+            int last = raw.lastIndexOf(SEPARATOR);
+            if (first < 0) {
+                throw new InvalidCursorException("Invalid cursor");
+            }
+            Long id = Long.parseLong(raw.substring(last + 1));
+            if (first == last) {
+                String updatedAt = LocalDateTime.parse(raw.substring(0, first)).toString();
+                return new NoteCursor(NoteSort.UPDATED_AT, Sort.Direction.DESC, updatedAt, id);
+            }
+
+            String order = raw.substring(0, first);
+            int orderSeparator = order.indexOf(ORDER_SEPARATOR);
+            NoteCursor cursor = new NoteCursor(
+                    NoteSort.valueOf(order.substring(0, orderSeparator)),
+                    Sort.Direction.valueOf(order.substring(orderSeparator + 1)),
+                    raw.substring(first + 1, last),
+                    id);
+            // a malformed key fails here rather than in the query
+            cursor.value();
+            return cursor;
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+    }
+}
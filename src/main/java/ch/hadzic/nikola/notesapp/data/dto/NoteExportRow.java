@@ -0,0 +1,21 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * The fields of a note needed by the exporters, read without loading the entity graph.
+ *
+ * @param notebook name of the notebook, {@code null} if the note is in none
+ * @param tags     names of the tags, sorted
+ */
+public record NoteExportRow(
+        Long id,
+        String title,
+        String content,
+        String notebook,
+        List<String> tags,
+        boolean favorite,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt) {
+}
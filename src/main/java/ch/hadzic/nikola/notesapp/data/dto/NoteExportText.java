@@ -0,0 +1,16 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * The columns of a note read for an export chunk; tags and content are added per chunk.
+ */
+public record NoteExportText(
+        Long id,
+        String title,
+        String contentHash,
+        String notebook,
+        boolean favorite,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt) {
+}
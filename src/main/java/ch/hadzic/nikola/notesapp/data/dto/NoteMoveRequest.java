@@ -0,0 +1,16 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+import ch.hadzic.nikola.notesapp.data.service.NotebookService;
+import jakarta.validation.constraints.Size;
+
+import java.util.Set;
+
+/**
+ * Notes to move out of a notebook.
+ *
+ * @param noteIds          notes to move, {@code null} for all notes of the notebook
+ * @param targetNotebookId notebook to move them to, {@code null} to take them out of any notebook
+ */
+public record NoteMoveRequest(@Size(max = NotebookService.MAX_SELECTED_NOTES) Set<Long> noteIds,
+                             Long targetNotebookId) {
+}
@@ -0,0 +1,9 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Title and content of a note as of one revision.
+ */
+public record NoteRevisionDetail(int number, String title, String content, LocalDateTime createdAt) {
+}
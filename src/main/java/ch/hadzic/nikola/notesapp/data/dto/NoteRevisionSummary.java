@@ -0,0 +1,9 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entry of the revision list of a note, without the content.
+ */
+public record NoteRevisionSummary(int number, String title, int contentLength, LocalDateTime createdAt) {
+}
@@ -0,0 +1,12 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+/**
+ * A single search result.
+ *
+ * @param id      id of the matching note
+ * @param title   title of the note
+ * @param snippet HTML-escaped excerpt with matches wrapped in {@code <mark>} tags
+ * @param score   BM25 relevance score, higher is better
+ */
+public record NoteSearchHit(Long id, String title, String snippet, double score) {
+}
@@ -0,0 +1,32 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Read model for note listings.
+ * It carries the same fields as the {@code Note} entity but is assembled from plain column
+ * reads, so building a page never triggers the eager loading of tags and notebook per note.
+ * Listings only carry the preview; the content is left out unless it has been added with
+ * {@link #withContent(String)}, as sync does.
+ */
+public record NoteSummary(
+        Long id,
+        String title,
+        String preview,
+        @JsonInclude(JsonInclude.Include.NON_NULL) String content,
+        NotebookSummary notebook,
+        List<TagSummary> tags,
+        boolean favorite,
+        boolean archived,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        String userId) {
+
+    public NoteSummary withContent(String content) {
+        return new NoteSummary(id, title, preview, content, notebook, tags, favorite, archived, createdAt, updatedAt,
+                userId);
+    }
+}
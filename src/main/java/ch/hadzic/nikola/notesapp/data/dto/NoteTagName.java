@@ -0,0 +1,7 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+/**
+ * A tag assignment of a note, by tag name.
+ */
+public record NoteTagName(Long noteId, String name) {
+}
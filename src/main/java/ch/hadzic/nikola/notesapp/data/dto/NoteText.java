@@ -0,0 +1,10 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * The text fields of a note, read without loading the entity graph.
+ * The content itself is read from the content store by its hash.
+ */
+public record NoteText(Long id, String userId, String title, String contentHash, LocalDateTime createdAt) {
+}
@@ -0,0 +1,76 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.entity.Tag;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * The fields of a note that identify one state of it, used for conditional requests.
+ * It can be read without loading the note with its tags and notebook.
+ * A note embeds its notebook and tags, so {@code updatedAt} is the latest change of the note,
+ * its notebook or one of its tags.
+ */
+public record NoteVersion(Long id, String userId, LocalDateTime updatedAt) {
+
+    public NoteVersion(Long id, String userId, LocalDateTime noteUpdatedAt, LocalDateTime notebookUpdatedAt,
+                       LocalDateTime tagsUpdatedAt) {
+        this(id, userId, latest(Stream.of(noteUpdatedAt, notebookUpdatedAt, tagsUpdatedAt)));
+    }
+
+    public static NoteVersion of(Note note) {
+        Set<Tag> tags = note.getTags() == null ? Set.of() : note.getTags();
+        LocalDateTime updatedAt = latest(Stream.concat(
+                Stream.of(note.getUpdatedAt(), note.getNotebook() == null ? null : note.getNotebook().getUpdatedAt()),
+                tags.stream().map(Tag::getUpdatedAt)));
+        return new NoteVersion(note.getId(), note.getUserId(), updatedAt);
+    }
+
+    /**
+     * Returns the strong entity tag of this state, built from the id and the update timestamp in microseconds.
+     *
+     * @return quoted entity tag
+     */
+    public String eTag() {
+        return "\"" + id + "-" + Long.toHexString(updatedAtMicros()) + "\"";
+    }
+
+    /**
+     * Returns the update timestamp for the {@code Last-Modified} header.
+     *
+     * @return epoch milliseconds, {@code -1} if the note has never been written
+     */
+    public long lastModified() {
+        return updatedAt == null ? -1 : updatedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Checks an {@code If-Match} header against this state using strong comparison.
+     *
+     * @param ifMatch header value, a list of entity tags or {@code *}
+     * @return {@code true} if the header matches
+     */
+    public boolean matches(String ifMatch) {
+        String current = eTag();
+        return Arrays.stream(ifMatch.split(","))
+                .map(String::trim)
+                .anyMatch(tag -> tag.equals("*") || tag.equals(current));
+    }
+
+    private static LocalDateTime latest(Stream<LocalDateTime> timestamps) {
+        return timestamps.filter(Objects::nonNull).max(LocalDateTime::compareTo).orElse(null);
+    }
+
+    private long updatedAtMicros() {
+        if (updatedAt == null) {
+            return 0;
+        }
+        return updatedAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + updatedAt.getNano() / 1_000;
+    }
+}
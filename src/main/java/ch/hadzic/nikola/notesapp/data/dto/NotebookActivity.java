@@ -0,0 +1,9 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Last change of the notes in a notebook, {@code null} for an empty notebook.
+ */
+public record NotebookActivity(Long notebookId, LocalDateTime lastModified) {
+}
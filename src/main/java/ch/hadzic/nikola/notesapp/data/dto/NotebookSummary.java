@@ -0,0 +1,7 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+/**
+ * Read model of a notebook as embedded in note listings.
+ */
+public record NotebookSummary(Long id, String name, String description) {
+}
@@ -0,0 +1,10 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read model of a notebook in notebook listings, with the number of notes in it, archived ones
+ * included, and the last change of any of them; {@code lastModified} is {@code null} while it is empty.
+ */
+public record NotebookUsage(Long id, String name, String description, long noteCount, LocalDateTime lastModified) {
+}
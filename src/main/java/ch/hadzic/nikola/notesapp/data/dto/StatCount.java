@@ -0,0 +1,7 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+/**
+ * Number of notes per notebook or tag, as counted by an aggregate query.
+ */
+public record StatCount(Long refId, long count) {
+}
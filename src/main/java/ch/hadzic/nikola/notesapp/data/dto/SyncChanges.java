@@ -0,0 +1,30 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+import java.util.List;
+
+/**
+ * Changes of the current user since a sync token.
+ * Entities are sent in their current state, so applying a response twice is harmless.
+ * If {@code reset} is set the changes since the token are no longer known (no token was sent,
+ * or deletions after it have been compacted); the client has to reload everything through the
+ * regular endpoints and continue with {@code next}, which was taken before that reload.
+ *
+ * @param next    token for the following request
+ * @param reset   whether the client has to reload all data
+ * @param hasMore whether more changes are waiting, request again with {@code next}
+ * @param deleted entities deleted since the token
+ */
+public record SyncChanges(
+        String next,
+        boolean reset,
+        boolean hasMore,
+        List<NoteSummary> notes,
+        List<TagSummary> tags,
+        List<NotebookSummary> notebooks,
+        List<TodoSummary> todos,
+        List<SyncTombstone> deleted) {
+
+    public static SyncChanges reset(String next) {
+        return new SyncChanges(next, true, false, List.of(), List.of(), List.of(), List.of(), List.of());
+    }
+}
@@ -0,0 +1,9 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+import ch.hadzic.nikola.notesapp.data.entity.SyncEntityType;
+
+/**
+ * Marks an entity that has been deleted since the sync token of the request.
+ */
+public record SyncTombstone(SyncEntityType type, Long id) {
+}
@@ -0,0 +1,7 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+/**
+ * Read model of a tag as embedded in note listings.
+ */
+public record TagSummary(Long id, String name) {
+}
@@ -0,0 +1,7 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+/**
+ * Read model of a tag in tag listings, with the number of notes carrying it, archived ones included.
+ */
+public record TagUsage(Long id, String name, long noteCount) {
+}
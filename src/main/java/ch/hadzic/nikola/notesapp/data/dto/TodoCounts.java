@@ -0,0 +1,7 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+/**
+ * Number of open todos and how many of them are overdue.
+ */
+public record TodoCounts(long open, long overdue) {
+}
@@ -0,0 +1,48 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+import ch.hadzic.nikola.notesapp.config.execptions.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Keyset position inside a todo listing. The agenda is ordered by due date and id,
+ * the plain listing by id only, so its cursors carry no due date.
+ * It is handed to clients as an opaque URL-safe token.
+ *
+ * @param dueDate due date of the last todo, {@code null} in cursors of the plain listing
+ * @param id      id of the last todo
+ */
+public record TodoCursor(LocalDate dueDate, Long id) {
+
+    private static final char SEPARATOR = '|';
+
+    public String encode() {
+        String raw = (dueDate == null ? "" : dueDate.toString()) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode()}.
+     *
+     * @param token opaque cursor token
+     * @return decoded cursor
+     * @throws InvalidCursorException if the token is malformed
+     */
+    public static TodoCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new InvalidCursorException("Invalid cursor");
+            }
+            String dueDate = raw.substring(0, separator);
+            return new TodoCursor(dueDate.isEmpty() ? null : LocalDate.parse(dueDate),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+    }
+}
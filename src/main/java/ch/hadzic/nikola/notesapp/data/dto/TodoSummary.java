@@ -0,0 +1,16 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+import ch.hadzic.nikola.notesapp.data.entity.Todo;
+
+import java.time.LocalDate;
+
+/**
+ * Read model of a todo, referencing its note by id instead of embedding it.
+ */
+public record TodoSummary(Long id, String title, boolean done, LocalDate dueDate, Long noteId) {
+
+    public static TodoSummary of(Todo todo) {
+        return new TodoSummary(todo.getId(), todo.getTitle(), todo.isDone(), todo.getDueDate(),
+                todo.getNote() == null ? null : todo.getNote().getId());
+    }
+}
@@ -0,0 +1,20 @@
+package ch.hadzic.nikola.notesapp.data.dto;
+
+import java.util.Map;
+
+/**
+ * Statistics of a user for the dashboard. Notebook and tag counts include archived notes
+ * and leave out notebooks and tags without notes.
+ *
+ * @param notebooks number of notes per notebook id
+ * @param tags      number of notes per tag id
+ */
+public record UserStats(
+        long notes,
+        long favorites,
+        long archived,
+        long openTodos,
+        long overdueTodos,
+        Map<Long, Long> notebooks,
+        Map<Long, Long> tags) {
+}
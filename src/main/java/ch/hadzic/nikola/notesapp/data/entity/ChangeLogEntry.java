@@ -0,0 +1,49 @@
+package ch.hadzic.nikola.notesapp.data.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Latest change of one entity, used for delta sync.
+ * There is at most one entry per entity: a new change moves the entry to the next sequence
+ * number of the owner, and a deletion turns it into a tombstone. Tombstones are removed by
+ * compaction after the configured retention.
+ */
+@Entity
+@Table(name = "change_log",
+        uniqueConstraints = @UniqueConstraint(name = "uk_change_log_entity",
+                columnNames = {"user_id", "entity_type", "entity_id"}),
+        indexes = @Index(name = "idx_change_log_user_seq", columnList = "user_id, seq"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ChangeLogEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "change_log_seq")
+    @SequenceGenerator(name = "change_log_seq", sequenceName = "change_log_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", nullable = false, length = 16)
+    private SyncEntityType entityType;
+
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    @Column(nullable = false)
+    private long seq;
+
+    @Column(nullable = false)
+    private boolean deleted;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+}
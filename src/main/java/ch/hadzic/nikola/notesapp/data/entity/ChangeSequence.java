@@ -0,0 +1,31 @@
+package ch.hadzic.nikola.notesapp.data.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Change sequence of one user.
+ * Incrementing {@code lastSeq} locks the row until the transaction ends, so the changes of a
+ * user become visible in sequence order and a client that has seen a number has seen all
+ * changes before it. {@code compactedSeq} is the highest sequence number of a removed tombstone;
+ * clients behind it have to start over.
+ */
+@Entity
+@Table(name = "user_change_sequence")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ChangeSequence {
+
+    @Id
+    @Column(name = "user_id")
+    private String userId;
+
+    @Column(name = "last_seq", nullable = false)
+    private long lastSeq;
+
+    @Column(name = "compacted_seq", nullable = false)
+    private long compactedSeq;
+}
@@ -18,8 +18,18 @@ import java.util.Set;
  * Note entity representing a note in the application.
  * It contains fields for title, content, favorite status, archived status,
  * creation timestamp, update timestamp, and user ID.
+ * The content is kept in the {@link NoteContent} store and only loaded when a single note is
+ * read or exported; the row itself carries the hash of the content and a short preview for listings.
  */
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_note_user_archived_updated", columnList = "user_id, is_archived, updated_at, id"),
+        @Index(name = "idx_note_user_favorite_updated", columnList = "user_id, is_favorite, updated_at, id"),
+        @Index(name = "idx_note_user_created", columnList = "user_id, created_at, id"),
+        @Index(name = "idx_note_user_title", columnList = "user_id, title, id"),
+        @Index(name = "idx_note_notebook_updated", columnList = "notebook_id, updated_at, id"),
+        @Index(name = "idx_note_content_hash", columnList = "content_hash")
+})
 @Getter
 @Setter
 @ToString
@@ -29,8 +39,13 @@ import java.util.Set;
 @Builder
 public class Note implements Serializable {
 
+    public static final int MAX_CONTENT_LENGTH = 1_000_000;
+    public static final int PREVIEW_LENGTH = 200;
+
+    // pooled sequence instead of IDENTITY, so inserts can be sent as JDBC batches
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "note_seq")
+    @SequenceGenerator(name = "note_seq", sequenceName = "note_seq", allocationSize = 50)
     @Schema(hidden = true)
     private Long id;
 
@@ -38,9 +53,25 @@ public class Note implements Serializable {
     @Size(max = 255)
     private String title;
 
-    @Size(max = 2500)
+    @Transient
+    @ToString.Exclude
+    @Size(max = MAX_CONTENT_LENGTH)
     private String content;
 
+    @Schema(hidden = true)
+    @Column(length = PREVIEW_LENGTH)
+    private String preview;
+
+    @JsonIgnore
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    // content written before the content store existed, moved there on startup
+    @JsonIgnore
+    @ToString.Exclude
+    @Column(name = "content", length = 2500)
+    private String inlineContent;
+
     @OneToMany(mappedBy = "note", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonIgnore
     private List<Todo> todos;
@@ -53,7 +84,8 @@ public class Note implements Serializable {
     @JoinTable(
             name = "note_tag",
             joinColumns = @JoinColumn(name = "note_id"),
-            inverseJoinColumns = @JoinColumn(name = "tag_id")
+            inverseJoinColumns = @JoinColumn(name = "tag_id"),
+            indexes = @Index(name = "idx_note_tag_tag", columnList = "tag_id, note_id")
     )
     private Set<Tag> tags;
 
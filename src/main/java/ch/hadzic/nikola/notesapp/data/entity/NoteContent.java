@@ -0,0 +1,49 @@
+package ch.hadzic.nikola.notesapp.data.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+
+/**
+ * Content of a note, stored apart from the note row and addressed by its SHA-256 hash.
+ * Notes and revision snapshots with the same content share one row, and a row never changes once written.
+ * Rows no note points to anymore are removed by the sweep of {@code NoteContentService}
+ * once they have not been used for the configured grace period.
+ */
+@Entity
+@Table(name = "note_content")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NoteContent {
+
+    public enum Compression {
+        NONE, DEFLATE
+    }
+
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Compression compression;
+
+    /**
+     * Length of the content in characters.
+     */
+    @Column(nullable = false)
+    private int length;
+
+    @JdbcTypeCode(SqlTypes.LONG32VARBINARY)
+    @Column(nullable = false)
+    private byte[] data;
+
+    @Column(name = "last_used_at", nullable = false)
+    private LocalDateTime lastUsedAt;
+}
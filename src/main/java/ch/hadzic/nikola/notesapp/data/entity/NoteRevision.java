@@ -0,0 +1,80 @@
+package ch.hadzic.nikola.notesapp.data.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+
+/**
+ * One revision of the title and content of a note.
+ * A snapshot points to its content in the {@link NoteContent} store, which usually holds it already
+ * as the content of the note. A delta stores the change against the previous revision, see
+ * {@link ch.hadzic.nikola.notesapp.util.TextDelta}; it is read by applying the deltas after the
+ * nearest snapshot before it.
+ */
+@Entity
+@Table(name = "note_revision",
+        uniqueConstraints = @UniqueConstraint(name = "uk_note_revision_number", columnNames = {"note_id", "number"}),
+        indexes = @Index(name = "idx_note_revision_content_hash", columnList = "content_hash"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NoteRevision {
+
+    public enum Kind {
+        SNAPSHOT, DELTA
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "note_revision_seq")
+    @SequenceGenerator(name = "note_revision_seq", sequenceName = "note_revision_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "note_id", nullable = false)
+    private Long noteId;
+
+    @Column(nullable = false)
+    private int number;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Kind kind;
+
+    /**
+     * Number of the snapshot the deltas up to this revision start from.
+     */
+    @Column(name = "base_number", nullable = false)
+    private int baseNumber;
+
+    @Column(length = 255)
+    private String title;
+
+    /**
+     * Content of a snapshot, {@code null} for deltas and for notes without content.
+     */
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "base_length")
+    private int baseLength;
+
+    @Column(name = "prefix_length")
+    private int prefixLength;
+
+    @Column(name = "suffix_length")
+    private int suffixLength;
+
+    @JdbcTypeCode(SqlTypes.LONG32VARCHAR)
+    @Column(name = "delta_text")
+    private String deltaText;
+
+    @Column(name = "content_length", nullable = false)
+    private int contentLength;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
@@ -25,7 +26,19 @@ public class Notebook {
     @Column(name = "user_id", nullable = false)
     private String userId;
 
-    @OneToMany(mappedBy = "notebook", cascade = CascadeType.ALL, orphanRemoval = true)
+    /**
+     * When the name or description last changed, {@code null} if never. Notes embed their notebook,
+     * so this is part of the version of every note in it.
+     */
+    @JsonIgnore
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    /**
+     * Not cascaded: the notes of a notebook are moved and deleted with bulk statements,
+     * see {@link ch.hadzic.nikola.notesapp.data.service.NoteService#deleteNotes}.
+     */
+    @OneToMany(mappedBy = "notebook")
     @JsonIgnore
     private List<Note> notes;
 }
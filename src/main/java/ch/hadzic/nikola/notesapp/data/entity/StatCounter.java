@@ -0,0 +1,51 @@
+package ch.hadzic.nikola.notesapp.data.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * One statistic of a user, kept up to date by the services on every write.
+ * Counters per notebook and tag carry the notebook or tag id as {@code refId},
+ * all others {@code 0}.
+ */
+@Entity
+@Table(name = "user_stat_counter")
+@IdClass(StatCounter.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StatCounter {
+
+    public enum Kind {
+        NOTES, FAVORITES, ARCHIVED, NOTEBOOK, TAG, OPEN_TODOS, OVERDUE_TODOS
+    }
+
+    @Id
+    @Column(name = "user_id")
+    private String userId;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private Kind kind;
+
+    @Id
+    @Column(name = "ref_id")
+    private long refId;
+
+    @Column(name = "counter_value", nullable = false)
+    private long value;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String userId;
+        private Kind kind;
+        private long refId;
+    }
+}
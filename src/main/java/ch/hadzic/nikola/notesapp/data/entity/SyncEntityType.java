@@ -0,0 +1,11 @@
+package ch.hadzic.nikola.notesapp.data.entity;
+
+/**
+ * Kinds of entities tracked in the change log for delta sync.
+ */
+public enum SyncEntityType {
+    NOTE,
+    TAG,
+    NOTEBOOK,
+    TODO
+}
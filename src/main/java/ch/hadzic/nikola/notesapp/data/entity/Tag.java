@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.time.LocalDateTime;
 import java.util.Set;
 
 @Entity
@@ -26,4 +27,12 @@ public class Tag {
 
     @Column(name = "user_id", nullable = false)
     private String userId;
+
+    /**
+     * When the tag was last renamed, {@code null} if never. Notes embed their tags,
+     * so this is part of the version of every note carrying the tag.
+     */
+    @JsonIgnore
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
 }
@@ -1,11 +1,16 @@
 package ch.hadzic.nikola.notesapp.data.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 
 import java.time.LocalDate;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_todo_note_done", columnList = "note_id, done"),
+        @Index(name = "idx_todo_user_done_due", columnList = "user_id, done, due_date, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -25,4 +30,9 @@ public class Todo {
     @ManyToOne
     @JoinColumn(name = "note_id", nullable = false)
     private Note note;
+
+    // owner of the note, copied so the todos of a user can be read without joining their notes
+    @JsonIgnore
+    @Column(name = "user_id")
+    private String userId;
 }
@@ -0,0 +1,24 @@
+package ch.hadzic.nikola.notesapp.data.repository;
+
+import ch.hadzic.nikola.notesapp.data.entity.ChangeLogEntry;
+import ch.hadzic.nikola.notesapp.data.entity.SyncEntityType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface ChangeLogRepository extends JpaRepository<ChangeLogEntry, Long> {
+
+    List<ChangeLogEntry> findByUserIdAndEntityTypeAndEntityIdIn(String userId, SyncEntityType entityType,
+                                                                 Collection<Long> entityIds);
+
+    List<ChangeLogEntry> findByUserIdAndSeqGreaterThanOrderBySeq(String userId, long seq, Limit limit);
+
+    @Modifying
+    @Query("delete from ChangeLogEntry c where c.deleted = true and c.changedAt < :cutoff")
+    int deleteTombstonesBefore(LocalDateTime cutoff);
+}
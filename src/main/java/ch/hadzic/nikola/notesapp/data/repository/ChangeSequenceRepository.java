@@ -0,0 +1,47 @@
+package ch.hadzic.nikola.notesapp.data.repository;
+
+import ch.hadzic.nikola.notesapp.data.entity.ChangeSequence;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface ChangeSequenceRepository extends JpaRepository<ChangeSequence, String> {
+
+    @Modifying
+    @Query("update ChangeSequence s set s.lastSeq = s.lastSeq + :count where s.userId = :userId")
+    int increment(String userId, long count);
+
+    /**
+     * Takes the lock every write of the user takes when recording its changes.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from ChangeSequence s where s.userId = :userId")
+    Optional<ChangeSequence> lockByUserId(String userId);
+
+    @Query("select s.userId from ChangeSequence s where s.userId > :after order by s.userId")
+    List<String> findUserIdsAfter(String after, Limit limit);
+
+    @Query("select s.lastSeq from ChangeSequence s where s.userId = :userId")
+    Optional<Long> findLastSeq(String userId);
+
+    /**
+     * Raises the compacted sequence of every user to their newest tombstone older than the cutoff.
+     */
+    @Modifying
+    @Query("""
+            update ChangeSequence s
+            set s.compactedSeq = (select max(c.seq) from ChangeLogEntry c
+                                  where c.userId = s.userId and c.deleted = true
+                                  and c.changedAt < :cutoff and c.seq > s.compactedSeq)
+            where exists (select 1 from ChangeLogEntry c
+                          where c.userId = s.userId and c.deleted = true
+                          and c.changedAt < :cutoff and c.seq > s.compactedSeq)""")
+    int raiseCompactedSeq(LocalDateTime cutoff);
+}
@@ -0,0 +1,32 @@
+package ch.hadzic.nikola.notesapp.data.repository;
+
+import ch.hadzic.nikola.notesapp.data.entity.NoteContent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface NoteContentRepository extends JpaRepository<NoteContent, String> {
+
+    @Modifying
+    @Query("update NoteContent c set c.lastUsedAt = :now where c.hash = :hash")
+    int touch(String hash, LocalDateTime now);
+
+    @Query("select c.hash from NoteContent c where c.hash in :hashes")
+    List<String> findHashesByHashIn(Collection<String> hashes);
+
+    @Modifying
+    @Query("update NoteContent c set c.lastUsedAt = :now where c.hash in :hashes")
+    int touchAll(Collection<String> hashes, LocalDateTime now);
+
+    @Modifying
+    @Query("""
+            delete from NoteContent c
+            where c.lastUsedAt < :cutoff
+            and not exists (select 1 from Note n where n.contentHash = c.hash)
+            and not exists (select 1 from NoteRevision r where r.contentHash = c.hash)""")
+    int deleteUnusedBefore(LocalDateTime cutoff);
+}
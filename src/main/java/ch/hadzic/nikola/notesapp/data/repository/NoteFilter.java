@@ -0,0 +1,39 @@
+package ch.hadzic.nikola.notesapp.data.repository;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Conditions a note has to meet to be listed. {@code null} leaves a condition out;
+ * all given conditions have to be met.
+ *
+ * @param tagIds       tags of the note, combined according to {@code tagMatch}
+ * @param tagMatch     whether one or all of the tags are required, {@code ANY} if {@code null}
+ * @param notebookId   notebook the note is in
+ * @param favorite     favorite flag
+ * @param archived     archived flag
+ * @param createdFrom  created at or after
+ * @param createdTo    created before
+ * @param updatedFrom  updated at or after
+ * @param updatedTo    updated before
+ * @param hasOpenTodos whether the note has todos that are not done
+ */
+public record NoteFilter(Set<Long> tagIds, TagMatch tagMatch, Long notebookId, Boolean favorite, Boolean archived,
+                         LocalDateTime createdFrom, LocalDateTime createdTo, LocalDateTime updatedFrom,
+                         LocalDateTime updatedTo, Boolean hasOpenTodos) {
+
+    public enum TagMatch {
+        ANY, ALL
+    }
+
+    /**
+     * Returns the filter of a predefined listing.
+     */
+    public static NoteFilter of(NoteListing listing) {
+        return switch (listing) {
+            case ACTIVE -> new NoteFilter(null, null, null, null, false, null, null, null, null, null);
+            case ARCHIVED -> new NoteFilter(null, null, null, null, true, null, null, null, null, null);
+            case FAVOURITE -> new NoteFilter(null, null, null, true, null, null, null, null, null, null);
+        };
+    }
+}
@@ -0,0 +1,10 @@
+package ch.hadzic.nikola.notesapp.data.repository;
+
+/**
+ * The note listings offered to a user.
+ */
+public enum NoteListing {
+    ACTIVE,
+    ARCHIVED,
+    FAVOURITE
+}
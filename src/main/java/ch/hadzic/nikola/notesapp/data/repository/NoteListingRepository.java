@@ -0,0 +1,41 @@
+package ch.hadzic.nikola.notesapp.data.repository;
+
+import ch.hadzic.nikola.notesapp.data.dto.NoteCursor;
+import ch.hadzic.nikola.notesapp.data.dto.NoteSummary;
+import org.springframework.data.domain.Sort;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Keyset-paginated reads for the note listings.
+ */
+public interface NoteListingRepository {
+
+    /**
+     * Returns up to {@code limit} notes matching the filter, ordered by the sort key and id in the
+     * given direction and starting strictly after {@code after}. All conditions go into the one
+     * statement reading the note rows; a second statement reads the tags of all notes on the page.
+     *
+     * @param userId    owner of the notes
+     * @param filter    conditions the notes have to meet
+     * @param sort      sort key
+     * @param direction sort direction
+     * @param after     position of the last note already seen, {@code null} for the first page;
+     *                  it must have been issued for the same sort key and direction
+     * @param limit     maximum number of notes to return
+     * @return notes of the page
+     */
+    List<NoteSummary> findPage(String userId, NoteFilter filter, NoteSort sort, Sort.Direction direction,
+                               NoteCursor after, int limit);
+
+    /**
+     * Returns the notes with the given ids that belong to the user, in no particular order.
+     * Like a page, they are read with two statements.
+     *
+     * @param userId owner of the notes
+     * @param ids    ids of the notes
+     * @return notes found
+     */
+    List<NoteSummary> findSummaries(String userId, Collection<Long> ids);
+}
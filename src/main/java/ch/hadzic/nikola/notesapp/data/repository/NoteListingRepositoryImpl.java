@@ -0,0 +1,210 @@
+package ch.hadzic.nikola.notesapp.data.repository;
+
+import ch.hadzic.nikola.notesapp.data.dto.NoteCursor;
+import ch.hadzic.nikola.notesapp.data.dto.NoteSummary;
+import ch.hadzic.nikola.notesapp.data.dto.NotebookSummary;
+import ch.hadzic.nikola.notesapp.data.dto.TagSummary;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.entity.Notebook;
+import ch.hadzic.nikola.notesapp.data.entity.Tag;
+import ch.hadzic.nikola.notesapp.data.entity.Todo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Criteria based implementation of {@link NoteListingRepository}.
+ * The keyset predicate only compares against the cursor, so every page of the predefined listings
+ * is an index range scan on {@code (user_id, is_archived|is_favorite, updated_at, id)} no matter how
+ * deep it is; the other sort keys have their own {@code (user_id, key, id)} indexes. Tag and todo
+ * conditions are correlated subqueries served by the indexes on {@code note_tag} and {@code todo}.
+ * Notes are read as tuples instead of entities, which keeps Hibernate from resolving the
+ * eager {@code tags} and {@code notebook} associations row by row; the tags of the whole
+ * page are fetched afterwards with a single IN query. Only the preview of the content is read,
+ * the content itself stays in the content store.
+ */
+public class NoteListingRepositoryImpl implements NoteListingRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public List<NoteSummary> findPage(String userId, NoteFilter filter, NoteSort sort, Sort.Direction direction,
+                                      NoteCursor after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Note> note = query.from(Note.class);
+        Join<Note, Notebook> notebook = note.join("notebook", JoinType.LEFT);
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(note.get("userId"), userId));
+        predicates.addAll(filterPredicates(cb, query, note, notebook, filter));
+
+        Path<Comparable> key = note.get(sort.attribute());
+        Path<Long> id = note.get("id");
+        if (after != null) {
+            Comparable value = after.value();
+            predicates.add(direction.isAscending()
+                    ? cb.or(cb.greaterThan(key, value), cb.and(cb.equal(key, value), cb.greaterThan(id, after.id())))
+                    : cb.or(cb.lessThan(key, value), cb.and(cb.equal(key, value), cb.lessThan(id, after.id()))));
+        }
+
+        selectSummary(query, note, notebook)
+                .where(predicates.toArray(Predicate[]::new))
+                .orderBy(direction.isAscending()
+                        ? List.of(cb.asc(key), cb.asc(id))
+                        : List.of(cb.desc(key), cb.desc(id)));
+
+        return toSummaries(entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList());
+    }
+
+    @Override
+    public List<NoteSummary> findSummaries(String userId, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Note> note = query.from(Note.class);
+        Join<Note, Notebook> notebook = note.join("notebook", JoinType.LEFT);
+
+        selectSummary(query, note, notebook)
+                .where(cb.equal(note.get("userId"), userId), note.get("id").in(ids));
+
+        return toSummaries(entityManager.createQuery(query).getResultList());
+    }
+
+    private CriteriaQuery<Tuple> selectSummary(CriteriaQuery<Tuple> query, Root<Note> note,
+                                               Join<Note, Notebook> notebook) {
+        return query.multiselect(
+                note.get("id").alias("id"),
+                note.get("title").alias("title"),
+                note.get("preview").alias("preview"),
+                note.get("favorite").alias("favorite"),
+                note.get("archived").alias("archived"),
+                note.get("createdAt").alias("createdAt"),
+                note.get("updatedAt").alias("updatedAt"),
+                note.get("userId").alias("userId"),
+                notebook.get("id").alias("notebookId"),
+                notebook.get("name").alias("notebookName"),
+                notebook.get("description").alias("notebookDescription"));
+    }
+
+    private List<NoteSummary> toSummaries(List<Tuple> rows) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, List<TagSummary>> tagsByNote = findTagsByNoteIds(rows.stream()
+                .map(row -> row.get("id", Long.class))
+                .toList());
+
+        return rows.stream()
+                .map(row -> toSummary(row, tagsByNote.getOrDefault(row.get("id", Long.class), List.of())))
+                .toList();
+    }
+
+    private Map<Long, List<TagSummary>> findTagsByNoteIds(List<Long> noteIds) {
+        List<Tuple> rows = entityManager.createQuery("""
+                        select n.id as noteId, t.id as tagId, t.name as tagName
+                        from Note n join n.tags t
+                        where n.id in :noteIds
+                        order by t.name""", Tuple.class)
+                .setParameter("noteIds", noteIds)
+                .getResultList();
+
+        Map<Long, List<TagSummary>> tagsByNote = new HashMap<>();
+        for (Tuple row : rows) {
+            tagsByNote.computeIfAbsent(row.get("noteId", Long.class), key -> new ArrayList<>())
+                    .add(new TagSummary(row.get("tagId", Long.class), row.get("tagName", String.class)));
+        }
+        return tagsByNote;
+    }
+
+    private NoteSummary toSummary(Tuple row, List<TagSummary> tags) {
+        Long notebookId = row.get("notebookId", Long.class);
+        NotebookSummary notebook = notebookId == null ? null : new NotebookSummary(
+                notebookId,
+                row.get("notebookName", String.class),
+                row.get("notebookDescription", String.class));
+
+        return new NoteSummary(
+                row.get("id", Long.class),
+                row.get("title", String.class),
+                row.get("preview", String.class),
+                null,
+                notebook,
+                tags,
+                row.get("favorite", Boolean.class),
+                row.get("archived", Boolean.class),
+                row.get("createdAt", LocalDateTime.class),
+                row.get("updatedAt", LocalDateTime.class),
+                row.get("userId", String.class));
+    }
+
+    private List<Predicate> filterPredicates(CriteriaBuilder cb, CriteriaQuery<?> query, Root<Note> note,
+                                             Join<Note, Notebook> notebook, NoteFilter filter) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter.favorite() != null) {
+            predicates.add(cb.equal(note.get("favorite"), filter.favorite()));
+        }
+        if (filter.archived() != null) {
+            predicates.add(cb.equal(note.get("archived"), filter.archived()));
+        }
+        if (filter.notebookId() != null) {
+            predicates.add(cb.equal(notebook.get("id"), filter.notebookId()));
+        }
+        addRange(cb, predicates, note.get("createdAt"), filter.createdFrom(), filter.createdTo());
+        addRange(cb, predicates, note.get("updatedAt"), filter.updatedFrom(), filter.updatedTo());
+
+        if (filter.tagIds() != null && !filter.tagIds().isEmpty()) {
+            // a subquery instead of a join keeps notes with several matching tags from repeating
+            Subquery<Long> tagged = query.subquery(Long.class);
+            Join<Note, Tag> tag = tagged.correlate(note).join("tags");
+            if (filter.tagMatch() == NoteFilter.TagMatch.ALL) {
+                tagged.select(cb.countDistinct(tag.get("id"))).where(tag.get("id").in(filter.tagIds()));
+                predicates.add(cb.equal(tagged, (long) filter.tagIds().size()));
+            } else {
+                tagged.select(tag.get("id")).where(tag.get("id").in(filter.tagIds()));
+                predicates.add(cb.exists(tagged));
+            }
+        }
+        if (filter.hasOpenTodos() != null) {
+            Subquery<Long> openTodos = query.subquery(Long.class);
+            Root<Todo> todo = openTodos.from(Todo.class);
+            openTodos.select(todo.get("id")).where(cb.equal(todo.get("note"), note), cb.isFalse(todo.get("done")));
+            predicates.add(filter.hasOpenTodos() ? cb.exists(openTodos) : cb.not(cb.exists(openTodos)));
+        }
+        return predicates;
+    }
+
+    private static void addRange(CriteriaBuilder cb, List<Predicate> predicates, Path<LocalDateTime> path,
+                                 LocalDateTime from, LocalDateTime to) {
+        if (from != null) {
+            predicates.add(cb.greaterThanOrEqualTo(path, from));
+        }
+        if (to != null) {
+            predicates.add(cb.lessThan(path, to));
+        }
+    }
+}
@@ -1,17 +1,143 @@
 package ch.hadzic.nikola.notesapp.data.repository;
 
+import ch.hadzic.nikola.notesapp.data.dto.InlineNoteContent;
+import ch.hadzic.nikola.notesapp.data.dto.NoteExportText;
+import ch.hadzic.nikola.notesapp.data.dto.NoteTagName;
+import ch.hadzic.nikola.notesapp.data.dto.NoteText;
+import ch.hadzic.nikola.notesapp.data.dto.StatCount;
+import ch.hadzic.nikola.notesapp.data.dto.NoteVersion;
 import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.entity.Notebook;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface NoteRepository extends JpaRepository<Note, Long> {
+public interface NoteRepository extends JpaRepository<Note, Long>, NoteListingRepository {
     // List<Note> findByUserId(String userId);
     List<Note> findByUserIdAndArchivedIsFalse(String userId);
 
-    List<Note> findByUserIdAndArchivedIsTrue(String userId);
+    long countByUserId(String userId);
 
-    List<Note> findByUserIdAndFavoriteIsTrue(String userId);
+    long countByUserIdAndFavoriteIsTrue(String userId);
+
+    long countByUserIdAndArchivedIsTrue(String userId);
+
+    @Query("""
+            select new ch.hadzic.nikola.notesapp.data.dto.NoteVersion(n.id, n.userId, n.updatedAt, b.updatedAt,
+                (select max(t.updatedAt) from Note m join m.tags t where m.id = n.id))
+            from Note n left join n.notebook b where n.id = :id""")
+    Optional<NoteVersion> findVersionById(Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select n from Note n where n.id = :id")
+    Optional<Note> findForUpdateById(Long id);
+
+    /**
+     * Locks the given notes in the order of their ids, so concurrent batches cannot deadlock.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select n from Note n where n.id in :ids order by n.id")
+    List<Note> findAllForUpdateByIdIn(Collection<Long> ids);
+
+    @Query("select n.id from Note n join n.tags t where t.id = :tagId")
+    List<Long> findIdsByTagId(Long tagId);
+
+    @Query("select n.id from Note n where n.notebook.id = :notebookId")
+    List<Long> findIdsByNotebookId(Long notebookId);
+
+    @Query("select n.id from Note n where n.notebook.id = :notebookId and n.id in :ids")
+    List<Long> findIdsByNotebookIdAndIdIn(Long notebookId, Collection<Long> ids);
+
+    @Query("select n.userId from Note n where n.id = :id")
+    Optional<String> findUserIdById(Long id);
+
+    @Query("""
+            select new ch.hadzic.nikola.notesapp.data.dto.NoteText(n.id, n.userId, n.title, n.contentHash, n.createdAt)
+            from Note n
+            where n.id > :afterId
+            order by n.id""")
+    List<NoteText> findTextsAfter(Long afterId, Limit limit);
+
+    @Query("""
+            select new ch.hadzic.nikola.notesapp.data.dto.NoteText(n.id, n.userId, n.title, n.contentHash, n.createdAt)
+            from Note n
+            where n.userId = :userId and n.id in :ids""")
+    List<NoteText> findTexts(String userId, Collection<Long> ids);
+
+    @Query("""
+            select new ch.hadzic.nikola.notesapp.data.dto.NoteText(n.id, n.userId, n.title, n.contentHash, n.createdAt)
+            from Note n
+            where n.userId = :userId and n.contentHash in :hashes""")
+    List<NoteText> findTextsByContentHashIn(String userId, Collection<String> hashes);
+
+    @Query("""
+            select new ch.hadzic.nikola.notesapp.data.dto.NoteExportText(
+                n.id, n.title, n.contentHash, b.name, n.favorite, n.createdAt, n.updatedAt)
+            from Note n left join n.notebook b
+            where n.userId = :userId and n.archived = false and n.id > :afterId
+              and (:notebookId is null or b.id = :notebookId)
+              and (:tagId is null or exists (select 1 from n.tags t where t.id = :tagId))
+            order by n.id""")
+    List<NoteExportText> findExportTextsAfter(String userId, Long notebookId, Long tagId, Long afterId, Limit limit);
+
+    @Query("""
+            select count(n) from Note n
+            where n.userId = :userId and n.archived = false
+              and (:notebookId is null or n.notebook.id = :notebookId)
+              and (:tagId is null or exists (select 1 from n.tags t where t.id = :tagId))""")
+    long countForExport(String userId, Long notebookId, Long tagId);
+
+    @Query("""
+            select new ch.hadzic.nikola.notesapp.data.dto.NoteTagName(n.id, t.name)
+            from Note n join n.tags t
+            where n.id in :ids
+            order by t.name""")
+    List<NoteTagName> findTagNames(Collection<Long> ids);
+
+    @Query("""
+            select new ch.hadzic.nikola.notesapp.data.dto.InlineNoteContent(n.id, n.inlineContent)
+            from Note n
+            where n.inlineContent is not null
+            order by n.id""")
+    List<InlineNoteContent> findInlineContents(Limit limit);
+
+    @Modifying
+    @Query("update Note n set n.contentHash = :hash, n.preview = :preview, n.inlineContent = null where n.id = :id")
+    int moveContent(Long id, String hash, String preview);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Note n set n.notebook = :notebook, n.updatedAt = :updatedAt where n.id in :ids")
+    int moveToNotebook(Collection<Long> ids, Notebook notebook, LocalDateTime updatedAt);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "delete from note_tag where note_id in :ids", nativeQuery = true)
+    int deleteTagAssignments(Collection<Long> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Note n where n.id in :ids")
+    int deleteAllByIdIn(Collection<Long> ids);
+
+    @Query("""
+            select new ch.hadzic.nikola.notesapp.data.dto.StatCount(n.notebook.id, count(n))
+            from Note n
+            where n.userId = :userId and n.notebook is not null
+            group by n.notebook.id""")
+    List<StatCount> countByNotebook(String userId);
+
+    @Query("""
+            select new ch.hadzic.nikola.notesapp.data.dto.StatCount(t.id, count(n))
+            from Note n join n.tags t
+            where n.userId = :userId
+            group by t.id""")
+    List<StatCount> countByTag(String userId);
 }
@@ -0,0 +1,69 @@
+package ch.hadzic.nikola.notesapp.data.repository;
+
+import ch.hadzic.nikola.notesapp.data.dto.NoteRevisionSummary;
+import ch.hadzic.nikola.notesapp.data.entity.NoteRevision;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface NoteRevisionRepository extends JpaRepository<NoteRevision, Long> {
+
+    Optional<NoteRevision> findFirstByNoteIdOrderByNumberDesc(Long noteId);
+
+    @Query("""
+            select r from NoteRevision r
+            where r.noteId in :noteIds
+            and r.number = (select max(s.number) from NoteRevision s where s.noteId = r.noteId)""")
+    List<NoteRevision> findLatestByNoteIdIn(Collection<Long> noteIds);
+
+    Optional<NoteRevision> findByNoteIdAndNumber(Long noteId, int number);
+
+    @Query("""
+            select new ch.hadzic.nikola.notesapp.data.dto.NoteRevisionSummary(r.number, r.title, r.contentLength, r.createdAt)
+            from NoteRevision r
+            where r.noteId = :noteId and r.number < :before
+            order by r.number desc""")
+    List<NoteRevisionSummary> findSummaries(Long noteId, int before, Limit limit);
+
+    /**
+     * Returns the revisions needed to read the given one: the nearest snapshot up to it
+     * and the deltas following that snapshot, oldest first.
+     */
+    @Query("""
+            select r from NoteRevision r
+            where r.noteId = :noteId and r.number <= :number
+            and r.number >= (select max(s.number) from NoteRevision s
+                             where s.noteId = :noteId and s.number <= :number
+                             and s.kind = ch.hadzic.nikola.notesapp.data.entity.NoteRevision.Kind.SNAPSHOT)
+            order by r.number""")
+    List<NoteRevision> findChain(Long noteId, int number);
+
+    /**
+     * Notes with more revisions than allowed, or with more than one revision and some of them
+     * older than the cutoff.
+     */
+    @Query("""
+            select r.noteId from NoteRevision r
+            group by r.noteId
+            having count(r) > :maxRevisions or (count(r) > 1 and min(r.createdAt) < :cutoff)""")
+    List<Long> findNoteIdsToCompact(long maxRevisions, LocalDateTime cutoff, Limit limit);
+
+    @Query("""
+            select min(r.number) from NoteRevision r
+            where r.noteId = :noteId and r.createdAt >= :cutoff""")
+    Optional<Integer> findFirstNumberSince(Long noteId, LocalDateTime cutoff);
+
+    @Modifying
+    @Query("delete from NoteRevision r where r.noteId = :noteId and r.number < :number")
+    int deleteBefore(Long noteId, int number);
+
+    @Modifying
+    @Query("delete from NoteRevision r where r.noteId in :noteIds")
+    int deleteByNoteIds(Collection<Long> noteIds);
+}
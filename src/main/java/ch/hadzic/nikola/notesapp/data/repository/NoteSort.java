@@ -0,0 +1,50 @@
+package ch.hadzic.nikola.notesapp.data.repository;
+
+import ch.hadzic.nikola.notesapp.data.dto.NoteSummary;
+
+import java.time.LocalDateTime;
+import java.util.function.Function;
+
+/**
+ * Sort keys of the note listings. Notes with the same key are ordered by id in the same direction,
+ * which makes the order total and lets pages continue from a {@link ch.hadzic.nikola.notesapp.data.dto.NoteCursor}.
+ */
+public enum NoteSort {
+    UPDATED_AT("updatedAt", NoteSummary::updatedAt, LocalDateTime::parse),
+    CREATED_AT("createdAt", NoteSummary::createdAt, LocalDateTime::parse),
+    TITLE("title", NoteSummary::title, Function.identity());
+
+    private final String attribute;
+    private final Function<NoteSummary, ? extends Comparable<?>> key;
+    private final Function<String, ? extends Comparable<?>> parser;
+
+    NoteSort(String attribute, Function<NoteSummary, ? extends Comparable<?>> key,
+             Function<String, ? extends Comparable<?>> parser) {
+        this.attribute = attribute;
+        this.key = key;
+        this.parser = parser;
+    }
+
+    /**
+     * Name of the sorted attribute of {@code Note}.
+     */
+    public String attribute() {
+        return attribute;
+    }
+
+    /**
+     * Returns the sort key of a note as written into cursors.
+     */
+    public String format(NoteSummary note) {
+        return String.valueOf(key.apply(note));
+    }
+
+    /**
+     * Parses a sort key written by {@link #format(NoteSummary)}.
+     *
+     * @throws java.time.format.DateTimeParseException if a date key is malformed
+     */
+    public Comparable<?> parse(String value) {
+        return parser.apply(value);
+    }
+}
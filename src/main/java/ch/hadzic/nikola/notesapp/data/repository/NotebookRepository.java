@@ -1,10 +1,31 @@
 package ch.hadzic.nikola.notesapp.data.repository;
 
+import ch.hadzic.nikola.notesapp.data.dto.NotebookActivity;
+import ch.hadzic.nikola.notesapp.data.dto.NotebookSummary;
 import ch.hadzic.nikola.notesapp.data.entity.Notebook;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface NotebookRepository extends JpaRepository<Notebook, Long> {
     List<Notebook> findByUserId(String userId);
+
+    @Query("""
+            select new ch.hadzic.nikola.notesapp.data.dto.NotebookSummary(b.id, b.name, b.description)
+            from Notebook b
+            where b.userId = :userId and b.id in :ids""")
+    List<NotebookSummary> findSummaries(String userId, Collection<Long> ids);
+
+    /**
+     * Reads the last change of the notes in each notebook of a user. Every notebook is answered by
+     * one probe of the end of {@code idx_note_notebook_updated}, however many notes it holds.
+     */
+    @Query("""
+            select new ch.hadzic.nikola.notesapp.data.dto.NotebookActivity(b.id,
+                (select max(n.updatedAt) from Note n where n.notebook.id = b.id))
+            from Notebook b
+            where b.userId = :userId""")
+    List<NotebookActivity> findActivities(String userId);
 }
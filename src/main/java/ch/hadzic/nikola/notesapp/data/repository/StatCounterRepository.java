@@ -0,0 +1,27 @@
+package ch.hadzic.nikola.notesapp.data.repository;
+
+import ch.hadzic.nikola.notesapp.data.entity.StatCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface StatCounterRepository extends JpaRepository<StatCounter, StatCounter.Key> {
+
+    List<StatCounter> findByUserId(String userId);
+
+    @Modifying
+    @Query("""
+            update StatCounter c set c.value = c.value + :delta
+            where c.userId = :userId and c.kind = :kind and c.refId = :refId""")
+    int add(String userId, StatCounter.Kind kind, long refId, long delta);
+
+    @Modifying
+    @Query("delete from StatCounter c where c.userId = :userId and c.kind = :kind and c.refId = :refId")
+    int deleteCounter(String userId, StatCounter.Kind kind, long refId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from StatCounter c where c.userId = :userId")
+    int deleteByUserId(String userId);
+}
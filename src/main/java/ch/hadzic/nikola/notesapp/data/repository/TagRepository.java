@@ -1,10 +1,16 @@
 package ch.hadzic.nikola.notesapp.data.repository;
 
+import ch.hadzic.nikola.notesapp.data.dto.TagSummary;
 import ch.hadzic.nikola.notesapp.data.entity.Tag;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface TagRepository extends JpaRepository<Tag, Long> {
     List<Tag> findByUserId(String userId);
+
+    @Query("select new ch.hadzic.nikola.notesapp.data.dto.TagSummary(t.id, t.name) from Tag t where t.userId = :userId and t.id in :ids")
+    List<TagSummary> findSummaries(String userId, Collection<Long> ids);
 }
@@ -0,0 +1,42 @@
+package ch.hadzic.nikola.notesapp.data.repository;
+
+import java.time.LocalDate;
+
+/**
+ * Sections of the todo agenda. Each covers the open todos due in a range of days,
+ * starting with {@link #from(LocalDate)} and ending before {@link #until(LocalDate)}.
+ */
+public enum TodoAgenda {
+
+    /**
+     * Due before today.
+     */
+    OVERDUE,
+    /**
+     * Due today.
+     */
+    TODAY,
+    /**
+     * Due in the seven days after today.
+     */
+    NEXT_7_DAYS;
+
+    // earliest due date the agenda reads, well within the date range of every supported database
+    private static final LocalDate EARLIEST = LocalDate.of(1, 1, 1);
+
+    public LocalDate from(LocalDate today) {
+        return switch (this) {
+            case OVERDUE -> EARLIEST;
+            case TODAY -> today;
+            case NEXT_7_DAYS -> today.plusDays(1);
+        };
+    }
+
+    public LocalDate until(LocalDate today) {
+        return switch (this) {
+            case OVERDUE -> today;
+            case TODAY -> today.plusDays(1);
+            case NEXT_7_DAYS -> today.plusDays(8);
+        };
+    }
+}
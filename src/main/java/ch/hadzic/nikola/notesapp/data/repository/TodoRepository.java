@@ -1,10 +1,91 @@
 package ch.hadzic.nikola.notesapp.data.repository;
 
+import ch.hadzic.nikola.notesapp.data.dto.TodoCounts;
+import ch.hadzic.nikola.notesapp.data.dto.TodoSummary;
 import ch.hadzic.nikola.notesapp.data.entity.Todo;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface TodoRepository extends JpaRepository<Todo, Long> {
-    List<Todo> findByNoteId(Long noteId);
+
+    @Query("""
+            select new ch.hadzic.nikola.notesapp.data.dto.TodoSummary(t.id, t.title, t.done, t.dueDate, t.note.id)
+            from Todo t
+            where t.id = :id and t.userId = :userId""")
+    Optional<TodoSummary> findByIdAndUserId(Long id, String userId);
+
+    @Query("""
+            select new ch.hadzic.nikola.notesapp.data.dto.TodoSummary(t.id, t.title, t.done, t.dueDate, t.note.id)
+            from Todo t
+            where t.note.id = :noteId and t.userId = :userId
+            order by t.id""")
+    List<TodoSummary> findByNoteIdAndUserId(Long noteId, String userId);
+
+    @Query("select t.id from Todo t where t.note.id in :noteIds")
+    List<Long> findIdsByNoteIdIn(Collection<Long> noteIds);
+
+    @Modifying(flushAutomatically = true)
+    @Query("delete from Todo t where t.note.id in :noteIds")
+    int deleteByNoteIdIn(Collection<Long> noteIds);
+
+    @Query("""
+            select new ch.hadzic.nikola.notesapp.data.dto.TodoCounts(count(t),
+                coalesce(sum(case when t.dueDate < :today then 1L else 0L end), 0L))
+            from Todo t
+            where t.note.id in :noteIds and t.done = false""")
+    TodoCounts countOpenByNoteIdIn(Collection<Long> noteIds, LocalDate today);
+
+    @Query("""
+            select new ch.hadzic.nikola.notesapp.data.dto.TodoCounts(count(t),
+                coalesce(sum(case when t.dueDate < :today then 1L else 0L end), 0L))
+            from Todo t
+            where t.userId = :userId and t.done = false""")
+    TodoCounts countOpenByUserId(String userId, LocalDate today);
+
+    @Query("""
+            select new ch.hadzic.nikola.notesapp.data.dto.TodoSummary(t.id, t.title, t.done, t.dueDate, t.note.id)
+            from Todo t
+            where t.userId = :userId and t.id in :ids""")
+    List<TodoSummary> findSummaries(String userId, Collection<Long> ids);
+
+    /**
+     * One page of the todos of a user, ordered by id.
+     *
+     * @param done    {@code null} for all todos, otherwise only done or open ones
+     * @param afterId id of the last todo of the previous page, {@code 0} for the first page
+     */
+    @Query("""
+            select new ch.hadzic.nikola.notesapp.data.dto.TodoSummary(t.id, t.title, t.done, t.dueDate, t.note.id)
+            from Todo t
+            where t.userId = :userId and (:done is null or t.done = :done) and t.id > :afterId
+            order by t.id""")
+    List<TodoSummary> findPage(String userId, Boolean done, long afterId, Limit limit);
+
+    /**
+     * One page of the open todos of a user due before {@code until}, ordered by due date and id.
+     * The page starts after the todo given by {@code afterDueDate} and {@code afterId}; for the
+     * first page these are the first due date of the range and {@code 0}.
+     */
+    @Query("""
+            select new ch.hadzic.nikola.notesapp.data.dto.TodoSummary(t.id, t.title, t.done, t.dueDate, t.note.id)
+            from Todo t
+            where t.userId = :userId and t.done = false
+                and t.dueDate >= :afterDueDate and t.dueDate < :until
+                and (t.dueDate > :afterDueDate or t.id > :afterId)
+            order by t.dueDate, t.id""")
+    List<TodoSummary> findDuePage(String userId, LocalDate afterDueDate, long afterId, LocalDate until, Limit limit);
+
+    /**
+     * Copies the owner of their note to todos written before todos had one.
+     */
+    @Modifying
+    @Query("update Todo t set t.userId = (select n.userId from Note n where n.id = t.note.id) where t.userId is null")
+    int assignMissingUserIds();
 }
@@ -0,0 +1,153 @@
+package ch.hadzic.nikola.notesapp.data.service;
+
+import ch.hadzic.nikola.notesapp.data.entity.ChangeLogEntry;
+import ch.hadzic.nikola.notesapp.data.entity.SyncEntityType;
+import ch.hadzic.nikola.notesapp.data.repository.ChangeLogRepository;
+import ch.hadzic.nikola.notesapp.data.repository.ChangeSequenceRepository;
+import ch.hadzic.nikola.notesapp.events.EntityChangedEvent;
+import ch.hadzic.nikola.notesapp.util.TransactionUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Writes the change log read by delta sync.
+ * Every mutating service method records its changes here in its own transaction, so the log
+ * and the data can never disagree. Recording takes the change sequence lock of the owner,
+ * which serializes concurrent writes of the same user until they commit.
+ * Once the transaction has committed, every recorded change is published as an
+ * {@link EntityChangedEvent}.
+ */
+@Service
+public class ChangeLogService {
+
+    private final ChangeLogRepository changeLogRepository;
+    private final ChangeSequenceRepository changeSequenceRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration tombstoneRetention;
+
+    public ChangeLogService(ChangeLogRepository changeLogRepository,
+                            ChangeSequenceRepository changeSequenceRepository,
+                            JdbcTemplate jdbcTemplate,
+                            ApplicationEventPublisher eventPublisher,
+                            @Value("${notesapp.sync.tombstone-retention:30d}") Duration tombstoneRetention) {
+        this.changeLogRepository = changeLogRepository;
+        this.changeSequenceRepository = changeSequenceRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.tombstoneRetention = tombstoneRetention;
+    }
+
+    @Transactional
+    public void recordUpsert(String userId, SyncEntityType type, Long id) {
+        record(userId, type, List.of(id), false, false);
+    }
+
+    @Transactional
+    public void recordUpserts(String userId, SyncEntityType type, Collection<Long> ids) {
+        record(userId, type, ids, false, false);
+    }
+
+    /**
+     * Records entities inserted in the current transaction. They cannot have entries yet, so
+     * unlike {@link #recordUpserts} this does not look up existing entries first.
+     */
+    @Transactional
+    public void recordCreations(String userId, SyncEntityType type, Collection<Long> ids) {
+        record(userId, type, ids, false, true);
+    }
+
+    @Transactional
+    public void recordDelete(String userId, SyncEntityType type, Long id) {
+        record(userId, type, List.of(id), true, false);
+    }
+
+    @Transactional
+    public void recordDeletes(String userId, SyncEntityType type, Collection<Long> ids) {
+        record(userId, type, ids, true, false);
+    }
+
+    /**
+     * Removes tombstones older than the retention and raises the compacted sequence of their owners,
+     * so clients that have not synced since get a reset instead of silently missing deletions.
+     *
+     * @return number of removed tombstones
+     */
+    @Scheduled(cron = "${notesapp.sync.compaction-cron:0 30 3 * * *}")
+    @Transactional
+    public int compactTombstones() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(tombstoneRetention);
+        changeSequenceRepository.raiseCompactedSeq(cutoff);
+        return changeLogRepository.deleteTombstonesBefore(cutoff);
+    }
+
+    private void record(String userId, SyncEntityType type, Collection<Long> ids, boolean deleted, boolean created) {
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        if (distinctIds.isEmpty()) {
+            return;
+        }
+
+        long seq = allocate(userId, distinctIds.size()) - distinctIds.size();
+        Map<Long, ChangeLogEntry> existing = created ? Map.of() : changeLogRepository
+                .findByUserIdAndEntityTypeAndEntityIdIn(userId, type, distinctIds).stream()
+                .collect(Collectors.toMap(ChangeLogEntry::getEntityId, Function.identity()));
+
+        LocalDateTime now = LocalDateTime.now();
+        List<ChangeLogEntry> entries = new ArrayList<>(distinctIds.size());
+        List<EntityChangedEvent> events = new ArrayList<>(distinctIds.size());
+        for (Long id : distinctIds) {
+            ChangeLogEntry entry = existing.get(id);
+            EntityChangedEvent.Kind kind = deleted ? EntityChangedEvent.Kind.DELETED : EntityChangedEvent.Kind.UPDATED;
+            if (entry == null) {
+                entry = ChangeLogEntry.builder().userId(userId).entityType(type).entityId(id).build();
+                if (!deleted) {
+                    kind = EntityChangedEvent.Kind.CREATED;
+                }
+            }
+            entry.setSeq(++seq);
+            entry.setDeleted(deleted);
+            entry.setChangedAt(now);
+            entries.add(entry);
+            events.add(new EntityChangedEvent(userId, seq, type, id, kind));
+        }
+        changeLogRepository.saveAll(entries);
+        TransactionUtil.afterCommit(() -> events.forEach(eventPublisher::publishEvent));
+    }
+
+    /**
+     * Reserves {@code count} sequence numbers for the user and returns the highest of them.
+     */
+    private long allocate(String userId, int count) {
+        if (changeSequenceRepository.increment(userId, count) == 0) {
+            createSequence(userId);
+            changeSequenceRepository.increment(userId, count);
+        }
+        return changeSequenceRepository.findLastSeq(userId).orElseThrow();
+    }
+
+    /**
+     * Creates the sequence row of a user behind a savepoint, so that losing the race against
+     * a concurrent first write of the same user does not roll back the current transaction.
+     */
+    private void createSequence(String userId) {
+        // if it fails, the row was created by the concurrent transaction and incrementing waits for it to commit
+        TransactionUtil.tryInsert(jdbcTemplate,
+                "insert into user_change_sequence (user_id, last_seq, compacted_seq) values (?, 0, 0)",
+                List.<Object[]>of(new Object[]{userId}));
+    }
+}
@@ -0,0 +1,135 @@
+package ch.hadzic.nikola.notesapp.data.service;
+
+import ch.hadzic.nikola.notesapp.config.security.Roles;
+import ch.hadzic.nikola.notesapp.data.dto.NoteBatchOperation;
+import ch.hadzic.nikola.notesapp.data.dto.NoteBatchResult;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Applies batches of note operations.
+ * Each operation is validated on its own; the valid ones are applied in chunks of
+ * {@value #CHUNK_SIZE}, each chunk in one transaction. A chunk that fails as a whole, e.g. on
+ * a constraint violation in the database, is rolled back and reported for each of its
+ * operations, while the chunks before and after it are kept.
+ */
+@Slf4j
+@Service
+public class NoteBatchService {
+
+    public static final int MAX_OPERATIONS = 1000;
+    public static final int CHUNK_SIZE = 100;
+
+    private final NoteService noteService;
+    private final Validator validator;
+
+    public NoteBatchService(NoteService noteService, Validator validator) {
+        this.noteService = noteService;
+        this.validator = validator;
+    }
+
+    /**
+     * Applies the operations for the current user in request order.
+     *
+     * @param operations operations to apply
+     * @return one result per operation, ordered by index
+     */
+    public List<NoteBatchResult> apply(List<NoteBatchOperation> operations) {
+        Set<String> authorities = currentAuthorities();
+        List<NoteBatchResult> results = new ArrayList<>(operations.size());
+        Map<Integer, NoteBatchOperation> chunk = new LinkedHashMap<>();
+
+        for (int index = 0; index < operations.size(); index++) {
+            NoteBatchOperation operation = operations.get(index);
+            NoteBatchResult rejected = validate(index, operation, authorities);
+            if (rejected != null) {
+                results.add(rejected);
+                continue;
+            }
+
+            chunk.put(index, operation);
+            if (chunk.size() == CHUNK_SIZE) {
+                results.addAll(applyChunk(chunk));
+                chunk = new LinkedHashMap<>();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            results.addAll(applyChunk(chunk));
+        }
+
+        results.sort(Comparator.comparingInt(NoteBatchResult::index));
+        return results;
+    }
+
+    private List<NoteBatchResult> applyChunk(Map<Integer, NoteBatchOperation> chunk) {
+        try {
+            return noteService.applyBatch(chunk);
+        } catch (RuntimeException e) {
+            log.warn("Batch chunk of {} operations starting at index {} failed", chunk.size(),
+                    chunk.keySet().iterator().next(), e);
+            return chunk.entrySet().stream()
+                    .map(entry -> NoteBatchResult.failed(entry.getKey(), entry.getValue(), 500,
+                            "Not applied, another operation of the same chunk failed"))
+                    .toList();
+        }
+    }
+
+    private NoteBatchResult validate(int index, NoteBatchOperation operation, Set<String> authorities) {
+        if (operation == null || operation.type() == null) {
+            return new NoteBatchResult(index, null, null, 400, "Operation type is required");
+        }
+        String role = switch (operation.type()) {
+            case CREATE -> Roles.Create;
+            case UPDATE -> Roles.Update;
+            case DELETE -> Roles.Delete;
+        };
+        if (!authorities.contains("ROLE_" + role)) {
+            return NoteBatchResult.failed(index, operation, 403, "Missing role " + role);
+        }
+        if (operation.type() != NoteBatchOperation.Type.CREATE && operation.id() == null) {
+            return NoteBatchResult.failed(index, operation, 400, "Note id is required");
+        }
+        if (operation.type() == NoteBatchOperation.Type.DELETE) {
+            return null;
+        }
+
+        Note note = operation.note();
+        if (note == null) {
+            return NoteBatchResult.failed(index, operation, 400, "Note is required");
+        }
+        if (note.getTags() != null && note.getTags().stream().anyMatch(tag -> tag == null || tag.getId() == null)) {
+            return NoteBatchResult.failed(index, operation, 400, "Tags must be referenced by id");
+        }
+        Set<ConstraintViolation<Note>> violations = validator.validate(note);
+        if (!violations.isEmpty()) {
+            return NoteBatchResult.failed(index, operation, 400, violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+        }
+        return null;
+    }
+
+    private Set<String> currentAuthorities() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
+}
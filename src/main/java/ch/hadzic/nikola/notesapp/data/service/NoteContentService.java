@@ -0,0 +1,322 @@
+package ch.hadzic.nikola.notesapp.data.service;
+
+import ch.hadzic.nikola.notesapp.data.dto.InlineNoteContent;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.entity.NoteContent;
+import ch.hadzic.nikola.notesapp.data.repository.NoteContentRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
+import ch.hadzic.nikola.notesapp.util.TransactionUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Stores note contents in the content-addressed {@link NoteContent} table.
+ * Contents of at least {@code notesapp.content.compress-min-bytes} are deflated; identical
+ * contents are stored once. As stored contents never change, single reads are cached by hash
+ * up to {@code notesapp.content.cache-size}; bulk reads for exports and sync bypass the cache.
+ * <p>
+ * Writing a content marks it as used. The nightly sweep removes contents that no note or revision
+ * snapshot points to and that have not been used for {@code notesapp.content.unused-retention}; a write that reuses a
+ * content locks its row, so the sweep cannot remove it while the write is still in flight.
+ * Contents still stored in the note row by older versions are moved here on startup.
+ */
+@Slf4j
+@Service
+public class NoteContentService {
+
+    private static final int MIGRATION_CHUNK_SIZE = 500;
+    private static final String INSERT_CONTENT =
+            "insert into note_content (hash, compression, length, data, last_used_at) values (?, ?, ?, ?, ?)";
+
+    private final NoteContentRepository noteContentRepository;
+    private final NoteRepository noteRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final int compressMinBytes;
+    private final Duration unusedRetention;
+    private final Cache<String, String> contents;
+
+    public NoteContentService(NoteContentRepository noteContentRepository,
+                              NoteRepository noteRepository,
+                              JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${notesapp.content.compress-min-bytes:512}") int compressMinBytes,
+                              @Value("${notesapp.content.cache-size:64MB}") DataSize cacheSize,
+                              @Value("${notesapp.content.unused-retention:1d}") Duration unusedRetention) {
+        this.noteContentRepository = noteContentRepository;
+        this.noteRepository = noteRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.compressMinBytes = compressMinBytes;
+        this.unusedRetention = unusedRetention;
+        // two bytes per character
+        this.contents = Caffeine.newBuilder()
+                .maximumWeight(cacheSize.toBytes())
+                .<String, String>weigher((hash, content) -> 2 * content.length())
+                .build();
+    }
+
+    /**
+     * Moves contents still stored in note rows to the content store, in chunks of
+     * {@value #MIGRATION_CHUNK_SIZE} notes. The notes keep their update timestamp.
+     */
+    @PostConstruct
+    public void migrateInlineContent() {
+        int count = 0;
+        List<InlineNoteContent> chunk;
+        do {
+            chunk = transaction.execute(status -> {
+                List<InlineNoteContent> notes = noteRepository.findInlineContents(Limit.of(MIGRATION_CHUNK_SIZE));
+                for (InlineNoteContent note : notes) {
+                    String hash = save(note.content());
+                    noteRepository.moveContent(note.id(), hash, preview(note.content()));
+                }
+                return notes;
+            });
+            count += chunk.size();
+        } while (chunk.size() == MIGRATION_CHUNK_SIZE);
+
+        if (count > 0) {
+            log.info("Moved the content of {} notes to the content store", count);
+        }
+    }
+
+    /**
+     * Stores the content of a note unless it is stored already, and updates the content hash
+     * and preview of the note. Must be called before a created or changed note is saved.
+     */
+    @Transactional
+    public void store(Note note) {
+        String content = note.getContent();
+        note.setPreview(preview(content));
+        note.setInlineContent(null);
+        if (content == null) {
+            note.setContentHash(null);
+            return;
+        }
+
+        String hash = hash(content);
+        if (!hash.equals(note.getContentHash())) {
+            note.setContentHash(save(hash, content));
+        }
+    }
+
+    /**
+     * Stores the contents of many new notes like {@link #store}. Known contents are marked as used
+     * with one statement and the new ones are inserted as one batch, instead of one insert per content.
+     */
+    @Transactional
+    public void storeAll(Collection<Note> notes) {
+        Map<String, String> byHash = new HashMap<>();
+        for (Note note : notes) {
+            String content = note.getContent();
+            note.setPreview(preview(content));
+            note.setInlineContent(null);
+            note.setContentHash(content == null ? null : hash(content));
+            if (content != null) {
+                byHash.putIfAbsent(note.getContentHash(), content);
+            }
+        }
+        if (byHash.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Set<String> known = new HashSet<>(noteContentRepository.findHashesByHashIn(byHash.keySet()));
+        if (!known.isEmpty()) {
+            noteContentRepository.touchAll(known, now);
+        }
+        List<Object[]> created = byHash.entrySet().stream()
+                .filter(entry -> !known.contains(entry.getKey()))
+                .map(entry -> insertArguments(encode(entry.getKey(), entry.getValue(), now)))
+                .toList();
+        if (!created.isEmpty() && !TransactionUtil.tryInsert(jdbcTemplate, INSERT_CONTENT, created)) {
+            // a concurrent write stored some of them, fall back to one insert per content
+            created.forEach(this::createContent);
+        }
+    }
+
+    /**
+     * Saves a content unless it exists, and marks it as used.
+     *
+     * @return the hash of the content
+     */
+    @Transactional
+    public String save(String content) {
+        return save(hash(content), content);
+    }
+
+    private String save(String hash, String content) {
+        LocalDateTime now = LocalDateTime.now();
+        if (noteContentRepository.touch(hash, now) == 0) {
+            createContent(insertArguments(encode(hash, content, now)));
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the content with the given hash.
+     *
+     * @return the content, {@code null} for a {@code null} hash
+     */
+    public String load(String hash) {
+        if (hash == null) {
+            return null;
+        }
+        return contents.get(hash, key -> noteContentRepository.findById(key)
+                .map(this::decode)
+                .orElse(null));
+    }
+
+    /**
+     * Returns the contents with the given hashes with one query, without caching them.
+     *
+     * @return contents by hash, unknown and {@code null} hashes are left out
+     */
+    public Map<String, String> loadAll(Collection<String> hashes) {
+        Set<String> wanted = hashes.stream().filter(Objects::nonNull).collect(Collectors.toCollection(HashSet::new));
+        Map<String, String> result = new HashMap<>(contents.getAllPresent(wanted));
+        wanted.removeAll(result.keySet());
+        if (!wanted.isEmpty()) {
+            noteContentRepository.findAllById(wanted)
+                    .forEach(content -> result.put(content.getHash(), decode(content)));
+        }
+        return result;
+    }
+
+    /**
+     * Removes contents that no note or revision points to and that have not been used for the retention.
+     */
+    @Scheduled(cron = "${notesapp.content.sweep-cron:0 45 3 * * *}")
+    @Transactional
+    public int sweepUnused() {
+        int removed = noteContentRepository.deleteUnusedBefore(LocalDateTime.now().minus(unusedRetention));
+        if (removed > 0) {
+            log.info("Removed {} unused note contents", removed);
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the preview shown in listings: the start of the content with whitespace collapsed,
+     * at most {@value Note#PREVIEW_LENGTH} characters.
+     */
+    public static String preview(String content) {
+        if (content == null) {
+            return null;
+        }
+        // enough text for the preview even if the start is mostly whitespace
+        String start = content.length() > 4 * Note.PREVIEW_LENGTH
+                ? content.substring(0, 4 * Note.PREVIEW_LENGTH) : content;
+        String text = start.replaceAll("\\s+", " ").strip();
+        if (text.length() <= Note.PREVIEW_LENGTH && start.length() == content.length()) {
+            return text;
+        }
+
+        String cut = text.substring(0, Math.min(text.length(), Note.PREVIEW_LENGTH - 1));
+        int lastSpace = cut.lastIndexOf(' ');
+        if (lastSpace > Note.PREVIEW_LENGTH / 2) {
+            cut = cut.substring(0, lastSpace);
+        }
+        return cut + "…";
+    }
+
+    public static String hash(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Inserts a content behind a savepoint, so that losing the race against a concurrent write
+     * of the same content does not roll back the current transaction.
+     */
+    private void createContent(Object[] content) {
+        // if it fails, the content was stored by the concurrent transaction
+        TransactionUtil.tryInsert(jdbcTemplate, INSERT_CONTENT, List.<Object[]>of(content));
+    }
+
+    private static Object[] insertArguments(NoteContent content) {
+        return new Object[]{content.getHash(), content.getCompression().name(), content.getLength(),
+                content.getData(), Timestamp.valueOf(content.getLastUsedAt())};
+    }
+
+    NoteContent encode(String hash, String content, LocalDateTime now) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        NoteContent.Compression compression = NoteContent.Compression.NONE;
+        if (bytes.length >= compressMinBytes) {
+            byte[] deflated = deflate(bytes);
+            if (deflated.length < bytes.length) {
+                bytes = deflated;
+                compression = NoteContent.Compression.DEFLATE;
+            }
+        }
+        return new NoteContent(hash, compression, content.length(), bytes, now);
+    }
+
+    String decode(NoteContent content) {
+        byte[] bytes = switch (content.getCompression()) {
+            case NONE -> content.getData();
+            case DEFLATE -> inflate(content.getData());
+        };
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+        try (DeflaterOutputStream deflating = new DeflaterOutputStream(out, deflater)) {
+            deflating.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] bytes) {
+        try (InflaterInputStream inflating = new InflaterInputStream(new ByteArrayInputStream(bytes))) {
+            return inflating.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
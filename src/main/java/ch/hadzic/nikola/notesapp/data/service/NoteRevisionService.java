@@ -0,0 +1,292 @@
+package ch.hadzic.nikola.notesapp.data.service;
+
+import ch.hadzic.nikola.notesapp.config.execptions.RevisionNotFoundException;
+import ch.hadzic.nikola.notesapp.data.dto.NoteRevisionDetail;
+import ch.hadzic.nikola.notesapp.data.dto.NoteRevisionSummary;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.entity.NoteRevision;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRevisionRepository;
+import ch.hadzic.nikola.notesapp.util.TextDelta;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the revision history of note titles and contents.
+ * Every change is stored as delta against the previous revision, which makes an update cost one
+ * small insert. Every {@code notesapp.revisions.snapshot-interval} revisions, and whenever a delta
+ * would not be much smaller than the content, a snapshot is written instead; it only points to
+ * the content in the content store, where the note has just put it. Reading a revision applies at
+ * most one interval of deltas.
+ * <p>
+ * The nightly compaction keeps the latest {@code max-per-note} revisions of a note and drops those
+ * older than {@code retention}, but never the latest one. If the oldest remaining revision is a
+ * delta it is turned into a snapshot first.
+ */
+@Slf4j
+@Service
+public class NoteRevisionService {
+
+    private static final int COMPACTION_CHUNK_SIZE = 100;
+
+    private final NoteRevisionRepository noteRevisionRepository;
+    private final NoteRepository noteRepository;
+    private final NoteContentService noteContentService;
+    private final TransactionTemplate transaction;
+    private final int snapshotInterval;
+    private final int maxRevisions;
+    private final Duration retention;
+
+    public NoteRevisionService(NoteRevisionRepository noteRevisionRepository,
+                               NoteRepository noteRepository,
+                               NoteContentService noteContentService,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${notesapp.revisions.snapshot-interval:20}") int snapshotInterval,
+                               @Value("${notesapp.revisions.max-per-note:100}") int maxRevisions,
+                               @Value("${notesapp.revisions.retention:90d}") Duration retention) {
+        this.noteRevisionRepository = noteRevisionRepository;
+        this.noteRepository = noteRepository;
+        this.noteContentService = noteContentService;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.snapshotInterval = snapshotInterval;
+        this.maxRevisions = maxRevisions;
+        this.retention = retention;
+    }
+
+    /**
+     * Records the title and content of a saved note as a new revision, unless neither changed.
+     * The caller must hold the lock of the note row, so that the revisions of a note are written
+     * one after the other and every delta is based on the revision before it. The content must
+     * be in the content store already, see {@link NoteContentService#store(Note)}.
+     *
+     * @param note                saved note
+     * @param previousTitle       title before the change, {@code null} for a new note
+     * @param previousContentHash content hash before the change
+     */
+    @Transactional
+    public void record(Note note, String previousTitle, String previousContentHash) {
+        recordAll(List.of(new Change(note, previousTitle, previousContentHash)));
+    }
+
+    /**
+     * Records the revisions of many saved notes, like {@link #record}, reading the latest revisions
+     * and the previous contents with one query each and inserting the revisions as one batch.
+     */
+    @Transactional
+    public void recordAll(Collection<Change> changes) {
+        List<Change> changed = changes.stream().filter(Change::isChanged).toList();
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        List<Long> updatedIds = changed.stream()
+                .filter(change -> !change.isCreation())
+                .map(change -> change.note().getId())
+                .toList();
+        Map<Long, NoteRevision> latest = updatedIds.isEmpty() ? Map.of()
+                : noteRevisionRepository.findLatestByNoteIdIn(updatedIds).stream()
+                .collect(Collectors.toMap(NoteRevision::getNoteId, Function.identity()));
+        // previous contents are only needed for deltas and for the first revision of older notes
+        Map<String, String> previousContents = noteContentService.loadAll(changed.stream()
+                .filter(change -> !change.isCreation())
+                .filter(change -> !Objects.equals(change.previousContentHash(), change.note().getContentHash())
+                        || !latest.containsKey(change.note().getId()))
+                .map(Change::previousContentHash)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+
+        LocalDateTime now = LocalDateTime.now();
+        List<NoteRevision> revisions = new ArrayList<>();
+        for (Change change : changed) {
+            Note note = change.note();
+            NoteRevision previous = latest.get(note.getId());
+            if (previous == null && !change.isCreation()) {
+                // notes from before the revision history get their previous state as first revision
+                previous = snapshot(note.getId(), 1, change.previousTitle(), change.previousContentHash(),
+                        length(previousContents.get(change.previousContentHash())), now);
+                revisions.add(previous);
+            }
+            revisions.add(previous == null
+                    ? snapshot(note.getId(), 1, note.getTitle(), note.getContentHash(), length(note.getContent()), now)
+                    : next(previous, change, previousContents, now));
+        }
+        noteRevisionRepository.saveAll(revisions);
+    }
+
+    private NoteRevision next(NoteRevision previous, Change change, Map<String, String> previousContents,
+                              LocalDateTime now) {
+        Note note = change.note();
+        int number = previous.getNumber() + 1;
+        String content = note.getContent();
+        if (number - previous.getBaseNumber() < snapshotInterval && content != null
+                && change.previousContentHash() != null) {
+            String previousContent = Objects.equals(change.previousContentHash(), note.getContentHash())
+                    ? content : previousContents.get(change.previousContentHash());
+            TextDelta delta = previousContent == null ? null : TextDelta.between(previousContent, content);
+            if (delta != null && delta.text().length() <= content.length() / 2) {
+                return NoteRevision.builder()
+                        .noteId(note.getId())
+                        .number(number)
+                        .kind(NoteRevision.Kind.DELTA)
+                        .baseNumber(previous.getBaseNumber())
+                        .title(note.getTitle())
+                        .baseLength(delta.baseLength())
+                        .prefixLength(delta.prefixLength())
+                        .suffixLength(delta.suffixLength())
+                        .deltaText(delta.text())
+                        .contentLength(content.length())
+                        .createdAt(now)
+                        .build();
+            }
+        }
+        return snapshot(note.getId(), number, note.getTitle(), note.getContentHash(), length(content), now);
+    }
+
+    /**
+     * Returns the revisions of a note, newest first.
+     *
+     * @param before only revisions with a lower number, {@code null} to start with the latest
+     */
+    public List<NoteRevisionSummary> getRevisions(Long noteId, Integer before, int limit) {
+        return noteRevisionRepository.findSummaries(noteId, before == null ? Integer.MAX_VALUE : before,
+                Limit.of(limit));
+    }
+
+    /**
+     * Returns the title and content of a note as of the given revision.
+     *
+     * @throws RevisionNotFoundException if the note has no such revision
+     */
+    public NoteRevisionDetail getRevision(Long noteId, int number) {
+        List<NoteRevision> chain = noteRevisionRepository.findChain(noteId, number);
+        if (chain.isEmpty() || chain.getLast().getNumber() != number) {
+            throw new RevisionNotFoundException("Revision not found");
+        }
+
+        String content = noteContentService.load(chain.getFirst().getContentHash());
+        for (NoteRevision revision : chain.subList(1, chain.size())) {
+            content = new TextDelta(revision.getBaseLength(), revision.getPrefixLength(), revision.getSuffixLength(),
+                    revision.getDeltaText()).apply(content);
+        }
+        NoteRevision revision = chain.getLast();
+        return new NoteRevisionDetail(revision.getNumber(), revision.getTitle(), content, revision.getCreatedAt());
+    }
+
+    /**
+     * Removes the revisions of deleted notes.
+     */
+    @Transactional
+    public void deleteRevisions(Collection<Long> noteIds) {
+        if (!noteIds.isEmpty()) {
+            noteRevisionRepository.deleteByNoteIds(noteIds);
+        }
+    }
+
+    /**
+     * Applies the retention to all notes, one transaction per note.
+     *
+     * @return number of removed revisions
+     */
+    @Scheduled(cron = "${notesapp.revisions.compaction-cron:0 15 4 * * *}")
+    public int compact() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        Set<Long> done = new HashSet<>();
+        int removed = 0;
+        List<Long> noteIds;
+        do {
+            noteIds = noteRevisionRepository.findNoteIdsToCompact(maxRevisions, cutoff, Limit.of(COMPACTION_CHUNK_SIZE));
+            for (Long noteId : noteIds) {
+                if (done.add(noteId)) {
+                    removed += Objects.requireNonNull(transaction.execute(status -> compact(noteId, cutoff)));
+                }
+            }
+        } while (noteIds.size() == COMPACTION_CHUNK_SIZE && !done.containsAll(noteIds));
+
+        if (removed > 0) {
+            log.info("Compacted the revision history of {} notes, removed {} revisions", done.size(), removed);
+        }
+        return removed;
+    }
+
+    private int compact(Long noteId, LocalDateTime cutoff) {
+        // waits for running updates of the note
+        noteRepository.findForUpdateById(noteId);
+        Optional<NoteRevision> latest = noteRevisionRepository.findFirstByNoteIdOrderByNumberDesc(noteId);
+        if (latest.isEmpty()) {
+            return 0;
+        }
+
+        int latestNumber = latest.get().getNumber();
+        int firstKept = Math.max(latestNumber - maxRevisions + 1,
+                noteRevisionRepository.findFirstNumberSince(noteId, cutoff).orElse(latestNumber));
+        NoteRevision first = noteRevisionRepository.findByNoteIdAndNumber(noteId, firstKept).orElse(null);
+        if (first == null) {
+            return 0;
+        }
+        if (first.getKind() == NoteRevision.Kind.DELTA) {
+            String content = getRevision(noteId, firstKept).content();
+            first.setKind(NoteRevision.Kind.SNAPSHOT);
+            first.setBaseNumber(firstKept);
+            first.setContentHash(content == null ? null : noteContentService.save(content));
+            first.setBaseLength(0);
+            first.setPrefixLength(0);
+            first.setSuffixLength(0);
+            first.setDeltaText(null);
+        }
+        return noteRevisionRepository.deleteBefore(noteId, firstKept);
+    }
+
+    /**
+     * A saved note with its title and content hash before the change.
+     *
+     * @param previousTitle {@code null} for a new note
+     */
+    public record Change(Note note, String previousTitle, String previousContentHash) {
+
+        boolean isCreation() {
+            return previousTitle == null;
+        }
+
+        boolean isChanged() {
+            return isCreation() || !previousTitle.equals(note.getTitle())
+                    || !Objects.equals(previousContentHash, note.getContentHash());
+        }
+    }
+
+    private static NoteRevision snapshot(Long noteId, int number, String title, String contentHash, int contentLength,
+                                         LocalDateTime now) {
+        return NoteRevision.builder()
+                .noteId(noteId)
+                .number(number)
+                .kind(NoteRevision.Kind.SNAPSHOT)
+                .baseNumber(number)
+                .title(title)
+                .contentHash(contentHash)
+                .contentLength(contentLength)
+                .createdAt(now)
+                .build();
+    }
+
+    private static int length(String content) {
+        return content == null ? 0 : content.length();
+    }
+}
@@ -1,22 +1,61 @@
 package ch.hadzic.nikola.notesapp.data.service;
 
+import ch.hadzic.nikola.notesapp.config.cache.EntityCache;
+import ch.hadzic.nikola.notesapp.config.execptions.InvalidCursorException;
 import ch.hadzic.nikola.notesapp.config.execptions.NoteNotFoundException;
+import ch.hadzic.nikola.notesapp.config.execptions.PreconditionFailedException;
+import ch.hadzic.nikola.notesapp.config.execptions.TagNotFoundException;
+import ch.hadzic.nikola.notesapp.data.dto.CursorPage;
+import ch.hadzic.nikola.notesapp.data.dto.ExportScope;
+import ch.hadzic.nikola.notesapp.data.dto.NoteBatchOperation;
+import ch.hadzic.nikola.notesapp.data.dto.NoteBatchResult;
+import ch.hadzic.nikola.notesapp.data.dto.NoteCursor;
+import ch.hadzic.nikola.notesapp.data.dto.NoteExportRow;
+import ch.hadzic.nikola.notesapp.data.dto.NoteExportText;
+import ch.hadzic.nikola.notesapp.data.dto.NoteRevisionDetail;
+import ch.hadzic.nikola.notesapp.data.dto.NoteRevisionSummary;
+import ch.hadzic.nikola.notesapp.data.dto.NoteSearchHit;
+import ch.hadzic.nikola.notesapp.data.dto.NoteSummary;
+import ch.hadzic.nikola.notesapp.data.dto.NoteTagName;
+import ch.hadzic.nikola.notesapp.data.dto.NoteText;
+import ch.hadzic.nikola.notesapp.data.dto.NoteVersion;
+import ch.hadzic.nikola.notesapp.data.dto.TodoCounts;
 import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.entity.Notebook;
+import ch.hadzic.nikola.notesapp.data.entity.SyncEntityType;
 import ch.hadzic.nikola.notesapp.data.entity.Tag;
 import ch.hadzic.nikola.notesapp.data.entity.Todo;
+import ch.hadzic.nikola.notesapp.data.repository.NoteFilter;
+import ch.hadzic.nikola.notesapp.data.repository.NoteListing;
 import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NoteSort;
 import ch.hadzic.nikola.notesapp.data.repository.TagRepository;
 import ch.hadzic.nikola.notesapp.data.repository.TodoRepository;
+import ch.hadzic.nikola.notesapp.search.NoteSearchIndex;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.PersistenceContext;
 import org.hibernate.Hibernate;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service class for managing notes.
@@ -24,22 +63,62 @@ import java.util.Set;
 @Service
 public class NoteService {
 
+    public static final int MAX_PAGE_SIZE = 200;
+    public static final int EXPORT_CHUNK_SIZE = 200;
+    public static final int BULK_CHUNK_SIZE = 1000;
+
     private final NoteRepository noteRepository;
     private final TagRepository tagRepository;
     private final TodoRepository todoRepository;
+    private final NoteSearchIndex noteSearchIndex;
+    private final EntityCache entityCache;
+    private final ChangeLogService changeLogService;
+    private final NoteContentService noteContentService;
+    private final NoteRevisionService noteRevisionService;
+    private final StatsService statsService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
-    public NoteService(NoteRepository noteRepository, TagRepository tagRepository, TodoRepository todoRepository) {
+    public NoteService(NoteRepository noteRepository, TagRepository tagRepository, TodoRepository todoRepository,
+                       NoteSearchIndex noteSearchIndex, EntityCache entityCache, ChangeLogService changeLogService,
+                       NoteContentService noteContentService, NoteRevisionService noteRevisionService,
+                       StatsService statsService) {
         this.noteRepository = noteRepository;
         this.tagRepository = tagRepository;
         this.todoRepository = todoRepository;
+        this.noteSearchIndex = noteSearchIndex;
+        this.entityCache = entityCache;
+        this.changeLogService = changeLogService;
+        this.noteContentService = noteContentService;
+        this.noteRevisionService = noteRevisionService;
+        this.statsService = statsService;
     }
 
     @Transactional
     public Note createNote(Note note) {
         String userId = getCurrentUserId();
         note.setUserId(userId);
+        if (note.getTodos() != null) {
+            note.getTodos().forEach(todo -> todo.setUserId(userId));
+        }
+        // tags are changed in place later on, see assignTags
+        note.setTags(note.getTags() == null ? new HashSet<>() : new HashSet<>(note.getTags()));
+        noteContentService.store(note);
 
-        return noteRepository.save(note);
+        Note saved = noteRepository.save(note);
+        noteRevisionService.record(saved, null, null);
+        noteSearchIndex.index(saved);
+        entityCache.evictListings(userId);
+        changeLogService.recordUpsert(userId, SyncEntityType.NOTE, saved.getId());
+        StatsService.Delta stats = new StatsService.Delta().note(null, StatsService.NoteState.of(saved));
+        if (saved.getTodos() != null) {
+            changeLogService.recordUpserts(userId, SyncEntityType.TODO,
+                    saved.getTodos().stream().map(Todo::getId).toList());
+            saved.getTodos().forEach(todo -> stats.todo(null, StatsService.TodoState.of(todo)));
+        }
+        statsService.apply(userId, stats);
+        return saved;
     }
 
     public List<Note> getNotesForCurrentUser() {
@@ -48,76 +127,589 @@ public class NoteService {
         return noteRepository.findByUserIdAndArchivedIsFalse(userId);
     }
 
-    public List<Note> getFavouriteNotesForCurrentUser() {
-        String userId = getCurrentUserId();
+    /**
+     * Returns the not archived notes of the current user as a lazy stream for exporting.
+     *
+     * @param scope notebook and tag the notes must have
+     * @return stream of export rows
+     * @see #streamNotesForExport(String, ExportScope)
+     */
+    public Stream<NoteExportRow> streamNotesForExport(ExportScope scope) {
+        return streamNotesForExport(getCurrentUserId(), scope);
+    }
 
-        return noteRepository.findByUserIdAndFavoriteIsTrue(userId);
+    /**
+     * Returns the not archived notes of a user as a lazy stream for exporting.
+     * The notes are read in chunks of {@value #EXPORT_CHUNK_SIZE} ordered by id, so only one chunk
+     * is held in memory at a time; the contents and tags of a chunk are read with one query each.
+     * The first chunk is read immediately, the following ones while the stream is consumed, which
+     * may happen on another thread.
+     *
+     * @param userId owner of the notes
+     * @param scope  notebook and tag the notes must have
+     * @return stream of export rows
+     */
+    public Stream<NoteExportRow> streamNotesForExport(String userId, ExportScope scope) {
+        List<NoteExportText> first = findExportTexts(userId, scope, 0L);
+
+        return Stream.iterate(first, chunk -> !chunk.isEmpty(), chunk -> chunk.size() < EXPORT_CHUNK_SIZE
+                        ? List.of()
+                        : findExportTexts(userId, scope, chunk.getLast().id()))
+                .flatMap(chunk -> toExportRows(chunk).stream());
+    }
+
+    private List<NoteExportText> findExportTexts(String userId, ExportScope scope, long afterId) {
+        return noteRepository.findExportTextsAfter(userId, scope.notebookId(), scope.tagId(), afterId,
+                Limit.of(EXPORT_CHUNK_SIZE));
+    }
+
+    private List<NoteExportRow> toExportRows(List<NoteExportText> chunk) {
+        Map<String, String> contents = noteContentService.loadAll(chunk.stream().map(NoteExportText::contentHash).toList());
+        Map<Long, List<String>> tags = noteRepository.findTagNames(chunk.stream().map(NoteExportText::id).toList())
+                .stream()
+                .collect(Collectors.groupingBy(NoteTagName::noteId,
+                        Collectors.mapping(NoteTagName::name, Collectors.toList())));
+        return chunk.stream()
+                .map(text -> new NoteExportRow(text.id(), text.title(), contents.get(text.contentHash()),
+                        text.notebook(), tags.getOrDefault(text.id(), List.of()), text.favorite(),
+                        text.createdAt(), text.updatedAt()))
+                .toList();
+    }
+
+    public long countNotesForExport(String userId, ExportScope scope) {
+        return noteRepository.countForExport(userId, scope.notebookId(), scope.tagId());
     }
 
-    public List<Note> getArchivedNotesForCurrentUser() {
+    /**
+     * Returns one page of the given listing for the current user, newest first.
+     *
+     * @param listing listing to read
+     * @param cursor  cursor from the previous page, {@code null} or blank for the first page
+     * @param limit   requested page size, clamped to {@code 1..MAX_PAGE_SIZE}
+     * @return the page including the cursor of the following page
+     */
+    public CursorPage<NoteSummary> getNotePageForCurrentUser(NoteListing listing, String cursor, int limit) {
+        return getNotePageForCurrentUser(NoteFilter.of(listing), NoteSort.UPDATED_AT, Sort.Direction.DESC, cursor,
+                limit);
+    }
+
+    /**
+     * Returns one page of the current user's notes matching the filter.
+     *
+     * @param filter    conditions the notes have to meet
+     * @param sort      sort key, ties are ordered by id
+     * @param direction sort direction
+     * @param cursor    cursor from the previous page, {@code null} or blank for the first page
+     * @param limit     requested page size, clamped to {@code 1..MAX_PAGE_SIZE}
+     * @return the page including the cursor of the following page
+     * @throws InvalidCursorException if the cursor is malformed or was issued for another order
+     */
+    public CursorPage<NoteSummary> getNotePageForCurrentUser(NoteFilter filter, NoteSort sort, Sort.Direction direction,
+                                                             String cursor, int limit) {
         String userId = getCurrentUserId();
+        int pageSize = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+        NoteCursor after = cursor == null || cursor.isBlank() ? null : NoteCursor.decode(cursor);
+        if (after != null && (after.sort() != sort || after.direction() != direction)) {
+            throw new InvalidCursorException("Cursor belongs to another sort order");
+        }
+
+        // one extra row tells us whether another page exists without a count query
+        List<NoteSummary> rows = noteRepository.findPage(userId, filter, sort, direction, after, pageSize + 1);
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, null, null);
+        }
+
+        List<NoteSummary> items = rows.subList(0, pageSize);
+        return new CursorPage<>(items, NoteCursor.of(items.getLast(), sort, direction).encode(), null);
+    }
+
+    /**
+     * Returns the entity tag of the current user's listings. It changes after every committed
+     * write that can change a listing page. The tag is read before the page, so a concurrent
+     * write can only make it older than the page, never newer.
+     *
+     * @return quoted entity tag
+     */
+    public String getListingETagForCurrentUser() {
+        return "\"l" + Long.toHexString(entityCache.getListingVersion(getCurrentUserId())) + "\"";
+    }
 
-        return noteRepository.findByUserIdAndArchivedIsTrue(userId);
+    public List<NoteSearchHit> searchNotesForCurrentUser(String query, int limit) {
+        return noteSearchIndex.search(getCurrentUserId(), query, Math.clamp(limit, 1, MAX_PAGE_SIZE));
     }
 
+    /**
+     * Returns a note of the current user, served from the cache when possible.
+     * The returned instance may be shared and must not be modified; use
+     * {@link #updateNote(Note)} for changes.
+     */
     public Note getNoteById(Long id) {
-        Note note = noteRepository.findById(id)
-                .orElseThrow(() -> new NoteNotFoundException("Note not found"));
+        return entityCache.getNote(getCurrentUserId(), id, () -> {
+            Note note = loadOwnedNote(id);
+            note.setContent(noteContentService.load(note.getContentHash()));
+            return note;
+        });
+    }
 
-        validateOwnership(note);
-        return note;
+    /**
+     * Returns the version of a note of the current user for conditional requests.
+     * A cached note answers without a query; otherwise only the version columns are read.
+     */
+    public NoteVersion getNoteVersion(Long id) {
+        String userId = getCurrentUserId();
+        Note cached = entityCache.peekNote(userId, id);
+        if (cached != null) {
+            return NoteVersion.of(cached);
+        }
+
+        NoteVersion version = noteRepository.findVersionById(id)
+                .orElseThrow(() -> new NoteNotFoundException("Note not found"));
+        if (!version.userId().equals(userId)) {
+            throw new SecurityException("Not authorized to access this note");
+        }
+        return version;
     }
 
     @Transactional
     public void deleteNote(Long id) {
         Note note = noteRepository.findById(id).orElseThrow(() -> new EntityNotFoundException("Note not found"));
+        // todos go with the note, see Note#todos
+        List<Long> todoIds = todoRepository.findIdsByNoteIdIn(List.of(id));
+        StatsService.Delta stats = new StatsService.Delta()
+                .note(StatsService.NoteState.of(note), null)
+                .removeTodos(todoRepository.countOpenByNoteIdIn(List.of(id), LocalDate.now()));
         noteRepository.delete(note);
+        noteRevisionService.deleteRevisions(List.of(id));
+        noteSearchIndex.remove(note.getUserId(), id);
+        entityCache.evictNote(note.getUserId(), id);
+        changeLogService.recordDelete(note.getUserId(), SyncEntityType.NOTE, id);
+        changeLogService.recordDeletes(note.getUserId(), SyncEntityType.TODO, todoIds);
+        statsService.apply(note.getUserId(), stats);
     }
 
-            @Transactional
+    @Transactional
     public Note updateNote(Note updatedNote) {
-        Note existing = getNoteById(updatedNote.getId());
-
-        existing.setTitle(updatedNote.getTitle());
-        existing.setContent(updatedNote.getContent());
-        existing.setFavorite(updatedNote.isFavorite());
-        existing.setArchived(updatedNote.isArchived());
+        return updateNote(updatedNote, null);
+    }
 
-        if (updatedNote.getNotebook() != null) {
-            existing.setNotebook(updatedNote.getNotebook());
+    /**
+     * Updates a note if it still matches the {@code If-Match} header of the request.
+     * The row is locked while checking, so two clients holding the same version cannot both
+     * update it, and the revisions of the note are recorded one after the other.
+     *
+     * @param updatedNote new state of the note
+     * @param ifMatch     {@code If-Match} header value, {@code null} to update unconditionally
+     * @return the updated note
+     * @throws PreconditionFailedException if the note has been changed since
+     */
+    @Transactional
+    public Note updateNote(Note updatedNote, String ifMatch) {
+        Note existing = noteRepository.findForUpdateById(updatedNote.getId())
+                .orElseThrow(() -> new NoteNotFoundException("Note not found"));
+        validateOwnership(existing);
+        if (ifMatch != null && !NoteVersion.of(existing).matches(ifMatch)) {
+            throw new PreconditionFailedException("Note has been modified");
         }
 
+        String previousTitle = existing.getTitle();
+        String previousContentHash = existing.getContentHash();
+        StatsService.NoteState previousState = StatsService.NoteState.of(existing);
+        copyFields(updatedNote, existing);
+
         if (updatedNote.getTags() != null) {
-            if (existing.getTags() != null) {
-                for (Tag oldTag : existing.getTags()) {
-                    if (oldTag.getNotes() != null) {
-                        oldTag.getNotes().remove(existing);
+            assignTags(existing, updatedNote.getTags().stream().map(Tag::getId).collect(Collectors.toSet()));
+        }
+        existing.setUpdatedAt(LocalDateTime.now());
+
+        noteContentService.store(existing);
+        Note saved = noteRepository.save(existing);
+        noteRevisionService.record(saved, previousTitle, previousContentHash);
+        noteSearchIndex.index(saved);
+        entityCache.evictNote(saved.getUserId(), saved.getId());
+        changeLogService.recordUpsert(saved.getUserId(), SyncEntityType.NOTE, saved.getId());
+        statsService.apply(saved.getUserId(),
+                new StatsService.Delta().note(previousState, StatsService.NoteState.of(saved)));
+        return saved;
+    }
+
+    /**
+     * Replaces the tags of a note of the current user if it still matches the {@code If-Match}
+     * header of the request. Only the added and removed tags are written, see
+     * {@link #assignTags(Note, Collection)}.
+     *
+     * @param id      id of the note
+     * @param tagIds  ids of all tags the note should carry
+     * @param ifMatch {@code If-Match} header value, {@code null} to update unconditionally
+     * @return the updated note
+     * @throws TagNotFoundException        if a tag does not exist or belongs to another user
+     * @throws PreconditionFailedException if the note has been changed since
+     */
+    @Transactional
+    public Note setTags(Long id, Collection<Long> tagIds, String ifMatch) {
+        Note existing = noteRepository.findForUpdateById(id)
+                .orElseThrow(() -> new NoteNotFoundException("Note not found"));
+        validateOwnership(existing);
+        if (ifMatch != null && !NoteVersion.of(existing).matches(ifMatch)) {
+            throw new PreconditionFailedException("Note has been modified");
+        }
+
+        StatsService.NoteState previousState = StatsService.NoteState.of(existing);
+        assignTags(existing, tagIds);
+        existing.setUpdatedAt(LocalDateTime.now());
+
+        Note saved = noteRepository.save(existing);
+        entityCache.evictNote(saved.getUserId(), saved.getId());
+        changeLogService.recordUpsert(saved.getUserId(), SyncEntityType.NOTE, saved.getId());
+        statsService.apply(saved.getUserId(),
+                new StatsService.Delta().note(previousState, StatsService.NoteState.of(saved)));
+        if (saved.getContent() == null) {
+            saved.setContent(noteContentService.load(saved.getContentHash()));
+        }
+        return saved;
+    }
+
+    /**
+     * Applies one chunk of a batch in a single transaction.
+     * The notes and tags referenced by the chunk are read with one query each, the notes locked in
+     * the order of their ids, created notes take
+     * their ids from the pooled sequence, and all inserts, updates and deletes are sent as JDBC
+     * batches when the transaction flushes. Unknown or foreign notes and tags fail only their own
+     * operation. The operations must have been validated, see {@link NoteBatchService}.
+     *
+     * @param operations operations keyed by their index in the request
+     * @return one result per operation
+     */
+    @Transactional
+    public List<NoteBatchResult> applyBatch(Map<Integer, NoteBatchOperation> operations) {
+        String userId = getCurrentUserId();
+        Map<Long, Note> notes = noteRepository.findAllForUpdateByIdIn(operations.values().stream()
+                        .filter(operation -> operation.type() != NoteBatchOperation.Type.CREATE)
+                        .map(NoteBatchOperation::id)
+                        .collect(Collectors.toSet())).stream()
+                .filter(note -> note.getUserId().equals(userId))
+                .collect(Collectors.toMap(Note::getId, Function.identity()));
+        Map<Long, Tag> tags = tagRepository.findAllById(operations.values().stream()
+                        .filter(operation -> operation.note() != null && operation.note().getTags() != null)
+                        .flatMap(operation -> operation.note().getTags().stream())
+                        .map(Tag::getId)
+                        .collect(Collectors.toSet())).stream()
+                .filter(tag -> tag.getUserId().equals(userId))
+                .collect(Collectors.toMap(Tag::getId, Function.identity()));
+
+        List<NoteBatchResult> results = new ArrayList<>(operations.size());
+        Map<Integer, Note> created = new LinkedHashMap<>();
+        Map<Long, Note> updated = new LinkedHashMap<>();
+        Map<Long, Note> deleted = new LinkedHashMap<>();
+        Map<Long, NoteRevisionService.Change> previous = new HashMap<>();
+        Map<Long, StatsService.NoteState> previousStates = new HashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+
+        for (Map.Entry<Integer, NoteBatchOperation> entry : operations.entrySet()) {
+            int index = entry.getKey();
+            NoteBatchOperation operation = entry.getValue();
+            Note payload = operation.note();
+            Note existing = operation.id() == null || deleted.containsKey(operation.id())
+                    ? null : notes.get(operation.id());
+
+            if (operation.type() != NoteBatchOperation.Type.CREATE && existing == null) {
+                results.add(NoteBatchResult.failed(index, operation, 404, "Note not found"));
+                continue;
+            }
+            if (payload != null && payload.getTags() != null
+                    && !payload.getTags().stream().allMatch(tag -> tags.containsKey(tag.getId()))) {
+                results.add(NoteBatchResult.failed(index, operation, 400, "Tag not found"));
+                continue;
+            }
+
+            switch (operation.type()) {
+                case CREATE -> {
+                    Note note = new Note();
+                    copyFields(payload, note);
+                    note.setUserId(userId);
+                    note.setTags(resolveTags(payload, tags));
+                    created.put(index, note);
+                }
+                case UPDATE -> {
+                    previousStates.putIfAbsent(existing.getId(), StatsService.NoteState.of(existing));
+                    previous.putIfAbsent(existing.getId(),
+                            new NoteRevisionService.Change(existing, existing.getTitle(), existing.getContentHash()));
+                    copyFields(payload, existing);
+                    if (payload.getTags() != null) {
+                        existing.setTags(resolveTags(payload, tags));
                     }
+                    existing.setUpdatedAt(now);
+                    updated.put(existing.getId(), existing);
+                    results.add(NoteBatchResult.applied(index, operation.type(), existing.getId(), 200));
+                }
+                case DELETE -> {
+                    previousStates.putIfAbsent(existing.getId(), StatsService.NoteState.of(existing));
+                    updated.remove(existing.getId());
+                    deleted.put(existing.getId(), existing);
+                    results.add(NoteBatchResult.applied(index, operation.type(), existing.getId(), 204));
                 }
             }
+        }
 
-            Set<Tag> persistentTags = new HashSet<>();
-            for (Tag tag : updatedNote.getTags()) {
-                Tag persistentTag = tagRepository.findById(tag.getId())
-                        .orElseThrow(() -> new RuntimeException("Tag nicht gefunden: " + tag.getId()));
-                persistentTags.add(persistentTag);
-            }
+        created.values().forEach(noteContentService::store);
+        updated.values().forEach(noteContentService::store);
+        noteRepository.saveAll(created.values());
+        created.forEach((index, note) ->
+                results.add(NoteBatchResult.applied(index, NoteBatchOperation.Type.CREATE, note.getId(), 201)));
+        // todos go with their notes, see Note#todos
+        List<Long> deletedTodoIds = deleted.isEmpty()
+                ? List.of() : todoRepository.findIdsByNoteIdIn(deleted.keySet());
+        TodoCounts deletedTodos = deletedTodoIds.isEmpty()
+                ? new TodoCounts(0, 0) : todoRepository.countOpenByNoteIdIn(deleted.keySet(), LocalDate.now());
+        noteRepository.deleteAll(deleted.values());
+        List<NoteRevisionService.Change> revisions = new ArrayList<>();
+        created.values().forEach(note -> revisions.add(new NoteRevisionService.Change(note, null, null)));
+        updated.values().forEach(note -> revisions.add(previous.get(note.getId())));
+        noteRevisionService.recordAll(revisions);
+        noteRevisionService.deleteRevisions(deleted.keySet());
 
-            existing.setTags(persistentTags);
-            existing.setUpdatedAt(LocalDateTime.now());
+        List<Long> upsertedIds = new ArrayList<>(updated.keySet());
+        created.values().forEach(note -> upsertedIds.add(note.getId()));
+        created.values().forEach(noteSearchIndex::index);
+        updated.values().forEach(noteSearchIndex::index);
+        deleted.keySet().forEach(id -> noteSearchIndex.remove(userId, id));
 
-            for (Tag persistentTag : persistentTags) {
-                if (persistentTag.getNotes() != null) {
-                    persistentTag.getNotes().add(existing);
-                }
+        List<Long> changedIds = new ArrayList<>(updated.keySet());
+        changedIds.addAll(deleted.keySet());
+        entityCache.evictNotes(userId, changedIds);
+        entityCache.evictListings(userId);
+        changeLogService.recordUpserts(userId, SyncEntityType.NOTE, upsertedIds);
+        changeLogService.recordDeletes(userId, SyncEntityType.NOTE, deleted.keySet());
+        changeLogService.recordDeletes(userId, SyncEntityType.TODO, deletedTodoIds);
+
+        StatsService.Delta stats = new StatsService.Delta().removeTodos(deletedTodos);
+        created.values().forEach(note -> stats.note(null, StatsService.NoteState.of(note)));
+        updated.values().forEach(note -> stats.note(previousStates.get(note.getId()), StatsService.NoteState.of(note)));
+        deleted.keySet().forEach(id -> stats.note(previousStates.get(id), null));
+        statsService.apply(userId, stats);
+
+        results.sort(Comparator.comparingInt(NoteBatchResult::index));
+        return results;
+    }
+
+    /**
+     * Inserts new notes of a user read by an import. Contents, notes, revisions and change log
+     * entries are written as batches, like the creates of {@link #applyBatch}. Tags and notebooks
+     * must belong to the user and todos must point to their note. The saved notes are detached
+     * from the persistence context when this returns.
+     *
+     * @return the saved notes
+     */
+    @Transactional
+    public List<Note> importNotes(String userId, List<Note> notes) {
+        for (Note note : notes) {
+            note.setUserId(userId);
+            if (note.getTodos() != null) {
+                note.getTodos().forEach(todo -> todo.setUserId(userId));
+            }
+        }
+        noteContentService.storeAll(notes);
+        List<Note> saved = noteRepository.saveAllAndFlush(notes);
+        noteRevisionService.recordAll(saved.stream()
+                .map(note -> new NoteRevisionService.Change(note, null, null))
+                .toList());
+        saved.forEach(noteSearchIndex::index);
+
+        entityCache.evictListings(userId);
+        changeLogService.recordCreations(userId, SyncEntityType.NOTE, saved.stream().map(Note::getId).toList());
+        StatsService.Delta stats = new StatsService.Delta();
+        List<Long> todoIds = new ArrayList<>();
+        for (Note note : saved) {
+            stats.note(null, StatsService.NoteState.of(note));
+            if (note.getTodos() != null) {
+                note.getTodos().forEach(todo -> {
+                    todoIds.add(todo.getId());
+                    stats.todo(null, StatsService.TodoState.of(todo));
+                });
             }
-        } else {
-            existing.setUpdatedAt(LocalDateTime.now());
+        }
+        changeLogService.recordCreations(userId, SyncEntityType.TODO, todoIds);
+        // every counter update would otherwise dirty check all notes, todos and entries before it runs
+        entityManager.flush();
+        entityManager.clear();
+        statsService.apply(userId, stats);
+        return saved;
+    }
+
+    /**
+     * Moves notes out of a notebook with one update statement per {@code BULK_CHUNK_SIZE} notes,
+     * without loading them. Both notebooks must belong to the same user, which the caller checks.
+     *
+     * @param from    notebook the notes are in
+     * @param noteIds notes to move, {@code null} for all notes of the notebook; others are ignored
+     * @param to      notebook to move them to, {@code null} to take them out of any notebook
+     * @return ids of the moved notes
+     */
+    @Transactional
+    public List<Long> moveNotes(Notebook from, Collection<Long> noteIds, Notebook to) {
+        String userId = from.getUserId();
+        Long toId = to == null ? null : to.getId();
+        if (from.getId().equals(toId)) {
+            return List.of();
+        }
+        List<Long> ids = selectNotes(from, noteIds);
+        LocalDateTime now = LocalDateTime.now();
+        for (List<Long> chunk : chunks(ids)) {
+            noteRepository.moveToNotebook(chunk, to, now);
+            changeLogService.recordUpserts(userId, SyncEntityType.NOTE, chunk);
+        }
+
+        // cached notes embed their notebook
+        entityCache.evictNotes(userId, ids);
+        statsService.apply(userId, new StatsService.Delta().moveNotes(from.getId(), toId, ids.size()));
+        return ids;
+    }
+
+    /**
+     * Deletes notes of a notebook together with their todos, tag assignments and revisions. Every
+     * table gets one delete statement per {@code BULK_CHUNK_SIZE} notes instead of one per row, and
+     * the statistics of the owner are recounted after commit instead of updated note by note.
+     *
+     * @param notebook notebook the notes are in
+     * @param noteIds  notes to delete, {@code null} for all notes of the notebook; others are ignored
+     * @return ids of the deleted notes
+     */
+    @Transactional
+    public List<Long> deleteNotes(Notebook notebook, Collection<Long> noteIds) {
+        String userId = notebook.getUserId();
+        List<Long> ids = selectNotes(notebook, noteIds);
+        for (List<Long> chunk : chunks(ids)) {
+            List<Long> todoIds = todoRepository.findIdsByNoteIdIn(chunk);
+            todoRepository.deleteByNoteIdIn(chunk);
+            noteRepository.deleteTagAssignments(chunk);
+            noteRevisionService.deleteRevisions(chunk);
+            noteRepository.deleteAllByIdIn(chunk);
+            changeLogService.recordDeletes(userId, SyncEntityType.NOTE, chunk);
+            changeLogService.recordDeletes(userId, SyncEntityType.TODO, todoIds);
+        }
+
+        noteSearchIndex.removeAll(userId, ids);
+        entityCache.evictNotes(userId, ids);
+        statsService.reconcileAfterCommit(userId);
+        return ids;
+    }
+
+    private List<Long> selectNotes(Notebook notebook, Collection<Long> noteIds) {
+        if (noteIds == null) {
+            return noteRepository.findIdsByNotebookId(notebook.getId());
+        }
+        return noteIds.isEmpty() ? List.of() : noteRepository.findIdsByNotebookIdAndIdIn(notebook.getId(), noteIds);
+    }
+
+    private static List<List<Long>> chunks(List<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int start = 0; start < ids.size(); start += BULK_CHUNK_SIZE) {
+            chunks.add(ids.subList(start, Math.min(start + BULK_CHUNK_SIZE, ids.size())));
+        }
+        return chunks;
+    }
+
+    /**
+     * Returns the revisions of a note of the current user, newest first.
+     *
+     * @param before only revisions with a lower number, {@code null} to start with the latest
+     * @param limit  requested page size, clamped to {@code 1..MAX_PAGE_SIZE}
+     */
+    public List<NoteRevisionSummary> getRevisions(Long id, Integer before, int limit) {
+        checkOwnership(id);
+        return noteRevisionService.getRevisions(id, before, Math.clamp(limit, 1, MAX_PAGE_SIZE));
+    }
+
+    public NoteRevisionDetail getRevision(Long id, int number) {
+        checkOwnership(id);
+        return noteRevisionService.getRevision(id, number);
+    }
+
+    /**
+     * Sets title and content of a note of the current user back to a revision.
+     * The restored state is recorded as a new revision, the history is kept.
+     */
+    @Transactional
+    public Note restoreRevision(Long id, int number) {
+        checkOwnership(id);
+        NoteRevisionDetail revision = noteRevisionService.getRevision(id, number);
+        Note current = loadOwnedNote(id);
+        return updateNote(Note.builder()
+                .id(id)
+                .title(revision.title())
+                .content(revision.content())
+                .favorite(current.isFavorite())
+                .archived(current.isArchived())
+                .build());
+    }
+
+    private static void copyFields(Note source, Note target) {
+        target.setTitle(source.getTitle());
+        target.setContent(source.getContent());
+        target.setFavorite(source.isFavorite());
+        target.setArchived(source.isArchived());
+
+        if (source.getNotebook() != null) {
+            target.setNotebook(source.getNotebook());
+        }
+    }
+
+    /**
+     * Changes the tag set of a managed note to the given tags. Tags the note keeps are not read
+     * again, added ones are read with one query, and the join table only gets a row inserted or
+     * deleted per changed tag. The notes of a tag are never loaded, so tagging costs the same
+     * whether a tag is on one note or on thousands.
+     *
+     * @throws TagNotFoundException if a tag does not exist or belongs to another user
+     */
+    private void assignTags(Note note, Collection<Long> tagIds) {
+        Set<Long> added = new HashSet<>(tagIds);
+        if (added.remove(null)) {
+            throw new TagNotFoundException("Tag not found");
+        }
+        if (note.getTags() == null) {
+            note.setTags(new HashSet<>());
         }
 
-        return noteRepository.save(existing);
+        note.getTags().removeIf(tag -> !added.contains(tag.getId()));
+        note.getTags().forEach(tag -> added.remove(tag.getId()));
+        if (added.isEmpty()) {
+            return;
+        }
+        List<Tag> tags = tagRepository.findAllById(added).stream()
+                .filter(tag -> tag.getUserId().equals(note.getUserId()))
+                .toList();
+        if (tags.size() != added.size()) {
+            throw new TagNotFoundException("Tag not found");
+        }
+        note.getTags().addAll(tags);
     }
-private void validateOwnership(Note note) {
+
+    private static Set<Tag> resolveTags(Note payload, Map<Long, Tag> tags) {
+        if (payload.getTags() == null) {
+            return null;
+        }
+        return payload.getTags().stream()
+                .map(tag -> tags.get(tag.getId()))
+                .collect(Collectors.toCollection(HashSet::new));
+    }
+
+    private Note loadOwnedNote(Long id) {
+        Note note = noteRepository.findById(id)
+                .orElseThrow(() -> new NoteNotFoundException("Note not found"));
+
+        validateOwnership(note);
+        return note;
+    }
+
+    private void checkOwnership(Long id) {
+        String userId = noteRepository.findUserIdById(id)
+                .orElseThrow(() -> new NoteNotFoundException("Note not found"));
+        if (!userId.equals(getCurrentUserId())) {
+            throw new SecurityException("Not authorized to access this note");
+        }
+    }
+
+    private void validateOwnership(Note note) {
         if (!note.getUserId().equals(getCurrentUserId())) {
             throw new SecurityException("Not authorized to access this note");
         }
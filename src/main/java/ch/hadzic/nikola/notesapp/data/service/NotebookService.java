@@ -1,38 +1,157 @@
 package ch.hadzic.nikola.notesapp.data.service;
 
+import ch.hadzic.nikola.notesapp.config.cache.EntityCache;
+import ch.hadzic.nikola.notesapp.config.execptions.NotebookNotFoundException;
+import ch.hadzic.nikola.notesapp.data.dto.NotebookActivity;
+import ch.hadzic.nikola.notesapp.data.dto.NotebookUsage;
 import ch.hadzic.nikola.notesapp.data.entity.Notebook;
+import ch.hadzic.nikola.notesapp.data.entity.SyncEntityType;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
 import ch.hadzic.nikola.notesapp.data.repository.NotebookRepository;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
 public class NotebookService {
 
+    public static final int MAX_SELECTED_NOTES = 1000;
+
     private final NotebookRepository notebookRepository;
+    private final NoteRepository noteRepository;
+    private final NoteService noteService;
+    private final EntityCache entityCache;
+    private final ChangeLogService changeLogService;
+    private final StatsService statsService;
 
-    public NotebookService(NotebookRepository notebookRepository) {
+    public NotebookService(NotebookRepository notebookRepository, NoteRepository noteRepository,
+                           NoteService noteService, EntityCache entityCache,
+                           ChangeLogService changeLogService, StatsService statsService) {
         this.notebookRepository = notebookRepository;
+        this.noteRepository = noteRepository;
+        this.noteService = noteService;
+        this.entityCache = entityCache;
+        this.changeLogService = changeLogService;
+        this.statsService = statsService;
     }
 
     public List<Notebook> getAllForUser(String userId) {
-        return notebookRepository.findByUserId(userId);
+        return entityCache.getNotebooks(userId, () -> notebookRepository.findByUserId(userId));
+    }
+
+    /**
+     * Returns the notebooks of a user with their note counts and last changes, ordered by name.
+     * The counts come from the statistics counters; the last changes are read with one query
+     * that probes the notebook index once per notebook instead of scanning the notes.
+     */
+    public List<NotebookUsage> getUsagesForUser(String userId) {
+        Map<Long, Long> noteCounts = statsService.getStats(userId).notebooks();
+        Map<Long, LocalDateTime> lastModified = new HashMap<>();
+        for (NotebookActivity activity : notebookRepository.findActivities(userId)) {
+            lastModified.put(activity.notebookId(), activity.lastModified());
+        }
+        return getAllForUser(userId).stream()
+                .map(notebook -> new NotebookUsage(notebook.getId(), notebook.getName(), notebook.getDescription(),
+                        noteCounts.getOrDefault(notebook.getId(), 0L), lastModified.get(notebook.getId())))
+                .sorted(Comparator.comparing(NotebookUsage::name,
+                        Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)))
+                .toList();
     }
 
     public Optional<Notebook> getById(Long id) {
         return notebookRepository.findById(id);
     }
 
+    /**
+     * Returns a notebook of the current user, empty for unknown notebooks and those of other users.
+     */
+    public Optional<Notebook> getOwnedById(Long id) {
+        String userId = SecurityContextHolder.getContext().getAuthentication().getName();
+        return notebookRepository.findById(id).filter(notebook -> notebook.getUserId().equals(userId));
+    }
+
+    @Transactional
     public Notebook create(Notebook notebook) {
-        return notebookRepository.save(notebook);
+        Notebook saved = notebookRepository.save(notebook);
+        entityCache.evictNotebooks(saved.getUserId());
+        changeLogService.recordUpsert(saved.getUserId(), SyncEntityType.NOTEBOOK, saved.getId());
+        return saved;
     }
 
+    @Transactional
     public Notebook update(Notebook notebook) {
-        return notebookRepository.save(notebook);
+        Optional<Notebook> existing = notebookRepository.findById(notebook.getId());
+        if (existing.isEmpty()) {
+            return notebookRepository.save(notebook);
+        }
+        // Copy onto the managed entity: the request body carries no owner.
+        Notebook stored = existing.get();
+        if (Objects.equals(stored.getName(), notebook.getName())
+                && Objects.equals(stored.getDescription(), notebook.getDescription())) {
+            return stored;
+        }
+        stored.setName(notebook.getName());
+        stored.setDescription(notebook.getDescription());
+        stored.setUpdatedAt(LocalDateTime.now());
+        // cached notes embed their notebook
+        List<Long> noteIds = noteRepository.findIdsByNotebookId(stored.getId());
+        entityCache.evictNotebooks(stored.getUserId());
+        entityCache.evictNotes(stored.getUserId(), noteIds);
+        changeLogService.recordUpsert(stored.getUserId(), SyncEntityType.NOTEBOOK, stored.getId());
+        changeLogService.recordUpserts(stored.getUserId(), SyncEntityType.NOTE, noteIds);
+        return stored;
     }
 
+    /**
+     * Deletes a notebook together with its notes and their todos, see {@link NoteService#deleteNotes}.
+     */
+    @Transactional
     public void delete(Long id) {
-        notebookRepository.deleteById(id);
+        notebookRepository.findById(id).ifPresent(notebook -> {
+            noteService.deleteNotes(notebook, null);
+            entityCache.evictNotebooks(notebook.getUserId());
+            changeLogService.recordDelete(notebook.getUserId(), SyncEntityType.NOTEBOOK, id);
+            notebookRepository.delete(notebook);
+        });
+    }
+
+    /**
+     * Moves notes of a notebook of the current user to another of their notebooks.
+     *
+     * @param noteIds  notes to move, {@code null} for all notes of the notebook; others are ignored
+     * @param targetId notebook to move them to, {@code null} to take them out of any notebook
+     * @return number of moved notes
+     * @throws NotebookNotFoundException if a notebook does not exist or belongs to another user
+     */
+    @Transactional
+    public int moveNotes(Long id, Collection<Long> noteIds, Long targetId) {
+        Notebook source = loadOwned(id);
+        Notebook target = targetId == null ? null : loadOwned(targetId);
+        return noteService.moveNotes(source, noteIds, target).size();
+    }
+
+    /**
+     * Deletes notes of a notebook of the current user, see {@link NoteService#deleteNotes}.
+     *
+     * @param noteIds notes to delete, {@code null} for all notes of the notebook; others are ignored
+     * @return number of deleted notes
+     * @throws NotebookNotFoundException if the notebook does not exist or belongs to another user
+     */
+    @Transactional
+    public int deleteNotes(Long id, Collection<Long> noteIds) {
+        return noteService.deleteNotes(loadOwned(id), noteIds).size();
+    }
+
+    private Notebook loadOwned(Long id) {
+        return getOwnedById(id).orElseThrow(() -> new NotebookNotFoundException("Notebook not found"));
     }
 }
@@ -0,0 +1,320 @@
+package ch.hadzic.nikola.notesapp.data.service;
+
+import ch.hadzic.nikola.notesapp.data.dto.StatCount;
+import ch.hadzic.nikola.notesapp.data.dto.TodoCounts;
+import ch.hadzic.nikola.notesapp.data.dto.UserStats;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.entity.StatCounter;
+import ch.hadzic.nikola.notesapp.data.entity.Tag;
+import ch.hadzic.nikola.notesapp.data.entity.Todo;
+import ch.hadzic.nikola.notesapp.data.repository.ChangeSequenceRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
+import ch.hadzic.nikola.notesapp.data.repository.StatCounterRepository;
+import ch.hadzic.nikola.notesapp.data.repository.TodoRepository;
+import ch.hadzic.nikola.notesapp.util.TransactionUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the dashboard statistics of every user as counters, so reading them costs one indexed
+ * query no matter how many notes and todos a user has.
+ * <p>
+ * The services describe each write as a {@link Delta} between the state before and after and
+ * apply it in their transaction, after they have recorded the change in the change log. Recording
+ * takes the change sequence lock of the user, so the counters of a user are only written by one
+ * transaction at a time. The reconciliation takes the same lock and recomputes the counters from
+ * aggregate queries; it corrects any drift and, running after midnight, counts the todos that have
+ * become overdue since the day before.
+ */
+@Slf4j
+@Service
+public class StatsService {
+
+    private static final int RECONCILE_CHUNK_SIZE = 100;
+
+    private final StatCounterRepository statCounterRepository;
+    private final NoteRepository noteRepository;
+    private final TodoRepository todoRepository;
+    private final ChangeSequenceRepository changeSequenceRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final TransactionTemplate separateTransaction;
+
+    public StatsService(StatCounterRepository statCounterRepository, NoteRepository noteRepository,
+                        TodoRepository todoRepository, ChangeSequenceRepository changeSequenceRepository,
+                        JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.statCounterRepository = statCounterRepository;
+        this.noteRepository = noteRepository;
+        this.todoRepository = todoRepository;
+        this.changeSequenceRepository = changeSequenceRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.separateTransaction = new TransactionTemplate(transactionManager);
+        this.separateTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public UserStats getStatsForCurrentUser() {
+        return getStats(SecurityContextHolder.getContext().getAuthentication().getName());
+    }
+
+    public UserStats getStats(String userId) {
+        return toStats(statCounterRepository.findByUserId(userId).stream()
+                .collect(Collectors.toMap(counter -> new CounterKey(counter.getKind(), counter.getRefId()),
+                        StatCounter::getValue)));
+    }
+
+    /**
+     * Adds the changes to the counters of the user. Must be called after the change has been
+     * recorded in the change log of the same transaction.
+     */
+    @Transactional
+    public void apply(String userId, Delta delta) {
+        delta.counters.forEach((key, value) -> {
+            if (value == 0) {
+                return;
+            }
+            if (statCounterRepository.add(userId, key.kind(), key.refId(), value) == 0) {
+                createCounter(userId, key);
+                statCounterRepository.add(userId, key.kind(), key.refId(), value);
+            }
+        });
+    }
+
+    /**
+     * Removes the counter of a deleted tag. Must be called after the deletion has been recorded.
+     */
+    @Transactional
+    public void removeTag(String userId, Long tagId) {
+        statCounterRepository.deleteCounter(userId, StatCounter.Kind.TAG, tagId);
+    }
+
+    /**
+     * Recomputes the counters of the user once the current transaction has committed,
+     * for writes that change too many notes to describe them as a delta.
+     */
+    public void reconcileAfterCommit(String userId) {
+        TransactionUtil.afterCommit(() -> separateTransaction.executeWithoutResult(status -> reconcile(userId)));
+    }
+
+    /**
+     * Recomputes the counters of all users, one transaction per user.
+     *
+     * @return number of users whose counters were corrected
+     */
+    @Scheduled(cron = "${notesapp.stats.reconcile-cron:0 5 0 * * *}")
+    public int reconcileAll() {
+        int corrected = 0;
+        int users = 0;
+        String after = "";
+        List<String> userIds;
+        do {
+            userIds = changeSequenceRepository.findUserIdsAfter(after, Limit.of(RECONCILE_CHUNK_SIZE));
+            for (String userId : userIds) {
+                if (Boolean.TRUE.equals(transaction.execute(status -> reconcile(userId)))) {
+                    corrected++;
+                }
+            }
+            users += userIds.size();
+            after = userIds.isEmpty() ? after : userIds.getLast();
+        } while (userIds.size() == RECONCILE_CHUNK_SIZE);
+
+        log.info("Reconciled the statistics of {} users, corrected {}", users, corrected);
+        return corrected;
+    }
+
+    /**
+     * @return whether the stored counters differed
+     */
+    private boolean reconcile(String userId) {
+        // waits for running writes of the user and keeps new ones out until the counters are replaced
+        changeSequenceRepository.lockByUserId(userId);
+
+        Map<CounterKey, Long> actual = new HashMap<>();
+        put(actual, StatCounter.Kind.NOTES, 0, noteRepository.countByUserId(userId));
+        put(actual, StatCounter.Kind.FAVORITES, 0, noteRepository.countByUserIdAndFavoriteIsTrue(userId));
+        put(actual, StatCounter.Kind.ARCHIVED, 0, noteRepository.countByUserIdAndArchivedIsTrue(userId));
+        for (StatCount count : noteRepository.countByNotebook(userId)) {
+            put(actual, StatCounter.Kind.NOTEBOOK, count.refId(), count.count());
+        }
+        for (StatCount count : noteRepository.countByTag(userId)) {
+            put(actual, StatCounter.Kind.TAG, count.refId(), count.count());
+        }
+        TodoCounts todos = todoRepository.countOpenByUserId(userId, LocalDate.now());
+        put(actual, StatCounter.Kind.OPEN_TODOS, 0, todos.open());
+        put(actual, StatCounter.Kind.OVERDUE_TODOS, 0, todos.overdue());
+
+        Map<CounterKey, Long> stored = statCounterRepository.findByUserId(userId).stream()
+                .filter(counter -> counter.getValue() != 0)
+                .collect(Collectors.toMap(counter -> new CounterKey(counter.getKind(), counter.getRefId()),
+                        StatCounter::getValue));
+        if (stored.equals(actual)) {
+            return false;
+        }
+
+        statCounterRepository.deleteByUserId(userId);
+        List<StatCounter> counters = new ArrayList<>();
+        actual.forEach((key, value) -> counters.add(new StatCounter(userId, key.kind(), key.refId(), value)));
+        statCounterRepository.saveAll(counters);
+        log.debug("Corrected the statistics of {}", userId);
+        return true;
+    }
+
+    private static void put(Map<CounterKey, Long> counters, StatCounter.Kind kind, long refId, long value) {
+        if (value != 0) {
+            counters.put(new CounterKey(kind, refId), value);
+        }
+    }
+
+    /**
+     * Creates a counter behind a savepoint, so that losing the race against a concurrent
+     * first write does not roll back the current transaction.
+     */
+    private void createCounter(String userId, CounterKey key) {
+        // if it fails, the counter was created by the concurrent transaction and adding waits for it to commit
+        TransactionUtil.tryInsert(jdbcTemplate,
+                "insert into user_stat_counter (user_id, kind, ref_id, counter_value) values (?, ?, ?, 0)",
+                List.<Object[]>of(new Object[]{userId, key.kind().name(), key.refId()}));
+    }
+
+    private static UserStats toStats(Map<CounterKey, Long> counters) {
+        Map<Long, Long> notebooks = new TreeMap<>();
+        Map<Long, Long> tags = new TreeMap<>();
+        counters.forEach((key, value) -> {
+            if (value > 0 && key.kind() == StatCounter.Kind.NOTEBOOK) {
+                notebooks.put(key.refId(), value);
+            } else if (value > 0 && key.kind() == StatCounter.Kind.TAG) {
+                tags.put(key.refId(), value);
+            }
+        });
+        return new UserStats(
+                counters.getOrDefault(new CounterKey(StatCounter.Kind.NOTES, 0), 0L),
+                counters.getOrDefault(new CounterKey(StatCounter.Kind.FAVORITES, 0), 0L),
+                counters.getOrDefault(new CounterKey(StatCounter.Kind.ARCHIVED, 0), 0L),
+                counters.getOrDefault(new CounterKey(StatCounter.Kind.OPEN_TODOS, 0), 0L),
+                counters.getOrDefault(new CounterKey(StatCounter.Kind.OVERDUE_TODOS, 0), 0L),
+                notebooks,
+                tags);
+    }
+
+    private record CounterKey(StatCounter.Kind kind, long refId) {
+    }
+
+    /**
+     * The parts of a note the statistics count. Take it before changing the note.
+     */
+    public record NoteState(boolean favorite, boolean archived, Long notebookId, Set<Long> tagIds) {
+
+        public static NoteState of(Note note) {
+            return new NoteState(note.isFavorite(), note.isArchived(),
+                    note.getNotebook() == null ? null : note.getNotebook().getId(),
+                    note.getTags() == null ? Set.of()
+                            : note.getTags().stream().map(Tag::getId).collect(Collectors.toUnmodifiableSet()));
+        }
+    }
+
+    /**
+     * The parts of a todo the statistics count. Take it before changing the todo.
+     */
+    public record TodoState(boolean open, boolean overdue) {
+
+        public static TodoState of(Todo todo) {
+            boolean open = !todo.isDone();
+            return new TodoState(open, open && todo.getDueDate() != null
+                    && todo.getDueDate().isBefore(LocalDate.now()));
+        }
+    }
+
+    /**
+     * Changes of the counters of one user, summed over all writes of a transaction.
+     */
+    public static final class Delta {
+
+        private final Map<CounterKey, Long> counters = new HashMap<>();
+
+        /**
+         * Adds the change of a note; {@code before} is {@code null} for created notes,
+         * {@code after} for deleted ones.
+         */
+        public Delta note(NoteState before, NoteState after) {
+            if (before != null) {
+                count(before, -1);
+            }
+            if (after != null) {
+                count(after, 1);
+            }
+            return this;
+        }
+
+        /**
+         * Adds the change of a todo; {@code before} is {@code null} for created todos,
+         * {@code after} for deleted ones.
+         */
+        public Delta todo(TodoState before, TodoState after) {
+            if (before != null) {
+                add(StatCounter.Kind.OPEN_TODOS, 0, before.open() ? -1 : 0);
+                add(StatCounter.Kind.OVERDUE_TODOS, 0, before.overdue() ? -1 : 0);
+            }
+            if (after != null) {
+                add(StatCounter.Kind.OPEN_TODOS, 0, after.open() ? 1 : 0);
+                add(StatCounter.Kind.OVERDUE_TODOS, 0, after.overdue() ? 1 : 0);
+            }
+            return this;
+        }
+
+        /**
+         * Removes todos deleted together with their notes.
+         */
+        public Delta removeTodos(TodoCounts todos) {
+            add(StatCounter.Kind.OPEN_TODOS, 0, -todos.open());
+            add(StatCounter.Kind.OVERDUE_TODOS, 0, -todos.overdue());
+            return this;
+        }
+
+        /**
+         * Moves notes from one notebook to another; {@code null} stands for no notebook.
+         */
+        public Delta moveNotes(Long from, Long to, long notes) {
+            if (from != null) {
+                add(StatCounter.Kind.NOTEBOOK, from, -notes);
+            }
+            if (to != null) {
+                add(StatCounter.Kind.NOTEBOOK, to, notes);
+            }
+            return this;
+        }
+
+        private void count(NoteState note, int sign) {
+            add(StatCounter.Kind.NOTES, 0, sign);
+            add(StatCounter.Kind.FAVORITES, 0, note.favorite() ? sign : 0);
+            add(StatCounter.Kind.ARCHIVED, 0, note.archived() ? sign : 0);
+            if (note.notebookId() != null) {
+                add(StatCounter.Kind.NOTEBOOK, note.notebookId(), sign);
+            }
+            note.tagIds().stream().filter(Objects::nonNull).forEach(tagId -> add(StatCounter.Kind.TAG, tagId, sign));
+        }
+
+        private void add(StatCounter.Kind kind, long refId, long value) {
+            if (value != 0) {
+                counters.merge(new CounterKey(kind, refId), value, Long::sum);
+            }
+        }
+    }
+}
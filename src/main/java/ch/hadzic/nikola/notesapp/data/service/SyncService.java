@@ -0,0 +1,137 @@
+package ch.hadzic.nikola.notesapp.data.service;
+
+import ch.hadzic.nikola.notesapp.config.execptions.InvalidCursorException;
+import ch.hadzic.nikola.notesapp.data.dto.NoteSummary;
+import ch.hadzic.nikola.notesapp.data.dto.SyncChanges;
+import ch.hadzic.nikola.notesapp.data.dto.SyncTombstone;
+import ch.hadzic.nikola.notesapp.data.entity.ChangeLogEntry;
+import ch.hadzic.nikola.notesapp.data.entity.ChangeSequence;
+import ch.hadzic.nikola.notesapp.data.entity.SyncEntityType;
+import ch.hadzic.nikola.notesapp.data.repository.ChangeLogRepository;
+import ch.hadzic.nikola.notesapp.data.repository.ChangeSequenceRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NotebookRepository;
+import ch.hadzic.nikola.notesapp.data.repository.TagRepository;
+import ch.hadzic.nikola.notesapp.data.repository.TodoRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Answers delta sync requests from the change log.
+ */
+@Service
+public class SyncService {
+
+    public static final int MAX_SYNC_LIMIT = 1000;
+
+    private final ChangeLogRepository changeLogRepository;
+    private final ChangeSequenceRepository changeSequenceRepository;
+    private final NoteRepository noteRepository;
+    private final TagRepository tagRepository;
+    private final NotebookRepository notebookRepository;
+    private final TodoRepository todoRepository;
+    private final NoteContentService noteContentService;
+
+    public SyncService(ChangeLogRepository changeLogRepository, ChangeSequenceRepository changeSequenceRepository,
+                       NoteRepository noteRepository, TagRepository tagRepository,
+                       NotebookRepository notebookRepository, TodoRepository todoRepository,
+                       NoteContentService noteContentService) {
+        this.changeLogRepository = changeLogRepository;
+        this.changeSequenceRepository = changeSequenceRepository;
+        this.noteRepository = noteRepository;
+        this.tagRepository = tagRepository;
+        this.notebookRepository = notebookRepository;
+        this.todoRepository = todoRepository;
+        this.noteContentService = noteContentService;
+    }
+
+    /**
+     * Returns the changes of the current user after the given token, oldest first.
+     * Changed entities are loaded in their current state with one query per entity type.
+     * An entity deleted after its change was read is left out; its tombstone follows with the next token.
+     *
+     * @param since token of the previous response, {@code null} or blank to start over
+     * @param limit maximum number of changes, clamped to {@code 1..MAX_SYNC_LIMIT}
+     * @return the changes and the token to continue with
+     */
+    @Transactional(readOnly = true)
+    public SyncChanges getChangesForCurrentUser(String since, int limit) {
+        String userId = SecurityContextHolder.getContext().getAuthentication().getName();
+        int pageSize = Math.clamp(limit, 1, MAX_SYNC_LIMIT);
+
+        ChangeSequence sequence = changeSequenceRepository.findById(userId)
+                .orElseGet(() -> new ChangeSequence(userId, 0, 0));
+        Long after = since == null || since.isBlank() ? null : parseToken(since);
+        if (after == null || after < sequence.getCompactedSeq() || after > sequence.getLastSeq()) {
+            return SyncChanges.reset(String.valueOf(sequence.getLastSeq()));
+        }
+
+        List<ChangeLogEntry> entries = changeLogRepository
+                .findByUserIdAndSeqGreaterThanOrderBySeq(userId, after, Limit.of(pageSize + 1));
+        boolean hasMore = entries.size() > pageSize;
+        if (hasMore) {
+            entries = entries.subList(0, pageSize);
+        }
+
+        Map<SyncEntityType, List<Long>> changed = new EnumMap<>(SyncEntityType.class);
+        List<SyncTombstone> deleted = new ArrayList<>();
+        for (ChangeLogEntry entry : entries) {
+            if (entry.isDeleted()) {
+                deleted.add(new SyncTombstone(entry.getEntityType(), entry.getEntityId()));
+            } else {
+                changed.computeIfAbsent(entry.getEntityType(), type -> new ArrayList<>()).add(entry.getEntityId());
+            }
+        }
+
+        long next = entries.isEmpty() ? after : entries.getLast().getSeq();
+        return new SyncChanges(
+                String.valueOf(next),
+                false,
+                hasMore,
+                load(changed, SyncEntityType.NOTE, ids -> withContents(userId, noteRepository.findSummaries(userId, ids))),
+                load(changed, SyncEntityType.TAG, ids -> tagRepository.findSummaries(userId, ids)),
+                load(changed, SyncEntityType.NOTEBOOK, ids -> notebookRepository.findSummaries(userId, ids)),
+                load(changed, SyncEntityType.TODO, ids -> todoRepository.findSummaries(userId, ids)),
+                deleted);
+    }
+
+    private <T> List<T> load(Map<SyncEntityType, List<Long>> changed, SyncEntityType type,
+                             Function<List<Long>, List<T>> loader) {
+        List<Long> ids = changed.get(type);
+        return ids == null ? List.of() : loader.apply(ids);
+    }
+
+    /**
+     * Listings only carry a preview, synced notes need their content.
+     */
+    private List<NoteSummary> withContents(String userId, List<NoteSummary> notes) {
+        Map<Long, String> hashes = new HashMap<>();
+        noteRepository.findTexts(userId, notes.stream().map(NoteSummary::id).toList())
+                .forEach(text -> hashes.put(text.id(), text.contentHash()));
+        Map<String, String> contents = noteContentService.loadAll(hashes.values());
+        return notes.stream()
+                .map(note -> note.withContent(contents.get(hashes.get(note.id()))))
+                .toList();
+    }
+
+    private long parseToken(String token) {
+        try {
+            long seq = Long.parseLong(token);
+            if (seq >= 0) {
+                return seq;
+            }
+        } catch (NumberFormatException ignored) {
+            // reported below
+        }
+        throw new InvalidCursorException("Invalid sync token");
+    }
+}
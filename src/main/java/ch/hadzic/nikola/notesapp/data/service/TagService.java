@@ -1,38 +1,126 @@
 package ch.hadzic.nikola.notesapp.data.service;
 
+import ch.hadzic.nikola.notesapp.config.cache.EntityCache;
+import ch.hadzic.nikola.notesapp.data.dto.TagSummary;
+import ch.hadzic.nikola.notesapp.data.dto.TagUsage;
+import ch.hadzic.nikola.notesapp.data.entity.SyncEntityType;
 import ch.hadzic.nikola.notesapp.data.entity.Tag;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
 import ch.hadzic.nikola.notesapp.data.repository.TagRepository;
+import ch.hadzic.nikola.notesapp.search.TagTrie;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
 public class TagService {
 
+    public static final int MAX_SUGGESTIONS = 50;
+
     private final TagRepository tagRepository;
+    private final NoteRepository noteRepository;
+    private final EntityCache entityCache;
+    private final ChangeLogService changeLogService;
+    private final StatsService statsService;
 
-    public TagService(TagRepository tagRepository) {
+    public TagService(TagRepository tagRepository, NoteRepository noteRepository, EntityCache entityCache,
+                      ChangeLogService changeLogService, StatsService statsService) {
         this.tagRepository = tagRepository;
+        this.noteRepository = noteRepository;
+        this.entityCache = entityCache;
+        this.changeLogService = changeLogService;
+        this.statsService = statsService;
     }
 
     public List<Tag> getAllForUser(String userId) {
-        return tagRepository.findByUserId(userId);
+        return entityCache.getTags(userId, () -> tagRepository.findByUserId(userId));
+    }
+
+    /**
+     * Returns the tags of a user with the number of notes carrying them, ordered by name.
+     * The numbers come from the statistics counters, so no note or join table row is read.
+     */
+    public List<TagUsage> getUsagesForUser(String userId) {
+        Map<Long, Long> noteCounts = statsService.getStats(userId).tags();
+        return getAllForUser(userId).stream()
+                .map(tag -> new TagUsage(tag.getId(), tag.getName(), noteCounts.getOrDefault(tag.getId(), 0L)))
+                .sorted(Comparator.comparing(TagUsage::name, String.CASE_INSENSITIVE_ORDER))
+                .toList();
+    }
+
+    /**
+     * Suggests tags of a user whose name starts with the prefix, ignoring case. Tags on more
+     * notes come first, ties are ordered by name.
+     *
+     * @param prefix start of the name
+     * @param limit  maximum number of suggestions, clamped to {@code 1..MAX_SUGGESTIONS}
+     */
+    public List<TagUsage> suggest(String userId, String prefix, int limit) {
+        List<TagSummary> matches = entityCache.getTagTrie(userId, () -> TagTrie.of(getAllForUser(userId)))
+                .find(prefix);
+        if (matches.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Long> noteCounts = statsService.getStats(userId).tags();
+        return matches.stream()
+                .map(tag -> new TagUsage(tag.id(), tag.name(), noteCounts.getOrDefault(tag.id(), 0L)))
+                .sorted(Comparator.comparingLong(TagUsage::noteCount).reversed())
+                .limit(Math.clamp(limit, 1, MAX_SUGGESTIONS))
+                .toList();
     }
 
     public Optional<Tag> getById(Long id) {
         return tagRepository.findById(id);
     }
 
+    @Transactional
     public Tag create(Tag tag) {
-        return tagRepository.save(tag);
+        Tag saved = tagRepository.save(tag);
+        entityCache.evictTags(saved.getUserId());
+        changeLogService.recordUpsert(saved.getUserId(), SyncEntityType.TAG, saved.getId());
+        return saved;
     }
 
+    @Transactional
     public Tag update(Tag tag) {
-        return tagRepository.save(tag);
+        Optional<Tag> existing = tagRepository.findById(tag.getId());
+        existing.ifPresent(stored -> {
+            tag.setUserId(stored.getUserId());
+            tag.setUpdatedAt(stored.getUpdatedAt());
+            if (!Objects.equals(stored.getName(), tag.getName())) {
+                tag.setUpdatedAt(LocalDateTime.now());
+                evictTagAndNotes(stored);
+            }
+        });
+        Tag saved = tagRepository.save(tag);
+        changeLogService.recordUpsert(saved.getUserId(), SyncEntityType.TAG, saved.getId());
+        return saved;
     }
 
+    @Transactional
     public void delete(Long id) {
+        tagRepository.findById(id).ifPresent(tag -> {
+            evictTagAndNotes(tag);
+            changeLogService.recordDelete(tag.getUserId(), SyncEntityType.TAG, id);
+            statsService.removeTag(tag.getUserId(), id);
+        });
         tagRepository.deleteById(id);
     }
+
+    /**
+     * Notes embed their tags, so renaming or deleting a tag evicts every note carrying it
+     * from the cache and marks it as changed for sync.
+     */
+    private void evictTagAndNotes(Tag tag) {
+        List<Long> noteIds = noteRepository.findIdsByTagId(tag.getId());
+        entityCache.evictTags(tag.getUserId());
+        entityCache.evictNotes(tag.getUserId(), noteIds);
+        changeLogService.recordUpserts(tag.getUserId(), SyncEntityType.NOTE, noteIds);
+    }
 }
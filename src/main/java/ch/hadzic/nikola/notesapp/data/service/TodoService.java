@@ -1,45 +1,232 @@
 package ch.hadzic.nikola.notesapp.data.service;
 
+import ch.hadzic.nikola.notesapp.config.cache.EntityCache;
+import ch.hadzic.nikola.notesapp.config.execptions.InvalidCursorException;
+import ch.hadzic.nikola.notesapp.config.execptions.NoteNotFoundException;
+import ch.hadzic.nikola.notesapp.config.execptions.TodoNotFoundException;
+import ch.hadzic.nikola.notesapp.data.dto.CursorPage;
+import ch.hadzic.nikola.notesapp.data.dto.TodoCursor;
+import ch.hadzic.nikola.notesapp.data.dto.TodoSummary;
+import ch.hadzic.nikola.notesapp.data.entity.SyncEntityType;
 import ch.hadzic.nikola.notesapp.data.entity.Todo;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
+import ch.hadzic.nikola.notesapp.data.repository.TodoAgenda;
 import ch.hadzic.nikola.notesapp.data.repository.TodoRepository;
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
+/**
+ * Todos carry the owner of their note, so the todos of a user are listed through the
+ * {@code (user_id, done, due_date)} index without joining or loading their notes.
+ * Todos of other users and todos on their notes are treated as not existing.
+ */
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class TodoService {
 
     private final TodoRepository todoRepository;
+    private final NoteRepository noteRepository;
+    private final ChangeLogService changeLogService;
+    private final EntityCache entityCache;
+    private final StatsService statsService;
+    private final TransactionTemplate transaction;
 
-    public List<Todo> getAll() {
-        return todoRepository.findAll();
+    public TodoService(TodoRepository todoRepository, NoteRepository noteRepository, ChangeLogService changeLogService,
+                       EntityCache entityCache, StatsService statsService,
+                       PlatformTransactionManager transactionManager) {
+        this.todoRepository = todoRepository;
+        this.noteRepository = noteRepository;
+        this.changeLogService = changeLogService;
+        this.entityCache = entityCache;
+        this.statsService = statsService;
+        this.transaction = new TransactionTemplate(transactionManager);
     }
 
-    public Optional<Todo> getById(Long id) {
-        return todoRepository.findById(id);
+    /**
+     * Copies the owner of their note to todos written by an older version.
+     */
+    @PostConstruct
+    public void assignMissingOwners() {
+        Integer count = transaction.execute(status -> todoRepository.assignMissingUserIds());
+        if (count != null && count > 0) {
+            log.info("Assigned the owner of their note to {} todos", count);
+        }
     }
 
-    public List<Todo> getByNoteId(Long noteId) {
-        return todoRepository.findByNoteId(noteId);
+    /**
+     * Returns one page of the current user's todos, ordered by id.
+     *
+     * @param done   {@code null} for all todos, otherwise only done or open ones
+     * @param cursor cursor from the previous page, {@code null} or blank for the first page
+     * @param limit  requested page size, clamped to {@code 1..MAX_PAGE_SIZE}
+     * @throws InvalidCursorException if the cursor is malformed
+     */
+    public CursorPage<TodoSummary> getPageForCurrentUser(Boolean done, String cursor, int limit) {
+        String userId = getCurrentUserId();
+        int pageSize = Math.clamp(limit, 1, NoteService.MAX_PAGE_SIZE);
+        long afterId = cursor == null || cursor.isBlank() ? 0 : TodoCursor.decode(cursor).id();
+
+        return page(todoRepository.findPage(userId, done, afterId, Limit.of(pageSize + 1)), pageSize, false);
     }
 
+    /**
+     * Returns one page of the current user's open todos in a section of the agenda,
+     * ordered by due date and id.
+     *
+     * @param agenda section of the agenda
+     * @param cursor cursor from the previous page of the same section, {@code null} or blank for the first page
+     * @param limit  requested page size, clamped to {@code 1..MAX_PAGE_SIZE}
+     * @throws InvalidCursorException if the cursor is malformed or was issued for the plain listing
+     */
+    public CursorPage<TodoSummary> getAgendaForCurrentUser(TodoAgenda agenda, String cursor, int limit) {
+        String userId = getCurrentUserId();
+        int pageSize = Math.clamp(limit, 1, NoteService.MAX_PAGE_SIZE);
+        LocalDate today = LocalDate.now();
+        TodoCursor after = cursor == null || cursor.isBlank()
+                ? new TodoCursor(agenda.from(today), 0L) : TodoCursor.decode(cursor);
+        if (after.dueDate() == null) {
+            throw new InvalidCursorException("Cursor belongs to the todo listing");
+        }
+
+        List<TodoSummary> rows = todoRepository.findDuePage(userId, after.dueDate(), after.id(), agenda.until(today),
+                Limit.of(pageSize + 1));
+        return page(rows, pageSize, true);
+    }
+
+    /**
+     * Returns a todo of the current user, empty for unknown todos and those of other users.
+     */
+    public Optional<TodoSummary> getById(Long id) {
+        return todoRepository.findByIdAndUserId(id, getCurrentUserId());
+    }
+
+    /**
+     * Returns the todos of a note of the current user, ordered by id.
+     *
+     * @throws NoteNotFoundException if the note does not exist or belongs to another user
+     */
+    public List<TodoSummary> getByNoteId(Long noteId) {
+        String userId = getCurrentUserId();
+        requireOwnNote(noteId, userId);
+        return todoRepository.findByNoteIdAndUserId(noteId, userId);
+    }
+
+    /**
+     * Creates a todo on a note of the current user.
+     *
+     * @throws NoteNotFoundException if the note is missing, does not exist or belongs to another user
+     */
+    @Transactional
     public Todo create(Todo todo) {
-        return todoRepository.save(todo);
+        String userId = getCurrentUserId();
+        requireOwnNote(todo.getNote() == null ? null : todo.getNote().getId(), userId);
+        todo.setUserId(userId);
+        Todo saved = todoRepository.save(todo);
+        recordChange(saved, null, StatsService.TodoState.of(saved));
+        return saved;
     }
 
+    /**
+     * Replaces a todo of the current user; without a note the todo stays on its note.
+     *
+     * @throws TodoNotFoundException if the todo does not exist or belongs to another user
+     * @throws NoteNotFoundException if the new note does not exist or belongs to another user
+     */
+    @Transactional
     public Todo update(Todo todo) {
-        return todoRepository.save(todo);
+        String userId = getCurrentUserId();
+        Todo existing = loadOwned(todo.getId(), userId);
+        StatsService.TodoState before = StatsService.TodoState.of(existing);
+        if (todo.getNote() == null) {
+            todo.setNote(existing.getNote());
+        } else if (!todo.getNote().getId().equals(existing.getNote().getId())) {
+            requireOwnNote(todo.getNote().getId(), userId);
+        }
+        todo.setUserId(userId);
+        Todo saved = todoRepository.save(todo);
+        recordChange(saved, before, StatsService.TodoState.of(saved));
+        return saved;
     }
 
+    /**
+     * Deletes a todo of the current user.
+     *
+     * @throws TodoNotFoundException if the todo does not exist or belongs to another user
+     */
+    @Transactional
     public void delete(Long id) {
-        todoRepository.deleteById(id);
+        Todo todo = loadOwned(id, getCurrentUserId());
+        recordChange(todo, StatsService.TodoState.of(todo), null);
+        todoRepository.delete(todo);
     }
 
+    @Transactional
     public void deleteAll(Set<Todo> todos) {
+        todos.forEach(todo -> recordChange(todo, StatsService.TodoState.of(todo), null));
         todoRepository.deleteAll(todos);
     }
+
+    private Todo loadOwned(Long id, String userId) {
+        return Optional.ofNullable(id)
+                .flatMap(todoRepository::findById)
+                .filter(todo -> userId.equals(todo.getUserId()))
+                .orElseThrow(() -> new TodoNotFoundException("Todo not found"));
+    }
+
+    private void requireOwnNote(Long noteId, String userId) {
+        if (noteId == null || !noteRepository.findUserIdById(noteId).map(userId::equals).orElse(false)) {
+            throw new NoteNotFoundException("Note not found");
+        }
+    }
+
+    /**
+     * The change is recorded for the owner of the note of the todo.
+     * Listings can be filtered by open todos, so their entity tag changes as well.
+     *
+     * @param before state before the change, {@code null} for a created todo
+     * @param after  state after the change, {@code null} for a deleted todo
+     */
+    private void recordChange(Todo todo, StatsService.TodoState before, StatsService.TodoState after) {
+        if (todo.getNote() == null || todo.getId() == null) {
+            return;
+        }
+        Optional.ofNullable(todo.getUserId())
+                .or(() -> noteRepository.findUserIdById(todo.getNote().getId()))
+                .ifPresent(userId -> {
+                    entityCache.evictListings(userId);
+                    if (after == null) {
+                        changeLogService.recordDelete(userId, SyncEntityType.TODO, todo.getId());
+                    } else {
+                        changeLogService.recordUpsert(userId, SyncEntityType.TODO, todo.getId());
+                    }
+                    statsService.apply(userId, new StatsService.Delta().todo(before, after));
+                });
+    }
+
+    /**
+     * Cuts the extra row read to tell whether another page exists.
+     */
+    private static CursorPage<TodoSummary> page(List<TodoSummary> rows, int pageSize, boolean byDueDate) {
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, null, null);
+        }
+        List<TodoSummary> items = rows.subList(0, pageSize);
+        TodoSummary last = items.getLast();
+        return new CursorPage<>(items, new TodoCursor(byDueDate ? last.dueDate() : null, last.id()).encode(), null);
+    }
+
+    private static String getCurrentUserId() {
+        return SecurityContextHolder.getContext().getAuthentication().getName();
+    }
 }
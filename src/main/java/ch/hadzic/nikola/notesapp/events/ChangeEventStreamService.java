@@ -0,0 +1,314 @@
+package ch.hadzic.nikola.notesapp.events;
+
+import ch.hadzic.nikola.notesapp.config.execptions.EventStreamLimitException;
+import ch.hadzic.nikola.notesapp.data.entity.ChangeLogEntry;
+import ch.hadzic.nikola.notesapp.data.entity.ChangeSequence;
+import ch.hadzic.nikola.notesapp.data.repository.ChangeLogRepository;
+import ch.hadzic.nikola.notesapp.data.repository.ChangeSequenceRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes the {@link EntityChangedEvent}s of a user to their open server-sent event streams.
+ * <p>
+ * Every stream has its own bounded buffer and a virtual thread writing it to the client, so a slow
+ * client never holds up the committing thread or other streams. A stream whose buffer overflows is
+ * closed; the client reconnects with {@code Last-Event-ID} and the missed changes are replayed from
+ * the change log. Event ids are change log sequence numbers and can be passed to {@code /api/sync}.
+ * If the gap is too large to replay, or has been compacted, a {@code reset} event tells the client to
+ * resynchronize. Idle streams get a comment every {@code heartbeat} to keep proxies from closing them.
+ * <p>
+ * Events are published after commit, once the change sequence lock is released, so the event of a later
+ * change can arrive before the one of an earlier change. A stream sends buffered events in sequence order,
+ * and on a gap it replays the missing changes from the change log: an event is only published once every
+ * change before it has committed.
+ */
+@Slf4j
+@Service
+public class ChangeEventStreamService {
+
+    public static final String RESET_EVENT = "reset";
+
+    private final ChangeLogRepository changeLogRepository;
+    private final ChangeSequenceRepository changeSequenceRepository;
+    private final int maxStreamsPerUser;
+    private final int bufferSize;
+    private final int replayLimit;
+    private final Duration timeout;
+    private final Duration heartbeat;
+    private final Map<String, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+
+    public ChangeEventStreamService(ChangeLogRepository changeLogRepository,
+                                    ChangeSequenceRepository changeSequenceRepository,
+                                    @Value("${notesapp.events.max-streams-per-user:5}") int maxStreamsPerUser,
+                                    @Value("${notesapp.events.buffer-size:256}") int bufferSize,
+                                    @Value("${notesapp.events.replay-limit:500}") int replayLimit,
+                                    @Value("${notesapp.events.timeout:30m}") Duration timeout,
+                                    @Value("${notesapp.events.heartbeat:15s}") Duration heartbeat) {
+        this.changeLogRepository = changeLogRepository;
+        this.changeSequenceRepository = changeSequenceRepository;
+        this.maxStreamsPerUser = maxStreamsPerUser;
+        this.bufferSize = bufferSize;
+        this.replayLimit = replayLimit;
+        this.timeout = timeout;
+        this.heartbeat = heartbeat;
+    }
+
+    /**
+     * Opens an event stream for the current user.
+     *
+     * @param lastEventId id of the last event the client has seen, {@code null} for new changes only
+     * @throws EventStreamLimitException if the user already has {@code max-streams-per-user} open streams
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        String userId = SecurityContextHolder.getContext().getAuthentication().getName();
+        Subscription subscription = new Subscription(userId, new SseEmitter(timeout.toMillis()));
+
+        // registered before reading the replay, so nothing committed in between is missed;
+        // events already replayed are skipped by their sequence number
+        subscriptions.compute(userId, (key, streams) -> {
+            Set<Subscription> open = streams != null ? streams : ConcurrentHashMap.newKeySet();
+            if (open.size() >= maxStreamsPerUser) {
+                throw new EventStreamLimitException("Too many open event streams, max " + maxStreamsPerUser);
+            }
+            open.add(subscription);
+            return open;
+        });
+        subscription.emitter.onCompletion(subscription::close);
+        subscription.emitter.onTimeout(subscription::close);
+        subscription.emitter.onError(error -> subscription.close());
+
+        try {
+            subscription.start(replay(userId, lastEventId));
+        } catch (ResetRequiredException e) {
+            subscription.startWithReset(e.next);
+        }
+        return subscription.emitter;
+    }
+
+    /**
+     * Number of open streams of a user.
+     */
+    public int getOpenStreams(String userId) {
+        Set<Subscription> streams = subscriptions.get(userId);
+        return streams == null ? 0 : streams.size();
+    }
+
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        Set<Subscription> streams = subscriptions.get(event.userId());
+        if (streams != null) {
+            streams.forEach(subscription -> subscription.offer(event));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscriptions.values().forEach(streams -> streams.forEach(subscription -> {
+            subscription.close();
+            subscription.emitter.complete();
+        }));
+    }
+
+    private Replay replay(String userId, String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return new Replay(List.of(), changeSequenceRepository.findLastSeq(userId).orElse(0L));
+        }
+        long after;
+        try {
+            after = Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            throw new ResetRequiredException(changeSequenceRepository.findLastSeq(userId).orElse(0L));
+        }
+        return replay(userId, after);
+    }
+
+    private Replay replay(String userId, long after) {
+        ChangeSequence sequence = changeSequenceRepository.findById(userId)
+                .orElseGet(() -> new ChangeSequence(userId, 0, 0));
+        if (after < sequence.getCompactedSeq() || after > sequence.getLastSeq()) {
+            throw new ResetRequiredException(sequence.getLastSeq());
+        }
+
+        List<ChangeLogEntry> entries = changeLogRepository
+                .findByUserIdAndSeqGreaterThanOrderBySeq(userId, after, Limit.of(replayLimit + 1));
+        if (entries.size() > replayLimit) {
+            throw new ResetRequiredException(sequence.getLastSeq());
+        }
+        // the log keeps only the latest change of an entity, so a creation replays as update
+        List<EntityChangedEvent> events = entries.stream()
+                .map(entry -> new EntityChangedEvent(userId, entry.getSeq(), entry.getEntityType(), entry.getEntityId(),
+                        entry.isDeleted() ? EntityChangedEvent.Kind.DELETED : EntityChangedEvent.Kind.UPDATED))
+                .toList();
+        // every change up to the sequence read first has committed, changes it left out have been superseded
+        long position = events.isEmpty() ? sequence.getLastSeq()
+                : Math.max(sequence.getLastSeq(), events.getLast().seq());
+        return new Replay(events, position);
+    }
+
+    /**
+     * Changes after a sequence number, and the sequence number up to which they cover all changes.
+     */
+    private record Replay(List<EntityChangedEvent> events, long position) {
+    }
+
+    private static final class ResetRequiredException extends RuntimeException {
+
+        private final long next;
+
+        ResetRequiredException(long next) {
+            super(null, null, false, false);
+            this.next = next;
+        }
+    }
+
+    /**
+     * Payload of a change event; the event name is {@code <type>.<kind>}, e.g. {@code note.updated}.
+     */
+    public record ChangeNotification(String type, Long id, String kind) {
+    }
+
+    private final class Subscription {
+
+        private final String userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<EntityChangedEvent> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private volatile boolean overflowed;
+        private volatile boolean closed;
+        private Thread sender;
+        // sequence number up to which the client has been sent every change
+        private long position;
+
+        Subscription(String userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        void offer(EntityChangedEvent event) {
+            if (!buffer.offer(event)) {
+                overflowed = true;
+            }
+        }
+
+        void start(Replay replay) {
+            sender = Thread.ofVirtual().name("events-" + userId).start(() -> run(replay, null));
+        }
+
+        void startWithReset(long next) {
+            sender = Thread.ofVirtual().name("events-" + userId).start(() -> run(null, next));
+        }
+
+        private void run(Replay replay, Long reset) {
+            try {
+                if (reset != null) {
+                    sendReset(reset);
+                } else {
+                    send(replay);
+                }
+                while (!closed) {
+                    if (overflowed) {
+                        // the client resumes from the change log when it reconnects
+                        emitter.complete();
+                        return;
+                    }
+                    EntityChangedEvent event = buffer.poll(heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+                    if (event == null) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                        continue;
+                    }
+                    // an earlier change published late is usually buffered right behind
+                    List<EntityChangedEvent> events = new ArrayList<>();
+                    events.add(event);
+                    buffer.drainTo(events);
+                    events.sort(Comparator.comparingLong(EntityChangedEvent::seq));
+                    for (EntityChangedEvent next : events) {
+                        deliver(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | IllegalStateException | DataAccessException e) {
+                log.debug("Event stream of {} closed: {}", userId, e.getMessage());
+                emitter.completeWithError(e);
+            }
+        }
+
+        private void deliver(EntityChangedEvent event) throws IOException {
+            if (event.seq() <= position) {
+                // replayed already
+                return;
+            }
+            if (event.seq() > position + 1) {
+                // the earlier changes have committed before this one, so the change log has them
+                try {
+                    send(replay(userId, position));
+                } catch (ResetRequiredException e) {
+                    sendReset(e.next);
+                }
+                return;
+            }
+            send(event);
+        }
+
+        private void send(Replay replay) throws IOException {
+            for (EntityChangedEvent event : replay.events()) {
+                send(event);
+            }
+            position = Math.max(position, replay.position());
+        }
+
+        private void send(EntityChangedEvent event) throws IOException {
+            if (event.seq() <= position) {
+                return;
+            }
+            String type = event.type().name().toLowerCase(Locale.ROOT);
+            String kind = event.kind().name().toLowerCase(Locale.ROOT);
+            emitter.send(SseEmitter.event()
+                    .id(String.valueOf(event.seq()))
+                    .name(type + "." + kind)
+                    .data(new ChangeNotification(type, event.id(), kind), MediaType.APPLICATION_JSON));
+            position = event.seq();
+        }
+
+        private void sendReset(long next) throws IOException {
+            emitter.send(SseEmitter.event().name(RESET_EVENT).id(String.valueOf(next))
+                    .data(Map.of("next", String.valueOf(next)), MediaType.APPLICATION_JSON));
+            position = next;
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            subscriptions.computeIfPresent(userId, (key, streams) -> {
+                streams.remove(this);
+                return streams.isEmpty() ? null : streams;
+            });
+            if (sender != null) {
+                sender.interrupt();
+            }
+        }
+    }
+}
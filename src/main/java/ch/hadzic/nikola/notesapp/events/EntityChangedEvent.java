@@ -0,0 +1,20 @@
+package ch.hadzic.nikola.notesapp.events;
+
+import ch.hadzic.nikola.notesapp.data.entity.SyncEntityType;
+
+/**
+ * Published after a transaction that changed a note, tag, notebook or todo has committed.
+ * The sequence number is the one of the change log, so it can be used as sync token.
+ *
+ * @param userId owner of the entity
+ * @param seq    position of the change in the owner's change log
+ * @param type   type of the entity
+ * @param id     id of the entity
+ * @param kind   what happened to it
+ */
+public record EntityChangedEvent(String userId, long seq, SyncEntityType type, Long id, Kind kind) {
+
+    public enum Kind {
+        CREATED, UPDATED, DELETED
+    }
+}
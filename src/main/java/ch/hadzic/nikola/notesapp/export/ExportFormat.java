@@ -0,0 +1,51 @@
+package ch.hadzic.nikola.notesapp.export;
+
+import org.springframework.http.MediaType;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * The file formats notes can be exported to, in the order they are offered to clients
+ * accepting any type.
+ */
+public enum ExportFormat {
+    PDF(MediaType.APPLICATION_PDF, "pdf", false),
+    MARKDOWN(MediaType.TEXT_MARKDOWN, "md", true),
+    JSON(MediaType.APPLICATION_NDJSON, "ndjson", true),
+    HTML(MediaType.TEXT_HTML, "html", true),
+    ZIP(new MediaType("application", "zip"), "zip", false);
+
+    private final MediaType mediaType;
+    private final String extension;
+    private final boolean compressible;
+
+    ExportFormat(MediaType mediaType, String extension, boolean compressible) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+        this.compressible = compressible;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Whether gzip makes the file noticeably smaller; PDF and zip files are already deflated.
+     */
+    public boolean isCompressible() {
+        return compressible;
+    }
+
+    public static Optional<ExportFormat> ofExtension(String extension) {
+        String lower = extension.toLowerCase(Locale.ROOT);
+        return Arrays.stream(values())
+                .filter(format -> format.extension.equals(lower))
+                .findFirst();
+    }
+}
@@ -0,0 +1,61 @@
+package ch.hadzic.nikola.notesapp.export;
+
+import ch.hadzic.nikola.notesapp.data.dto.ExportScope;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An export running in the background.
+ * Jobs only live in memory; their artifacts are files in the export directory
+ * that are deleted together with the job once it expires.
+ */
+@Getter
+@Setter(AccessLevel.PACKAGE)
+public class ExportJob {
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        DONE,
+        FAILED
+    }
+
+    private final String id;
+    private final String userId;
+    private final ExportFormat format;
+    private final ExportScope scope;
+    private final Instant createdAt = Instant.now();
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong processed = new AtomicLong();
+
+    private volatile Status status = Status.QUEUED;
+    private volatile long total;
+    private volatile Path file;
+    private volatile long size;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    ExportJob(String id, String userId, ExportFormat format, ExportScope scope) {
+        this.id = id;
+        this.userId = userId;
+        this.format = format;
+        this.scope = scope;
+    }
+
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    void incrementProcessed() {
+        processed.incrementAndGet();
+    }
+
+    public boolean isFinished() {
+        return status == Status.DONE || status == Status.FAILED;
+    }
+}
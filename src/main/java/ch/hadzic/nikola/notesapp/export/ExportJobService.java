@@ -0,0 +1,217 @@
+package ch.hadzic.nikola.notesapp.export;
+
+import ch.hadzic.nikola.notesapp.config.execptions.ExportJobLimitException;
+import ch.hadzic.nikola.notesapp.config.execptions.ExportJobNotFoundException;
+import ch.hadzic.nikola.notesapp.data.dto.ExportScope;
+import ch.hadzic.nikola.notesapp.data.dto.NoteExportRow;
+import ch.hadzic.nikola.notesapp.data.service.NoteService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs exports in the background on a bounded thread pool, so large exports
+ * don't occupy request threads. Finished files are written to the export directory
+ * and removed again once the job has expired.
+ */
+@Slf4j
+@Service
+public class ExportJobService {
+
+    // the names run() gives its files, a job id followed by ".part" or the extension of a format
+    private static final Pattern JOB_FILE_NAME = Pattern.compile(
+            "[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}\\.("
+                    + Stream.concat(Stream.of("part"), Arrays.stream(ExportFormat.values()).map(ExportFormat::getExtension))
+                    .collect(Collectors.joining("|")) + ")");
+
+    private final NoteService noteService;
+    private final NoteExporters exporters;
+    private final Path directory;
+    private final int maxJobsPerUser;
+    private final Duration retention;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+    // a lock instead of synchronized, which would pin a virtual thread to its carrier
+    private final Lock submitLock = new ReentrantLock();
+
+    public ExportJobService(NoteService noteService,
+                            NoteExporters exporters,
+                            @Value("${notesapp.export.directory:${java.io.tmpdir}/notesapp-exports}") Path directory,
+                            @Value("${notesapp.export.threads:2}") int threads,
+                            @Value("${notesapp.export.queue-capacity:100}") int queueCapacity,
+                            @Value("${notesapp.export.max-jobs-per-user:2}") int maxJobsPerUser,
+                            @Value("${notesapp.export.retention:1h}") Duration retention,
+                            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) throws IOException {
+        this.noteService = noteService;
+        this.exporters = exporters;
+        this.directory = Files.createDirectories(directory);
+        this.maxJobsPerUser = maxJobsPerUser;
+        this.retention = retention;
+
+        // the pool bounds how many exports run at once; with virtual threads an export that
+        // waits on the database or the disk doesn't hold a carrier thread
+        ThreadFactory threadFactory = virtualThreads
+                ? Thread.ofVirtual().name("export-", 1).factory()
+                : Thread.ofPlatform().name("export-", 1).daemon(true).factory();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory);
+
+        deleteOrphanedFiles();
+    }
+
+    /**
+     * Queues an export of all notes of the current user.
+     *
+     * @see #submit(ExportFormat, ExportScope)
+     */
+    public ExportJob submit(ExportFormat format) {
+        return submit(format, ExportScope.ALL);
+    }
+
+    /**
+     * Queues an export of the current user's notes.
+     *
+     * @param format target format
+     * @param scope  notebook and tag to restrict the export to
+     * @return the queued job
+     * @throws ExportJobLimitException if the user has too many unfinished jobs or the queue is full
+     */
+    public ExportJob submit(ExportFormat format, ExportScope scope) {
+        String userId = getCurrentUserId();
+        ExportJob job = new ExportJob(UUID.randomUUID().toString(), userId, format, scope);
+
+        submitLock.lock();
+        try {
+            long unfinished = jobs.values().stream()
+                    .filter(existing -> existing.getUserId().equals(userId) && !existing.isFinished())
+                    .count();
+            if (unfinished >= maxJobsPerUser) {
+                throw new ExportJobLimitException("Too many running exports, max " + maxJobsPerUser);
+            }
+            jobs.put(job.getId(), job);
+        } finally {
+            submitLock.unlock();
+        }
+
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw new ExportJobLimitException("Export queue is full, try again later");
+        }
+        return job;
+    }
+
+    /**
+     * Returns a job of the current user.
+     *
+     * @throws ExportJobNotFoundException if the job does not exist or belongs to another user
+     */
+    public ExportJob getJob(String id) {
+        ExportJob job = jobs.get(id);
+        if (job == null || !job.getUserId().equals(getCurrentUserId())) {
+            throw new ExportJobNotFoundException("Export job not found");
+        }
+        return job;
+    }
+
+    /**
+     * Drops finished jobs older than the retention period together with their files.
+     */
+    @Scheduled(fixedDelayString = "${notesapp.export.cleanup-interval:PT1M}")
+    public void expireJobs() {
+        Instant threshold = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> {
+            if (!job.isFinished() || job.getFinishedAt().isAfter(threshold)) {
+                return false;
+            }
+            deleteQuietly(job.getFile());
+            return true;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    void run(ExportJob job) {
+        job.setStatus(ExportJob.Status.RUNNING);
+        Path partial = directory.resolve(job.getId() + ".part");
+        Path target = directory.resolve(job.getId() + "." + job.getFormat().getExtension());
+
+        try {
+            job.setTotal(noteService.countNotesForExport(job.getUserId(), job.getScope()));
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(partial));
+                 Stream<NoteExportRow> notes = noteService.streamNotesForExport(job.getUserId(), job.getScope())
+                         .peek(note -> job.incrementProcessed())) {
+                exporters.get(job.getFormat()).export(notes, out);
+            }
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            job.setFile(target);
+            job.setSize(Files.size(target));
+            job.setFinishedAt(Instant.now());
+            job.setStatus(ExportJob.Status.DONE);
+        } catch (Exception e) {
+            log.error("Export job {} failed", job.getId(), e);
+            deleteQuietly(partial);
+            job.setError("Export failed");
+            job.setFinishedAt(Instant.now());
+            job.setStatus(ExportJob.Status.FAILED);
+        }
+    }
+
+    private void deleteOrphanedFiles() throws IOException {
+        // jobs don't survive a restart, so none of their files are reachable anymore; the directory
+        // may be shared, so anything not named like a job file is left alone
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                file -> JOB_FILE_NAME.matcher(file.getFileName().toString()).matches())) {
+            for (Path file : files) {
+                deleteQuietly(file);
+            }
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete export file {}", file, e);
+        }
+    }
+
+    private String getCurrentUserId() {
+        return SecurityContextHolder.getContext().getAuthentication().getName();
+    }
+}
@@ -0,0 +1,69 @@
+package ch.hadzic.nikola.notesapp.export;
+
+import ch.hadzic.nikola.notesapp.data.dto.NoteExportRow;
+import ch.hadzic.nikola.notesapp.util.DateFormatUtil;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.HtmlUtils;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes all notes into one self-contained HTML page, an {@code article} per note. Contents are
+ * escaped and shown with their line breaks, not rendered as Markdown.
+ */
+@Component
+public class HtmlNoteExporter extends TextNoteExporter {
+
+    @Override
+    public ExportFormat getFormat() {
+        return ExportFormat.HTML;
+    }
+
+    @Override
+    void writeHeader(Writer writer) throws IOException {
+        writer.write("""
+                <!DOCTYPE html>
+                <html>
+                <head>
+                <meta charset="utf-8">
+                <title>Exported Notes</title>
+                <style>
+                body { font-family: Helvetica, Arial, sans-serif; max-width: 50em; margin: 2em auto; }
+                article { border-bottom: 1px solid #ccc; padding-bottom: 1em; }
+                .meta { color: #666; font-size: 0.9em; }
+                .content { white-space: pre-wrap; }
+                </style>
+                </head>
+                <body>
+                <h1>Exported Notes</h1>
+                """);
+    }
+
+    @Override
+    void writeNote(Writer writer, NoteExportRow note) throws IOException {
+        writer.write("<article>\n<h2>");
+        writer.write(HtmlUtils.htmlEscape(note.title()));
+        writer.write("</h2>\n<p class=\"meta\">");
+        if (note.notebook() != null) {
+            writer.write("Notebook: " + HtmlUtils.htmlEscape(note.notebook()) + " &middot; ");
+        }
+        if (!note.tags().isEmpty()) {
+            writer.write("Tags: " + HtmlUtils.htmlEscape(String.join(", ", note.tags())) + " &middot; ");
+        }
+        if (note.favorite()) {
+            writer.write("Favorite &middot; ");
+        }
+        writer.write("Created at: " + DateFormatUtil.format(note.createdAt()));
+        writer.write("</p>\n<div class=\"content\">");
+        if (note.content() != null) {
+            writer.write(HtmlUtils.htmlEscape(note.content()));
+        }
+        writer.write("</div>\n</article>\n");
+    }
+
+    @Override
+    void writeFooter(Writer writer) throws IOException {
+        writer.write("</body>\n</html>\n");
+    }
+}
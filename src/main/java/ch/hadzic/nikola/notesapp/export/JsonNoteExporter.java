@@ -0,0 +1,46 @@
+package ch.hadzic.nikola.notesapp.export;
+
+import ch.hadzic.nikola.notesapp.data.dto.NoteExportRow;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Writes one JSON object per line (NDJSON). The fields are those the JSON import reads,
+ * so an export can be imported again.
+ */
+@Component
+public class JsonNoteExporter implements NoteExporter {
+
+    private final ObjectWriter writer;
+
+    public JsonNoteExporter(ObjectMapper objectMapper) {
+        this.writer = objectMapper.writer()
+                .withRootValueSeparator("\n")
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    @Override
+    public ExportFormat getFormat() {
+        return ExportFormat.JSON;
+    }
+
+    @Override
+    public void export(Stream<NoteExportRow> notes, OutputStream out) throws IOException {
+        try (SequenceWriter sequence = writer.writeValues(out)) {
+            int written = 0;
+            for (NoteExportRow note : (Iterable<NoteExportRow>) notes::iterator) {
+                sequence.write(note);
+                if (++written % TextNoteExporter.FLUSH_INTERVAL == 0) {
+                    sequence.flush();
+                }
+            }
+        }
+    }
+}
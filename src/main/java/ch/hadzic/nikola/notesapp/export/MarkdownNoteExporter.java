@@ -0,0 +1,63 @@
+package ch.hadzic.nikola.notesapp.export;
+
+import ch.hadzic.nikola.notesapp.data.dto.NoteExportRow;
+import ch.hadzic.nikola.notesapp.util.DateFormatUtil;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes all notes into one Markdown document, a second level heading per note followed by
+ * its notebook, tags and dates and its content as is.
+ */
+@Component
+public class MarkdownNoteExporter extends TextNoteExporter {
+
+    @Override
+    public ExportFormat getFormat() {
+        return ExportFormat.MARKDOWN;
+    }
+
+    @Override
+    void writeHeader(Writer writer) throws IOException {
+        writer.write("# Exported Notes\n");
+    }
+
+    @Override
+    void writeNote(Writer writer, NoteExportRow note) throws IOException {
+        writer.write("\n## ");
+        writer.write(singleLine(note.title()));
+        writer.write("\n\n");
+        if (note.notebook() != null) {
+            writer.write("- Notebook: " + singleLine(note.notebook()) + "\n");
+        }
+        if (!note.tags().isEmpty()) {
+            writer.write("- Tags: " + singleLine(String.join(", ", note.tags())) + "\n");
+        }
+        if (note.favorite()) {
+            writer.write("- Favorite\n");
+        }
+        writer.write("- Created at: " + DateFormatUtil.format(note.createdAt()) + "\n");
+        if (note.updatedAt() != null) {
+            writer.write("- Updated at: " + DateFormatUtil.format(note.updatedAt()) + "\n");
+        }
+        if (note.content() != null && !note.content().isEmpty()) {
+            writer.write("\n");
+            writer.write(note.content());
+            if (!note.content().endsWith("\n")) {
+                writer.write("\n");
+            }
+        }
+        writer.write("\n---\n");
+    }
+
+    @Override
+    void writeFooter(Writer writer) {
+        // nothing closes a Markdown document
+    }
+
+    private static String singleLine(String value) {
+        return value.replaceAll("\\R", " ");
+    }
+}
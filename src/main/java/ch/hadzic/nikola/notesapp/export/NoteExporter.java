@@ -0,0 +1,22 @@
+package ch.hadzic.nikola.notesapp.export;
+
+import ch.hadzic.nikola.notesapp.data.dto.NoteExportRow;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Writes notes in one {@link ExportFormat}. Implementations are Spring beans collected by
+ * {@link NoteExporters}; a new format needs an enum constant and an exporter, nothing else.
+ * <p>
+ * Exporters consume the stream lazily and write every note as soon as it is read, so memory
+ * usage does not depend on the number of notes. They flush {@code out} from time to time, so
+ * a streamed response reaches the client while the export runs, and leave it open for the caller.
+ */
+public interface NoteExporter {
+
+    ExportFormat getFormat();
+
+    void export(Stream<NoteExportRow> notes, OutputStream out) throws IOException;
+}
@@ -0,0 +1,80 @@
+package ch.hadzic.nikola.notesapp.export;
+
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Looks up the {@link NoteExporter} of a format and picks a format from an {@code Accept} header.
+ */
+@Component
+public class NoteExporters {
+
+    private final Map<ExportFormat, NoteExporter> exporters = new EnumMap<>(ExportFormat.class);
+
+    public NoteExporters(List<NoteExporter> exporters) {
+        exporters.forEach(exporter -> {
+            if (this.exporters.put(exporter.getFormat(), exporter) != null) {
+                throw new IllegalStateException("Two exporters for " + exporter.getFormat());
+            }
+        });
+    }
+
+    /**
+     * @throws IllegalArgumentException if no exporter is registered for the format
+     */
+    public NoteExporter get(ExportFormat format) {
+        NoteExporter exporter = exporters.get(format);
+        if (exporter == null) {
+            throw new IllegalArgumentException("No exporter for " + format);
+        }
+        return exporter;
+    }
+
+    /**
+     * Picks the format the client prefers most. The quality of a format is that of the most specific
+     * accepted type including it, so {@code application/pdf;q=0, application/*} rules out PDF only.
+     * Of equally good formats the one matched earlier in the header wins, then the declaration order.
+     *
+     * @param accepted media types of the {@code Accept} header, empty for any
+     * @return the format, empty if the client accepts none of them
+     */
+    public Optional<ExportFormat> negotiate(List<MediaType> accepted) {
+        List<MediaType> types = accepted.isEmpty() ? List.of(MediaType.ALL) : accepted;
+        ExportFormat best = null;
+        double bestQuality = 0;
+        int bestPosition = 0;
+        for (ExportFormat format : exporters.keySet()) {
+            int position = mostSpecificMatch(types, format.getMediaType());
+            if (position < 0) {
+                continue;
+            }
+            double quality = types.get(position).getQualityValue();
+            if (quality > bestQuality || quality == bestQuality && best != null && position < bestPosition) {
+                best = format;
+                bestQuality = quality;
+                bestPosition = position;
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
+    private static int mostSpecificMatch(List<MediaType> types, MediaType mediaType) {
+        int match = -1;
+        for (int i = 0; i < types.size(); i++) {
+            MediaType type = types.get(i);
+            if (type.includes(mediaType) && (match < 0 || specificity(type) > specificity(types.get(match)))) {
+                match = i;
+            }
+        }
+        return match;
+    }
+
+    private static int specificity(MediaType type) {
+        return type.isWildcardType() ? 0 : type.isWildcardSubtype() ? 1 : 2;
+    }
+}
@@ -0,0 +1,104 @@
+package ch.hadzic.nikola.notesapp.export;
+
+import ch.hadzic.nikola.notesapp.data.dto.NoteExportRow;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.util.PdfExportUtil;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Renders notes with {@link PdfExportUtil} and records render time ({@code notesapp.pdf.render})
+ * and document size ({@code notesapp.pdf.size}), tagged with {@code kind=note} for single notes
+ * and {@code kind=notes} for full exports.
+ */
+@Component
+public class PdfRenderer implements NoteExporter {
+
+    private final Timer noteTimer;
+    private final Timer notesTimer;
+    private final DistributionSummary noteSize;
+    private final DistributionSummary notesSize;
+
+    public PdfRenderer(MeterRegistry meterRegistry) {
+        this.noteTimer = timer(meterRegistry, "note");
+        this.notesTimer = timer(meterRegistry, "notes");
+        this.noteSize = size(meterRegistry, "note");
+        this.notesSize = size(meterRegistry, "notes");
+    }
+
+    public byte[] renderNote(Note note) {
+        byte[] pdf = noteTimer.record(() -> PdfExportUtil.exportNoteToPdf(note));
+        noteSize.record(pdf.length);
+        return pdf;
+    }
+
+    @Override
+    public ExportFormat getFormat() {
+        return ExportFormat.PDF;
+    }
+
+    /**
+     * Streams the notes into {@code out}, see {@link PdfExportUtil#exportNotesToPdf(Stream, OutputStream)}.
+     * The time includes waiting for rows and for the client to take the bytes.
+     */
+    @Override
+    public void export(Stream<NoteExportRow> notes, OutputStream out) throws IOException {
+        CountingOutputStream counting = new CountingOutputStream(out);
+        Timer.Sample sample = Timer.start();
+        try {
+            PdfExportUtil.exportNotesToPdf(notes, counting);
+        } finally {
+            sample.stop(notesTimer);
+            notesSize.record(counting.count);
+        }
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String kind) {
+        return Timer.builder("notesapp.pdf.render")
+                .description("Time to render a PDF export")
+                .tag("kind", kind)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static DistributionSummary size(MeterRegistry meterRegistry, String kind) {
+        return DistributionSummary.builder("notesapp.pdf.size")
+                .description("Size of rendered PDF exports")
+                .baseUnit("bytes")
+                .tag("kind", kind)
+                .register(meterRegistry);
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() {
+            // the caller owns the underlying stream
+        }
+    }
+}
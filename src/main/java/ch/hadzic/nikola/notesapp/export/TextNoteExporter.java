@@ -0,0 +1,41 @@
+package ch.hadzic.nikola.notesapp.export;
+
+import ch.hadzic.nikola.notesapp.data.dto.NoteExportRow;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+/**
+ * Base of the exporters writing one UTF-8 text document: a header, every note, a footer.
+ */
+abstract class TextNoteExporter implements NoteExporter {
+
+    static final int FLUSH_INTERVAL = 50;
+
+    @Override
+    public void export(Stream<NoteExportRow> notes, OutputStream out) throws IOException {
+        // not closed, that would close the caller's stream
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writeHeader(writer);
+        int written = 0;
+        for (NoteExportRow note : (Iterable<NoteExportRow>) notes::iterator) {
+            writeNote(writer, note);
+            if (++written % FLUSH_INTERVAL == 0) {
+                writer.flush();
+            }
+        }
+        writeFooter(writer);
+        writer.flush();
+    }
+
+    abstract void writeHeader(Writer writer) throws IOException;
+
+    abstract void writeNote(Writer writer, NoteExportRow note) throws IOException;
+
+    abstract void writeFooter(Writer writer) throws IOException;
+}
@@ -0,0 +1,103 @@
+package ch.hadzic.nikola.notesapp.export;
+
+import ch.hadzic.nikola.notesapp.data.dto.NoteExportRow;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes a zip file with one Markdown file per note, in a folder per notebook. Every file starts
+ * with front matter holding the title, notebook, tags, favorite flag and dates, the layout the
+ * Markdown import reads, so a bundle can be imported again. File names end with the note id to
+ * keep them unique without remembering the names already used.
+ */
+@Component
+public class ZipNoteExporter implements NoteExporter {
+
+    private static final int MAX_NAME_LENGTH = 100;
+
+    @Override
+    public ExportFormat getFormat() {
+        return ExportFormat.ZIP;
+    }
+
+    @Override
+    public void export(Stream<NoteExportRow> notes, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+        // not closed, that would close the zip and the caller's stream before finish() is called
+        Writer writer = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+        int written = 0;
+        for (NoteExportRow note : (Iterable<NoteExportRow>) notes::iterator) {
+            zip.putNextEntry(entry(note));
+            writeNote(writer, note);
+            writer.flush();
+            zip.closeEntry();
+            if (++written % TextNoteExporter.FLUSH_INTERVAL == 0) {
+                zip.flush();
+            }
+        }
+        // writes the central directory and leaves the caller's stream open
+        zip.finish();
+        zip.flush();
+    }
+
+    private static ZipEntry entry(NoteExportRow note) {
+        String file = fileName(note.title()) + " (" + note.id() + ").md";
+        ZipEntry entry = new ZipEntry(note.notebook() == null ? file : fileName(note.notebook()) + "/" + file);
+        if (note.updatedAt() != null) {
+            entry.setTimeLocal(note.updatedAt());
+        }
+        return entry;
+    }
+
+    private static void writeNote(Writer writer, NoteExportRow note) throws IOException {
+        writer.write("---\n");
+        writer.write("title: " + quote(note.title()) + "\n");
+        if (note.notebook() != null) {
+            writer.write("notebook: " + quote(note.notebook()) + "\n");
+        }
+        if (!note.tags().isEmpty()) {
+            writer.write("tags:\n");
+            for (String tag : note.tags()) {
+                writer.write("  - " + quote(tag) + "\n");
+            }
+        }
+        if (note.favorite()) {
+            writer.write("favorite: true\n");
+        }
+        writeTime(writer, "created", note.createdAt());
+        writeTime(writer, "updated", note.updatedAt());
+        writer.write("---\n");
+        if (note.content() != null) {
+            writer.write(note.content());
+        }
+    }
+
+    private static void writeTime(Writer writer, String key, LocalDateTime time) throws IOException {
+        if (time != null) {
+            writer.write(key + ": " + time + "\n");
+        }
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replaceAll("\\R", " ") + "\"";
+    }
+
+    private static String fileName(String value) {
+        String name = value.replaceAll("[\\\\/:*?\"<>|\\p{Cntrl}]", "_").strip();
+        // a leading dot would make the file hidden, and hidden files are skipped on import
+        name = name.replaceFirst("^\\.+", "");
+        if (name.length() > MAX_NAME_LENGTH) {
+            name = name.substring(0, MAX_NAME_LENGTH).strip();
+        }
+        return name.isEmpty() ? "note" : name;
+    }
+}
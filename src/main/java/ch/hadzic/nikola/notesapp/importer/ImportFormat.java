@@ -0,0 +1,41 @@
+package ch.hadzic.nikola.notesapp.importer;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * The archive formats notes can be imported from.
+ */
+public enum ImportFormat {
+    /**
+     * A zip of Markdown files, see {@link MarkdownArchiveReader}.
+     */
+    MARKDOWN_ZIP(List.of("zip")),
+    /**
+     * A JSON array of notes or one note per line, see {@link JsonArchiveReader}.
+     */
+    JSON(List.of("json", "ndjson", "jsonl"));
+
+    private final List<String> extensions;
+
+    ImportFormat(List<String> extensions) {
+        this.extensions = extensions;
+    }
+
+    /**
+     * Guesses the format from the extension of an uploaded file.
+     */
+    public static Optional<ImportFormat> ofFilename(String filename) {
+        if (filename == null || filename.lastIndexOf('.') < 0) {
+            return Optional.empty();
+        }
+        String extension = filename.substring(filename.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        for (ImportFormat format : values()) {
+            if (format.extensions.contains(extension)) {
+                return Optional.of(format);
+            }
+        }
+        return Optional.empty();
+    }
+}
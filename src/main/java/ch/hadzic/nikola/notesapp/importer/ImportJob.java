@@ -0,0 +1,112 @@
+package ch.hadzic.nikola.notesapp.importer;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An import running in the background.
+ * Jobs only live in memory; the uploaded archive is kept in the import directory
+ * until the job has finished.
+ */
+@Getter
+@Setter(AccessLevel.PACKAGE)
+public class ImportJob {
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        DONE,
+        FAILED
+    }
+
+    private final String id;
+    private final String userId;
+    private final ImportFormat format;
+    private final Instant createdAt = Instant.now();
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong read = new AtomicLong();
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong imported = new AtomicLong();
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong duplicates = new AtomicLong();
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong skipped = new AtomicLong();
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong bytesRead = new AtomicLong();
+
+    private volatile Status status = Status.QUEUED;
+    private volatile Path file;
+    private volatile long size;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    ImportJob(String id, String userId, ImportFormat format) {
+        this.id = id;
+        this.userId = userId;
+        this.format = format;
+    }
+
+    /**
+     * Notes read from the archive so far.
+     */
+    public long getRead() {
+        return read.get();
+    }
+
+    /**
+     * Notes written so far.
+     */
+    public long getImported() {
+        return imported.get();
+    }
+
+    /**
+     * Notes left out because the user already has a note with the same title and content.
+     */
+    public long getDuplicates() {
+        return duplicates.get();
+    }
+
+    /**
+     * Notes left out because they have no title or their content is too long.
+     */
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    /**
+     * Bytes of the archive read so far, to be compared with its {@link #getSize() size}.
+     */
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    void incrementRead() {
+        read.incrementAndGet();
+    }
+
+    void addImported(long notes) {
+        imported.addAndGet(notes);
+    }
+
+    void addDuplicates(long notes) {
+        duplicates.addAndGet(notes);
+    }
+
+    void incrementSkipped() {
+        skipped.incrementAndGet();
+    }
+
+    void addBytesRead(long bytes) {
+        bytesRead.addAndGet(bytes);
+    }
+
+    public boolean isFinished() {
+        return status == Status.DONE || status == Status.FAILED;
+    }
+}
@@ -0,0 +1,444 @@
+package ch.hadzic.nikola.notesapp.importer;
+
+import ch.hadzic.nikola.notesapp.config.execptions.ImportJobLimitException;
+import ch.hadzic.nikola.notesapp.config.execptions.ImportJobNotFoundException;
+import ch.hadzic.nikola.notesapp.config.execptions.InvalidImportException;
+import ch.hadzic.nikola.notesapp.data.dto.NoteText;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.entity.Notebook;
+import ch.hadzic.nikola.notesapp.data.entity.Tag;
+import ch.hadzic.nikola.notesapp.data.entity.Todo;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
+import ch.hadzic.nikola.notesapp.data.service.NoteContentService;
+import ch.hadzic.nikola.notesapp.data.service.NoteService;
+import ch.hadzic.nikola.notesapp.data.service.NotebookService;
+import ch.hadzic.nikola.notesapp.data.service.TagService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Imports archives of notes in the background on a bounded thread pool, like {@code ExportJobService}
+ * runs exports. The upload is stored in the import directory and parsed as a stream while it is
+ * imported, so neither the archive nor all of its notes are ever held in memory.
+ * <p>
+ * Notes are written in chunks of {@code chunk-size}, each in one transaction, through
+ * {@link NoteService#importNotes}. Notebooks and tags are matched by name, ignoring case, and
+ * created when missing. A note is left out as duplicate if the user already has a note with the
+ * same title and content, or the archive had one before. Chunks written before a failure are kept.
+ */
+@Slf4j
+@Service
+public class ImportJobService {
+
+    private static final int NAME_LENGTH = 255;
+    // the name submit() gives an upload, the job id followed by ".upload"
+    private static final Pattern UPLOAD_FILE_NAME = Pattern.compile(
+            "[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}\\.upload");
+
+    private final NoteService noteService;
+    private final TagService tagService;
+    private final NotebookService notebookService;
+    private final NoteRepository noteRepository;
+    private final MarkdownArchiveReader markdownArchiveReader;
+    private final JsonArchiveReader jsonArchiveReader;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final Path directory;
+    private final int maxJobsPerUser;
+    private final Duration retention;
+    private final int chunkSize;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+    // a lock instead of synchronized, which would pin a virtual thread to its carrier
+    private final Lock submitLock = new ReentrantLock();
+
+    public ImportJobService(NoteService noteService,
+                            TagService tagService,
+                            NotebookService notebookService,
+                            NoteRepository noteRepository,
+                            MarkdownArchiveReader markdownArchiveReader,
+                            JsonArchiveReader jsonArchiveReader,
+                            JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${notesapp.import.directory:${java.io.tmpdir}/notesapp-imports}") Path directory,
+                            @Value("${notesapp.import.threads:1}") int threads,
+                            @Value("${notesapp.import.queue-capacity:20}") int queueCapacity,
+                            @Value("${notesapp.import.max-jobs-per-user:1}") int maxJobsPerUser,
+                            @Value("${notesapp.import.retention:1h}") Duration retention,
+                            @Value("${notesapp.import.chunk-size:500}") int chunkSize,
+                            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) throws IOException {
+        this.noteService = noteService;
+        this.tagService = tagService;
+        this.notebookService = notebookService;
+        this.noteRepository = noteRepository;
+        this.markdownArchiveReader = markdownArchiveReader;
+        this.jsonArchiveReader = jsonArchiveReader;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.directory = Files.createDirectories(directory);
+        this.maxJobsPerUser = maxJobsPerUser;
+        this.retention = retention;
+        this.chunkSize = chunkSize;
+
+        ThreadFactory threadFactory = virtualThreads
+                ? Thread.ofVirtual().name("import-", 1).factory()
+                : Thread.ofPlatform().name("import-", 1).daemon(true).factory();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory);
+
+        deleteOrphanedFiles();
+    }
+
+    /**
+     * Stores an uploaded archive and queues its import into the current user's notes.
+     *
+     * @param upload the archive
+     * @param format format of the archive, {@code null} to tell it from the file name
+     * @return the queued job
+     * @throws InvalidImportException  if the archive is empty or its format is unknown
+     * @throws ImportJobLimitException if the user has too many unfinished jobs or the queue is full
+     */
+    public ImportJob submit(MultipartFile upload, ImportFormat format) {
+        ImportFormat resolved = format != null ? format : ImportFormat.ofFilename(upload.getOriginalFilename())
+                .orElseThrow(() -> new InvalidImportException("Unknown archive format, pass the format parameter"));
+        if (upload.isEmpty()) {
+            throw new InvalidImportException("The archive is empty");
+        }
+        String userId = getCurrentUserId();
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), userId, resolved);
+
+        submitLock.lock();
+        try {
+            long unfinished = jobs.values().stream()
+                    .filter(existing -> existing.getUserId().equals(userId) && !existing.isFinished())
+                    .count();
+            if (unfinished >= maxJobsPerUser) {
+                throw new ImportJobLimitException("Too many running imports, max " + maxJobsPerUser);
+            }
+            jobs.put(job.getId(), job);
+        } finally {
+            submitLock.unlock();
+        }
+
+        Path file = directory.resolve(job.getId() + ".upload");
+        try {
+            // moves the spooled upload where possible instead of copying it
+            upload.transferTo(file);
+            job.setFile(file);
+            job.setSize(Files.size(file));
+            executor.execute(() -> run(job));
+        } catch (IOException e) {
+            jobs.remove(job.getId());
+            deleteQuietly(file);
+            throw new UncheckedIOException(e);
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            deleteQuietly(file);
+            throw new ImportJobLimitException("Import queue is full, try again later");
+        }
+        return job;
+    }
+
+    /**
+     * Returns a job of the current user.
+     *
+     * @throws ImportJobNotFoundException if the job does not exist or belongs to another user
+     */
+    public ImportJob getJob(String id) {
+        ImportJob job = jobs.get(id);
+        if (job == null || !job.getUserId().equals(getCurrentUserId())) {
+            throw new ImportJobNotFoundException("Import job not found");
+        }
+        return job;
+    }
+
+    /**
+     * Drops finished jobs older than the retention period.
+     */
+    @Scheduled(fixedDelayString = "${notesapp.import.cleanup-interval:PT1M}")
+    public void expireJobs() {
+        Instant threshold = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(threshold));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    void run(ImportJob job) {
+        job.setStatus(ImportJob.Status.RUNNING);
+        try (InputStream in = new CountingInputStream(
+                new BufferedInputStream(Files.newInputStream(job.getFile())), job)) {
+            ImportRun importRun = new ImportRun(job);
+            switch (job.getFormat()) {
+                case MARKDOWN_ZIP -> markdownArchiveReader.read(in, importRun::add);
+                case JSON -> jsonArchiveReader.read(in, importRun::add);
+            }
+            importRun.flush();
+            job.setFinishedAt(Instant.now());
+            job.setStatus(ImportJob.Status.DONE);
+        } catch (InvalidImportException e) {
+            fail(job, e.getMessage());
+        } catch (Exception e) {
+            log.error("Import job {} failed", job.getId(), e);
+            fail(job, "Import failed");
+        } finally {
+            deleteQuietly(job.getFile());
+        }
+    }
+
+    private static void fail(ImportJob job, String error) {
+        job.setError(error);
+        job.setFinishedAt(Instant.now());
+        job.setStatus(ImportJob.Status.FAILED);
+    }
+
+    /**
+     * State of one running import: the notebooks and tags of the user by name, the notes already
+     * seen in the archive and the notes waiting for the next chunk.
+     */
+    private final class ImportRun {
+
+        private final ImportJob job;
+        private final Map<String, Notebook> notebooks = new HashMap<>();
+        private final Map<String, Tag> tags = new HashMap<>();
+        private final Set<String> seen = new HashSet<>();
+        private final List<ImportedNote> pending = new ArrayList<>();
+
+        ImportRun(ImportJob job) {
+            this.job = job;
+            notebookService.getAllForUser(job.getUserId())
+                    .forEach(notebook -> notebooks.putIfAbsent(nameKey(notebook.getName()), notebook));
+            tagService.getAllForUser(job.getUserId()).forEach(tag -> tags.putIfAbsent(nameKey(tag.getName()), tag));
+        }
+
+        void add(ImportedNote note) {
+            job.incrementRead();
+            if (note.title() == null || note.title().isBlank()
+                    || note.content() != null && note.content().length() > Note.MAX_CONTENT_LENGTH) {
+                job.incrementSkipped();
+                return;
+            }
+            pending.add(note);
+            if (pending.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            transaction.executeWithoutResult(status -> write(pending));
+            pending.clear();
+        }
+
+        private void write(List<ImportedNote> chunk) {
+            Map<ImportedNote, String> keys = new HashMap<>();
+            chunk.forEach(note -> keys.put(note, duplicateKey(truncate(note.title()), note.content() == null
+                    || note.content().isEmpty() ? null : NoteContentService.hash(note.content()))));
+            Set<String> hashes = new HashSet<>();
+            keys.values().stream().filter(key -> key != null).forEach(key -> hashes.add(key.substring(0, 64)));
+            if (!hashes.isEmpty()) {
+                for (NoteText existing : noteRepository.findTextsByContentHashIn(job.getUserId(), hashes)) {
+                    seen.add(duplicateKey(existing.title(), existing.contentHash()));
+                }
+            }
+
+            List<ImportedNote> imported = new ArrayList<>(chunk.size());
+            List<Note> notes = new ArrayList<>(chunk.size());
+            for (ImportedNote note : chunk) {
+                String key = keys.get(note);
+                if (key != null && !seen.add(key)) {
+                    job.addDuplicates(1);
+                    continue;
+                }
+                imported.add(note);
+                notes.add(toNote(note));
+            }
+            if (notes.isEmpty()) {
+                return;
+            }
+
+            List<Note> saved = noteService.importNotes(job.getUserId(), notes);
+            restoreTimestamps(imported, saved);
+            job.addImported(saved.size());
+        }
+
+        private Note toNote(ImportedNote imported) {
+            Note note = Note.builder()
+                    .title(truncate(imported.title()))
+                    .content(imported.content())
+                    .favorite(imported.favorite())
+                    .archived(imported.archived())
+                    .notebook(notebook(imported.notebook()))
+                    .tags(new HashSet<>())
+                    .build();
+            if (imported.tags() != null) {
+                imported.tags().stream()
+                        .filter(name -> name != null && !name.isBlank())
+                        .forEach(name -> note.getTags().add(tag(name)));
+            }
+            if (imported.todos() != null) {
+                note.setTodos(imported.todos().stream()
+                        .filter(todo -> todo.title() != null && !todo.title().isBlank())
+                        .map(todo -> Todo.builder()
+                                .title(truncate(todo.title()))
+                                .done(todo.done())
+                                .dueDate(todo.dueDate())
+                                .note(note)
+                                .build())
+                        .toList());
+            }
+            return note;
+        }
+
+        private Notebook notebook(String name) {
+            if (name == null || name.isBlank()) {
+                return null;
+            }
+            return notebooks.computeIfAbsent(nameKey(name), key -> notebookService.create(
+                    Notebook.builder().name(truncate(name.strip())).userId(job.getUserId()).build()));
+        }
+
+        private Tag tag(String name) {
+            return tags.computeIfAbsent(nameKey(name), key -> tagService.create(
+                    Tag.builder().name(truncate(name.strip())).userId(job.getUserId()).build()));
+        }
+
+        /**
+         * Sets the original timestamps of the saved notes, which Hibernate replaced with the current
+         * time on insert, with one batched statement.
+         */
+        private void restoreTimestamps(List<ImportedNote> imported, List<Note> saved) {
+            List<Object[]> updates = new ArrayList<>();
+            for (int i = 0; i < saved.size(); i++) {
+                ImportedNote note = imported.get(i);
+                LocalDateTime createdAt = note.createdAt() != null ? note.createdAt() : note.updatedAt();
+                if (createdAt != null) {
+                    LocalDateTime updatedAt = note.updatedAt() != null ? note.updatedAt() : createdAt;
+                    updates.add(new Object[]{createdAt, updatedAt, saved.get(i).getId()});
+                }
+            }
+            if (!updates.isEmpty()) {
+                jdbcTemplate.batchUpdate("update note set created_at = ?, updated_at = ? where id = ?", updates);
+            }
+        }
+    }
+
+    private static String duplicateKey(String title, String contentHash) {
+        // notes without content are not deduplicated
+        return contentHash == null ? null : contentHash + title;
+    }
+
+    private static String nameKey(String name) {
+        return name == null ? "" : name.strip().toLowerCase(Locale.ROOT);
+    }
+
+    private static String truncate(String value) {
+        String stripped = value.strip();
+        return stripped.length() > NAME_LENGTH ? stripped.substring(0, NAME_LENGTH) : stripped;
+    }
+
+    private void deleteOrphanedFiles() throws IOException {
+        // jobs don't survive a restart, so none of their uploads are reachable anymore; the directory
+        // may be shared, so anything not named like an upload is left alone
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                file -> UPLOAD_FILE_NAME.matcher(file.getFileName().toString()).matches())) {
+            for (Path file : files) {
+                deleteQuietly(file);
+            }
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete import file {}", file, e);
+        }
+    }
+
+    private String getCurrentUserId() {
+        return SecurityContextHolder.getContext().getAuthentication().getName();
+    }
+
+    /**
+     * Reports the bytes read from the archive to the job.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private final ImportJob job;
+
+        CountingInputStream(InputStream in, ImportJob job) {
+            super(in);
+            this.job = job;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read >= 0) {
+                job.addBytesRead(1);
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                job.addBytesRead(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            long skipped = super.skip(count);
+            job.addBytesRead(skipped);
+            return skipped;
+        }
+    }
+}
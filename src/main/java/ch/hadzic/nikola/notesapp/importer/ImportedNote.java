@@ -0,0 +1,32 @@
+package ch.hadzic.nikola.notesapp.importer;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * A note as read from an archive, before it is mapped onto entities. Notebook and tags are
+ * referenced by name and created for the importing user if they don't exist yet.
+ *
+ * @param notebook  name of the notebook, {@code null} for none
+ * @param createdAt original creation time, {@code null} for the time of the import
+ * @param updatedAt original time of the last change, {@code null} for the creation time
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ImportedNote(
+        String title,
+        String content,
+        String notebook,
+        List<String> tags,
+        boolean favorite,
+        boolean archived,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        List<ImportedTodo> todos) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record ImportedTodo(String title, boolean done, LocalDate dueDate) {
+    }
+}
@@ -0,0 +1,54 @@
+package ch.hadzic.nikola.notesapp.importer;
+
+import ch.hadzic.nikola.notesapp.config.execptions.InvalidImportException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * Reads the notes of a JSON archive one at a time, so only the note being mapped is held in memory.
+ * The archive is either an array of notes or a sequence of notes, e.g. one per line as written by
+ * the JSON export. The fields of a note are those of {@link ImportedNote}; others are ignored.
+ */
+@Component
+public class JsonArchiveReader {
+
+    private final ObjectMapper objectMapper;
+    private final ObjectReader noteReader;
+
+    public JsonArchiveReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.noteReader = objectMapper.readerFor(ImportedNote.class);
+    }
+
+    /**
+     * Passes every note of the archive to {@code notes}, in the order of the archive.
+     *
+     * @throws InvalidImportException if the archive is not valid JSON or contains something else than notes
+     */
+    public void read(InputStream in, Consumer<ImportedNote> notes) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(in)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                token = parser.nextToken();
+            }
+            while (token != null && token != JsonToken.END_ARRAY) {
+                if (token != JsonToken.START_OBJECT) {
+                    throw new InvalidImportException("Invalid JSON archive: expected a note at "
+                            + parser.currentLocation().offsetDescription());
+                }
+                notes.accept(noteReader.readValue(parser));
+                token = parser.nextToken();
+            }
+        } catch (JsonProcessingException e) {
+            throw new InvalidImportException("Invalid JSON archive: " + e.getOriginalMessage());
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package ch.hadzic.nikola.notesapp.importer;
+
+import ch.hadzic.nikola.notesapp.config.execptions.InvalidImportException;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Reads the notes of a zip of Markdown files entry by entry, without extracting the archive.
+ * Every {@code .md} or {@code .markdown} file is a note, other files are ignored.
+ * <ul>
+ *     <li>the top-level folder of a file is the notebook of its note</li>
+ *     <li>a leading YAML front matter may set {@code title}, {@code tags}, {@code notebook},
+ *     {@code favorite}, {@code archived}, {@code created} and {@code updated}</li>
+ *     <li>without a title in the front matter, a leading {@code # heading} or the file name is the title</li>
+ *     <li>task list items ({@code - [ ] ...} and {@code - [x] ...}) become todos and stay in the content</li>
+ * </ul>
+ * Only the simple front matter written by common note apps is understood: scalar values, and lists
+ * either inline ({@code [a, b]}) or one {@code - item} per line.
+ */
+@Component
+public class MarkdownArchiveReader {
+
+    private static final Pattern TASK = Pattern.compile("^\\s*[-*+] \\[([ xX])] (.+)$");
+    private static final Pattern HEADING = Pattern.compile("^# +(.+?)#*\\s*$");
+
+    /**
+     * Passes every note of the archive to {@code notes}, in the order of the archive. Only the first
+     * {@value Note#MAX_CONTENT_LENGTH} characters and one more of a file are read, so a note that is
+     * too long arrives with a content of {@code MAX_CONTENT_LENGTH + 1} characters.
+     *
+     * @throws InvalidImportException if the archive is not a zip file
+     */
+    public void read(InputStream in, Consumer<ImportedNote> notes) throws IOException {
+        ZipInputStream zip = new ZipInputStream(in, StandardCharsets.UTF_8);
+        boolean empty = true;
+        for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+            empty = false;
+            String name = entry.getName();
+            if (entry.isDirectory() || !isMarkdown(name)) {
+                continue;
+            }
+            // the reader is not closed, that would close the archive
+            notes.accept(parse(name, readText(new InputStreamReader(zip, StandardCharsets.UTF_8))));
+        }
+        if (empty) {
+            throw new InvalidImportException("Invalid Markdown archive: not a zip file or no files in it");
+        }
+    }
+
+    static ImportedNote parse(String path, String text) {
+        String[] segments = path.split("/");
+        String fileName = segments[segments.length - 1];
+        Map<String, List<String>> frontMatter = new HashMap<>();
+        String body = text;
+        if (text.startsWith("---\n") || text.startsWith("---\r\n")) {
+            int end = findFrontMatterEnd(text);
+            if (end > 0) {
+                frontMatter = parseFrontMatter(text.substring(text.indexOf('\n') + 1, end));
+                int bodyStart = text.indexOf('\n', end + 1);
+                body = bodyStart < 0 ? "" : text.substring(bodyStart + 1);
+            }
+        }
+
+        String title = first(frontMatter, "title");
+        if (title == null) {
+            title = body.lines()
+                    .filter(line -> !line.isBlank())
+                    .findFirst()
+                    .map(HEADING::matcher)
+                    .filter(Matcher::matches)
+                    .map(heading -> heading.group(1).strip())
+                    .orElse(fileName.substring(0, fileName.lastIndexOf('.')));
+        }
+        String notebook = first(frontMatter, "notebook");
+        if (notebook == null && segments.length > 1) {
+            notebook = segments[0];
+        }
+
+        List<ImportedNote.ImportedTodo> todos = new ArrayList<>();
+        body.lines().map(TASK::matcher).filter(Matcher::matches).forEach(task -> todos.add(
+                new ImportedNote.ImportedTodo(task.group(2).strip(), !task.group(1).isBlank(), null)));
+
+        // tags are often written as #tag
+        List<String> tags = frontMatter.getOrDefault("tags", List.of()).stream()
+                .map(tag -> tag.startsWith("#") ? tag.substring(1) : tag)
+                .toList();
+        return new ImportedNote(title, body, notebook, tags,
+                isTrue(first(frontMatter, "favorite")), isTrue(first(frontMatter, "archived")),
+                parseTime(first(frontMatter, "created")), parseTime(first(frontMatter, "updated")), todos);
+    }
+
+    private static boolean isMarkdown(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        // resource forks and hidden files that archivers add next to the notes
+        boolean hidden = Arrays.stream(name.split("/"))
+                .anyMatch(segment -> segment.startsWith(".") || segment.equals("__MACOSX"));
+        return !hidden && (lower.endsWith(".md") || lower.endsWith(".markdown"));
+    }
+
+    private static String readText(Reader reader) throws IOException {
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[8192];
+        int read;
+        while (text.length() <= Note.MAX_CONTENT_LENGTH && (read = reader.read(buffer)) >= 0) {
+            text.append(buffer, 0, Math.min(read, Note.MAX_CONTENT_LENGTH + 1 - text.length()));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Returns the start of the line closing the front matter, -1 if it is not closed.
+     */
+    private static int findFrontMatterEnd(String text) {
+        int lineStart = text.indexOf('\n') + 1;
+        while (lineStart > 0 && lineStart < text.length()) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            String line = (lineEnd < 0 ? text.substring(lineStart) : text.substring(lineStart, lineEnd)).strip();
+            if (line.equals("---") || line.equals("...")) {
+                return lineStart;
+            }
+            lineStart = lineEnd + 1;
+        }
+        return -1;
+    }
+
+    private static Map<String, List<String>> parseFrontMatter(String yaml) {
+        Map<String, List<String>> values = new HashMap<>();
+        String listKey = null;
+        for (String line : yaml.lines().toList()) {
+            String stripped = line.strip();
+            if (stripped.startsWith("- ") && listKey != null) {
+                values.computeIfAbsent(listKey, key -> new ArrayList<>()).add(unquote(stripped.substring(2)));
+                continue;
+            }
+            int colon = line.indexOf(':');
+            if (colon <= 0 || Character.isWhitespace(line.charAt(0))) {
+                continue;
+            }
+            String key = line.substring(0, colon).strip().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).strip();
+            listKey = value.isEmpty() ? key : null;
+            if (value.startsWith("[") && value.endsWith("]")) {
+                value = value.substring(1, value.length() - 1);
+            }
+            List<String> items = new ArrayList<>();
+            for (String item : key.equals("tags") ? value.split(",") : new String[]{value}) {
+                String unquoted = unquote(item.strip());
+                if (!unquoted.isEmpty()) {
+                    items.add(unquoted);
+                }
+            }
+            values.put(key, items);
+        }
+        return values;
+    }
+
+    private static String unquote(String value) {
+        String stripped = value.strip();
+        if (stripped.length() >= 2 && (stripped.startsWith("\"") && stripped.endsWith("\"")
+                || stripped.startsWith("'") && stripped.endsWith("'"))) {
+            stripped = stripped.substring(1, stripped.length() - 1);
+        }
+        return stripped;
+    }
+
+    private static String first(Map<String, List<String>> frontMatter, String key) {
+        List<String> values = frontMatter.get(key);
+        return values == null || values.isEmpty() ? null : values.getFirst();
+    }
+
+    private static boolean isTrue(String value) {
+        return "true".equalsIgnoreCase(value) || "yes".equalsIgnoreCase(value);
+    }
+
+    private static LocalDateTime parseTime(String value) {
+        if (value == null) {
+            return null;
+        }
+        String iso = value.replace(' ', 'T');
+        try {
+            return LocalDateTime.parse(iso);
+        } catch (DateTimeParseException e) {
+            // try the next form
+        }
+        try {
+            return OffsetDateTime.parse(iso).toLocalDateTime();
+        } catch (DateTimeParseException e) {
+            // try the next form
+        }
+        try {
+            return LocalDate.parse(iso).atStartOfDay();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package ch.hadzic.nikola.notesapp.search;
+
+import ch.hadzic.nikola.notesapp.data.dto.NoteSearchHit;
+import ch.hadzic.nikola.notesapp.data.dto.NoteText;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
+import ch.hadzic.nikola.notesapp.data.service.NoteContentService;
+import ch.hadzic.nikola.notesapp.util.TransactionUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.HtmlUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over note titles and contents, partitioned by user.
+ * Every user has a sorted term dictionary pointing to posting lists (note id to term frequency),
+ * which allows exact and prefix lookups without touching the database. Results are ranked with BM25.
+ * The index is rebuilt from the database on startup and kept up to date by {@code NoteService}
+ * once the surrounding transaction has committed.
+ */
+@Slf4j
+@Component
+public class NoteSearchIndex implements SmartInitializingSingleton {
+
+    static final double K1 = 1.2;
+    static final double B = 0.75;
+    static final int TITLE_WEIGHT = 2;
+    static final double PREFIX_WEIGHT = 0.7;
+    static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    private static final int REBUILD_CHUNK_SIZE = 1000;
+    private static final int SNIPPET_LENGTH = 160;
+    private static final int SNIPPET_LEAD = 40;
+
+    private final NoteRepository noteRepository;
+    private final NoteContentService noteContentService;
+    private final Map<String, UserIndex> indexes = new ConcurrentHashMap<>();
+
+    public NoteSearchIndex(NoteRepository noteRepository, NoteContentService noteContentService) {
+        this.noteRepository = noteRepository;
+        this.noteContentService = noteContentService;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    /**
+     * Drops the index and reads all notes again in chunks of {@value #REBUILD_CHUNK_SIZE}.
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        indexes.clear();
+
+        long afterId = 0;
+        int count = 0;
+        List<NoteText> chunk;
+        do {
+            chunk = noteRepository.findTextsAfter(afterId, Limit.of(REBUILD_CHUNK_SIZE));
+            Map<String, String> contents = noteContentService.loadAll(chunk.stream().map(NoteText::contentHash).toList());
+            for (NoteText text : chunk) {
+                put(text.userId(), text.id(), text.title(), contents.get(text.contentHash()));
+                afterId = text.id();
+            }
+            count += chunk.size();
+        } while (chunk.size() == REBUILD_CHUNK_SIZE);
+
+        log.info("Search index rebuilt with {} notes in {} ms", count, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Adds or replaces a note. Inside a transaction the change is applied after commit.
+     */
+    public void index(Note note) {
+        String userId = note.getUserId();
+        Long id = note.getId();
+        String title = note.getTitle();
+        String content = note.getContent();
+        TransactionUtil.afterCommit(() -> put(userId, id, title, content));
+    }
+
+    /**
+     * Removes a note. Inside a transaction the change is applied after commit.
+     */
+    public void remove(String userId, Long noteId) {
+        TransactionUtil.afterCommit(() -> {
+            UserIndex index = indexes.get(userId);
+            if (index != null) {
+                index.remove(noteId);
+            }
+        });
+    }
+
+    /**
+     * Removes many notes of a user at once. Inside a transaction the change is applied after commit.
+     */
+    public void removeAll(String userId, Collection<Long> noteIds) {
+        List<Long> ids = List.copyOf(noteIds);
+        TransactionUtil.afterCommit(() -> {
+            UserIndex index = indexes.get(userId);
+            if (index != null) {
+                index.removeAll(ids);
+            }
+        });
+    }
+
+    /**
+     * Searches the notes of a user. Every query term also matches terms it is a prefix of,
+     * with a lower weight than an exact match.
+     *
+     * @param userId owner of the notes
+     * @param query  free text query
+     * @param limit  maximum number of hits
+     * @return hits ordered by descending score
+     */
+    public List<NoteSearchHit> search(String userId, String query, int limit) {
+        List<String> queryTerms = NoteTokenizer.terms(query).stream().distinct().toList();
+        UserIndex index = indexes.get(userId);
+        if (queryTerms.isEmpty() || index == null) {
+            return List.of();
+        }
+        return index.search(queryTerms, limit);
+    }
+
+    void put(String userId, Long id, String title, String content) {
+        indexes.computeIfAbsent(userId, key -> new UserIndex()).put(id, title, content);
+    }
+
+    static String snippet(String title, String content, Set<String> matchedTerms) {
+        String text = content == null || content.isBlank() ? title : content;
+        if (text == null) {
+            return "";
+        }
+
+        List<NoteTokenizer.Token> tokens = NoteTokenizer.tokenize(text);
+        int start = tokens.stream()
+                .filter(token -> matchedTerms.contains(token.term()))
+                .findFirst()
+                .map(token -> Math.max(0, token.start() - SNIPPET_LEAD))
+                .orElse(0);
+        if (start > 0) {
+            // don't cut into the middle of a word
+            int from = start;
+            start = tokens.stream()
+                    .mapToInt(NoteTokenizer.Token::start)
+                    .filter(tokenStart -> tokenStart >= from)
+                    .findFirst()
+                    .orElse(from);
+        }
+        int end = Math.min(text.length(), start + SNIPPET_LENGTH);
+
+        StringBuilder snippet = new StringBuilder();
+        if (start > 0) {
+            snippet.append('…');
+        }
+        int position = start;
+        for (NoteTokenizer.Token token : tokens) {
+            if (token.start() < start) {
+                continue;
+            }
+            if (token.end() > end) {
+                break;
+            }
+            if (matchedTerms.contains(token.term())) {
+                snippet.append(HtmlUtils.htmlEscape(text.substring(position, token.start())))
+                        .append("<mark>")
+                        .append(HtmlUtils.htmlEscape(text.substring(token.start(), token.end())))
+                        .append("</mark>");
+                position = token.end();
+            }
+        }
+        snippet.append(HtmlUtils.htmlEscape(text.substring(position, end)));
+        if (end < text.length()) {
+            snippet.append('…');
+        }
+        return snippet.toString();
+    }
+
+    private record IndexedNote(Long id, String title, String content, int length, Map<String, Integer> termFrequencies) {
+    }
+
+    private record ScoredNote(IndexedNote note, double score) {
+    }
+
+    private static final class UserIndex {
+
+        private static final Comparator<ScoredNote> RANKING = Comparator.comparingDouble(ScoredNote::score)
+                .thenComparing(scored -> scored.note().id());
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+        private final Map<Long, IndexedNote> notes = new HashMap<>();
+        private long totalLength;
+
+        void put(Long id, String title, String content) {
+            Map<String, Integer> termFrequencies = new HashMap<>();
+            NoteTokenizer.terms(title).forEach(term -> termFrequencies.merge(term, TITLE_WEIGHT, Integer::sum));
+            NoteTokenizer.terms(content).forEach(term -> termFrequencies.merge(term, 1, Integer::sum));
+            int length = termFrequencies.values().stream().mapToInt(Integer::intValue).sum();
+
+            lock.writeLock().lock();
+            try {
+                removeUnlocked(id);
+                notes.put(id, new IndexedNote(id, title, content, length, termFrequencies));
+                termFrequencies.forEach((term, frequency) ->
+                        postings.computeIfAbsent(term, key -> new HashMap<>()).put(id, frequency));
+                totalLength += length;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(Long id) {
+            lock.writeLock().lock();
+            try {
+                removeUnlocked(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void removeAll(Collection<Long> ids) {
+            lock.writeLock().lock();
+            try {
+                ids.forEach(this::removeUnlocked);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void removeUnlocked(Long id) {
+            IndexedNote previous = notes.remove(id);
+            if (previous == null) {
+                return;
+            }
+            for (String term : previous.termFrequencies().keySet()) {
+                Map<Long, Integer> posting = postings.get(term);
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+            totalLength -= previous.length();
+        }
+
+        List<NoteSearchHit> search(List<String> queryTerms, int limit) {
+            lock.readLock().lock();
+            try {
+                int noteCount = notes.size();
+                if (noteCount == 0) {
+                    return List.of();
+                }
+                double averageLength = (double) totalLength / noteCount;
+
+                Map<Long, Double> scores = new HashMap<>();
+                Set<String> matchedTerms = new HashSet<>();
+                for (String queryTerm : queryTerms) {
+                    // a note matching several expansions of one query term only counts the best one
+                    Map<Long, Double> termScores = new HashMap<>();
+                    int expansions = 0;
+                    for (Map.Entry<String, Map<Long, Integer>> entry : postings.tailMap(queryTerm, true).entrySet()) {
+                        String term = entry.getKey();
+                        if (!term.startsWith(queryTerm) || expansions++ >= MAX_PREFIX_EXPANSIONS) {
+                            break;
+                        }
+                        matchedTerms.add(term);
+                        Map<Long, Integer> posting = entry.getValue();
+                        double weight = term.equals(queryTerm) ? 1.0 : PREFIX_WEIGHT;
+                        double idf = Math.log(1 + (noteCount - posting.size() + 0.5) / (posting.size() + 0.5));
+                        posting.forEach((noteId, frequency) -> {
+                            double normalization = K1 * (1 - B + B * notes.get(noteId).length() / averageLength);
+                            double score = weight * idf * frequency * (K1 + 1) / (frequency + normalization);
+                            termScores.merge(noteId, score, Math::max);
+                        });
+                    }
+                    termScores.forEach((noteId, score) -> scores.merge(noteId, score, Double::sum));
+                }
+
+                PriorityQueue<ScoredNote> top = new PriorityQueue<>(RANKING);
+                scores.forEach((noteId, score) -> {
+                    top.add(new ScoredNote(notes.get(noteId), score));
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                });
+
+                List<ScoredNote> ranked = new ArrayList<>(top);
+                ranked.sort(RANKING.reversed());
+                return ranked.stream()
+                        .map(scored -> new NoteSearchHit(
+                                scored.note().id(),
+                                scored.note().title(),
+                                snippet(scored.note().title(), scored.note().content(), matchedTerms),
+                                scored.score()))
+                        .toList();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+}
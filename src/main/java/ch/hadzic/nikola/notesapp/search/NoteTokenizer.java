@@ -0,0 +1,53 @@
+package ch.hadzic.nikola.notesapp.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits note text into search terms.
+ * A term is a run of letters or digits, lower-cased and stripped of diacritics,
+ * so that "Über" and "uber" end up as the same term.
+ */
+public final class NoteTokenizer {
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{Nd}]+");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    private NoteTokenizer() {
+    }
+
+    /**
+     * A term together with its position in the original text.
+     *
+     * @param term  normalized term
+     * @param start offset of the first character in the original text
+     * @param end   offset after the last character in the original text
+     */
+    public record Token(String term, int start, int end) {
+    }
+
+    public static List<Token> tokenize(String text) {
+        List<Token> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        Matcher matcher = WORD.matcher(text);
+        while (matcher.find()) {
+            tokens.add(new Token(normalize(matcher.group()), matcher.start(), matcher.end()));
+        }
+        return tokens;
+    }
+
+    public static List<String> terms(String text) {
+        return tokenize(text).stream().map(Token::term).toList();
+    }
+
+    static String normalize(String word) {
+        String decomposed = Normalizer.normalize(word, Normalizer.Form.NFKD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,78 @@
+package ch.hadzic.nikola.notesapp.search;
+
+import ch.hadzic.nikola.notesapp.data.dto.TagSummary;
+import ch.hadzic.nikola.notesapp.data.entity.Tag;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+
+/**
+ * Prefix tree over the tag names of one user, for autocompletion.
+ * Names are matched case-insensitively. A trie is built once from the tags of a user and not
+ * changed afterwards, so it can be shared between requests; it is replaced when a tag changes.
+ */
+public final class TagTrie {
+
+    private final Node root = new Node();
+
+    private TagTrie() {
+    }
+
+    public static TagTrie of(Collection<Tag> tags) {
+        TagTrie trie = new TagTrie();
+        for (Tag tag : tags) {
+            if (tag.getName() != null) {
+                trie.add(new TagSummary(tag.getId(), tag.getName()));
+            }
+        }
+        return trie;
+    }
+
+    /**
+     * Returns the tags whose name starts with the prefix, ordered by name.
+     *
+     * @param prefix start of the name, all tags for an empty prefix
+     */
+    public List<TagSummary> find(String prefix) {
+        Node node = root;
+        for (char c : normalize(prefix).toCharArray()) {
+            node = node.children.get(c);
+            if (node == null) {
+                return List.of();
+            }
+        }
+
+        List<TagSummary> tags = new ArrayList<>();
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(node);
+        while (!pending.isEmpty()) {
+            Node current = pending.pop();
+            tags.addAll(current.tags);
+            // pushed in reverse, so children are visited in character order
+            current.children.descendingMap().values().forEach(pending::push);
+        }
+        return tags;
+    }
+
+    private void add(TagSummary tag) {
+        Node node = root;
+        for (char c : normalize(tag.name()).toCharArray()) {
+            node = node.children.computeIfAbsent(c, key -> new Node());
+        }
+        node.tags.add(tag);
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.strip().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Node {
+        private final TreeMap<Character, Node> children = new TreeMap<>();
+        private final List<TagSummary> tags = new ArrayList<>(1);
+    }
+}
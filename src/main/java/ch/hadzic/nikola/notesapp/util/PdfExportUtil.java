@@ -1,47 +1,63 @@
 package ch.hadzic.nikola.notesapp.util;
 
+import ch.hadzic.nikola.notesapp.data.dto.NoteExportRow;
 import ch.hadzic.nikola.notesapp.data.entity.Note;
 import com.lowagie.text.*;
 import com.lowagie.text.pdf.PdfWriter;
 import com.lowagie.text.pdf.draw.LineSeparator;
 
 import java.io.ByteArrayOutputStream;
-import java.util.List;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
 
 /**
  * Utility class for exporting notes to PDF format.
  */
 public class PdfExportUtil {
 
-    public static byte[] exportNotesToPdf(List<Note> notes) {
+    private static final int FLUSH_INTERVAL = 50;
+
+    // looked up once; fonts are only read while rendering, so all documents can share them
+    private static final Font TITLE_FONT = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16);
+    private static final Font BODY_FONT = FontFactory.getFont(FontFactory.HELVETICA, 12);
+
+    /**
+     * Renders the given notes into a PDF written straight to {@code out}.
+     * OpenPDF writes every page to the stream as soon as it is complete, so memory usage
+     * depends on the size of a page, not on the number of notes. The stream is flushed
+     * after every {@value #FLUSH_INTERVAL} notes and left open for the caller.
+     *
+     * @param notes notes to export, consumed lazily
+     * @param out   target stream
+     */
+    public static void exportNotesToPdf(Stream<NoteExportRow> notes, OutputStream out) throws IOException {
         Document document = new Document();
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
 
         try {
-            PdfWriter.getInstance(document, out);
+            PdfWriter writer = PdfWriter.getInstance(document, out);
+            writer.setCloseStream(false);
             document.open();
+            addHeading(document, "Exported Notes");
 
-            Font titleFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16);
-            Font bodyFont = FontFactory.getFont(FontFactory.HELVETICA, 12);
-
-            document.add(new Paragraph("Exported Notes", titleFont));
-            document.add(new Paragraph(" "));
-
-            for (Note note : notes) {
-                document.add(new Paragraph("Title: " + note.getTitle(), titleFont));
-                document.add(new Paragraph("Content: " + note.getContent(), bodyFont));
-                document.add(new Paragraph("Created at: " + DateFormatUtil.format(note.getCreatedAt()), bodyFont));
+            int written = 0;
+            for (NoteExportRow note : (Iterable<NoteExportRow>) notes::iterator) {
+                addNote(document, note.title(), note.content(), note.createdAt());
                 document.add(new Paragraph(" "));
                 document.add(new LineSeparator());
                 document.add(new Paragraph(" "));
+
+                if (++written % FLUSH_INTERVAL == 0) {
+                    out.flush();
+                }
             }
 
             document.close();
+            out.flush();
         } catch (DocumentException e) {
             throw new RuntimeException("Error during creation", e);
         }
-
-        return out.toByteArray();
     }
 
     public static byte[] exportNoteToPdf(Note note) {
@@ -51,16 +67,8 @@ public class PdfExportUtil {
         try {
             PdfWriter.getInstance(document, out);
             document.open();
-
-            Font titleFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16);
-            Font bodyFont = FontFactory.getFont(FontFactory.HELVETICA, 12);
-
-            document.add(new Paragraph("Note", titleFont));
-            document.add(new Paragraph(" "));
-            document.add(new Paragraph("Title: " + note.getTitle(), titleFont));
-            document.add(new Paragraph("Content: " + note.getContent(), bodyFont));
-            document.add(new Paragraph("Created at " + DateFormatUtil.format(note.getCreatedAt()), bodyFont));
-
+            addHeading(document, "Note");
+            addNote(document, note.getTitle(), note.getContent(), note.getCreatedAt());
             document.close();
         } catch (DocumentException e) {
             throw new RuntimeException("Error during creation", e);
@@ -68,4 +76,15 @@ public class PdfExportUtil {
 
         return out.toByteArray();
     }
+
+    private static void addHeading(Document document, String heading) {
+        document.add(new Paragraph(heading, TITLE_FONT));
+        document.add(new Paragraph(" "));
+    }
+
+    private static void addNote(Document document, String title, String content, LocalDateTime createdAt) {
+        document.add(new Paragraph("Title: " + title, TITLE_FONT));
+        document.add(new Paragraph("Content: " + content, BODY_FONT));
+        document.add(new Paragraph("Created at: " + DateFormatUtil.format(createdAt), BODY_FONT));
+    }
 }
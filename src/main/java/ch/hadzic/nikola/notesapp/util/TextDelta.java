@@ -0,0 +1,44 @@
+package ch.hadzic.nikola.notesapp.util;
+
+/**
+ * Difference between two texts as a single splice: the new text keeps {@code prefixLength}
+ * characters from the start and {@code suffixLength} characters from the end of the old text,
+ * with {@code text} in between. An edit at one place of a long text gives a delta of the size
+ * of the edit; edits at several places are covered by one splice from the first to the last.
+ *
+ * @param baseLength   length of the old text, checked when the delta is applied
+ * @param prefixLength number of leading characters kept
+ * @param suffixLength number of trailing characters kept
+ * @param text         characters replacing the rest
+ */
+public record TextDelta(int baseLength, int prefixLength, int suffixLength, String text) {
+
+    /**
+     * Computes the delta turning {@code from} into {@code to}.
+     */
+    public static TextDelta between(String from, String to) {
+        int max = Math.min(from.length(), to.length());
+        int prefix = 0;
+        while (prefix < max && from.charAt(prefix) == to.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < max - prefix
+                && from.charAt(from.length() - 1 - suffix) == to.charAt(to.length() - 1 - suffix)) {
+            suffix++;
+        }
+        return new TextDelta(from.length(), prefix, suffix, to.substring(prefix, to.length() - suffix));
+    }
+
+    /**
+     * Applies the delta to the text it was computed from.
+     *
+     * @throws IllegalArgumentException if the text does not have the length the delta was computed from
+     */
+    public String apply(String from) {
+        if (from.length() != baseLength || prefixLength + suffixLength > baseLength) {
+            throw new IllegalArgumentException("Delta does not match the base text");
+        }
+        return from.substring(0, prefixLength) + text + from.substring(baseLength - suffixLength);
+    }
+}
@@ -0,0 +1,73 @@
+package ch.hadzic.nikola.notesapp.util;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.List;
+
+/**
+ * Utility class for work tied to the current transaction.
+ */
+public class TransactionUtil {
+
+    /**
+     * Runs the action after the surrounding transaction has committed,
+     * or immediately if no transaction is active. Rolled back transactions skip the action.
+     *
+     * @param action work to run
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Inserts the rows as one batch behind a savepoint of the current transaction. If a row exists
+     * already, for instance because a concurrent transaction inserted it first, only the batch is rolled
+     * back and the transaction stays usable. The rows go to the connection of the transaction directly:
+     * the persistence context would keep a failed entity and retry it on the next flush.
+     *
+     * @param jdbcTemplate template bound to the data source of the transaction
+     * @param sql          insert statement
+     * @param rows         arguments of the statement, one array per row
+     * @return {@code false} if a row existed and nothing was inserted
+     */
+    public static boolean tryInsert(JdbcTemplate jdbcTemplate, String sql, List<Object[]> rows) {
+        try {
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                Savepoint savepoint = connection.setSavepoint();
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    for (Object[] row : rows) {
+                        for (int i = 0; i < row.length; i++) {
+                            statement.setObject(i + 1, row[i]);
+                        }
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                } catch (SQLException e) {
+                    connection.rollback(savepoint);
+                    throw e;
+                }
+                connection.releaseSavepoint(savepoint);
+                return null;
+            });
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+}
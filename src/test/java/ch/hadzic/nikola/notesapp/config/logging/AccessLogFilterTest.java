@@ -0,0 +1,93 @@
+package ch.hadzic.nikola.notesapp.config.logging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AccessLogFilterTest {
+
+    private final AccessLogWriter writer = mock(AccessLogWriter.class);
+
+    private AccessLogEntry run(AccessLogFilter filter, String body, int status) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/notes/7");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        FilterChain chain = (req, res) -> {
+            req.getInputStream().readAllBytes();
+            req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/notes/{id}");
+            ((jakarta.servlet.http.HttpServletResponse) res).setStatus(status);
+            res.getOutputStream().write(new byte[42]);
+        };
+        filter.doFilter(request, response, chain);
+
+        ArgumentCaptor<AccessLogEntry> entry = ArgumentCaptor.forClass(AccessLogEntry.class);
+        verify(writer).submit(entry.capture());
+        return entry.getValue();
+    }
+
+    @Test
+    void countsBytesAndUsesRouteTemplate() throws Exception {
+        AccessLogEntry entry = run(new AccessLogFilter(writer, true, 0.0, true, 16), "{\"title\":\"a\"}", 200);
+
+        assertEquals("POST", entry.method());
+        assertEquals("/api/notes/{id}", entry.route());
+        assertEquals("/api/notes/7", entry.uri());
+        assertEquals(200, entry.status());
+        assertEquals(13, entry.bytesIn());
+        assertEquals(42, entry.bytesOut());
+        assertNull(entry.body());
+    }
+
+    @Test
+    void capturesCappedBodyOnError() throws Exception {
+        AccessLogEntry entry = run(new AccessLogFilter(writer, true, 0.0, true, 8), "0123456789abcdef", 400);
+
+        assertEquals(16, entry.bytesIn());
+        assertEquals("01234567...", entry.body());
+    }
+
+    @Test
+    void capturesBodyOfSampledRequests() throws Exception {
+        AccessLogEntry entry = run(new AccessLogFilter(writer, true, 1.0, false, 64), "hello", 200);
+
+        assertEquals("hello", entry.body());
+    }
+
+    @Test
+    void skipsBodyOnErrorWhenCaptureDisabled() throws Exception {
+        AccessLogEntry entry = run(new AccessLogFilter(writer, true, 0.0, false, 64), "hello", 500);
+
+        assertNull(entry.body());
+    }
+
+    @Test
+    void writerEmitsQueuedEntriesAsJsonAndDropsOverflow() throws Exception {
+        ObjectMapper mapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        List<String> lines = new CopyOnWriteArrayList<>();
+        AccessLogWriter accessLogWriter = new AccessLogWriter(mapper, 4, lines::add);
+
+        for (int i = 0; i < 3; i++) {
+            accessLogWriter.submit(new AccessLogEntry(Instant.EPOCH, "GET", "/api/notes", "/api/notes", 200, 5, 0, 10, null));
+        }
+        accessLogWriter.destroy();
+
+        assertEquals(3, lines.size());
+        assertTrue(lines.getFirst().contains("\"route\":\"/api/notes\""));
+        assertFalse(lines.getFirst().contains("\"body\""));
+    }
+}
@@ -0,0 +1,91 @@
+package ch.hadzic.nikola.notesapp.config.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TokenCachingTest {
+
+    private static Jwt jwt(String token, Instant expiresAt, List<String> roles) {
+        return Jwt.withTokenValue(token)
+                .header("alg", "RS256")
+                .subject("user-1")
+                .issuedAt(expiresAt.minusSeconds(3600))
+                .expiresAt(expiresAt)
+                .claim("roles", roles)
+                .claim("resource_access", Map.of("NotesApp", Map.of("roles", List.of(Roles.Admin))))
+                .build();
+    }
+
+    @Test
+    void decoder_validatesEachTokenOnlyOnce() {
+        JwtDecoder delegate = mock(JwtDecoder.class);
+        when(delegate.decode("a")).thenReturn(jwt("a", Instant.now().plusSeconds(300), List.of()));
+        JwtDecoder decoder = new CachingJwtDecoder(delegate, 100);
+
+        Jwt first = decoder.decode("a");
+        Jwt second = decoder.decode("a");
+
+        assertSame(first, second);
+        verify(delegate, times(1)).decode("a");
+    }
+
+    @Test
+    void decoder_doesNotCacheExpiredOrInvalidTokens() {
+        JwtDecoder delegate = mock(JwtDecoder.class);
+        when(delegate.decode("expired")).thenReturn(jwt("expired", Instant.now().minusSeconds(1), List.of()));
+        when(delegate.decode("invalid")).thenThrow(new BadJwtException("bad signature"));
+        JwtDecoder decoder = new CachingJwtDecoder(delegate, 100);
+
+        decoder.decode("expired");
+        decoder.decode("expired");
+        assertThrows(BadJwtException.class, () -> decoder.decode("invalid"));
+        assertThrows(BadJwtException.class, () -> decoder.decode("invalid"));
+
+        verify(delegate, times(2)).decode("expired");
+        verify(delegate, times(2)).decode("invalid");
+    }
+
+    @Test
+    void converter_combinesRealmAndResourceRoles() {
+        AuthenticationRoleConverter converter = new AuthenticationRoleConverter("NotesApp");
+
+        AbstractAuthenticationToken token = converter.convert(
+                jwt("t", Instant.now().plusSeconds(300), List.of(Roles.Read, Roles.Create)));
+
+        Set<String> authorities = token.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toSet());
+        assertEquals(Set.of("ROLE_read", "ROLE_write", "admin"), authorities);
+        assertEquals("user-1", token.getName());
+    }
+
+    @Test
+    void converter_returnsFreshTokensWithSharedAuthorities() {
+        AuthenticationRoleConverter converter = new AuthenticationRoleConverter("NotesApp");
+        Instant expiresAt = Instant.now().plusSeconds(300);
+
+        AbstractAuthenticationToken first = converter.convert(jwt("t1", expiresAt, List.of(Roles.Read)));
+        AbstractAuthenticationToken again = converter.convert(jwt("t1", expiresAt, List.of(Roles.Read)));
+        AbstractAuthenticationToken other = converter.convert(jwt("t2", expiresAt, List.of(Roles.Read)));
+
+        assertNotSame(first, again);
+        GrantedAuthority read = first.getAuthorities().stream()
+                .filter(authority -> authority.getAuthority().equals("ROLE_read"))
+                .findFirst().orElseThrow();
+        assertTrue(again.getAuthorities().stream().anyMatch(authority -> authority == read));
+        assertTrue(other.getAuthorities().stream().anyMatch(authority -> authority == read));
+    }
+}
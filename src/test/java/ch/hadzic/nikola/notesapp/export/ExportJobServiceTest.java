@@ -0,0 +1,194 @@
+package ch.hadzic.nikola.notesapp.export;
+
+import ch.hadzic.nikola.notesapp.config.execptions.ExportJobLimitException;
+import ch.hadzic.nikola.notesapp.config.execptions.ExportJobNotFoundException;
+import ch.hadzic.nikola.notesapp.data.dto.ExportScope;
+import ch.hadzic.nikola.notesapp.data.dto.NoteExportRow;
+import ch.hadzic.nikola.notesapp.data.service.NoteService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ExportJobServiceTest {
+
+    private static final String USER_ID = "user-123";
+
+    @TempDir
+    Path directory;
+
+    private NoteService noteService;
+    private SimpleMeterRegistry meterRegistry;
+    private ExportJobService exportJobService;
+
+    @BeforeEach
+    void setup() throws Exception {
+        noteService = mock(NoteService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        NoteExporters exporters = new NoteExporters(List.of(new PdfRenderer(meterRegistry),
+                new JsonNoteExporter(new ObjectMapper().registerModule(new JavaTimeModule())),
+                new MarkdownNoteExporter()));
+        exportJobService = new ExportJobService(noteService, exporters, directory, 2, 10, 2, Duration.ZERO, false);
+        loginAs(USER_ID);
+    }
+
+    @AfterEach
+    void cleanup() {
+        exportJobService.shutdown();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void submit_writesFileAndReportsProgress() throws Exception {
+        when(noteService.countNotesForExport(USER_ID, ExportScope.ALL)).thenReturn(2L);
+        when(noteService.streamNotesForExport(USER_ID, ExportScope.ALL)).thenReturn(Stream.of(row(1L), row(2L)));
+
+        ExportJob job = exportJobService.submit(ExportFormat.JSON);
+        awaitFinished(job);
+
+        assertEquals(ExportJob.Status.DONE, job.getStatus());
+        assertEquals(2, job.getTotal());
+        assertEquals(2, job.getProcessed());
+        List<String> lines = Files.readAllLines(job.getFile());
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).contains("\"title\":\"Note 1\""));
+        assertEquals(Files.size(job.getFile()), job.getSize());
+    }
+
+    @Test
+    void submit_exportsTheScopedNotesInTheRequestedFormat() throws Exception {
+        ExportScope scope = new ExportScope(7L, null);
+        when(noteService.countNotesForExport(USER_ID, scope)).thenReturn(1L);
+        when(noteService.streamNotesForExport(USER_ID, scope)).thenReturn(Stream.of(row(3L)));
+
+        ExportJob job = exportJobService.submit(ExportFormat.MARKDOWN, scope);
+        awaitFinished(job);
+
+        assertEquals(ExportJob.Status.DONE, job.getStatus());
+        assertEquals(scope, job.getScope());
+        assertTrue(job.getFile().toString().endsWith(".md"));
+        assertTrue(Files.readString(job.getFile()).contains("## Note 3"));
+        verify(noteService, never()).streamNotesForExport(USER_ID, ExportScope.ALL);
+    }
+
+    @Test
+    void submit_rejectsJobsBeyondPerUserLimit() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(noteService.streamNotesForExport(USER_ID, ExportScope.ALL)).thenAnswer(inv -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Stream.<NoteExportRow>empty();
+        });
+
+        ExportJob first = exportJobService.submit(ExportFormat.PDF);
+        ExportJob second = exportJobService.submit(ExportFormat.PDF);
+        assertThrows(ExportJobLimitException.class, () -> exportJobService.submit(ExportFormat.PDF));
+
+        release.countDown();
+        awaitFinished(first);
+        awaitFinished(second);
+        assertDoesNotThrow(() -> exportJobService.submit(ExportFormat.PDF));
+    }
+
+    @Test
+    void getJob_hidesJobsOfOtherUsers() throws Exception {
+        when(noteService.streamNotesForExport(USER_ID, ExportScope.ALL)).thenReturn(Stream.empty());
+        ExportJob job = exportJobService.submit(ExportFormat.PDF);
+
+        loginAs("other");
+        assertThrows(ExportJobNotFoundException.class, () -> exportJobService.getJob(job.getId()));
+    }
+
+    @Test
+    void failedExport_leavesNoPartialFile() throws Exception {
+        when(noteService.streamNotesForExport(USER_ID, ExportScope.ALL)).thenThrow(new IllegalStateException("db down"));
+
+        ExportJob job = exportJobService.submit(ExportFormat.PDF);
+        awaitFinished(job);
+
+        assertEquals(ExportJob.Status.FAILED, job.getStatus());
+        assertNull(job.getFile());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void expireJobs_removesFinishedJobsAndFiles() throws Exception {
+        when(noteService.streamNotesForExport(USER_ID, ExportScope.ALL)).thenReturn(Stream.of(row(1L)));
+        ExportJob job = exportJobService.submit(ExportFormat.PDF);
+        awaitFinished(job);
+        assertTrue(Files.exists(job.getFile()));
+
+        exportJobService.expireJobs();
+
+        assertFalse(Files.exists(job.getFile()));
+        assertThrows(ExportJobNotFoundException.class, () -> exportJobService.getJob(job.getId()));
+    }
+
+    @Test
+    void startup_deletesOnlyJobFiles() throws Exception {
+        String jobId = UUID.randomUUID().toString();
+        Path export = Files.writeString(directory.resolve(jobId + ".pdf"), "old export");
+        Path partial = Files.writeString(directory.resolve(jobId + ".part"), "old export");
+        Path foreign = Files.writeString(directory.resolve("notes.pdf"), "not ours");
+        Path foreignPartial = Files.writeString(directory.resolve("download.part"), "not ours");
+
+        new ExportJobService(noteService, mock(NoteExporters.class), directory, 1, 1, 1, Duration.ZERO, false).shutdown();
+
+        assertFalse(Files.exists(export));
+        assertFalse(Files.exists(partial));
+        assertTrue(Files.exists(foreign));
+        assertTrue(Files.exists(foreignPartial));
+    }
+
+    @Test
+    void pdfExport_recordsRenderTimeAndSize() throws Exception {
+        when(noteService.streamNotesForExport(USER_ID, ExportScope.ALL)).thenReturn(Stream.of(row(1L), row(2L)));
+        ExportJob job = exportJobService.submit(ExportFormat.PDF);
+        awaitFinished(job);
+
+        DistributionSummary size = meterRegistry.get("notesapp.pdf.size").tag("kind", "notes").summary();
+        assertEquals(1, size.count());
+        assertEquals(Files.size(job.getFile()), (long) size.totalAmount());
+        assertEquals(1, meterRegistry.get("notesapp.pdf.render").tag("kind", "notes").timer().count());
+    }
+
+    private static NoteExportRow row(Long id) {
+        LocalDateTime createdAt = LocalDateTime.of(2025, 1, 1, 12, 0);
+        return new NoteExportRow(id, "Note " + id, "content", null, List.of(), false, createdAt, createdAt);
+    }
+
+    private static void awaitFinished(ExportJob job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!job.isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(job.isFinished(), "job did not finish in time");
+    }
+
+    private static void loginAs(String userId) {
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(new UsernamePasswordAuthenticationToken(userId, "pw"));
+        SecurityContextHolder.setContext(context);
+    }
+}
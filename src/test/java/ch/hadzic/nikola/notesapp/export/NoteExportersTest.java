@@ -0,0 +1,180 @@
+package ch.hadzic.nikola.notesapp.export;
+
+import ch.hadzic.nikola.notesapp.data.dto.NoteExportRow;
+import ch.hadzic.nikola.notesapp.importer.ImportedNote;
+import ch.hadzic.nikola.notesapp.importer.MarkdownArchiveReader;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NoteExportersTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2025, 1, 1, 12, 0);
+    private static final LocalDateTime UPDATED = LocalDateTime.of(2025, 2, 1, 8, 30);
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final NoteExporters exporters = new NoteExporters(List.of(
+            new PdfRenderer(new SimpleMeterRegistry()), new MarkdownNoteExporter(), new JsonNoteExporter(objectMapper),
+            new HtmlNoteExporter(), new ZipNoteExporter()));
+
+    @Test
+    void everyFormat_hasAnExporterThatKeepsTheStreamOpen() throws Exception {
+        for (ExportFormat format : ExportFormat.values()) {
+            AtomicBoolean closed = new AtomicBoolean();
+            ByteArrayOutputStream out = new ByteArrayOutputStream() {
+                @Override
+                public void close() {
+                    closed.set(true);
+                }
+            };
+
+            exporters.get(format).export(Stream.of(sample()), out);
+
+            assertEquals(format, exporters.get(format).getFormat());
+            assertTrue(out.size() > 0, format + " wrote nothing");
+            assertFalse(closed.get(), format + " closed the caller's stream");
+        }
+    }
+
+    @Test
+    void markdown_writesHeadingAndDetailsPerNote() throws Exception {
+        String markdown = export(ExportFormat.MARKDOWN, sample());
+
+        assertTrue(markdown.startsWith("# Exported Notes\n"));
+        assertTrue(markdown.contains("\n## Plan\n\n- Notebook: Work\n- Tags: q1, urgent\n- Favorite\n"));
+        assertTrue(markdown.contains("\nline one\nline two\n\n---\n"));
+    }
+
+    @Test
+    void json_writesOneObjectPerLine() throws Exception {
+        String json = export(ExportFormat.JSON, sample(), row(2L, "Second", null, List.of()));
+
+        List<String> lines = json.lines().toList();
+        assertEquals(2, lines.size());
+        JsonNode first = objectMapper.readTree(lines.getFirst());
+        assertEquals("Plan", first.get("title").asText());
+        assertEquals("Work", first.get("notebook").asText());
+        assertEquals(2, first.get("tags").size());
+        assertEquals(2L, objectMapper.readTree(lines.get(1)).get("id").asLong());
+    }
+
+    @Test
+    void html_escapesNoteValues() throws Exception {
+        String html = export(ExportFormat.HTML, row(1L, "<script>alert(1)</script>", null, List.of("a&b")));
+
+        assertTrue(html.startsWith("<!DOCTYPE html>"));
+        assertTrue(html.trim().endsWith("</html>"));
+        assertFalse(html.contains("<script>"));
+        assertTrue(html.contains("&lt;script&gt;"));
+        assertTrue(html.contains("a&amp;b"));
+    }
+
+    @Test
+    void zip_isReadBackByTheMarkdownImport() throws Exception {
+        NoteExportRow loose = row(2L, "#1: \"quoted\" / odd", null, List.of());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporters.get(ExportFormat.ZIP).export(Stream.of(sample(), loose), out);
+
+        List<ImportedNote> notes = new ArrayList<>();
+        new MarkdownArchiveReader().read(new ByteArrayInputStream(out.toByteArray()), notes::add);
+
+        assertEquals(2, notes.size());
+        ImportedNote plan = notes.getFirst();
+        assertEquals("Plan", plan.title());
+        assertEquals("line one\nline two", plan.content());
+        assertEquals("Work", plan.notebook());
+        assertEquals(List.of("q1", "urgent"), plan.tags());
+        assertTrue(plan.favorite());
+        assertEquals(CREATED, plan.createdAt());
+        assertEquals(UPDATED, plan.updatedAt());
+        assertEquals(loose.title(), notes.get(1).title());
+        assertNull(notes.get(1).notebook());
+    }
+
+    @Test
+    void textFormats_streamBeforeAllNotesAreRead() throws Exception {
+        for (ExportFormat format : List.of(ExportFormat.MARKDOWN, ExportFormat.JSON, ExportFormat.HTML, ExportFormat.ZIP)) {
+            AtomicLong written = new AtomicLong();
+            AtomicLong writtenAtLastNote = new AtomicLong(-1);
+            OutputStream counting = new OutputStream() {
+                @Override
+                public void write(int b) {
+                    written.incrementAndGet();
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    written.addAndGet(len);
+                }
+            };
+            int count = 1000;
+            Stream<NoteExportRow> notes = LongStream.rangeClosed(1, count)
+                    .mapToObj(id -> row(id, "Note " + id, "Notebook", List.of("tag")))
+                    .peek(note -> {
+                        if (note.id() == count) {
+                            writtenAtLastNote.set(written.get());
+                        }
+                    });
+
+            exporters.get(format).export(notes, counting);
+
+            assertTrue(writtenAtLastNote.get() > written.get() / 2,
+                    format + " written before last note: " + writtenAtLastNote.get() + " of " + written.get());
+        }
+    }
+
+    @Test
+    void negotiate_picksTheMostPreferredFormat() {
+        assertEquals(Optional.of(ExportFormat.PDF), exporters.negotiate(List.of()));
+        assertEquals(Optional.of(ExportFormat.PDF), exporters.negotiate(MediaType.parseMediaTypes("*/*")));
+        assertEquals(Optional.of(ExportFormat.MARKDOWN), exporters.negotiate(MediaType.parseMediaTypes("text/*")));
+        assertEquals(Optional.of(ExportFormat.HTML),
+                exporters.negotiate(MediaType.parseMediaTypes("application/x-ndjson;q=0.5, text/html")));
+        assertEquals(Optional.of(ExportFormat.JSON),
+                exporters.negotiate(MediaType.parseMediaTypes("application/x-ndjson, text/html")));
+        assertEquals(Optional.of(ExportFormat.JSON),
+                exporters.negotiate(MediaType.parseMediaTypes("application/pdf;q=0, application/*")));
+        assertEquals(Optional.of(ExportFormat.ZIP),
+                exporters.negotiate(MediaType.parseMediaTypes("application/*;q=0.5, application/zip")));
+        assertEquals(Optional.empty(), exporters.negotiate(MediaType.parseMediaTypes("image/png, text/html;q=0")));
+    }
+
+    @Test
+    void constructor_rejectsTwoExportersForOneFormat() {
+        assertThrows(IllegalStateException.class,
+                () -> new NoteExporters(List.of(new MarkdownNoteExporter(), new MarkdownNoteExporter())));
+    }
+
+    private String export(ExportFormat format, NoteExportRow... notes) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporters.get(format).export(Stream.of(notes), out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static NoteExportRow sample() {
+        return new NoteExportRow(1L, "Plan", "line one\nline two", "Work", List.of("q1", "urgent"), true,
+                CREATED, UPDATED);
+    }
+
+    private static NoteExportRow row(Long id, String title, String notebook, List<String> tags) {
+        return new NoteExportRow(id, title, "content of " + title, notebook, tags, false, CREATED, null);
+    }
+}
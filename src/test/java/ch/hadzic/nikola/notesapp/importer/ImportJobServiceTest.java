@@ -0,0 +1,40 @@
+package ch.hadzic.nikola.notesapp.importer;
+
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
+import ch.hadzic.nikola.notesapp.data.service.NoteService;
+import ch.hadzic.nikola.notesapp.data.service.NotebookService;
+import ch.hadzic.nikola.notesapp.data.service.TagService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class ImportJobServiceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void startup_deletesOnlyUploads() throws Exception {
+        Path upload = Files.writeString(directory.resolve(UUID.randomUUID() + ".upload"), "old upload");
+        Path foreign = Files.writeString(directory.resolve("notes.zip"), "not ours");
+        Path foreignUpload = Files.writeString(directory.resolve("archive.upload"), "not ours");
+
+        new ImportJobService(mock(NoteService.class), mock(TagService.class), mock(NotebookService.class),
+                mock(NoteRepository.class), new MarkdownArchiveReader(), mock(JsonArchiveReader.class),
+                mock(JdbcTemplate.class), mock(PlatformTransactionManager.class), directory, 1, 1, 1,
+                Duration.ZERO, 1, false).shutdown();
+
+        assertFalse(Files.exists(upload));
+        assertTrue(Files.exists(foreign));
+        assertTrue(Files.exists(foreignUpload));
+    }
+}
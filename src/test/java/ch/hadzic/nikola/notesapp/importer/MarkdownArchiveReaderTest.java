@@ -0,0 +1,99 @@
+package ch.hadzic.nikola.notesapp.importer;
+
+import ch.hadzic.nikola.notesapp.config.execptions.InvalidImportException;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MarkdownArchiveReaderTest {
+
+    private final MarkdownArchiveReader reader = new MarkdownArchiveReader();
+
+    @Test
+    void parse_readsFrontMatterAndTasks() {
+        ImportedNote note = MarkdownArchiveReader.parse("Work/plan.md", """
+                ---
+                title: "Quarter: plan"
+                tags: [work, '#planning']
+                favorite: true
+                created: 2023-04-05 10:15:00
+                ---
+                Goals
+                - [ ] write report
+                - [x] book rooms
+                """);
+
+        assertEquals("Quarter: plan", note.title());
+        assertEquals("Goals\n- [ ] write report\n- [x] book rooms\n", note.content());
+        assertEquals("Work", note.notebook());
+        assertEquals(List.of("work", "planning"), note.tags());
+        assertTrue(note.favorite());
+        assertFalse(note.archived());
+        assertEquals(LocalDateTime.of(2023, 4, 5, 10, 15), note.createdAt());
+        assertNull(note.updatedAt());
+        assertEquals(List.of(new ImportedNote.ImportedTodo("write report", false, null),
+                new ImportedNote.ImportedTodo("book rooms", true, null)), note.todos());
+    }
+
+    @Test
+    void parse_takesTitleFromHeadingOrFileName() {
+        assertEquals("Shopping", MarkdownArchiveReader.parse("list.md", "\n# Shopping\nmilk").title());
+        assertEquals("list", MarkdownArchiveReader.parse("list.md", "milk\n# Shopping").title());
+        assertEquals("tags", MarkdownArchiveReader.parse("x.md", "---\ntags:\n  - a\n  - b\n---\n# tags").title());
+        assertEquals(List.of("a", "b"),
+                MarkdownArchiveReader.parse("x.md", "---\ntags:\n  - a\n  - b\n---\n").tags());
+        assertNull(MarkdownArchiveReader.parse("list.md", "").notebook());
+    }
+
+    @Test
+    void read_skipsOtherAndHiddenFiles() throws IOException {
+        byte[] archive = zip("a.md", "# A", "b.txt", "text", ".trash/c.md", "# C",
+                "__MACOSX/._a.md", "fork", "dir/d.markdown", "# D");
+
+        List<ImportedNote> notes = new ArrayList<>();
+        reader.read(new ByteArrayInputStream(archive), notes::add);
+
+        assertEquals(List.of("A", "D"), notes.stream().map(ImportedNote::title).toList());
+    }
+
+    @Test
+    void read_cutsContentAfterMaxLength() throws IOException {
+        byte[] archive = zip("long.md", "x".repeat(Note.MAX_CONTENT_LENGTH + 100));
+
+        List<ImportedNote> notes = new ArrayList<>();
+        reader.read(new ByteArrayInputStream(archive), notes::add);
+
+        assertEquals(Note.MAX_CONTENT_LENGTH + 1, notes.getFirst().content().length());
+    }
+
+    @Test
+    void read_rejectsWhatIsNoZipFile() {
+        byte[] text = "# not a zip".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(InvalidImportException.class, () -> reader.read(new ByteArrayInputStream(text), note -> {
+        }));
+    }
+
+    static byte[] zip(String... namesAndTexts) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < namesAndTexts.length; i += 2) {
+                zip.putNextEntry(new ZipEntry(namesAndTexts[i]));
+                zip.write(namesAndTexts[i + 1].getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
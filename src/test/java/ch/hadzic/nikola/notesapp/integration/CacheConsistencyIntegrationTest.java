@@ -0,0 +1,218 @@
+package ch.hadzic.nikola.notesapp.integration;
+
+import ch.hadzic.nikola.notesapp.config.TestSecurityConfig;
+import ch.hadzic.nikola.notesapp.config.cache.CacheConfig;
+import ch.hadzic.nikola.notesapp.config.cache.EntityCache;
+import ch.hadzic.nikola.notesapp.config.execptions.NoteNotFoundException;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.entity.Notebook;
+import ch.hadzic.nikola.notesapp.data.entity.Tag;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NotebookRepository;
+import ch.hadzic.nikola.notesapp.data.repository.TagRepository;
+import ch.hadzic.nikola.notesapp.data.service.ChangeLogService;
+import ch.hadzic.nikola.notesapp.data.service.NoteContentService;
+import ch.hadzic.nikola.notesapp.data.service.NoteRevisionService;
+import ch.hadzic.nikola.notesapp.data.service.NoteService;
+import ch.hadzic.nikola.notesapp.data.service.StatsService;
+import ch.hadzic.nikola.notesapp.data.service.NotebookService;
+import ch.hadzic.nikola.notesapp.data.service.TagService;
+import ch.hadzic.nikola.notesapp.search.NoteSearchIndex;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs without a test transaction, so every service call commits and the
+ * after-commit evictions behave like in production.
+ */
+@DataJpaTest
+@Import({NoteService.class, NoteSearchIndex.class, EntityCache.class, CacheConfig.class, ChangeLogService.class,
+        NoteContentService.class, NoteRevisionService.class, TagService.class, NotebookService.class,
+        StatsService.class, TestSecurityConfig.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CacheConsistencyIntegrationTest {
+
+    private static final String USER_1 = "user1";
+    private static final String USER_2 = "user2";
+
+    @Autowired
+    private NoteService noteService;
+    @Autowired
+    private TagService tagService;
+    @Autowired
+    private NotebookService notebookService;
+    @Autowired
+    private NoteRepository noteRepository;
+    @Autowired
+    private TagRepository tagRepository;
+    @Autowired
+    private NotebookRepository notebookRepository;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private EntityCache entityCache;
+
+    @BeforeEach
+    void setUp() {
+        loginAs(USER_1);
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        noteRepository.findAll().forEach(note -> {
+            note.setTags(new HashSet<>());
+            noteRepository.save(note);
+        });
+        noteRepository.deleteAllInBatch();
+        tagRepository.deleteAllInBatch();
+        notebookRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void t051_getNoteById_isServedFromCacheOnSecondRead() {
+        Note note = noteService.createNote(Note.builder().title("cached").build());
+        CacheStats before = nativeCache(CacheConfig.NOTES).stats();
+
+        noteService.getNoteById(note.getId());
+        noteService.getNoteById(note.getId());
+
+        CacheStats delta = nativeCache(CacheConfig.NOTES).stats().minus(before);
+        assertEquals(1, delta.hitCount());
+        assertEquals(1, delta.missCount());
+    }
+
+    @Test
+    void t052_updateNote_isVisibleImmediately() {
+        Note note = noteService.createNote(Note.builder().title("before").build());
+        noteService.getNoteById(note.getId());
+
+        noteService.updateNote(Note.builder().id(note.getId()).title("after").build());
+
+        assertEquals("after", noteService.getNoteById(note.getId()).getTitle());
+    }
+
+    @Test
+    void t053_deleteNote_isNotServedFromCache() {
+        Note note = noteService.createNote(Note.builder().title("doomed").build());
+        noteService.getNoteById(note.getId());
+
+        noteService.deleteNote(note.getId());
+
+        assertThrows(NoteNotFoundException.class, () -> noteService.getNoteById(note.getId()));
+    }
+
+    @Test
+    void t054_tagReassignment_andRename_areVisibleOnCachedNote() {
+        Tag first = tagService.create(Tag.builder().name("first").userId(USER_1).build());
+        Tag second = tagService.create(Tag.builder().name("second").userId(USER_1).build());
+        Note note = noteService.createNote(Note.builder().title("tagged").tags(Set.of(first)).build());
+        assertEquals(Set.of("first"), tagNames(note.getId()));
+
+        noteService.updateNote(Note.builder().id(note.getId()).title("tagged").tags(Set.of(second)).build());
+        assertEquals(Set.of("second"), tagNames(note.getId()));
+
+        tagService.update(Tag.builder().id(second.getId()).name("renamed").build());
+        assertEquals(Set.of("renamed"), tagNames(note.getId()));
+    }
+
+    @Test
+    void t055_notebookRename_isVisibleOnCachedNote() {
+        Notebook notebook = notebookService.create(Notebook.builder().name("old").userId(USER_1).build());
+        Note note = noteService.createNote(Note.builder().title("in notebook").notebook(notebook).build());
+        assertEquals("old", noteService.getNoteById(note.getId()).getNotebook().getName());
+
+        notebookService.update(Notebook.builder().id(notebook.getId()).name("new").build());
+
+        assertEquals("new", noteService.getNoteById(note.getId()).getNotebook().getName());
+    }
+
+    @Test
+    void t056_tagAndNotebookLists_areInvalidatedOnCreate() {
+        assertTrue(tagService.getAllForUser(USER_1).isEmpty());
+        assertTrue(notebookService.getAllForUser(USER_1).isEmpty());
+
+        tagService.create(Tag.builder().name("fresh").userId(USER_1).build());
+        notebookService.create(Notebook.builder().name("fresh").userId(USER_1).build());
+
+        assertEquals(1, tagService.getAllForUser(USER_1).size());
+        assertEquals(1, notebookService.getAllForUser(USER_1).size());
+    }
+
+    @Test
+    void t057_cachedNote_isNotServedToOtherUser() {
+        Note note = noteService.createNote(Note.builder().title("private").build());
+        noteService.getNoteById(note.getId());
+
+        loginAs(USER_2);
+
+        assertThrows(SecurityException.class, () -> noteService.getNoteById(note.getId()));
+    }
+
+    @Test
+    void t058_notebookUpdate_keepsTheDescription() {
+        Notebook notebook = notebookService.create(
+                Notebook.builder().name("notebook").description("old").userId(USER_1).build());
+        Note note = noteService.createNote(Note.builder().title("in notebook").notebook(notebook).build());
+        noteService.getNoteById(note.getId());
+
+        notebookService.update(Notebook.builder().id(notebook.getId()).name("notebook").description("new").build());
+
+        assertEquals("new", notebookRepository.findById(notebook.getId()).orElseThrow().getDescription());
+        assertEquals("new", notebookService.getAllForUser(USER_1).getFirst().getDescription());
+        assertEquals("new", noteService.getNoteById(note.getId()).getNotebook().getDescription());
+    }
+
+    @Test
+    void t059_loadOverlappingAnEviction_isNotKept() {
+        Note note = noteService.createNote(Note.builder().title("before").build());
+        Note stale = noteRepository.findById(note.getId()).orElseThrow();
+
+        Note loaded = entityCache.getNote(USER_1, note.getId(), () -> {
+            // a write commits while the reader still holds the old row
+            noteService.updateNote(Note.builder().id(note.getId()).title("after").build());
+            return stale;
+        });
+
+        assertEquals("before", loaded.getTitle());
+        assertNull(entityCache.peekNote(USER_1, note.getId()));
+        assertEquals("after", noteService.getNoteById(note.getId()).getTitle());
+        assertNotNull(entityCache.peekNote(USER_1, note.getId()));
+    }
+
+    private Set<String> tagNames(Long noteId) {
+        Set<String> names = new HashSet<>();
+        noteService.getNoteById(noteId).getTags().forEach(tag -> names.add(tag.getName()));
+        return names;
+    }
+
+    private Cache<?, ?> nativeCache(String name) {
+        return (Cache<?, ?>) cacheManager.getCache(name).getNativeCache();
+    }
+
+    private void loginAs(String userId) {
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(new UsernamePasswordAuthenticationToken(userId, "pw"));
+        SecurityContextHolder.setContext(context);
+    }
+}
@@ -0,0 +1,254 @@
+package ch.hadzic.nikola.notesapp.integration;
+
+import ch.hadzic.nikola.notesapp.config.TestSecurityConfig;
+import ch.hadzic.nikola.notesapp.config.cache.CacheConfig;
+import ch.hadzic.nikola.notesapp.config.cache.EntityCache;
+import ch.hadzic.nikola.notesapp.config.execptions.PreconditionFailedException;
+import ch.hadzic.nikola.notesapp.controller.NoteController;
+import ch.hadzic.nikola.notesapp.data.dto.NoteVersion;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.entity.Notebook;
+import ch.hadzic.nikola.notesapp.data.entity.Tag;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NotebookRepository;
+import ch.hadzic.nikola.notesapp.data.repository.TagRepository;
+import ch.hadzic.nikola.notesapp.data.service.ChangeLogService;
+import ch.hadzic.nikola.notesapp.data.service.NoteBatchService;
+import ch.hadzic.nikola.notesapp.data.service.NoteContentService;
+import ch.hadzic.nikola.notesapp.data.service.NoteRevisionService;
+import ch.hadzic.nikola.notesapp.data.service.NoteService;
+import ch.hadzic.nikola.notesapp.data.service.NotebookService;
+import ch.hadzic.nikola.notesapp.data.service.StatsService;
+import ch.hadzic.nikola.notesapp.data.service.TagService;
+import ch.hadzic.nikola.notesapp.events.ChangeEventStreamService;
+import ch.hadzic.nikola.notesapp.search.NoteSearchIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs without a test transaction, so versions are bumped after real commits.
+ */
+@DataJpaTest
+@ImportAutoConfiguration(ValidationAutoConfiguration.class)
+@Import({NoteService.class, NoteSearchIndex.class, EntityCache.class, CacheConfig.class, ChangeLogService.class,
+        NoteContentService.class, NoteRevisionService.class, TagService.class, StatsService.class,
+        NoteBatchService.class, ChangeEventStreamService.class, NotebookService.class, TestSecurityConfig.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ConditionalRequestIntegrationTest {
+
+    private static final String USER_1 = "user1";
+    private static final String USER_2 = "user2";
+
+    @Autowired
+    private NoteService noteService;
+    @Autowired
+    private TagService tagService;
+    @Autowired
+    private NoteBatchService noteBatchService;
+    @Autowired
+    private ChangeEventStreamService changeEventStreamService;
+    @Autowired
+    private NoteRepository noteRepository;
+    @Autowired
+    private TagRepository tagRepository;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private NotebookService notebookService;
+    @Autowired
+    private NotebookRepository notebookRepository;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new NoteController(noteService, noteBatchService, changeEventStreamService))
+                .build();
+        loginAs(USER_1);
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        noteRepository.findAll().forEach(note -> {
+            note.setTags(new HashSet<>());
+            noteRepository.save(note);
+        });
+        noteRepository.deleteAllInBatch();
+        tagRepository.deleteAllInBatch();
+        notebookRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void t061_noteVersion_matchesTheReturnedNote() {
+        Note created = noteService.createNote(Note.builder().title("v1").build());
+        assertEquals(NoteVersion.of(created).eTag(), noteService.getNoteVersion(created.getId()).eTag());
+
+        Note updated = noteService.updateNote(Note.builder().id(created.getId()).title("v2").build());
+        assertNotEquals(NoteVersion.of(created).eTag(), NoteVersion.of(updated).eTag());
+        assertEquals(NoteVersion.of(updated).eTag(), noteService.getNoteVersion(created.getId()).eTag());
+
+        // served from the cache this time
+        noteService.getNoteById(created.getId());
+        assertEquals(NoteVersion.of(updated).eTag(), noteService.getNoteVersion(created.getId()).eTag());
+    }
+
+    @Test
+    void t062_updateNote_withStaleIfMatch_isRejected() {
+        Note created = noteService.createNote(Note.builder().title("original").build());
+        String eTag = NoteVersion.of(created).eTag();
+        noteService.updateNote(Note.builder().id(created.getId()).title("first writer").build(), eTag);
+
+        assertThrows(PreconditionFailedException.class, () ->
+                noteService.updateNote(Note.builder().id(created.getId()).title("second writer").build(), eTag));
+
+        assertEquals("first writer", noteService.getNoteById(created.getId()).getTitle());
+    }
+
+    @Test
+    void t063_updateNote_withMatchingOrWildcardIfMatch_succeeds() {
+        Note created = noteService.createNote(Note.builder().title("original").build());
+
+        Note updated = noteService.updateNote(Note.builder().id(created.getId()).title("matched").build(),
+                "\"other\", " + NoteVersion.of(created).eTag());
+        assertEquals("matched", updated.getTitle());
+
+        updated = noteService.updateNote(Note.builder().id(created.getId()).title("wildcard").build(), "*");
+        assertEquals("wildcard", updated.getTitle());
+    }
+
+    @Test
+    void t064_listingETag_changesOnlyWithWrites() {
+        String initial = noteService.getListingETagForCurrentUser();
+        assertEquals(initial, noteService.getListingETagForCurrentUser());
+
+        Note note = noteService.createNote(Note.builder().title("listed").build());
+        String afterCreate = noteService.getListingETagForCurrentUser();
+        assertNotEquals(initial, afterCreate);
+
+        noteService.getNoteById(note.getId());
+        assertEquals(afterCreate, noteService.getListingETagForCurrentUser());
+
+        noteService.updateNote(Note.builder().id(note.getId()).title("changed").build());
+        String afterUpdate = noteService.getListingETagForCurrentUser();
+        assertNotEquals(afterCreate, afterUpdate);
+
+        noteService.deleteNote(note.getId());
+        assertNotEquals(afterUpdate, noteService.getListingETagForCurrentUser());
+    }
+
+    @Test
+    void t065_listingETag_changesWhenTagIsRenamed() {
+        Tag tag = tagService.create(Tag.builder().name("old").userId(USER_1).build());
+        String before = noteService.getListingETagForCurrentUser();
+
+        tagService.update(Tag.builder().id(tag.getId()).name("new").build());
+
+        assertNotEquals(before, noteService.getListingETagForCurrentUser());
+    }
+
+    @Test
+    void t066_noteVersion_ofOtherUser_isNotRevealed() {
+        Note note = noteService.createNote(Note.builder().title("private").build());
+
+        loginAs(USER_2);
+
+        assertThrows(SecurityException.class, () -> noteService.getNoteVersion(note.getId()));
+        assertThrows(SecurityException.class, () ->
+                noteService.updateNote(Note.builder().id(note.getId()).title("x").build(), "*"));
+    }
+
+    @Test
+    void t067_noteETag_changesWhenItsTagIsRenamed() throws Exception {
+        Tag tag = tagService.create(Tag.builder().name("old").userId(USER_1).build());
+        Note note = noteService.createNote(Note.builder().title("tagged").tags(Set.of(tag)).build());
+        LocalDateTime updatedAt = noteRepository.findById(note.getId()).orElseThrow().getUpdatedAt();
+        String eTag = eTagOf(note.getId());
+
+        tagService.update(Tag.builder().id(tag.getId()).name("old").build());
+        mockMvc.perform(get("/api/notes/{id}", note.getId()).header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+
+        tagService.update(Tag.builder().id(tag.getId()).name("renamed").build());
+
+        mockMvc.perform(get("/api/notes/{id}", note.getId()).header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tags[*].name", contains("renamed")));
+        // the note itself has not been changed
+        assertEquals(updatedAt, noteRepository.findById(note.getId()).orElseThrow().getUpdatedAt());
+    }
+
+    @Test
+    void t068_noteETag_changesWhenItsNotebookIsChanged() throws Exception {
+        Notebook notebook = notebookService.create(Notebook.builder().name("old").userId(USER_1).build());
+        Note note = noteService.createNote(Note.builder().title("filed").notebook(notebook).build());
+        String eTag = eTagOf(note.getId());
+
+        notebookService.update(Notebook.builder().id(notebook.getId()).name("old").build());
+        mockMvc.perform(get("/api/notes/{id}", note.getId()).header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+
+        notebookService.update(Notebook.builder().id(notebook.getId()).name("renamed").build());
+
+        String renamed = eTagOf(note.getId());
+        assertNotEquals(eTag, renamed);
+        assertEquals(renamed, noteService.getNoteVersion(note.getId()).eTag());
+        mockMvc.perform(get("/api/notes/{id}", note.getId()).header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.notebook.name").value("renamed"));
+    }
+
+    @Test
+    void t069_listing_filtersOnArchivedOnlyWhenGiven() throws Exception {
+        noteService.createNote(Note.builder().title("active").build());
+        noteService.createNote(Note.builder().title("archived").archived(true).build());
+
+        mockMvc.perform(get("/api/notes").param("sort", "TITLE").param("direction", "ASC"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[*].title", contains("active", "archived")));
+        mockMvc.perform(get("/api/notes").param("archived", "false"))
+                .andExpect(jsonPath("$.items[*].title", contains("active")));
+        mockMvc.perform(get("/api/notes").param("archived", "true"))
+                .andExpect(jsonPath("$.items[*].title", contains("archived")));
+    }
+
+    private String eTagOf(Long noteId) throws Exception {
+        return mockMvc.perform(get("/api/notes/{id}", noteId))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+    }
+
+    private void loginAs(String userId) {
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(new UsernamePasswordAuthenticationToken(userId, "pw"));
+        SecurityContextHolder.setContext(context);
+    }
+}
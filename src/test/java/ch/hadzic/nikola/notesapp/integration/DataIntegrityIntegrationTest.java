@@ -1,13 +1,20 @@
 package ch.hadzic.nikola.notesapp.integration;
 
 import ch.hadzic.nikola.notesapp.config.TestSecurityConfig;
+import ch.hadzic.nikola.notesapp.config.cache.CacheConfig;
+import ch.hadzic.nikola.notesapp.config.cache.EntityCache;
 import ch.hadzic.nikola.notesapp.data.entity.Note;
 import ch.hadzic.nikola.notesapp.data.entity.Tag;
 import ch.hadzic.nikola.notesapp.data.entity.Todo;
 import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
 import ch.hadzic.nikola.notesapp.data.repository.TagRepository;
 import ch.hadzic.nikola.notesapp.data.repository.TodoRepository;
+import ch.hadzic.nikola.notesapp.data.service.ChangeLogService;
+import ch.hadzic.nikola.notesapp.data.service.NoteContentService;
+import ch.hadzic.nikola.notesapp.data.service.NoteRevisionService;
 import ch.hadzic.nikola.notesapp.data.service.NoteService;
+import ch.hadzic.nikola.notesapp.data.service.StatsService;
+import ch.hadzic.nikola.notesapp.search.NoteSearchIndex;
 import ch.hadzic.nikola.notesapp.data.service.TagService;
 import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.AfterEach;
@@ -30,7 +37,9 @@ import java.util.Set;
 import static org.junit.jupiter.api.Assertions.*;
 
 @DataJpaTest
-@Import({NoteService.class, TagService.class, TestSecurityConfig.class})
+@Import({NoteService.class, NoteSearchIndex.class, EntityCache.class, CacheConfig.class, ChangeLogService.class,
+        NoteContentService.class, NoteRevisionService.class, TagService.class, StatsService.class,
+        TestSecurityConfig.class})
 @ActiveProfiles("test")
 class DataIntegrityIntegrationTest {
 
@@ -0,0 +1,300 @@
+package ch.hadzic.nikola.notesapp.integration;
+
+import ch.hadzic.nikola.notesapp.config.TestSecurityConfig;
+import ch.hadzic.nikola.notesapp.config.cache.CacheConfig;
+import ch.hadzic.nikola.notesapp.config.cache.EntityCache;
+import ch.hadzic.nikola.notesapp.config.execptions.GlobalExceptionHandler;
+import ch.hadzic.nikola.notesapp.controller.ExportController;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.entity.Notebook;
+import ch.hadzic.nikola.notesapp.data.entity.Tag;
+import ch.hadzic.nikola.notesapp.data.repository.ChangeLogRepository;
+import ch.hadzic.nikola.notesapp.data.repository.ChangeSequenceRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NoteContentRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRevisionRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NotebookRepository;
+import ch.hadzic.nikola.notesapp.data.repository.StatCounterRepository;
+import ch.hadzic.nikola.notesapp.data.repository.TagRepository;
+import ch.hadzic.nikola.notesapp.data.service.ChangeLogService;
+import ch.hadzic.nikola.notesapp.data.service.NoteContentService;
+import ch.hadzic.nikola.notesapp.data.service.NoteRevisionService;
+import ch.hadzic.nikola.notesapp.data.service.NoteService;
+import ch.hadzic.nikola.notesapp.data.service.NotebookService;
+import ch.hadzic.nikola.notesapp.data.service.StatsService;
+import ch.hadzic.nikola.notesapp.data.service.TagService;
+import ch.hadzic.nikola.notesapp.export.ExportFormat;
+import ch.hadzic.nikola.notesapp.export.ExportJob;
+import ch.hadzic.nikola.notesapp.export.ExportJobService;
+import ch.hadzic.nikola.notesapp.export.HtmlNoteExporter;
+import ch.hadzic.nikola.notesapp.export.JsonNoteExporter;
+import ch.hadzic.nikola.notesapp.export.MarkdownNoteExporter;
+import ch.hadzic.nikola.notesapp.export.NoteExporters;
+import ch.hadzic.nikola.notesapp.export.PdfRenderer;
+import ch.hadzic.nikola.notesapp.export.ZipNoteExporter;
+import ch.hadzic.nikola.notesapp.importer.ImportedNote;
+import ch.hadzic.nikola.notesapp.importer.MarkdownArchiveReader;
+import ch.hadzic.nikola.notesapp.search.NoteSearchIndex;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Downloads exports through the controller. Runs without a test transaction, as the notes are
+ * read on the thread writing the response.
+ */
+@DataJpaTest
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({NoteService.class, NoteSearchIndex.class, EntityCache.class, CacheConfig.class, ChangeLogService.class,
+        NoteContentService.class, NoteRevisionService.class, TagService.class, NotebookService.class,
+        StatsService.class, TestSecurityConfig.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ExportIntegrationTest {
+
+    private static final String USER_1 = "export-user1";
+    private static final String USER_2 = "export-user2";
+
+    @TempDir
+    Path directory;
+
+    @Autowired
+    private NoteService noteService;
+    @Autowired
+    private NotebookService notebookService;
+    @Autowired
+    private TagService tagService;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private NoteRepository noteRepository;
+    @Autowired
+    private NoteContentRepository noteContentRepository;
+    @Autowired
+    private NotebookRepository notebookRepository;
+    @Autowired
+    private TagRepository tagRepository;
+    @Autowired
+    private NoteRevisionRepository noteRevisionRepository;
+    @Autowired
+    private StatCounterRepository statCounterRepository;
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+    @Autowired
+    private ChangeSequenceRepository changeSequenceRepository;
+
+    private ExportJobService exportJobService;
+    private MockMvc mockMvc;
+    private Notebook work;
+    private Tag urgent;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        PdfRenderer pdfRenderer = new PdfRenderer(new SimpleMeterRegistry());
+        NoteExporters exporters = new NoteExporters(List.of(pdfRenderer, new MarkdownNoteExporter(),
+                new JsonNoteExporter(objectMapper), new HtmlNoteExporter(), new ZipNoteExporter()));
+        exportJobService = new ExportJobService(noteService, exporters, directory, 1, 10, 2, Duration.ofHours(1),
+                false);
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new ExportController(noteService, exportJobService, exporters, pdfRenderer))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+
+        loginAs(USER_2);
+        noteService.createNote(Note.builder().title("foreign").content("not mine").build());
+        loginAs(USER_1);
+        work = notebookService.create(Notebook.builder().name("Work").userId(USER_1).build());
+        urgent = tagService.create(Tag.builder().name("urgent").userId(USER_1).build());
+        noteService.createNote(Note.builder().title("Plan").content("ship it").notebook(work)
+                .tags(Set.of(urgent)).build());
+        noteService.createNote(Note.builder().title("Minutes").content("talked").notebook(work).build());
+        noteService.createNote(Note.builder().title("Groceries").content("milk").tags(Set.of(urgent)).build());
+        noteService.createNote(Note.builder().title("Old").content("gone").notebook(work).archived(true).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        exportJobService.shutdown();
+        SecurityContextHolder.clearContext();
+        noteRepository.findAll().forEach(note -> {
+            note.setTags(new HashSet<>());
+            noteRepository.save(note);
+        });
+        noteRevisionRepository.deleteAllInBatch();
+        noteRepository.deleteAllInBatch();
+        noteContentRepository.deleteAllInBatch();
+        tagRepository.deleteAllInBatch();
+        notebookRepository.deleteAllInBatch();
+        statCounterRepository.deleteAllInBatch();
+        changeLogRepository.deleteAllInBatch();
+        changeSequenceRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void t211_pathExtension_selectsFormatAndScopeSelectsNotes() throws Exception {
+        MockHttpServletResponse all = download(get("/api/export/notes/md"));
+        String markdown = all.getContentAsString(StandardCharsets.UTF_8);
+        assertEquals("text/markdown", all.getContentType());
+        assertEquals("attachment; filename=notes.md", all.getHeader(HttpHeaders.CONTENT_DISPOSITION));
+        assertTrue(markdown.contains("## Plan") && markdown.contains("## Minutes") && markdown.contains("## Groceries"));
+        assertFalse(markdown.contains("## Old"));
+        assertFalse(markdown.contains("foreign"));
+
+        String notebook = download(get("/api/export/notes/md").param("notebookId", work.getId().toString()))
+                .getContentAsString(StandardCharsets.UTF_8);
+        assertTrue(notebook.contains("## Plan") && notebook.contains("## Minutes"));
+        assertFalse(notebook.contains("## Groceries"));
+
+        String both = download(get("/api/export/notes/md").param("notebookId", work.getId().toString())
+                .param("tagId", urgent.getId().toString())).getContentAsString(StandardCharsets.UTF_8);
+        assertTrue(both.contains("## Plan\n\n- Notebook: Work\n- Tags: urgent\n"));
+        assertFalse(both.contains("## Minutes") || both.contains("## Groceries"));
+
+        assertTrue(download(get("/api/export/notes/pdf")).getContentAsString(StandardCharsets.ISO_8859_1)
+                .startsWith("%PDF"));
+        mockMvc.perform(get("/api/export/notes/docx")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void t212_acceptHeader_selectsFormat() throws Exception {
+        MockHttpServletResponse json = download(get("/api/export/notes")
+                .header(HttpHeaders.ACCEPT, "text/html;q=0.5, application/x-ndjson")
+                .param("tagId", urgent.getId().toString()));
+
+        assertEquals("application/x-ndjson", json.getContentType());
+        assertTrue(json.getHeader(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT + ","));
+        List<String> lines = json.getContentAsString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(List.of("Plan", "Groceries"),
+                lines.stream().map(line -> readTree(line).get("title").asText()).toList());
+        assertEquals("urgent", readTree(lines.getFirst()).get("tags").get(0).asText());
+
+        assertEquals("application/pdf", download(get("/api/export/notes")).getContentType());
+        assertEquals("application/pdf",
+                download(get("/api/export/notes").header(HttpHeaders.ACCEPT, "*/*")).getContentType());
+        mockMvc.perform(get("/api/export/notes").header(HttpHeaders.ACCEPT, "image/png, text/html;q=0"))
+                .andExpect(status().isNotAcceptable());
+    }
+
+    @Test
+    void t213_gzip_isAppliedToCompressibleFormatsOnly() throws Exception {
+        MockHttpServletResponse gzipped = download(get("/api/export/notes/html")
+                .header(HttpHeaders.ACCEPT_ENCODING, "deflate, gzip"));
+        assertEquals("gzip", gzipped.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(gzipped.getHeader(HttpHeaders.VARY).equals(HttpHeaders.ACCEPT_ENCODING));
+        String html;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.getContentAsByteArray()))) {
+            html = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        assertTrue(html.contains("<h2>Plan</h2>"));
+        assertTrue(html.trim().endsWith("</html>"));
+
+        MockHttpServletResponse refused = download(get("/api/export/notes/html")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0"));
+        assertNull(refused.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(refused.getContentAsString(StandardCharsets.UTF_8).startsWith("<!DOCTYPE html>"));
+
+        MockHttpServletResponse pdf = download(get("/api/export/notes/pdf").header(HttpHeaders.ACCEPT_ENCODING, "gzip"));
+        assertNull(pdf.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(pdf.getContentAsString(StandardCharsets.ISO_8859_1).startsWith("%PDF"));
+    }
+
+    @Test
+    void t214_zipBundle_holdsOneMarkdownFilePerNote() throws Exception {
+        MockHttpServletResponse zip = download(get("/api/export/notes/zip"));
+
+        assertEquals("application/zip", zip.getContentType());
+        assertNull(zip.getHeader(HttpHeaders.VARY));
+        List<ImportedNote> notes = new ArrayList<>();
+        new MarkdownArchiveReader().read(new ByteArrayInputStream(zip.getContentAsByteArray()), notes::add);
+        assertEquals(List.of("Plan", "Minutes", "Groceries"), notes.stream().map(ImportedNote::title).toList());
+        assertEquals("Work", notes.getFirst().notebook());
+        assertEquals(List.of("urgent"), notes.getFirst().tags());
+        assertEquals("ship it", notes.getFirst().content());
+        assertNull(notes.getLast().notebook());
+    }
+
+    @Test
+    void t215_backgroundJob_exportsTheScopedNotes() throws Exception {
+        String accepted = mockMvc.perform(post("/api/export/jobs").param("format", "HTML")
+                        .param("notebookId", work.getId().toString()))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getContentAsString();
+
+        ExportJob job = awaitFinished(exportJobService.getJob(readTree(accepted).get("id").asText()));
+        assertEquals(ExportJob.Status.DONE, job.getStatus(), job.getError());
+        assertEquals(ExportFormat.HTML, job.getFormat());
+        assertEquals(2, job.getTotal());
+        assertEquals(2, job.getProcessed());
+        String html = Files.readString(job.getFile());
+        assertTrue(html.contains("<h2>Plan</h2>") && html.contains("<h2>Minutes</h2>"));
+        assertFalse(html.contains("Groceries"));
+    }
+
+    private MockHttpServletResponse download(MockHttpServletRequestBuilder builder) throws Exception {
+        MvcResult started = mockMvc.perform(builder).andExpect(request().asyncStarted()).andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+    }
+
+    private static ExportJob awaitFinished(ExportJob job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!job.isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(job.isFinished(), "job did not finish in time");
+        return job;
+    }
+
+    private JsonNode readTree(String line) {
+        try {
+            return objectMapper.readTree(line);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void loginAs(String userId) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(userId, null, Set.of()));
+    }
+}
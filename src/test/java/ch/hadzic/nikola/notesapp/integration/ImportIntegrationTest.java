@@ -0,0 +1,284 @@
+package ch.hadzic.nikola.notesapp.integration;
+
+import ch.hadzic.nikola.notesapp.config.TestSecurityConfig;
+import ch.hadzic.nikola.notesapp.config.cache.CacheConfig;
+import ch.hadzic.nikola.notesapp.config.cache.EntityCache;
+import ch.hadzic.nikola.notesapp.config.execptions.GlobalExceptionHandler;
+import ch.hadzic.nikola.notesapp.controller.ImportController;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.entity.Tag;
+import ch.hadzic.nikola.notesapp.data.repository.ChangeLogRepository;
+import ch.hadzic.nikola.notesapp.data.repository.ChangeSequenceRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NoteContentRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRevisionRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NotebookRepository;
+import ch.hadzic.nikola.notesapp.data.repository.StatCounterRepository;
+import ch.hadzic.nikola.notesapp.data.repository.TagRepository;
+import ch.hadzic.nikola.notesapp.data.repository.TodoRepository;
+import ch.hadzic.nikola.notesapp.data.service.ChangeLogService;
+import ch.hadzic.nikola.notesapp.data.service.NoteContentService;
+import ch.hadzic.nikola.notesapp.data.service.NoteRevisionService;
+import ch.hadzic.nikola.notesapp.data.service.NoteService;
+import ch.hadzic.nikola.notesapp.data.service.NotebookService;
+import ch.hadzic.nikola.notesapp.data.service.StatsService;
+import ch.hadzic.nikola.notesapp.data.service.TagService;
+import ch.hadzic.nikola.notesapp.importer.ImportJob;
+import ch.hadzic.nikola.notesapp.importer.ImportJobService;
+import ch.hadzic.nikola.notesapp.importer.JsonArchiveReader;
+import ch.hadzic.nikola.notesapp.importer.MarkdownArchiveReader;
+import ch.hadzic.nikola.notesapp.search.NoteSearchIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Uploads archives through the controller and waits for the background job. Runs without a test
+ * transaction, as the job writes its chunks in transactions of its own.
+ */
+@DataJpaTest(properties = "notesapp.import.chunk-size=2")
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({ImportJobService.class, JsonArchiveReader.class, MarkdownArchiveReader.class, NoteService.class,
+        NoteSearchIndex.class, EntityCache.class, CacheConfig.class, ChangeLogService.class, NoteContentService.class,
+        NoteRevisionService.class, TagService.class, NotebookService.class, StatsService.class,
+        TestSecurityConfig.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ImportIntegrationTest {
+
+    private static final String USER_1 = "import-user1";
+    private static final String USER_2 = "import-user2";
+
+    private static final String JSON_ARCHIVE = """
+            [
+              {"title": "Plan", "content": "ship it", "notebook": "Work", "tags": ["Project", "new"],
+               "favorite": true, "createdAt": "2021-03-04T05:06:07", "updatedAt": "2022-01-02T03:04:05",
+               "todos": [{"title": "review", "done": true, "dueDate": "2022-02-03"}, {"title": "deploy"}]},
+              {"title": "Idea", "content": "later", "notebook": "work", "tags": ["project"], "color": "red"},
+              {"title": "  ", "content": "no title"},
+              {"title": "Empty"}
+            ]
+            """;
+
+    @Autowired
+    private ImportJobService importJobService;
+    @Autowired
+    private NoteService noteService;
+    @Autowired
+    private TagService tagService;
+    @Autowired
+    private StatsService statsService;
+    @Autowired
+    private NoteRepository noteRepository;
+    @Autowired
+    private NoteContentRepository noteContentRepository;
+    @Autowired
+    private NotebookRepository notebookRepository;
+    @Autowired
+    private TagRepository tagRepository;
+    @Autowired
+    private TodoRepository todoRepository;
+    @Autowired
+    private NoteRevisionRepository noteRevisionRepository;
+    @Autowired
+    private StatCounterRepository statCounterRepository;
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+    @Autowired
+    private ChangeSequenceRepository changeSequenceRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new ImportController(importJobService))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+        loginAs(USER_1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        todoRepository.deleteAllInBatch();
+        noteRepository.findAll().forEach(note -> {
+            note.setTags(new HashSet<>());
+            noteRepository.save(note);
+        });
+        noteRevisionRepository.deleteAllInBatch();
+        noteRepository.deleteAllInBatch();
+        noteContentRepository.deleteAllInBatch();
+        tagRepository.deleteAllInBatch();
+        notebookRepository.deleteAllInBatch();
+        statCounterRepository.deleteAllInBatch();
+        changeLogRepository.deleteAllInBatch();
+        changeSequenceRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void t201_jsonArchive_isImportedWithNotebooksTagsTodosAndTimestamps() throws Exception {
+        Tag existing = tagService.create(Tag.builder().name("project").userId(USER_1).build());
+
+        ImportJob job = upload(new MockMultipartFile("file", "notes.json", "application/json",
+                JSON_ARCHIVE.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(ImportJob.Status.DONE, job.getStatus(), job.getError());
+        assertEquals(4, job.getRead());
+        assertEquals(3, job.getImported());
+        assertEquals(1, job.getSkipped());
+        assertEquals(job.getSize(), job.getBytesRead());
+
+        Map<String, Object> plan = jdbcTemplate.queryForMap(
+                "select n.*, b.name as notebook_name from note n join notebook b on b.id = n.notebook_id "
+                        + "where n.title = 'Plan'");
+        assertEquals(USER_1, plan.get("user_id"));
+        assertEquals(true, plan.get("is_favorite"));
+        assertEquals(Timestamp.valueOf(LocalDateTime.of(2021, 3, 4, 5, 6, 7)), plan.get("created_at"));
+        assertEquals(Timestamp.valueOf(LocalDateTime.of(2022, 1, 2, 3, 4, 5)), plan.get("updated_at"));
+        assertEquals("Work", plan.get("notebook_name"));
+        assertEquals("ship it", noteService.getNoteById((Long) plan.get("id")).getContent());
+
+        assertEquals(1, notebookRepository.count());
+        assertEquals(List.of("new", "project"), jdbcTemplate.queryForList(
+                "select name from tag order by name", String.class));
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "select count(*) from note_tag where tag_id = ?", Integer.class, existing.getId()));
+        assertEquals(List.of("deploy", "review"), jdbcTemplate.queryForList(
+                "select title from todo where user_id = ? order by title", String.class, USER_1));
+        assertEquals(List.of("review"), jdbcTemplate.queryForList(
+                "select title from todo where done and due_date = ?", String.class, LocalDate.of(2022, 2, 3)));
+        assertEquals(3, statsService.getStats(USER_1).notes());
+        assertEquals(1, noteService.searchNotesForCurrentUser("ship", 10).size());
+    }
+
+    @Test
+    void t202_markdownArchive_isImported() throws Exception {
+        byte[] archive = zip("Recipes/soup.md", "---\ntags: [food]\n---\n# Soup\n- [ ] buy leeks\n",
+                "readme.txt", "not a note");
+
+        ImportJob job = upload(new MockMultipartFile("file", "export.zip", "application/zip", archive));
+
+        assertEquals(ImportJob.Status.DONE, job.getStatus(), job.getError());
+        assertEquals(1, job.getImported());
+        assertEquals("Recipes", jdbcTemplate.queryForObject(
+                "select b.name from note n join notebook b on b.id = n.notebook_id where n.title = 'Soup'",
+                String.class));
+        assertEquals(List.of("food"), jdbcTemplate.queryForList("select name from tag", String.class));
+        assertEquals(List.of("buy leeks"), jdbcTemplate.queryForList("select title from todo", String.class));
+    }
+
+    @Test
+    void t203_reimport_leavesOutNotesTheUserAlreadyHas() throws Exception {
+        noteService.createNote(Note.builder().title("Plan").content("ship it").build());
+        String archive = JSON_ARCHIVE.replace("{\"title\": \"  \"", "{\"title\": \"Idea\", \"content\": \"later\"},"
+                + "{\"title\": \"  \"");
+
+        ImportJob first = upload(new MockMultipartFile("file", "notes.json", "application/json",
+                archive.getBytes(StandardCharsets.UTF_8)));
+        ImportJob second = upload(new MockMultipartFile("file", "notes.json", "application/json",
+                archive.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, first.getImported());
+        assertEquals(2, first.getDuplicates());
+        // notes without content are never duplicates
+        assertEquals(1, second.getImported());
+        assertEquals(3, second.getDuplicates());
+        assertEquals(4, noteRepository.count());
+    }
+
+    @Test
+    void t204_invalidUploads_areRejected() throws Exception {
+        ImportJob job = upload(new MockMultipartFile("file", "notes.json", "application/json",
+                "[{\"title\": \"ok\"}, 42]".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(ImportJob.Status.FAILED, job.getStatus());
+        assertTrue(job.getError().startsWith("Invalid JSON archive"), job.getError());
+
+        mockMvc.perform(multipart("/api/import").file(new MockMultipartFile("file", "notes.pdf",
+                        "application/pdf", new byte[]{1})))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(multipart("/api/import").file(new MockMultipartFile("file", "notes.zip",
+                        "application/zip", new byte[0])))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(multipart("/api/import").file(new MockMultipartFile("file", "notes.pdf",
+                        "application/pdf", "# text".getBytes(StandardCharsets.UTF_8))).param("format", "MARKDOWN_ZIP"))
+                .andExpect(status().isAccepted());
+
+        loginAs(USER_2);
+        mockMvc.perform(get("/api/import/jobs/{id}", job.getId())).andExpect(status().isNotFound());
+    }
+
+    private ImportJob upload(MockMultipartFile file) throws Exception {
+        String location = mockMvc.perform(multipart("/api/import").file(file))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", containsString("/api/import/jobs/")))
+                .andExpect(jsonPath("$.size").value(file.getSize()))
+                .andReturn().getResponse().getHeader("Location");
+
+        ImportJob job = importJobService.getJob(location.substring(location.lastIndexOf('/') + 1));
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!job.isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(job.isFinished());
+        mockMvc.perform(get(location))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value(job.getStatus().name()))
+                .andExpect(jsonPath("$.imported").value(job.getImported()));
+        return job;
+    }
+
+    private static byte[] zip(String... namesAndTexts) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < namesAndTexts.length; i += 2) {
+                zip.putNextEntry(new ZipEntry(namesAndTexts[i]));
+                zip.write(namesAndTexts[i + 1].getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void loginAs(String userId) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(userId, null, Set.of()));
+    }
+}
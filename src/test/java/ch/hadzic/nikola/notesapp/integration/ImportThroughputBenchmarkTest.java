@@ -0,0 +1,134 @@
+package ch.hadzic.nikola.notesapp.integration;
+
+import ch.hadzic.nikola.notesapp.config.TestSecurityConfig;
+import ch.hadzic.nikola.notesapp.config.cache.CacheConfig;
+import ch.hadzic.nikola.notesapp.config.cache.EntityCache;
+import ch.hadzic.nikola.notesapp.data.repository.NoteContentRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRevisionRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NotebookRepository;
+import ch.hadzic.nikola.notesapp.data.repository.TagRepository;
+import ch.hadzic.nikola.notesapp.data.repository.TodoRepository;
+import ch.hadzic.nikola.notesapp.data.service.ChangeLogService;
+import ch.hadzic.nikola.notesapp.data.service.NoteContentService;
+import ch.hadzic.nikola.notesapp.data.service.NoteRevisionService;
+import ch.hadzic.nikola.notesapp.data.service.NoteService;
+import ch.hadzic.nikola.notesapp.data.service.NotebookService;
+import ch.hadzic.nikola.notesapp.data.service.StatsService;
+import ch.hadzic.nikola.notesapp.data.service.TagService;
+import ch.hadzic.nikola.notesapp.importer.ImportFormat;
+import ch.hadzic.nikola.notesapp.importer.ImportJob;
+import ch.hadzic.nikola.notesapp.importer.ImportJobService;
+import ch.hadzic.nikola.notesapp.importer.JsonArchiveReader;
+import ch.hadzic.nikola.notesapp.importer.MarkdownArchiveReader;
+import ch.hadzic.nikola.notesapp.search.NoteSearchIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Imports a JSON archive of {@code NOTES} notes, then the same archive again, which leaves out
+ * every note as duplicate. Not part of the regular build, run it with
+ * {@code mvn test -Dtest=ImportThroughputBenchmarkTest -Dbenchmark=true}.
+ * H2 runs in memory, so the numbers overstate what a networked database reaches.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DataJpaTest(showSql = false, properties = "logging.level.org.hibernate.SQL=INFO")
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({ImportJobService.class, JsonArchiveReader.class, MarkdownArchiveReader.class, NoteService.class,
+        NoteSearchIndex.class, EntityCache.class, CacheConfig.class, ChangeLogService.class, NoteContentService.class,
+        NoteRevisionService.class, TagService.class, NotebookService.class, StatsService.class,
+        TestSecurityConfig.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ImportThroughputBenchmarkTest {
+
+    private static final int NOTES = 50_000;
+
+    @Autowired
+    private ImportJobService importJobService;
+    @Autowired
+    private NoteRepository noteRepository;
+    @Autowired
+    private NoteContentRepository noteContentRepository;
+    @Autowired
+    private NoteRevisionRepository noteRevisionRepository;
+    @Autowired
+    private NotebookRepository notebookRepository;
+    @Autowired
+    private TagRepository tagRepository;
+    @Autowired
+    private TodoRepository todoRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("bench-user", null, Set.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        todoRepository.deleteAllInBatch();
+        jdbcTemplate.update("delete from note_tag");
+        noteRevisionRepository.deleteAllInBatch();
+        noteRepository.deleteAllInBatch();
+        noteContentRepository.deleteAllInBatch();
+        tagRepository.deleteAllInBatch();
+        notebookRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void importThroughput() throws Exception {
+        StringBuilder archive = new StringBuilder();
+        for (int i = 0; i < NOTES; i++) {
+            archive.append("{\"title\":\"Note ").append(i)
+                    .append("\",\"content\":\"").append("Line of text number ").append(i).append(". ".repeat(20))
+                    .append("\",\"notebook\":\"notebook ").append(i % 20)
+                    .append("\",\"tags\":[\"tag ").append(i % 50).append("\",\"tag ").append(i % 7).append("\"]")
+                    .append(",\"createdAt\":\"2020-01-01T00:00:00\"")
+                    .append(i % 5 == 0 ? ",\"todos\":[{\"title\":\"todo " + i + "\"}]" : "")
+                    .append("}\n");
+        }
+        MockMultipartFile upload = new MockMultipartFile("file", "notes.ndjson", "application/x-ndjson",
+                archive.toString().getBytes(StandardCharsets.UTF_8));
+
+        ImportJob imported = run(upload, "import");
+        assertEquals(NOTES, imported.getImported());
+        ImportJob repeated = run(upload, "re-import");
+        assertEquals(NOTES, repeated.getDuplicates());
+    }
+
+    private ImportJob run(MockMultipartFile upload, String label) throws InterruptedException {
+        long start = System.nanoTime();
+        ImportJob job = importJobService.submit(upload, ImportFormat.JSON);
+        while (!job.isFinished()) {
+            Thread.sleep(5);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        assertEquals(ImportJob.Status.DONE, job.getStatus(), job.getError());
+        System.out.printf("%-9s %,d notes, %,d bytes in %.1fs: %,10.0f notes/s%n",
+                label, NOTES, job.getSize(), seconds, NOTES / seconds);
+        return job;
+    }
+}
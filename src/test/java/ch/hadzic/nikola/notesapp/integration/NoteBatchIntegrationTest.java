@@ -0,0 +1,190 @@
+package ch.hadzic.nikola.notesapp.integration;
+
+import ch.hadzic.nikola.notesapp.config.TestSecurityConfig;
+import ch.hadzic.nikola.notesapp.config.cache.CacheConfig;
+import ch.hadzic.nikola.notesapp.config.cache.EntityCache;
+import ch.hadzic.nikola.notesapp.config.security.Roles;
+import ch.hadzic.nikola.notesapp.data.dto.NoteBatchOperation;
+import ch.hadzic.nikola.notesapp.data.dto.NoteBatchResult;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.entity.Tag;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
+import ch.hadzic.nikola.notesapp.data.repository.TagRepository;
+import ch.hadzic.nikola.notesapp.data.service.ChangeLogService;
+import ch.hadzic.nikola.notesapp.data.service.NoteBatchService;
+import ch.hadzic.nikola.notesapp.data.service.NoteContentService;
+import ch.hadzic.nikola.notesapp.data.service.NoteRevisionService;
+import ch.hadzic.nikola.notesapp.data.service.NoteService;
+import ch.hadzic.nikola.notesapp.data.service.StatsService;
+import ch.hadzic.nikola.notesapp.search.NoteSearchIndex;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs without a test transaction, so every chunk is flushed and committed like in production.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ImportAutoConfiguration(ValidationAutoConfiguration.class)
+@Import({NoteService.class, NoteSearchIndex.class, EntityCache.class, CacheConfig.class, ChangeLogService.class,
+        NoteContentService.class, NoteRevisionService.class, NoteBatchService.class, StatsService.class,
+        TestSecurityConfig.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NoteBatchIntegrationTest {
+
+    private static final String USER_1 = "batch-user1";
+    private static final String USER_2 = "batch-user2";
+
+    @Autowired
+    private NoteBatchService noteBatchService;
+    @Autowired
+    private NoteService noteService;
+    @Autowired
+    private NoteRepository noteRepository;
+    @Autowired
+    private TagRepository tagRepository;
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        loginAs(USER_1, Roles.Create, Roles.Update, Roles.Delete);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        noteRepository.findAll().forEach(note -> {
+            note.setTags(new HashSet<>());
+            noteRepository.save(note);
+        });
+        noteRepository.deleteAllInBatch();
+        tagRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void t081_mixedBatch_reportsOneResultPerOperation() {
+        Tag tag = tagRepository.save(Tag.builder().name("tag").userId(USER_1).build());
+        Note toUpdate = noteService.createNote(Note.builder().title("old").build());
+        Note toDelete = noteService.createNote(Note.builder().title("doomed").build());
+
+        List<NoteBatchResult> results = noteBatchService.apply(List.of(
+                create(Note.builder().title("new").tags(Set.of(Tag.builder().id(tag.getId()).build())).build()),
+                new NoteBatchOperation(NoteBatchOperation.Type.UPDATE, toUpdate.getId(),
+                        Note.builder().title("updated").build()),
+                new NoteBatchOperation(NoteBatchOperation.Type.DELETE, toDelete.getId(), null),
+                new NoteBatchOperation(NoteBatchOperation.Type.UPDATE, toDelete.getId(),
+                        Note.builder().title("too late").build()),
+                create(Note.builder().title("").build())));
+
+        assertEquals(List.of(201, 200, 204, 404, 400), results.stream().map(NoteBatchResult::status).toList());
+        assertEquals(List.of(0, 1, 2, 3, 4), results.stream().map(NoteBatchResult::index).toList());
+
+        Note created = noteService.getNoteById(results.getFirst().id());
+        assertEquals("new", created.getTitle());
+        assertEquals(USER_1, created.getUserId());
+        assertEquals(1, created.getTags().size());
+        assertEquals("updated", noteService.getNoteById(toUpdate.getId()).getTitle());
+        assertFalse(noteRepository.existsById(toDelete.getId()));
+    }
+
+    @Test
+    void t082_foreignNotesAndTags_areNotTouched() {
+        loginAs(USER_2, Roles.Create);
+        Note foreign = noteService.createNote(Note.builder().title("foreign").build());
+        Tag foreignTag = tagRepository.save(Tag.builder().name("foreign").userId(USER_2).build());
+        loginAs(USER_1, Roles.Create, Roles.Update, Roles.Delete);
+
+        List<NoteBatchResult> results = noteBatchService.apply(List.of(
+                new NoteBatchOperation(NoteBatchOperation.Type.DELETE, foreign.getId(), null),
+                create(Note.builder().title("x").tags(Set.of(Tag.builder().id(foreignTag.getId()).build())).build())));
+
+        assertEquals(List.of(404, 400), results.stream().map(NoteBatchResult::status).toList());
+        assertTrue(noteRepository.existsById(foreign.getId()));
+    }
+
+    @Test
+    void t083_operations_needTheRoleOfTheirSingleItemEndpoint() {
+        Note note = noteService.createNote(Note.builder().title("kept").build());
+        loginAs(USER_1, Roles.Create);
+
+        List<NoteBatchResult> results = noteBatchService.apply(List.of(
+                create(Note.builder().title("allowed").build()),
+                new NoteBatchOperation(NoteBatchOperation.Type.DELETE, note.getId(), null)));
+
+        assertEquals(List.of(201, 403), results.stream().map(NoteBatchResult::status).toList());
+        assertTrue(noteRepository.existsById(note.getId()));
+    }
+
+    @Test
+    void t084_largeBatch_isSpreadOverChunks() {
+        int count = NoteBatchService.CHUNK_SIZE * 2 + 50;
+
+        List<NoteBatchResult> results = noteBatchService.apply(IntStream.range(0, count)
+                .mapToObj(i -> create(Note.builder().title("note " + i).build()))
+                .toList());
+
+        assertTrue(results.stream().allMatch(result -> result.status() == 201));
+        assertEquals(count, results.stream().map(NoteBatchResult::id).distinct().count());
+        assertEquals(count, noteRepository.count());
+    }
+
+    @Test
+    void t085_createsAndUpdates_areSentAsJdbcBatches() {
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        List<NoteBatchOperation> creates = IntStream.range(0, NoteBatchService.CHUNK_SIZE)
+                .mapToObj(i -> create(Note.builder().title("note " + i).build()))
+                .toList();
+
+        statistics.clear();
+        List<NoteBatchResult> created = noteBatchService.apply(creates);
+        long insertStatements = statistics.getPrepareStatementCount();
+
+        List<NoteBatchOperation> updates = new ArrayList<>();
+        created.forEach(result -> updates.add(new NoteBatchOperation(NoteBatchOperation.Type.UPDATE, result.id(),
+                Note.builder().title("changed").build())));
+        statistics.clear();
+        noteBatchService.apply(updates);
+        long updateStatements = statistics.getPrepareStatementCount();
+
+        // 100 rows each; without batching every row would need its own statement
+        assertTrue(insertStatements < 20, "statements for 100 creates: " + insertStatements);
+        assertTrue(updateStatements < 20, "statements for 100 updates: " + updateStatements);
+    }
+
+    private static NoteBatchOperation create(Note note) {
+        return new NoteBatchOperation(NoteBatchOperation.Type.CREATE, null, note);
+    }
+
+    private void loginAs(String userId, String... roles) {
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(new UsernamePasswordAuthenticationToken(userId, "pw",
+                Arrays.stream(roles).map(role -> new SimpleGrantedAuthority("ROLE_" + role)).toList()));
+        SecurityContextHolder.setContext(context);
+    }
+}
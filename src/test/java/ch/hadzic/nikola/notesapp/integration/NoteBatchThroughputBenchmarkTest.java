@@ -0,0 +1,118 @@
+package ch.hadzic.nikola.notesapp.integration;
+
+import ch.hadzic.nikola.notesapp.config.TestSecurityConfig;
+import ch.hadzic.nikola.notesapp.config.cache.CacheConfig;
+import ch.hadzic.nikola.notesapp.config.cache.EntityCache;
+import ch.hadzic.nikola.notesapp.config.security.Roles;
+import ch.hadzic.nikola.notesapp.data.dto.NoteBatchOperation;
+import ch.hadzic.nikola.notesapp.data.dto.NoteBatchResult;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
+import ch.hadzic.nikola.notesapp.data.service.ChangeLogService;
+import ch.hadzic.nikola.notesapp.data.service.NoteBatchService;
+import ch.hadzic.nikola.notesapp.data.service.NoteContentService;
+import ch.hadzic.nikola.notesapp.data.service.NoteRevisionService;
+import ch.hadzic.nikola.notesapp.data.service.NoteService;
+import ch.hadzic.nikola.notesapp.data.service.StatsService;
+import ch.hadzic.nikola.notesapp.search.NoteSearchIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the throughput of the batch API with one call per note, both through the services
+ * the endpoints use. Not part of the regular build, run it with
+ * {@code mvn test -Dtest=NoteBatchThroughputBenchmarkTest -Dbenchmark=true}.
+ * H2 runs in memory, so the numbers understate the gain against a networked database,
+ * where every saved statement is also a saved round trip.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DataJpaTest(properties = "logging.level.org.hibernate.SQL=INFO")
+@ImportAutoConfiguration(ValidationAutoConfiguration.class)
+@Import({NoteService.class, NoteSearchIndex.class, EntityCache.class, CacheConfig.class, ChangeLogService.class,
+        NoteContentService.class, NoteRevisionService.class, NoteBatchService.class, StatsService.class,
+        TestSecurityConfig.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NoteBatchThroughputBenchmarkTest {
+
+    private static final int ROWS = 2_000;
+    private static final int ROUNDS = 3;
+
+    @Autowired
+    private NoteBatchService noteBatchService;
+    @Autowired
+    private NoteService noteService;
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @BeforeEach
+    void setUp() {
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(new UsernamePasswordAuthenticationToken("bench-user", "pw", List.of(
+                new SimpleGrantedAuthority("ROLE_" + Roles.Create),
+                new SimpleGrantedAuthority("ROLE_" + Roles.Update))));
+        SecurityContextHolder.setContext(context);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        noteRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void createAndUpdateThroughput() {
+        for (int round = 1; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            List<Long> singleIds = IntStream.range(0, ROWS)
+                    .mapToObj(i -> noteService.createNote(Note.builder().title("single " + i).build()).getId())
+                    .toList();
+            report(round, "single create", start);
+
+            start = System.nanoTime();
+            singleIds.forEach(id -> noteService.updateNote(Note.builder().id(id).title("changed").build()));
+            report(round, "single update", start);
+
+            start = System.nanoTime();
+            List<NoteBatchResult> created = noteBatchService.apply(IntStream.range(0, ROWS)
+                    .mapToObj(i -> new NoteBatchOperation(NoteBatchOperation.Type.CREATE, null,
+                            Note.builder().title("batch " + i).build()))
+                    .toList());
+            report(round, "batch create", start);
+
+            start = System.nanoTime();
+            noteBatchService.apply(created.stream()
+                    .map(result -> new NoteBatchOperation(NoteBatchOperation.Type.UPDATE, result.id(),
+                            Note.builder().title("changed").build()))
+                    .toList());
+            report(round, "batch update", start);
+
+            assertEquals(ROWS * 2L, noteRepository.count());
+            noteRepository.deleteAllInBatch();
+        }
+    }
+
+    private static void report(int round, String operation, long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("round %d  %-13s %,10.0f rows/s%n", round, operation, ROWS / seconds);
+    }
+}
@@ -0,0 +1,194 @@
+package ch.hadzic.nikola.notesapp.integration;
+
+import ch.hadzic.nikola.notesapp.config.TestSecurityConfig;
+import ch.hadzic.nikola.notesapp.config.cache.CacheConfig;
+import ch.hadzic.nikola.notesapp.config.cache.EntityCache;
+import ch.hadzic.nikola.notesapp.data.dto.ExportScope;
+import ch.hadzic.nikola.notesapp.data.dto.NoteExportRow;
+import ch.hadzic.nikola.notesapp.data.dto.NoteSummary;
+import ch.hadzic.nikola.notesapp.data.dto.SyncChanges;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.entity.NoteContent;
+import ch.hadzic.nikola.notesapp.data.repository.ChangeLogRepository;
+import ch.hadzic.nikola.notesapp.data.repository.ChangeSequenceRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NoteContentRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NoteListing;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
+import ch.hadzic.nikola.notesapp.data.service.ChangeLogService;
+import ch.hadzic.nikola.notesapp.data.service.NoteContentService;
+import ch.hadzic.nikola.notesapp.data.service.NoteRevisionService;
+import ch.hadzic.nikola.notesapp.data.service.NoteService;
+import ch.hadzic.nikola.notesapp.data.service.StatsService;
+import ch.hadzic.nikola.notesapp.data.service.SyncService;
+import ch.hadzic.nikola.notesapp.search.NoteSearchIndex;
+import ch.hadzic.nikola.notesapp.util.TransactionUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs without a test transaction, so every write commits like a request does.
+ */
+@DataJpaTest
+@Import({NoteService.class, NoteSearchIndex.class, EntityCache.class, CacheConfig.class, ChangeLogService.class,
+        NoteContentService.class, NoteRevisionService.class, SyncService.class, StatsService.class,
+        TestSecurityConfig.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NoteContentIntegrationTest {
+
+    private static final String USER_1 = "content-user1";
+
+    @Autowired
+    private NoteService noteService;
+    @Autowired
+    private NoteContentService noteContentService;
+    @Autowired
+    private SyncService syncService;
+    @Autowired
+    private NoteSearchIndex noteSearchIndex;
+    @Autowired
+    private NoteRepository noteRepository;
+    @Autowired
+    private NoteContentRepository noteContentRepository;
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+    @Autowired
+    private ChangeSequenceRepository changeSequenceRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(USER_1, null, Set.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        noteRepository.deleteAllInBatch();
+        noteContentRepository.deleteAllInBatch();
+        changeLogRepository.deleteAllInBatch();
+        changeSequenceRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void t121_largeContent_isStoredCompressedAndReadBack() {
+        String content = "All work and no play makes Jack a dull boy. ".repeat(10_000);
+
+        Note note = noteService.createNote(Note.builder().title("large").content(content).build());
+
+        NoteContent stored = noteContentRepository.findById(note.getContentHash()).orElseThrow();
+        assertEquals(NoteContent.Compression.DEFLATE, stored.getCompression());
+        assertEquals(content.length(), stored.getLength());
+        assertTrue(stored.getData().length < content.length() / 10);
+        assertEquals(content, noteService.getNoteById(note.getId()).getContent());
+        assertEquals(content, noteService.streamNotesForExport(ExportScope.ALL).map(NoteExportRow::content).findFirst().orElseThrow());
+    }
+
+    @Test
+    void t122_listings_carryPreviewInsteadOfContent() {
+        String content = "first   line\n\nsecond line " + "x".repeat(5_000);
+        noteService.createNote(Note.builder().title("listed").content(content).build());
+
+        NoteSummary summary = noteService.getNotePageForCurrentUser(NoteListing.ACTIVE, null, 10).items().getFirst();
+
+        assertNull(summary.content());
+        assertTrue(summary.preview().startsWith("first line second line x"));
+        assertTrue(summary.preview().endsWith("…"));
+        assertTrue(summary.preview().length() <= Note.PREVIEW_LENGTH);
+    }
+
+    @Test
+    void t123_sameContent_isStoredOnce() {
+        Note first = noteService.createNote(Note.builder().title("one").content("shared").build());
+        Note second = noteService.createNote(Note.builder().title("two").content("shared").build());
+        noteService.updateNote(Note.builder().id(first.getId()).title("one").content("changed").build());
+
+        assertEquals(first.getContentHash(), second.getContentHash());
+        assertEquals(2, noteContentRepository.count());
+        assertEquals("shared", noteService.getNoteById(second.getId()).getContent());
+    }
+
+    @Test
+    void t124_sweep_removesOnlyUnusedContents() {
+        Note kept = noteService.createNote(Note.builder().title("kept").content("kept").build());
+        Note deleted = noteService.createNote(Note.builder().title("deleted").content("deleted").build());
+        noteService.deleteNote(deleted.getId());
+
+        assertEquals(0, noteContentService.sweepUnused());
+
+        jdbcTemplate.update("update note_content set last_used_at = ?", LocalDateTime.now().minusDays(2));
+        assertEquals(1, noteContentService.sweepUnused());
+        assertEquals(List.of(kept.getContentHash()),
+                noteContentRepository.findAll().stream().map(NoteContent::getHash).toList());
+    }
+
+    @Test
+    void t125_inlineContent_isMovedToTheStore() {
+        Note note = noteService.createNote(Note.builder().title("legacy").build());
+        LocalDateTime updatedAt = noteRepository.findById(note.getId()).orElseThrow().getUpdatedAt();
+        jdbcTemplate.update("update note set content = ?, content_hash = null, preview = null where id = ?",
+                "written by an old version", note.getId());
+
+        noteContentService.migrateInlineContent();
+        noteSearchIndex.rebuild();
+
+        Note migrated = noteRepository.findById(note.getId()).orElseThrow();
+        assertNull(migrated.getInlineContent());
+        assertEquals("written by an old version", migrated.getPreview());
+        assertEquals(updatedAt, migrated.getUpdatedAt());
+        assertEquals("written by an old version", noteService.getNoteById(note.getId()).getContent());
+        assertEquals(1, noteService.searchNotesForCurrentUser("old version", 10).size());
+    }
+
+    @Test
+    void t126_sync_carriesFullContent() {
+        String token = syncService.getChangesForCurrentUser(null, 100).next();
+        String content = "synced ".repeat(100);
+        noteService.createNote(Note.builder().title("synced").content(content).build());
+
+        SyncChanges changes = syncService.getChangesForCurrentUser(token, 100);
+
+        assertEquals(content, changes.notes().getFirst().content());
+    }
+
+    @Test
+    void t127_contentStoredConcurrently_doesNotFailTheWrite() {
+        String sql = "insert into note_content (hash, compression, length, data, last_used_at) values (?, 'NONE', 0, ?, ?)";
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        Note note = new TransactionTemplate(transactionManager).execute(status -> {
+            String hash = noteContentService.save("stored first");
+            // what losing the race against a concurrent write of the same content looks like
+            Object[] stored = {hash, new byte[0], now};
+            Object[] added = {"0".repeat(64), new byte[0], now};
+            assertFalse(TransactionUtil.tryInsert(jdbcTemplate, sql, List.of(added, stored)));
+            return noteService.createNote(Note.builder().title("after the conflict").content("stored first").build());
+        });
+
+        assertEquals(1, noteContentRepository.count());
+        assertEquals("stored first", noteService.getNoteById(note.getId()).getContent());
+    }
+}
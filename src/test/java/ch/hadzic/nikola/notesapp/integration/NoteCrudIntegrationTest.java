@@ -1,12 +1,19 @@
 package ch.hadzic.nikola.notesapp.integration;
 
 import ch.hadzic.nikola.notesapp.config.TestSecurityConfig;
+import ch.hadzic.nikola.notesapp.config.cache.CacheConfig;
+import ch.hadzic.nikola.notesapp.config.cache.EntityCache;
 import ch.hadzic.nikola.notesapp.data.entity.Note;
 import ch.hadzic.nikola.notesapp.data.entity.Tag;
 import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
 import ch.hadzic.nikola.notesapp.data.repository.TagRepository;
 import ch.hadzic.nikola.notesapp.data.repository.TodoRepository;
+import ch.hadzic.nikola.notesapp.data.service.ChangeLogService;
+import ch.hadzic.nikola.notesapp.data.service.NoteContentService;
+import ch.hadzic.nikola.notesapp.data.service.NoteRevisionService;
 import ch.hadzic.nikola.notesapp.data.service.NoteService;
+import ch.hadzic.nikola.notesapp.data.service.StatsService;
+import ch.hadzic.nikola.notesapp.search.NoteSearchIndex;
 import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -27,7 +34,8 @@ import java.time.LocalDateTime;
 import static org.junit.jupiter.api.Assertions.*;
 
 @DataJpaTest
-@Import({NoteService.class, TestSecurityConfig.class})
+@Import({NoteService.class, NoteSearchIndex.class, EntityCache.class, CacheConfig.class, ChangeLogService.class,
+        NoteContentService.class, NoteRevisionService.class, StatsService.class, TestSecurityConfig.class})
 @ActiveProfiles("test")
 class NoteCrudIntegrationTest {
 
@@ -36,6 +44,8 @@ class NoteCrudIntegrationTest {
     @Autowired
     private NoteService noteService;
     @Autowired
+    private NoteContentService noteContentService;
+    @Autowired
     private NoteRepository noteRepository;
     @Autowired
     private TagRepository tagRepository;
@@ -74,7 +84,7 @@ class NoteCrudIntegrationTest {
         Note persisted = noteRepository.findById(created.getId()).orElseThrow();
         assertNotNull(persisted.getId());
         assertEquals("Integration create", persisted.getTitle());
-        assertEquals("content", persisted.getContent());
+        assertEquals("content", noteContentService.load(persisted.getContentHash()));
         assertEquals(USER_1, persisted.getUserId());
         assertNotNull(persisted.getCreatedAt());
         assertNotNull(persisted.getUpdatedAt());
@@ -108,7 +118,7 @@ class NoteCrudIntegrationTest {
 
         Note persisted = noteRepository.findById(created.getId()).orElseThrow();
         assertEquals("New title", persisted.getTitle());
-        assertEquals("New content", persisted.getContent());
+        assertEquals("New content", noteContentService.load(persisted.getContentHash()));
         assertEquals(created.getId(), persisted.getId());
         assertEquals(beforeUpdate.getCreatedAt(), persisted.getCreatedAt());
         assertNotEquals(beforeTimestamp, persisted.getUpdatedAt(), "updatedAt should be refreshed");
@@ -0,0 +1,236 @@
+package ch.hadzic.nikola.notesapp.integration;
+
+import ch.hadzic.nikola.notesapp.config.TestSecurityConfig;
+import ch.hadzic.nikola.notesapp.config.cache.CacheConfig;
+import ch.hadzic.nikola.notesapp.config.cache.EntityCache;
+import ch.hadzic.nikola.notesapp.config.execptions.GlobalExceptionHandler;
+import ch.hadzic.nikola.notesapp.controller.NoteController;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.entity.Tag;
+import ch.hadzic.nikola.notesapp.data.repository.ChangeLogRepository;
+import ch.hadzic.nikola.notesapp.data.repository.ChangeSequenceRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
+import ch.hadzic.nikola.notesapp.data.repository.TagRepository;
+import ch.hadzic.nikola.notesapp.data.service.ChangeLogService;
+import ch.hadzic.nikola.notesapp.data.service.NoteBatchService;
+import ch.hadzic.nikola.notesapp.data.service.NoteContentService;
+import ch.hadzic.nikola.notesapp.data.service.NoteRevisionService;
+import ch.hadzic.nikola.notesapp.data.service.NoteService;
+import ch.hadzic.nikola.notesapp.data.service.StatsService;
+import ch.hadzic.nikola.notesapp.data.service.TagService;
+import ch.hadzic.nikola.notesapp.events.ChangeEventStreamService;
+import ch.hadzic.nikola.notesapp.search.NoteSearchIndex;
+import ch.hadzic.nikola.notesapp.util.TransactionUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Opens event streams through the controller and changes data through the services,
+ * without a test transaction, so events are published on commit like in production.
+ */
+@DataJpaTest(properties = "notesapp.events.heartbeat=200ms")
+@ImportAutoConfiguration(ValidationAutoConfiguration.class)
+@Import({NoteService.class, NoteSearchIndex.class, EntityCache.class, CacheConfig.class, ChangeLogService.class,
+        NoteContentService.class, NoteRevisionService.class, NoteBatchService.class, TagService.class,
+        ChangeEventStreamService.class, StatsService.class, TestSecurityConfig.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NoteEventStreamIntegrationTest {
+
+    private static final String USER_1 = "events-user1";
+    private static final String USER_2 = "events-user2";
+
+    @Autowired
+    private NoteService noteService;
+    @Autowired
+    private NoteBatchService noteBatchService;
+    @Autowired
+    private TagService tagService;
+    @Autowired
+    private ChangeEventStreamService changeEventStreamService;
+    @Autowired
+    private NoteRepository noteRepository;
+    @Autowired
+    private TagRepository tagRepository;
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+    @Autowired
+    private ChangeSequenceRepository changeSequenceRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new NoteController(noteService, noteBatchService, changeEventStreamService))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+        loginAs(USER_1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        changeEventStreamService.shutdown();
+        SecurityContextHolder.clearContext();
+        noteRepository.findAll().forEach(note -> {
+            note.setTags(new HashSet<>());
+            noteRepository.save(note);
+        });
+        noteRepository.deleteAllInBatch();
+        tagRepository.deleteAllInBatch();
+        changeLogRepository.deleteAllInBatch();
+        changeSequenceRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void t111_committedChanges_arePushedToTheOwnersStreams() throws Exception {
+        MockHttpServletResponse stream = open(null);
+        loginAs(USER_2);
+        MockHttpServletResponse otherStream = open(null);
+
+        loginAs(USER_1);
+        Note note = noteService.createNote(Note.builder().title("pushed").build());
+        Tag tag = tagService.create(Tag.builder().name("tag").userId(USER_1).build());
+        noteService.deleteNote(note.getId());
+
+        String events = awaitContent(stream, "event:note.deleted");
+        assertTrue(events.contains("event:note.created"));
+        assertTrue(events.contains("\"id\":" + note.getId()));
+        assertTrue(events.contains("event:tag.created"));
+        assertTrue(events.contains("\"id\":" + tag.getId()));
+        assertFalse(otherStream.getContentAsString().contains("event:"));
+    }
+
+    @Test
+    void t112_lastEventId_replaysMissedChanges() throws Exception {
+        Note seen = noteService.createNote(Note.builder().title("seen").build());
+        long lastEventId = changeSequenceRepository.findLastSeq(USER_1).orElseThrow();
+        Note missed = noteService.createNote(Note.builder().title("missed").build());
+        noteService.deleteNote(seen.getId());
+
+        String events = awaitContent(open(String.valueOf(lastEventId)), "event:note.deleted");
+
+        assertTrue(events.contains("event:note.updated"));
+        assertTrue(events.contains("\"id\":" + missed.getId()));
+        assertFalse(events.contains("id:" + lastEventId + "\n"));
+        assertTrue(events.indexOf("\"id\":" + missed.getId()) < events.indexOf("event:note.deleted"));
+    }
+
+    @Test
+    void t113_unknownLastEventId_sendsReset() throws Exception {
+        noteService.createNote(Note.builder().title("note").build());
+        long lastSeq = changeSequenceRepository.findLastSeq(USER_1).orElseThrow();
+
+        String events = awaitContent(open(String.valueOf(lastSeq + 10)), "event:" + ChangeEventStreamService.RESET_EVENT);
+
+        assertTrue(events.contains("id:" + lastSeq));
+        assertTrue(awaitContent(open("garbage"), "event:reset").contains("\"next\":\"" + lastSeq + "\""));
+    }
+
+    @Test
+    void t114_openStreams_areLimitedPerUser() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            open(null);
+        }
+        assertEquals(5, changeEventStreamService.getOpenStreams(USER_1));
+
+        mockMvc.perform(get("/api/notes/events")).andExpect(status().isTooManyRequests());
+
+        loginAs(USER_2);
+        open(null);
+        assertEquals(1, changeEventStreamService.getOpenStreams(USER_2));
+    }
+
+    @Test
+    void t115_idleStreams_getHeartbeats() throws Exception {
+        assertTrue(awaitContent(open(null), ":heartbeat").startsWith(":heartbeat"));
+    }
+
+    @Test
+    void t116_changesPublishedOutOfOrder_areAllSentInOrder() throws Exception {
+        MockHttpServletResponse stream = open(null);
+        CountDownLatch committed = new CountDownLatch(1);
+        CountDownLatch published = new CountDownLatch(1);
+        AtomicLong earlierId = new AtomicLong();
+
+        // holds back the events of the earlier change until the later one has been sent
+        Thread earlier = Thread.ofVirtual().start(() -> {
+            loginAs(USER_1);
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                TransactionUtil.afterCommit(() -> {
+                    committed.countDown();
+                    try {
+                        published.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                earlierId.set(noteService.createNote(Note.builder().title("earlier").build()).getId());
+            });
+        });
+        assertTrue(committed.await(5, TimeUnit.SECONDS));
+        Note later = noteService.createNote(Note.builder().title("later").build());
+        String events = awaitContent(stream, "\"id\":" + later.getId());
+        published.countDown();
+        earlier.join();
+
+        assertTrue(events.contains("\"id\":" + earlierId.get()));
+        assertTrue(events.indexOf("\"id\":" + earlierId.get()) < events.indexOf("\"id\":" + later.getId()));
+    }
+
+    private MockHttpServletResponse open(String lastEventId) throws Exception {
+        var events = get("/api/notes/events");
+        if (lastEventId != null) {
+            events.header("Last-Event-ID", lastEventId);
+        }
+        return mockMvc.perform(events)
+                .andExpect(request().asyncStarted())
+                .andReturn()
+                .getResponse();
+    }
+
+    private static String awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        String content = response.getContentAsString();
+        while (!content.contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            content = response.getContentAsString();
+        }
+        assertTrue(content.contains(expected), "no " + expected + " in " + content);
+        return content;
+    }
+
+    private static void loginAs(String userId) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(userId, null, Set.of()));
+    }
+}
@@ -0,0 +1,193 @@
+package ch.hadzic.nikola.notesapp.integration;
+
+import ch.hadzic.nikola.notesapp.config.TestSecurityConfig;
+import ch.hadzic.nikola.notesapp.config.cache.CacheConfig;
+import ch.hadzic.nikola.notesapp.config.cache.EntityCache;
+import ch.hadzic.nikola.notesapp.config.execptions.InvalidCursorException;
+import ch.hadzic.nikola.notesapp.data.dto.CursorPage;
+import ch.hadzic.nikola.notesapp.data.dto.NoteSummary;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.entity.Notebook;
+import ch.hadzic.nikola.notesapp.data.entity.Tag;
+import ch.hadzic.nikola.notesapp.data.entity.Todo;
+import ch.hadzic.nikola.notesapp.data.repository.NoteFilter;
+import ch.hadzic.nikola.notesapp.data.repository.NoteListing;
+import ch.hadzic.nikola.notesapp.data.repository.NoteSort;
+import ch.hadzic.nikola.notesapp.data.repository.NotebookRepository;
+import ch.hadzic.nikola.notesapp.data.repository.TagRepository;
+import ch.hadzic.nikola.notesapp.data.repository.TodoRepository;
+import ch.hadzic.nikola.notesapp.data.service.ChangeLogService;
+import ch.hadzic.nikola.notesapp.data.service.NoteContentService;
+import ch.hadzic.nikola.notesapp.data.service.NoteRevisionService;
+import ch.hadzic.nikola.notesapp.data.service.NoteService;
+import ch.hadzic.nikola.notesapp.data.service.StatsService;
+import ch.hadzic.nikola.notesapp.search.NoteSearchIndex;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({NoteService.class, NoteSearchIndex.class, EntityCache.class, CacheConfig.class, ChangeLogService.class,
+        NoteContentService.class, NoteRevisionService.class, StatsService.class, TestSecurityConfig.class})
+@ActiveProfiles("test")
+class NoteFilterIntegrationTest {
+
+    private static final String USER_1 = "filter-user1";
+    private static final String USER_2 = "filter-user2";
+
+    @Autowired
+    private NoteService noteService;
+    @Autowired
+    private TagRepository tagRepository;
+    @Autowired
+    private NotebookRepository notebookRepository;
+    @Autowired
+    private TodoRepository todoRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Tag work;
+    private Tag urgent;
+    private Notebook notebook;
+
+    @BeforeEach
+    void setUp() {
+        loginAs(USER_1);
+        work = tagRepository.save(Tag.builder().name("work").userId(USER_1).build());
+        urgent = tagRepository.save(Tag.builder().name("urgent").userId(USER_1).build());
+        notebook = notebookRepository.save(Notebook.builder().name("projects").userId(USER_1).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void t141_tags_matchAnyOrAll() {
+        create("both", Set.of(work, urgent));
+        create("work", Set.of(work));
+        create("urgent", Set.of(urgent));
+        create("none", Set.of());
+
+        assertEquals(List.of("both", "urgent", "work"),
+                titles(filter(Set.of(work.getId(), urgent.getId()), NoteFilter.TagMatch.ANY), NoteSort.TITLE));
+        assertEquals(List.of("both"),
+                titles(filter(Set.of(work.getId(), urgent.getId()), NoteFilter.TagMatch.ALL), NoteSort.TITLE));
+    }
+
+    @Test
+    void t142_flagsNotebookAndOpenTodos_areCombined() {
+        noteService.createNote(Note.builder().title("in notebook").notebook(notebook)
+                .favorite(true).build());
+        Note withTodo = create("with todo", Set.of());
+        Note doneTodos = create("done todos", Set.of());
+        todoRepository.save(Todo.builder().title("open").note(withTodo).build());
+        todoRepository.save(Todo.builder().title("done").done(true).note(doneTodos).build());
+        noteService.createNote(Note.builder().title("archived").archived(true).build());
+        flushAndClear();
+
+        assertEquals(List.of("in notebook"), titles(new NoteFilter(null, null, notebook.getId(), true, false,
+                null, null, null, null, null), NoteSort.TITLE));
+        assertEquals(List.of("with todo"), titles(new NoteFilter(null, null, null, null, null,
+                null, null, null, null, true), NoteSort.TITLE));
+        assertEquals(List.of("archived", "done todos", "in notebook"), titles(new NoteFilter(null, null, null, null,
+                null, null, null, null, null, false), NoteSort.TITLE));
+    }
+
+    @Test
+    void t143_dateRanges_includeStartAndExcludeEnd() {
+        Note old = create("old", Set.of());
+        Note recent = create("recent", Set.of());
+        flushAndClear();
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        jdbcTemplate.update("update note set created_at = ?, updated_at = ? where id = ?", start, start, old.getId());
+        jdbcTemplate.update("update note set created_at = ?, updated_at = ? where id = ?",
+                start.plusMonths(1), start.plusMonths(2), recent.getId());
+
+        assertEquals(List.of("old"), titles(new NoteFilter(null, null, null, null, null,
+                start, start.plusMonths(1), null, null, null), NoteSort.TITLE));
+        assertEquals(List.of("recent"), titles(new NoteFilter(null, null, null, null, null,
+                null, null, start.plusDays(1), null, null), NoteSort.TITLE));
+    }
+
+    @Test
+    void t144_sortedPages_walkAllNotesWithCursors() {
+        for (String title : List.of("delta", "alpha", "echo", "charlie", "bravo")) {
+            create(title, Set.of());
+        }
+        create("alpha", Set.of());
+        loginAs(USER_2);
+        create("foreign", Set.of());
+        loginAs(USER_1);
+        flushAndClear();
+
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<NoteSummary> page = noteService.getNotePageForCurrentUser(NoteFilter.of(NoteListing.ACTIVE),
+                    NoteSort.TITLE, Sort.Direction.ASC, cursor, 2);
+            page.items().forEach(note -> seen.add(note.title()));
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        assertEquals(List.of("alpha", "alpha", "bravo", "charlie", "delta", "echo"), seen);
+        assertEquals("echo", noteService.getNotePageForCurrentUser(NoteFilter.of(NoteListing.ACTIVE),
+                NoteSort.CREATED_AT, Sort.Direction.ASC, null, 10).items().get(2).title());
+    }
+
+    @Test
+    void t145_cursor_isBoundToItsSortOrder() {
+        create("one", Set.of());
+        create("two", Set.of());
+        String cursor = noteService.getNotePageForCurrentUser(NoteFilter.of(NoteListing.ACTIVE),
+                NoteSort.TITLE, Sort.Direction.ASC, null, 1).nextCursor();
+
+        assertThrows(InvalidCursorException.class, () -> noteService.getNotePageForCurrentUser(
+                NoteFilter.of(NoteListing.ACTIVE), NoteSort.TITLE, Sort.Direction.DESC, cursor, 1));
+        assertEquals("two", noteService.getNotePageForCurrentUser(NoteFilter.of(NoteListing.ACTIVE),
+                NoteSort.TITLE, Sort.Direction.ASC, cursor, 1).items().getFirst().title());
+    }
+
+    private Note create(String title, Set<Tag> tags) {
+        return noteService.createNote(Note.builder().title(title).tags(tags).build());
+    }
+
+    private static NoteFilter filter(Set<Long> tagIds, NoteFilter.TagMatch tagMatch) {
+        return new NoteFilter(tagIds, tagMatch, null, null, null, null, null, null, null, null);
+    }
+
+    private List<String> titles(NoteFilter filter, NoteSort sort) {
+        return noteService.getNotePageForCurrentUser(filter, sort, Sort.Direction.ASC, null, 50).items().stream()
+                .map(NoteSummary::title)
+                .toList();
+    }
+
+    private void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private static void loginAs(String userId) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(userId, null, Set.of()));
+    }
+}
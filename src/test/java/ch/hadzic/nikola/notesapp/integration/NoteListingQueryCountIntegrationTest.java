@@ -0,0 +1,123 @@
+package ch.hadzic.nikola.notesapp.integration;
+
+import ch.hadzic.nikola.notesapp.config.TestSecurityConfig;
+import ch.hadzic.nikola.notesapp.config.cache.CacheConfig;
+import ch.hadzic.nikola.notesapp.config.cache.EntityCache;
+import ch.hadzic.nikola.notesapp.data.dto.NoteSummary;
+import ch.hadzic.nikola.notesapp.data.dto.TagSummary;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.entity.Notebook;
+import ch.hadzic.nikola.notesapp.data.entity.Tag;
+import ch.hadzic.nikola.notesapp.data.repository.NoteListing;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NotebookRepository;
+import ch.hadzic.nikola.notesapp.data.repository.TagRepository;
+import ch.hadzic.nikola.notesapp.data.service.ChangeLogService;
+import ch.hadzic.nikola.notesapp.data.service.NoteContentService;
+import ch.hadzic.nikola.notesapp.data.service.NoteRevisionService;
+import ch.hadzic.nikola.notesapp.data.service.NoteService;
+import ch.hadzic.nikola.notesapp.data.service.StatsService;
+import ch.hadzic.nikola.notesapp.search.NoteSearchIndex;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({NoteService.class, NoteSearchIndex.class, EntityCache.class, CacheConfig.class, ChangeLogService.class,
+        NoteContentService.class, NoteRevisionService.class, StatsService.class, TestSecurityConfig.class})
+@ActiveProfiles("test")
+class NoteListingQueryCountIntegrationTest {
+
+    private static final String USER_1 = "user1";
+
+    @Autowired
+    private NoteService noteService;
+    @Autowired
+    private NoteRepository noteRepository;
+    @Autowired
+    private TagRepository tagRepository;
+    @Autowired
+    private NotebookRepository notebookRepository;
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(new UsernamePasswordAuthenticationToken(USER_1, "pw"));
+        SecurityContextHolder.setContext(context);
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        entityManager.clear();
+    }
+
+    @Test
+    void t041_listingPage_usesConstantNumberOfStatements() {
+        assertEquals(2, statementsForPageOf(5));
+        assertEquals(2, statementsForPageOf(40));
+    }
+
+    @Test
+    void t042_listingPage_carriesTagsAndNotebook() {
+        Notebook notebook = notebookRepository.save(Notebook.builder().name("work").userId(USER_1).build());
+        Tag tag = tagRepository.save(Tag.builder().name("urgent").userId(USER_1).build());
+        noteService.createNote(Note.builder().title("tagged").notebook(notebook).tags(Set.of(tag)).build());
+        noteService.createNote(Note.builder().title("plain").build());
+        entityManager.flush();
+        entityManager.clear();
+
+        List<NoteSummary> items = noteService.getNotePageForCurrentUser(NoteListing.ACTIVE, null, 10).items();
+
+        NoteSummary tagged = items.stream().filter(n -> n.title().equals("tagged")).findFirst().orElseThrow();
+        NoteSummary plain = items.stream().filter(n -> n.title().equals("plain")).findFirst().orElseThrow();
+        assertEquals("work", tagged.notebook().name());
+        assertEquals(List.of("urgent"), tagged.tags().stream().map(TagSummary::name).toList());
+        assertNull(plain.notebook());
+        assertTrue(plain.tags().isEmpty());
+    }
+
+    private long statementsForPageOf(int noteCount) {
+        noteRepository.deleteAllInBatch();
+        Notebook notebook = notebookRepository.save(Notebook.builder().name("nb").userId(USER_1).build());
+        Tag tagA = tagRepository.save(Tag.builder().name("a").userId(USER_1).build());
+        Tag tagB = tagRepository.save(Tag.builder().name("b").userId(USER_1).build());
+        for (int i = 0; i < noteCount; i++) {
+            noteService.createNote(Note.builder()
+                    .title("Note " + i)
+                    .notebook(notebook)
+                    .tags(Set.of(tagA, tagB))
+                    .build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics.clear();
+        List<NoteSummary> items = noteService.getNotePageForCurrentUser(NoteListing.ACTIVE, null, noteCount).items();
+        long statements = statistics.getPrepareStatementCount();
+
+        assertEquals(noteCount, items.size());
+        assertTrue(items.stream().allMatch(n -> n.tags().size() == 2));
+        return statements;
+    }
+}
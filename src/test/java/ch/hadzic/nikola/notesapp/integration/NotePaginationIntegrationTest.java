@@ -0,0 +1,127 @@
+package ch.hadzic.nikola.notesapp.integration;
+
+import ch.hadzic.nikola.notesapp.config.TestSecurityConfig;
+import ch.hadzic.nikola.notesapp.config.cache.CacheConfig;
+import ch.hadzic.nikola.notesapp.config.cache.EntityCache;
+import ch.hadzic.nikola.notesapp.config.execptions.InvalidCursorException;
+import ch.hadzic.nikola.notesapp.data.dto.CursorPage;
+import ch.hadzic.nikola.notesapp.data.dto.NoteSummary;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.repository.NoteListing;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
+import ch.hadzic.nikola.notesapp.data.service.ChangeLogService;
+import ch.hadzic.nikola.notesapp.data.service.NoteContentService;
+import ch.hadzic.nikola.notesapp.data.service.NoteRevisionService;
+import ch.hadzic.nikola.notesapp.data.service.NoteService;
+import ch.hadzic.nikola.notesapp.data.service.StatsService;
+import ch.hadzic.nikola.notesapp.search.NoteSearchIndex;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({NoteService.class, NoteSearchIndex.class, EntityCache.class, CacheConfig.class, ChangeLogService.class,
+        NoteContentService.class, NoteRevisionService.class, StatsService.class, TestSecurityConfig.class})
+@ActiveProfiles("test")
+class NotePaginationIntegrationTest {
+
+    private static final String USER_1 = "user1";
+    private static final String USER_2 = "user2";
+
+    @Autowired
+    private NoteService noteService;
+    @Autowired
+    private NoteRepository noteRepository;
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        loginAs(USER_1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        noteRepository.deleteAllInBatch();
+        entityManager.clear();
+    }
+
+    @Test
+    void t031_walkingAllPages_returnsEveryNoteOnceInKeysetOrder() {
+        for (int i = 0; i < 7; i++) {
+            noteService.createNote(Note.builder().title("Note " + i).content("c").build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Long> expected = noteRepository.findAll().stream()
+                .sorted(Comparator.comparing(Note::getUpdatedAt).thenComparing(Note::getId).reversed())
+                .map(Note::getId)
+                .toList();
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<NoteSummary> page = noteService.getNotePageForCurrentUser(NoteListing.ACTIVE, cursor, 3);
+            page.items().forEach(note -> seen.add(note.id()));
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages, "7 notes with page size 3 must span 3 pages");
+        assertEquals(expected, seen);
+    }
+
+    @Test
+    void t032_listings_areScopedToUserAndFlags() {
+        noteService.createNote(Note.builder().title("active").build());
+        noteService.createNote(Note.builder().title("archived").archived(true).build());
+        noteService.createNote(Note.builder().title("favourite").favorite(true).build());
+        loginAs(USER_2);
+        noteService.createNote(Note.builder().title("foreign").build());
+        loginAs(USER_1);
+
+        List<String> active = titles(NoteListing.ACTIVE);
+        List<String> archived = titles(NoteListing.ARCHIVED);
+        List<String> favourite = titles(NoteListing.FAVOURITE);
+
+        assertEquals(2, active.size());
+        assertFalse(active.contains("foreign"));
+        assertEquals(List.of("archived"), archived);
+        assertEquals(List.of("favourite"), favourite);
+    }
+
+    @Test
+    void t033_invalidCursor_isRejected() {
+        assertThrows(InvalidCursorException.class,
+                () -> noteService.getNotePageForCurrentUser(NoteListing.ACTIVE, "not-a-cursor", 10));
+    }
+
+    private List<String> titles(NoteListing listing) {
+        return noteService.getNotePageForCurrentUser(listing, null, NoteService.MAX_PAGE_SIZE).items().stream()
+                .map(NoteSummary::title)
+                .toList();
+    }
+
+    private void loginAs(String userId) {
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(new UsernamePasswordAuthenticationToken(userId, "pw"));
+        SecurityContextHolder.setContext(context);
+    }
+}
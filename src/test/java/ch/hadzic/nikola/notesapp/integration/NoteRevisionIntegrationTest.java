@@ -0,0 +1,192 @@
+package ch.hadzic.nikola.notesapp.integration;
+
+import ch.hadzic.nikola.notesapp.config.TestSecurityConfig;
+import ch.hadzic.nikola.notesapp.config.cache.CacheConfig;
+import ch.hadzic.nikola.notesapp.config.cache.EntityCache;
+import ch.hadzic.nikola.notesapp.config.execptions.RevisionNotFoundException;
+import ch.hadzic.nikola.notesapp.data.dto.NoteRevisionSummary;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.entity.NoteRevision;
+import ch.hadzic.nikola.notesapp.data.repository.ChangeLogRepository;
+import ch.hadzic.nikola.notesapp.data.repository.ChangeSequenceRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NoteContentRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRevisionRepository;
+import ch.hadzic.nikola.notesapp.data.service.ChangeLogService;
+import ch.hadzic.nikola.notesapp.data.service.NoteContentService;
+import ch.hadzic.nikola.notesapp.data.service.NoteRevisionService;
+import ch.hadzic.nikola.notesapp.data.service.NoteService;
+import ch.hadzic.nikola.notesapp.data.service.StatsService;
+import ch.hadzic.nikola.notesapp.search.NoteSearchIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs with a short snapshot interval and history, without a test transaction,
+ * as contents are inserted in their own transaction.
+ */
+@DataJpaTest(properties = {"notesapp.revisions.snapshot-interval=3", "notesapp.revisions.max-per-note=4"})
+@Import({NoteService.class, NoteSearchIndex.class, EntityCache.class, CacheConfig.class, ChangeLogService.class,
+        NoteContentService.class, NoteRevisionService.class, StatsService.class, TestSecurityConfig.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NoteRevisionIntegrationTest {
+
+    private static final String USER_1 = "revision-user1";
+    private static final String USER_2 = "revision-user2";
+    private static final String TEXT = "Lorem ipsum dolor sit amet, consectetur adipiscing elit. ".repeat(20);
+
+    @Autowired
+    private NoteService noteService;
+    @Autowired
+    private NoteRevisionService noteRevisionService;
+    @Autowired
+    private NoteRepository noteRepository;
+    @Autowired
+    private NoteRevisionRepository noteRevisionRepository;
+    @Autowired
+    private NoteContentRepository noteContentRepository;
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+    @Autowired
+    private ChangeSequenceRepository changeSequenceRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        loginAs(USER_1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        noteRevisionRepository.deleteAllInBatch();
+        noteRepository.deleteAllInBatch();
+        noteContentRepository.deleteAllInBatch();
+        changeLogRepository.deleteAllInBatch();
+        changeSequenceRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void t131_changes_areKeptAsDeltasBetweenSnapshots() {
+        Note note = noteService.createNote(Note.builder().title("v1").content(TEXT + "1").build());
+        for (int version = 2; version <= 5; version++) {
+            update(note.getId(), "v" + version, TEXT + version);
+        }
+
+        List<NoteRevisionSummary> history = noteService.getRevisions(note.getId(), null, 10);
+        assertEquals(List.of(5, 4, 3, 2, 1), history.stream().map(NoteRevisionSummary::number).toList());
+        assertEquals(TEXT.length() + 1, history.getFirst().contentLength());
+        assertEquals(List.of(NoteRevision.Kind.SNAPSHOT, NoteRevision.Kind.DELTA, NoteRevision.Kind.DELTA,
+                        NoteRevision.Kind.SNAPSHOT, NoteRevision.Kind.DELTA),
+                noteRevisionRepository.findAll().stream()
+                        .sorted((a, b) -> Integer.compare(a.getNumber(), b.getNumber()))
+                        .map(NoteRevision::getKind)
+                        .toList());
+        for (int version = 1; version <= 5; version++) {
+            assertEquals("v" + version, noteService.getRevision(note.getId(), version).title());
+            assertEquals(TEXT + version, noteService.getRevision(note.getId(), version).content());
+        }
+        assertEquals(List.of(2, 1), noteService.getRevisions(note.getId(), 3, 10).stream()
+                .map(NoteRevisionSummary::number).toList());
+    }
+
+    @Test
+    void t132_unchangedUpdates_addNoRevision() {
+        Note note = noteService.createNote(Note.builder().title("same").content(TEXT).build());
+
+        update(note.getId(), "same", TEXT);
+        update(note.getId(), "renamed", TEXT);
+
+        assertEquals(2, noteRevisionRepository.count());
+        assertEquals(TEXT, noteService.getRevision(note.getId(), 2).content());
+        assertEquals("same", noteService.getRevision(note.getId(), 1).title());
+    }
+
+    @Test
+    void t133_restore_addsTheOldStateAsNewRevision() {
+        Note note = noteService.createNote(Note.builder().title("first").content(TEXT).build());
+        noteService.updateNote(Note.builder().id(note.getId()).title("second").content(TEXT + "more").favorite(true)
+                .build());
+
+        Note restored = noteService.restoreRevision(note.getId(), 1);
+
+        assertEquals("first", restored.getTitle());
+        assertEquals(TEXT, noteService.getNoteById(note.getId()).getContent());
+        assertTrue(restored.isFavorite());
+        assertEquals(3, noteService.getRevisions(note.getId(), null, 10).getFirst().number());
+    }
+
+    @Test
+    void t134_compaction_keepsTheLatestRevisionsReadable() {
+        Note note = noteService.createNote(Note.builder().title("v1").content(TEXT + "1").build());
+        for (int version = 2; version <= 6; version++) {
+            update(note.getId(), "v" + version, TEXT + version);
+        }
+
+        assertEquals(2, noteRevisionService.compact());
+
+        assertEquals(List.of(6, 5, 4, 3), noteService.getRevisions(note.getId(), null, 10).stream()
+                .map(NoteRevisionSummary::number).toList());
+        assertEquals(NoteRevision.Kind.SNAPSHOT,
+                noteRevisionRepository.findByNoteIdAndNumber(note.getId(), 3).orElseThrow().getKind());
+        for (int version = 3; version <= 6; version++) {
+            assertEquals(TEXT + version, noteService.getRevision(note.getId(), version).content());
+        }
+        assertThrows(RevisionNotFoundException.class, () -> noteService.getRevision(note.getId(), 2));
+
+        jdbcTemplate.update("update note_revision set created_at = ?", LocalDateTime.now().minusDays(100));
+        assertEquals(3, noteRevisionService.compact());
+        assertEquals(TEXT + 6, noteService.getRevision(note.getId(), 6).content());
+        assertEquals(0, noteRevisionService.compact());
+    }
+
+    @Test
+    void t135_revisions_areOwnedAndDeletedWithTheirNote() {
+        Note note = noteService.createNote(Note.builder().title("owned").content(TEXT).build());
+        Note legacy = noteService.createNote(Note.builder().title("legacy").content(TEXT).build());
+        noteRevisionRepository.deleteAllInBatch();
+
+        update(legacy.getId(), "legacy", TEXT + "edited");
+        assertEquals(List.of(2, 1), noteService.getRevisions(legacy.getId(), null, 10).stream()
+                .map(NoteRevisionSummary::number).toList());
+        assertEquals(TEXT, noteService.getRevision(legacy.getId(), 1).content());
+
+        update(note.getId(), "owned", TEXT + "edited");
+        loginAs(USER_2);
+        assertThrows(SecurityException.class, () -> noteService.getRevisions(note.getId(), null, 10));
+        assertThrows(SecurityException.class, () -> noteService.restoreRevision(note.getId(), 1));
+
+        loginAs(USER_1);
+        assertThrows(RevisionNotFoundException.class, () -> noteService.getRevision(note.getId(), 7));
+        noteService.deleteNote(note.getId());
+        noteService.deleteNote(legacy.getId());
+        assertEquals(0, noteRevisionRepository.count());
+    }
+
+    private void update(Long id, String title, String content) {
+        noteService.updateNote(Note.builder().id(id).title(title).content(content).build());
+    }
+
+    private static void loginAs(String userId) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(userId, null, Set.of()));
+    }
+}
@@ -0,0 +1,151 @@
+package ch.hadzic.nikola.notesapp.integration;
+
+import ch.hadzic.nikola.notesapp.config.TestSecurityConfig;
+import ch.hadzic.nikola.notesapp.config.cache.CacheConfig;
+import ch.hadzic.nikola.notesapp.config.cache.EntityCache;
+import ch.hadzic.nikola.notesapp.config.execptions.TagNotFoundException;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.entity.Tag;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
+import ch.hadzic.nikola.notesapp.data.repository.TagRepository;
+import ch.hadzic.nikola.notesapp.data.service.ChangeLogService;
+import ch.hadzic.nikola.notesapp.data.service.NoteContentService;
+import ch.hadzic.nikola.notesapp.data.service.NoteRevisionService;
+import ch.hadzic.nikola.notesapp.data.service.NoteService;
+import ch.hadzic.nikola.notesapp.data.service.StatsService;
+import ch.hadzic.nikola.notesapp.search.NoteSearchIndex;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({NoteService.class, NoteSearchIndex.class, EntityCache.class, CacheConfig.class, ChangeLogService.class,
+        NoteContentService.class, NoteRevisionService.class, StatsService.class, TestSecurityConfig.class})
+@ActiveProfiles("test")
+class NoteTagAssignmentIntegrationTest {
+
+    private static final String USER_1 = "tagging-user1";
+
+    @Autowired
+    private NoteService noteService;
+    @Autowired
+    private NoteRepository noteRepository;
+    @Autowired
+    private TagRepository tagRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(USER_1, null, Set.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void t171_setTags_writesOnlyTheDifference() {
+        Tag kept = tag("kept");
+        Tag removed = tag("removed");
+        Tag added = tag("added");
+        Note note = noteService.createNote(Note.builder().title("note").content("content")
+                .tags(Set.of(kept, removed)).build());
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = statistics();
+
+        Note updated = noteService.setTags(note.getId(), Set.of(kept.getId(), added.getId()), null);
+        entityManager.flush();
+
+        assertEquals(Set.of(kept.getId(), added.getId()), tagIds(updated));
+        assertEquals("content", updated.getContent());
+        assertEquals(1, statistics.getEntityDeleteCount() + statistics.getCollectionRemoveCount()
+                + statistics.getCollectionUpdateCount());
+        assertEquals(Set.of(kept.getId(), added.getId()), storedTagIds(note.getId()));
+    }
+
+    @Test
+    void t172_taggingWithAPopularTag_doesNotLoadItsNotes() {
+        Tag popular = tag("popular");
+        for (int i = 0; i < 200; i++) {
+            noteRepository.save(Note.builder().title("tagged " + i).userId(USER_1).tags(Set.of(popular)).build());
+        }
+        Note note = noteService.createNote(Note.builder().title("note").build());
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = statistics();
+
+        noteService.setTags(note.getId(), Set.of(popular.getId()), null);
+        noteService.updateNote(Note.builder().id(note.getId()).title("changed").tags(Set.of(popular)).build());
+        entityManager.flush();
+
+        assertEquals(0, statistics.getCollectionStatistics(Tag.class.getName() + ".notes").getLoadCount());
+        assertEquals(Set.of(popular.getId()), storedTagIds(note.getId()));
+    }
+
+    @Test
+    void t173_unknownOrForeignTags_areRejected() {
+        Tag own = tag("own");
+        Tag foreign = tagRepository.save(Tag.builder().name("foreign").userId("someone-else").build());
+        Note note = noteService.createNote(Note.builder().title("note").tags(Set.of(own)).build());
+
+        assertThrows(TagNotFoundException.class,
+                () -> noteService.setTags(note.getId(), Set.of(own.getId(), foreign.getId()), null));
+        assertThrows(TagNotFoundException.class,
+                () -> noteService.updateNote(Note.builder().id(note.getId()).title("note")
+                        .tags(Set.of(Tag.builder().id(-1L).build())).build()));
+    }
+
+    @Test
+    void t174_updateNote_replacesTheTagSet() {
+        Tag first = tag("first");
+        Tag second = tag("second");
+        Note note = noteService.createNote(Note.builder().title("note").tags(Set.of(first)).build());
+
+        noteService.updateNote(Note.builder().id(note.getId()).title("note")
+                .tags(Set.of(Tag.builder().id(second.getId()).build())).build());
+        entityManager.flush();
+
+        assertEquals(Set.of(second.getId()), storedTagIds(note.getId()));
+    }
+
+    private Tag tag(String name) {
+        return tagRepository.save(Tag.builder().name(name).userId(USER_1).build());
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
+    private Set<Long> storedTagIds(Long noteId) {
+        return Set.copyOf(jdbcTemplate.queryForList("select tag_id from note_tag where note_id = ?", Long.class,
+                noteId));
+    }
+
+    private static Set<Long> tagIds(Note note) {
+        return note.getTags().stream().map(Tag::getId).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,275 @@
+package ch.hadzic.nikola.notesapp.integration;
+
+import ch.hadzic.nikola.notesapp.config.TestSecurityConfig;
+import ch.hadzic.nikola.notesapp.config.cache.CacheConfig;
+import ch.hadzic.nikola.notesapp.config.cache.EntityCache;
+import ch.hadzic.nikola.notesapp.config.execptions.GlobalExceptionHandler;
+import ch.hadzic.nikola.notesapp.controller.NotebookController;
+import ch.hadzic.nikola.notesapp.data.dto.NotebookUsage;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.entity.Notebook;
+import ch.hadzic.nikola.notesapp.data.entity.SyncEntityType;
+import ch.hadzic.nikola.notesapp.data.entity.Tag;
+import ch.hadzic.nikola.notesapp.data.entity.Todo;
+import ch.hadzic.nikola.notesapp.data.repository.ChangeLogRepository;
+import ch.hadzic.nikola.notesapp.data.repository.ChangeSequenceRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRevisionRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NotebookRepository;
+import ch.hadzic.nikola.notesapp.data.repository.StatCounterRepository;
+import ch.hadzic.nikola.notesapp.data.repository.TagRepository;
+import ch.hadzic.nikola.notesapp.data.repository.TodoRepository;
+import ch.hadzic.nikola.notesapp.data.service.ChangeLogService;
+import ch.hadzic.nikola.notesapp.data.service.NoteContentService;
+import ch.hadzic.nikola.notesapp.data.service.NoteRevisionService;
+import ch.hadzic.nikola.notesapp.data.service.NoteService;
+import ch.hadzic.nikola.notesapp.data.service.NotebookService;
+import ch.hadzic.nikola.notesapp.data.service.StatsService;
+import ch.hadzic.nikola.notesapp.data.service.TagService;
+import ch.hadzic.nikola.notesapp.search.NoteSearchIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs without a test transaction, as bulk statements and recounts take effect on commit.
+ */
+@DataJpaTest
+@Import({NoteService.class, NoteSearchIndex.class, EntityCache.class, CacheConfig.class, ChangeLogService.class,
+        NoteContentService.class, NoteRevisionService.class, TagService.class, NotebookService.class,
+        StatsService.class, TestSecurityConfig.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NotebookContentsIntegrationTest {
+
+    private static final String USER_1 = "notebooks-user1";
+
+    @Autowired
+    private NotebookService notebookService;
+    @Autowired
+    private NoteService noteService;
+    @Autowired
+    private TagService tagService;
+    @Autowired
+    private StatsService statsService;
+    @Autowired
+    private NoteRepository noteRepository;
+    @Autowired
+    private NotebookRepository notebookRepository;
+    @Autowired
+    private TagRepository tagRepository;
+    @Autowired
+    private TodoRepository todoRepository;
+    @Autowired
+    private NoteRevisionRepository noteRevisionRepository;
+    @Autowired
+    private StatCounterRepository statCounterRepository;
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+    @Autowired
+    private ChangeSequenceRepository changeSequenceRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new NotebookController(notebookService, noteService))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(USER_1, null, Set.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        todoRepository.deleteAllInBatch();
+        noteRepository.findAll().forEach(note -> {
+            note.setTags(new HashSet<>());
+            noteRepository.save(note);
+        });
+        noteRevisionRepository.deleteAllInBatch();
+        noteRepository.deleteAllInBatch();
+        tagRepository.deleteAllInBatch();
+        notebookRepository.deleteAllInBatch();
+        statCounterRepository.deleteAllInBatch();
+        changeLogRepository.deleteAllInBatch();
+        changeSequenceRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void t191_notebookListing_carriesNoteCountsAndLastChanges() {
+        Notebook work = notebook("work");
+        Notebook empty = notebook("Empty");
+        noteService.createNote(Note.builder().title("one").notebook(work).build());
+        Note latest = noteService.createNote(Note.builder().title("two").archived(true).notebook(work).build());
+        noteService.createNote(Note.builder().title("unfiled").build());
+        LocalDateTime lastModified = noteRepository.findById(latest.getId()).orElseThrow().getUpdatedAt();
+
+        List<NotebookUsage> usages = notebookService.getUsagesForUser(USER_1);
+
+        assertEquals(List.of(new NotebookUsage(empty.getId(), "Empty", null, 0, null),
+                new NotebookUsage(work.getId(), "work", null, 2, lastModified)), usages);
+    }
+
+    @Test
+    void t192_notebookNotes_arePagedNewestFirst() throws Exception {
+        Notebook notebook = notebook("paged");
+        Note first = noteService.createNote(Note.builder().title("first").notebook(notebook).build());
+        noteService.createNote(Note.builder().title("elsewhere").build());
+        Note second = noteService.createNote(Note.builder().title("second").notebook(notebook).build());
+        Note third = noteService.createNote(Note.builder().title("third").notebook(notebook).build());
+
+        String cursor = mockMvc.perform(get("/api/notebooks/{id}/notes", notebook.getId()).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[*].id", contains(third.getId().intValue(), second.getId().intValue())))
+                .andExpect(header().string("Link", containsString("rel=\"next\"")))
+                .andReturn().getResponse().getContentAsString()
+                .replaceAll(".*\"nextCursor\":\"([^\"]+)\".*", "$1");
+
+        mockMvc.perform(get("/api/notebooks/{id}/notes", notebook.getId()).param("limit", "2").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[*].id", contains(first.getId().intValue())))
+                .andExpect(jsonPath("$.nextCursor", nullValue()));
+
+        Notebook foreign = notebookRepository.save(Notebook.builder().name("foreign").userId("someone-else").build());
+        mockMvc.perform(get("/api/notebooks/{id}/notes", foreign.getId())).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void t193_notes_areMovedBetweenNotebooks() throws Exception {
+        Notebook source = notebook("source");
+        Notebook target = notebook("target");
+        Note moved = noteService.createNote(Note.builder().title("moved").notebook(source).build());
+        Note kept = noteService.createNote(Note.builder().title("kept").notebook(source).build());
+        Note other = noteService.createNote(Note.builder().title("other").build());
+
+        mockMvc.perform(post("/api/notebooks/{id}/notes/move", source.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"noteIds\":[" + moved.getId() + "," + other.getId() + "],\"targetNotebookId\":"
+                                + target.getId() + "}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.notes", is(1)));
+
+        assertEquals(target.getId(), noteService.getNoteById(moved.getId()).getNotebook().getId());
+        assertNull(noteRepository.findById(other.getId()).orElseThrow().getNotebook());
+        assertEquals(Map.of(source.getId(), 1L, target.getId(), 1L), statsService.getStats(USER_1).notebooks());
+        // moved notes are synced again, so their change comes after the later created ones
+        assertTrue(changeSeq(moved) > changeSeq(other));
+
+        // without ids all notes are moved, without a target they leave any notebook
+        assertEquals(1, notebookService.moveNotes(source.getId(), null, null));
+        assertNull(noteRepository.findById(kept.getId()).orElseThrow().getNotebook());
+        assertEquals(Map.of(target.getId(), 1L), statsService.getStats(USER_1).notebooks());
+
+        Notebook foreign = notebookRepository.save(Notebook.builder().name("foreign").userId("someone-else").build());
+        mockMvc.perform(post("/api/notebooks/{id}/notes/move", target.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"targetNotebookId\":" + foreign.getId() + "}"))
+                .andExpect(status().isNotFound());
+        assertEquals(target.getId(), noteRepository.findById(moved.getId()).orElseThrow().getNotebook().getId());
+    }
+
+    @Test
+    void t194_selectedNotes_areDeletedWithTheirTodosTagsAndRevisions() throws Exception {
+        Notebook notebook = notebook("cleanup");
+        Tag tag = tagService.create(Tag.builder().name("tag").userId(USER_1).build());
+        Note deleted = noteService.createNote(withTodo(Note.builder().title("deleted").notebook(notebook)
+                .tags(Set.of(tag)).build()));
+        Note kept = noteService.createNote(Note.builder().title("kept").notebook(notebook).tags(Set.of(tag)).build());
+        Long todoId = todoRepository.findIdsByNoteIdIn(List.of(deleted.getId())).getFirst();
+
+        mockMvc.perform(delete("/api/notebooks/{id}/notes", notebook.getId()).param("id", deleted.getId().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.notes", is(1)));
+
+        assertEquals(List.of(kept.getId()), noteRepository.findIdsByNotebookId(notebook.getId()));
+        assertEquals(0, todoRepository.count());
+        assertEquals(List.of(kept.getId()), noteRepository.findIdsByTagId(tag.getId()));
+        assertEquals(1, noteRevisionRepository.count());
+        assertTrue(noteService.searchNotesForCurrentUser("deleted", 10).isEmpty());
+        assertTrue(changeLogRepository.findByUserIdAndEntityTypeAndEntityIdIn(USER_1, SyncEntityType.TODO,
+                Set.of(todoId)).getFirst().isDeleted());
+        assertEquals(Map.of(notebook.getId(), 1L), statsService.getStats(USER_1).notebooks());
+        assertEquals(Map.of(tag.getId(), 1L), statsService.getStats(USER_1).tags());
+        assertEquals(0, statsService.getStats(USER_1).openTodos());
+
+        String tooMany = IntStream.rangeClosed(1, NotebookService.MAX_SELECTED_NOTES + 1)
+                .mapToObj(String::valueOf)
+                .collect(Collectors.joining(","));
+        mockMvc.perform(delete("/api/notebooks/{id}/notes", notebook.getId()).param("id", tooMany))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void t195_deletingANotebook_deletesAllItsNotesInChunks() {
+        Notebook notebook = notebook("large");
+        noteService.createNote(withTodo(Note.builder().title("template").notebook(notebook).build()));
+        int count = NoteService.BULK_CHUNK_SIZE + 1;
+        jdbcTemplate.update("""
+                insert into note (id, title, user_id, notebook_id, is_favorite, is_archived, created_at, updated_at)
+                select next value for note_seq, 'copy ' || x, ?, ?, false, false, now(), now()
+                from system_range(2, ?)""", USER_1, notebook.getId(), count);
+        statsService.reconcileAll();
+        Note elsewhere = noteService.createNote(Note.builder().title("elsewhere").build());
+
+        notebookService.delete(notebook.getId());
+
+        assertTrue(notebookRepository.findById(notebook.getId()).isEmpty());
+        assertEquals(List.of(elsewhere.getId()), noteRepository.findAll().stream().map(Note::getId).toList());
+        assertEquals(0, todoRepository.count());
+        assertTrue(noteService.searchNotesForCurrentUser("template", 10).isEmpty());
+        assertEquals(count, changeLogRepository.findAll().stream()
+                .filter(entry -> entry.getEntityType() == SyncEntityType.NOTE && entry.isDeleted())
+                .count());
+        assertEquals(1, statsService.getStats(USER_1).notes());
+        assertTrue(statsService.getStats(USER_1).notebooks().isEmpty());
+    }
+
+    private Notebook notebook(String name) {
+        return notebookService.create(Notebook.builder().name(name).userId(USER_1).build());
+    }
+
+    private long changeSeq(Note note) {
+        return changeLogRepository.findByUserIdAndEntityTypeAndEntityIdIn(USER_1, SyncEntityType.NOTE,
+                Set.of(note.getId())).getFirst().getSeq();
+    }
+
+    private static Note withTodo(Note note) {
+        Todo todo = Todo.builder().title("todo of " + note.getTitle()).note(note).build();
+        note.setTodos(List.of(todo));
+        return note;
+    }
+}
@@ -0,0 +1,55 @@
+package ch.hadzic.nikola.notesapp.integration;
+
+import ch.hadzic.nikola.notesapp.config.metrics.RepositoryRowMetricsConfig;
+import ch.hadzic.nikola.notesapp.data.entity.Tag;
+import ch.hadzic.nikola.notesapp.data.repository.TagRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({RepositoryRowMetricsConfig.class, SimpleMeterRegistry.class})
+@ActiveProfiles("test")
+class RepositoryMetricsIntegrationTest {
+
+    @Autowired
+    private TagRepository tagRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void t091_collectionResults_recordRowCountPerMethod() {
+        tagRepository.save(Tag.builder().name("a").userId("user1").build());
+        tagRepository.save(Tag.builder().name("b").userId("user1").build());
+
+        tagRepository.findAll();
+
+        DistributionSummary rows = meterRegistry.get("notesapp.repository.rows")
+                .tag("repository", "TagRepository")
+                .tag("method", "findAll")
+                .summary();
+        assertEquals(1, rows.count());
+        assertEquals(2, rows.totalAmount());
+    }
+
+    @Test
+    void t092_optionalResults_countAsZeroOrOne() {
+        Tag tag = tagRepository.save(Tag.builder().name("a").userId("user1").build());
+
+        tagRepository.findById(tag.getId());
+        tagRepository.findById(-1L);
+
+        DistributionSummary rows = meterRegistry.get("notesapp.repository.rows")
+                .tag("method", "findById")
+                .summary();
+        assertEquals(2, rows.count());
+        assertEquals(1, rows.totalAmount());
+    }
+}
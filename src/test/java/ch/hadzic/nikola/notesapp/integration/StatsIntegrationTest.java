@@ -0,0 +1,191 @@
+package ch.hadzic.nikola.notesapp.integration;
+
+import ch.hadzic.nikola.notesapp.config.TestSecurityConfig;
+import ch.hadzic.nikola.notesapp.config.cache.CacheConfig;
+import ch.hadzic.nikola.notesapp.config.cache.EntityCache;
+import ch.hadzic.nikola.notesapp.data.dto.NoteBatchOperation;
+import ch.hadzic.nikola.notesapp.data.dto.NoteBatchResult;
+import ch.hadzic.nikola.notesapp.data.dto.UserStats;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.entity.Notebook;
+import ch.hadzic.nikola.notesapp.data.entity.Tag;
+import ch.hadzic.nikola.notesapp.data.entity.Todo;
+import ch.hadzic.nikola.notesapp.data.repository.ChangeLogRepository;
+import ch.hadzic.nikola.notesapp.data.repository.ChangeSequenceRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NotebookRepository;
+import ch.hadzic.nikola.notesapp.data.repository.StatCounterRepository;
+import ch.hadzic.nikola.notesapp.data.repository.TagRepository;
+import ch.hadzic.nikola.notesapp.data.repository.TodoRepository;
+import ch.hadzic.nikola.notesapp.data.service.ChangeLogService;
+import ch.hadzic.nikola.notesapp.data.service.NoteBatchService;
+import ch.hadzic.nikola.notesapp.data.service.NoteContentService;
+import ch.hadzic.nikola.notesapp.data.service.NoteRevisionService;
+import ch.hadzic.nikola.notesapp.data.service.NoteService;
+import ch.hadzic.nikola.notesapp.data.service.NotebookService;
+import ch.hadzic.nikola.notesapp.data.service.StatsService;
+import ch.hadzic.nikola.notesapp.data.service.TagService;
+import ch.hadzic.nikola.notesapp.data.service.TodoService;
+import ch.hadzic.nikola.notesapp.search.NoteSearchIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs without a test transaction, as counters are created and recounted in their own transactions.
+ */
+@DataJpaTest
+@ImportAutoConfiguration(ValidationAutoConfiguration.class)
+@Import({NoteService.class, NoteSearchIndex.class, EntityCache.class, CacheConfig.class, ChangeLogService.class,
+        NoteContentService.class, NoteRevisionService.class, NoteBatchService.class, TagService.class,
+        NotebookService.class, TodoService.class, StatsService.class, TestSecurityConfig.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StatsIntegrationTest {
+
+    private static final String USER_1 = "stats-user1";
+
+    @Autowired
+    private StatsService statsService;
+    @Autowired
+    private NoteService noteService;
+    @Autowired
+    private NoteBatchService noteBatchService;
+    @Autowired
+    private TagService tagService;
+    @Autowired
+    private NotebookService notebookService;
+    @Autowired
+    private TodoService todoService;
+    @Autowired
+    private NoteRepository noteRepository;
+    @Autowired
+    private TagRepository tagRepository;
+    @Autowired
+    private NotebookRepository notebookRepository;
+    @Autowired
+    private TodoRepository todoRepository;
+    @Autowired
+    private StatCounterRepository statCounterRepository;
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+    @Autowired
+    private ChangeSequenceRepository changeSequenceRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(USER_1, null,
+                List.of(new SimpleGrantedAuthority("ROLE_write"), new SimpleGrantedAuthority("ROLE_update"),
+                        new SimpleGrantedAuthority("ROLE_delete"))));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        todoRepository.deleteAllInBatch();
+        noteRepository.findAll().forEach(note -> {
+            note.setTags(new HashSet<>());
+            noteRepository.save(note);
+        });
+        noteRepository.deleteAllInBatch();
+        tagRepository.deleteAllInBatch();
+        notebookRepository.deleteAllInBatch();
+        statCounterRepository.deleteAllInBatch();
+        changeLogRepository.deleteAllInBatch();
+        changeSequenceRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void t151_writes_updateTheCounters() {
+        Tag tag = tagService.create(Tag.builder().name("tag").userId(USER_1).build());
+        Notebook notebook = notebookService.create(Notebook.builder().name("book").userId(USER_1).build());
+        Note first = noteService.createNote(Note.builder().title("first").favorite(true).tags(Set.of(tag))
+                .notebook(notebook).build());
+        Note second = noteService.createNote(Note.builder().title("second").build());
+        todoService.create(Todo.builder().title("open").note(first).build());
+        todoService.create(Todo.builder().title("overdue").dueDate(LocalDate.now().minusDays(1))
+                .note(second).build());
+        Todo done = todoService.create(Todo.builder().title("done").note(first).build());
+        done.setDone(true);
+        todoService.update(done);
+
+        noteService.updateNote(Note.builder().id(second.getId()).title("second").archived(true).tags(Set.of(tag))
+                .build());
+        UserStats stats = statsService.getStatsForCurrentUser();
+        assertEquals(new UserStats(2, 1, 1, 2, 1, Map.of(notebook.getId(), 1L), Map.of(tag.getId(), 2L)), stats);
+
+        noteService.deleteNote(second.getId());
+        assertEquals(new UserStats(1, 1, 0, 1, 0, Map.of(notebook.getId(), 1L), Map.of(tag.getId(), 1L)),
+                statsService.getStatsForCurrentUser());
+        assertEquals(0, statsService.reconcileAll());
+    }
+
+    @Test
+    void t152_batches_updateTheCounters() {
+        Note existing = noteService.createNote(Note.builder().title("existing").build());
+        Note doomed = noteService.createNote(Note.builder().title("doomed").favorite(true).build());
+        todoService.create(Todo.builder().title("open").note(doomed).build());
+
+        List<NoteBatchResult> results = noteBatchService.apply(List.of(
+                new NoteBatchOperation(NoteBatchOperation.Type.CREATE, null,
+                        Note.builder().title("created").favorite(true).build()),
+                new NoteBatchOperation(NoteBatchOperation.Type.UPDATE, existing.getId(),
+                        Note.builder().title("existing").archived(true).build()),
+                new NoteBatchOperation(NoteBatchOperation.Type.DELETE, doomed.getId(), null)));
+
+        assertTrue(results.stream().allMatch(result -> result.status() < 300));
+        assertEquals(new UserStats(2, 1, 1, 0, 0, Map.of(), Map.of()), statsService.getStatsForCurrentUser());
+        assertEquals(0, statsService.reconcileAll());
+    }
+
+    @Test
+    void t153_reconciliation_correctsDriftAndCountsNewlyOverdueTodos() {
+        Note note = noteService.createNote(Note.builder().title("note").build());
+        Todo todo = todoService.create(Todo.builder().title("tomorrow").dueDate(LocalDate.now().plusDays(1))
+                .note(note).build());
+        assertEquals(0, statsService.getStatsForCurrentUser().overdueTodos());
+
+        // the due date passes and a counter drifts
+        jdbcTemplate.update("update todo set due_date = ? where id = ?", LocalDate.now().minusDays(1), todo.getId());
+        jdbcTemplate.update("update user_stat_counter set counter_value = 7 where user_id = ? and kind = 'NOTES'",
+                USER_1);
+
+        assertEquals(1, statsService.reconcileAll());
+        assertEquals(new UserStats(1, 0, 0, 1, 1, Map.of(), Map.of()), statsService.getStatsForCurrentUser());
+        assertEquals(0, statsService.reconcileAll());
+    }
+
+    @Test
+    void t154_deletingANotebook_recountsAfterCommit() {
+        Notebook notebook = notebookService.create(Notebook.builder().name("book").userId(USER_1).build());
+        Note inside = noteService.createNote(Note.builder().title("inside").favorite(true).notebook(notebook).build());
+        todoService.create(Todo.builder().title("open").note(inside).build());
+        noteService.createNote(Note.builder().title("outside").build());
+
+        notebookService.delete(notebook.getId());
+
+        assertEquals(new UserStats(1, 0, 0, 0, 0, Map.of(), Map.of()), statsService.getStatsForCurrentUser());
+    }
+}
@@ -0,0 +1,233 @@
+package ch.hadzic.nikola.notesapp.integration;
+
+import ch.hadzic.nikola.notesapp.config.TestSecurityConfig;
+import ch.hadzic.nikola.notesapp.config.cache.CacheConfig;
+import ch.hadzic.nikola.notesapp.config.cache.EntityCache;
+import ch.hadzic.nikola.notesapp.config.execptions.InvalidCursorException;
+import ch.hadzic.nikola.notesapp.data.dto.NoteSummary;
+import ch.hadzic.nikola.notesapp.data.dto.SyncChanges;
+import ch.hadzic.nikola.notesapp.data.dto.SyncTombstone;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.entity.Notebook;
+import ch.hadzic.nikola.notesapp.data.entity.SyncEntityType;
+import ch.hadzic.nikola.notesapp.data.entity.Tag;
+import ch.hadzic.nikola.notesapp.data.entity.Todo;
+import ch.hadzic.nikola.notesapp.data.repository.ChangeLogRepository;
+import ch.hadzic.nikola.notesapp.data.repository.ChangeSequenceRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NotebookRepository;
+import ch.hadzic.nikola.notesapp.data.repository.TagRepository;
+import ch.hadzic.nikola.notesapp.data.repository.TodoRepository;
+import ch.hadzic.nikola.notesapp.data.service.ChangeLogService;
+import ch.hadzic.nikola.notesapp.data.service.NoteContentService;
+import ch.hadzic.nikola.notesapp.data.service.NoteRevisionService;
+import ch.hadzic.nikola.notesapp.data.service.NoteService;
+import ch.hadzic.nikola.notesapp.data.service.StatsService;
+import ch.hadzic.nikola.notesapp.data.service.NotebookService;
+import ch.hadzic.nikola.notesapp.data.service.SyncService;
+import ch.hadzic.nikola.notesapp.data.service.TagService;
+import ch.hadzic.nikola.notesapp.data.service.TodoService;
+import ch.hadzic.nikola.notesapp.search.NoteSearchIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs without a test transaction, so the change sequence is used like in production.
+ */
+@DataJpaTest
+@Import({NoteService.class, NoteSearchIndex.class, EntityCache.class, CacheConfig.class, ChangeLogService.class,
+        NoteContentService.class, NoteRevisionService.class, SyncService.class, TagService.class,
+        NotebookService.class, TodoService.class, StatsService.class, TestSecurityConfig.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SyncIntegrationTest {
+
+    private static final String USER_1 = "sync-user1";
+    private static final String USER_2 = "sync-user2";
+
+    @Autowired
+    private SyncService syncService;
+    @Autowired
+    private ChangeLogService changeLogService;
+    @Autowired
+    private NoteService noteService;
+    @Autowired
+    private TagService tagService;
+    @Autowired
+    private NotebookService notebookService;
+    @Autowired
+    private TodoService todoService;
+    @Autowired
+    private NoteRepository noteRepository;
+    @Autowired
+    private TagRepository tagRepository;
+    @Autowired
+    private NotebookRepository notebookRepository;
+    @Autowired
+    private TodoRepository todoRepository;
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+    @Autowired
+    private ChangeSequenceRepository changeSequenceRepository;
+
+    @BeforeEach
+    void setUp() {
+        loginAs(USER_1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        todoRepository.deleteAllInBatch();
+        noteRepository.findAll().forEach(note -> {
+            note.setTags(new HashSet<>());
+            noteRepository.save(note);
+        });
+        noteRepository.deleteAllInBatch();
+        tagRepository.deleteAllInBatch();
+        notebookRepository.deleteAllInBatch();
+        changeLogRepository.deleteAllInBatch();
+        changeSequenceRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void t071_withoutToken_clientIsToldToReset() {
+        noteService.createNote(Note.builder().title("existing").build());
+
+        SyncChanges changes = syncService.getChangesForCurrentUser(null, 100);
+
+        assertTrue(changes.reset());
+        assertTrue(changes.notes().isEmpty());
+        assertTrue(syncService.getChangesForCurrentUser(changes.next(), 100).notes().isEmpty());
+    }
+
+    @Test
+    void t072_changesSinceToken_containEveryEntityTypeOnce() {
+        String token = syncService.getChangesForCurrentUser(null, 100).next();
+
+        Tag tag = tagService.create(Tag.builder().name("tag").userId(USER_1).build());
+        Notebook notebook = notebookService.create(Notebook.builder().name("book").userId(USER_1).build());
+        Note note = noteService.createNote(Note.builder().title("v1").tags(Set.of(tag)).notebook(notebook).build());
+        noteService.updateNote(Note.builder().id(note.getId()).title("v2").tags(Set.of(tag)).build());
+        Todo todo = todoService.create(Todo.builder().title("todo").note(note).build());
+
+        SyncChanges changes = syncService.getChangesForCurrentUser(token, 100);
+
+        assertFalse(changes.reset());
+        assertFalse(changes.hasMore());
+        assertEquals(List.of("v2"), changes.notes().stream().map(NoteSummary::title).toList());
+        assertEquals("tag", changes.notes().getFirst().tags().getFirst().name());
+        assertEquals(List.of(tag.getId()), changes.tags().stream().map(t -> t.id()).toList());
+        assertEquals(List.of(notebook.getId()), changes.notebooks().stream().map(b -> b.id()).toList());
+        assertEquals(List.of(todo.getId()), changes.todos().stream().map(t -> t.id()).toList());
+        assertEquals(note.getId(), changes.todos().getFirst().noteId());
+
+        SyncChanges nothing = syncService.getChangesForCurrentUser(changes.next(), 100);
+        assertTrue(nothing.notes().isEmpty());
+        assertEquals(changes.next(), nothing.next());
+    }
+
+    @Test
+    void t073_deletions_areSentAsTombstones() {
+        Note note = noteService.createNote(Note.builder().title("doomed").build());
+        Todo todo = todoService.create(Todo.builder().title("todo").note(note).build());
+        String token = syncService.getChangesForCurrentUser(null, 100).next();
+
+        noteService.deleteNote(note.getId());
+
+        SyncChanges changes = syncService.getChangesForCurrentUser(token, 100);
+        assertTrue(changes.notes().isEmpty());
+        assertEquals(Set.of(new SyncTombstone(SyncEntityType.NOTE, note.getId()),
+                        new SyncTombstone(SyncEntityType.TODO, todo.getId())),
+                Set.copyOf(changes.deleted()));
+    }
+
+    @Test
+    void t074_tagRename_marksTaggedNotesAsChanged() {
+        Tag tag = tagService.create(Tag.builder().name("old").userId(USER_1).build());
+        Note note = noteService.createNote(Note.builder().title("tagged").tags(Set.of(tag)).build());
+        String token = syncService.getChangesForCurrentUser(null, 100).next();
+
+        tagService.update(Tag.builder().id(tag.getId()).name("new").build());
+
+        SyncChanges changes = syncService.getChangesForCurrentUser(token, 100);
+        assertEquals(List.of(note.getId()), changes.notes().stream().map(NoteSummary::id).toList());
+        assertEquals("new", changes.notes().getFirst().tags().getFirst().name());
+    }
+
+    @Test
+    void t075_pagesFollowEachOther_withoutGapsOrDuplicates() {
+        String token = syncService.getChangesForCurrentUser(null, 100).next();
+        for (int i = 0; i < 5; i++) {
+            noteService.createNote(Note.builder().title("note " + i).build());
+        }
+
+        List<String> titles = new ArrayList<>();
+        SyncChanges page;
+        do {
+            page = syncService.getChangesForCurrentUser(token, 2);
+            page.notes().forEach(note -> titles.add(note.title()));
+            token = page.next();
+        } while (page.hasMore());
+
+        assertEquals(List.of("note 0", "note 1", "note 2", "note 3", "note 4"), titles);
+    }
+
+    @Test
+    void t076_compactedTombstones_forceResetForStaleTokens() {
+        Note note = noteService.createNote(Note.builder().title("doomed").build());
+        String staleToken = syncService.getChangesForCurrentUser(null, 100).next();
+        noteService.deleteNote(note.getId());
+        String freshToken = syncService.getChangesForCurrentUser(staleToken, 100).next();
+
+        changeLogRepository.findAll().forEach(entry -> {
+            entry.setChangedAt(LocalDateTime.now().minusDays(60));
+            changeLogRepository.save(entry);
+        });
+        assertEquals(1, changeLogService.compactTombstones());
+
+        assertTrue(syncService.getChangesForCurrentUser(staleToken, 100).reset());
+        assertFalse(syncService.getChangesForCurrentUser(freshToken, 100).reset());
+    }
+
+    @Test
+    void t077_changesOfOtherUsers_areNotVisible() {
+        String token = syncService.getChangesForCurrentUser(null, 100).next();
+
+        loginAs(USER_2);
+        noteService.createNote(Note.builder().title("foreign").build());
+
+        loginAs(USER_1);
+        assertTrue(syncService.getChangesForCurrentUser(token, 100).notes().isEmpty());
+    }
+
+    @Test
+    void t078_malformedToken_isRejected() {
+        assertThrows(InvalidCursorException.class, () -> syncService.getChangesForCurrentUser("abc", 100));
+        assertThrows(InvalidCursorException.class, () -> syncService.getChangesForCurrentUser("-1", 100));
+    }
+
+    private void loginAs(String userId) {
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(new UsernamePasswordAuthenticationToken(userId, "pw"));
+        SecurityContextHolder.setContext(context);
+    }
+}
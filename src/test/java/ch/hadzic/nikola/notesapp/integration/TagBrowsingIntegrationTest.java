@@ -0,0 +1,170 @@
+package ch.hadzic.nikola.notesapp.integration;
+
+import ch.hadzic.nikola.notesapp.config.TestSecurityConfig;
+import ch.hadzic.nikola.notesapp.config.cache.CacheConfig;
+import ch.hadzic.nikola.notesapp.config.cache.EntityCache;
+import ch.hadzic.nikola.notesapp.config.execptions.GlobalExceptionHandler;
+import ch.hadzic.nikola.notesapp.controller.TagController;
+import ch.hadzic.nikola.notesapp.data.dto.TagUsage;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.entity.Tag;
+import ch.hadzic.nikola.notesapp.data.repository.ChangeLogRepository;
+import ch.hadzic.nikola.notesapp.data.repository.ChangeSequenceRepository;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
+import ch.hadzic.nikola.notesapp.data.repository.StatCounterRepository;
+import ch.hadzic.nikola.notesapp.data.repository.TagRepository;
+import ch.hadzic.nikola.notesapp.data.service.ChangeLogService;
+import ch.hadzic.nikola.notesapp.data.service.NoteContentService;
+import ch.hadzic.nikola.notesapp.data.service.NoteRevisionService;
+import ch.hadzic.nikola.notesapp.data.service.NoteService;
+import ch.hadzic.nikola.notesapp.data.service.StatsService;
+import ch.hadzic.nikola.notesapp.data.service.TagService;
+import ch.hadzic.nikola.notesapp.search.NoteSearchIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs without a test transaction, so tag changes reach the caches on commit like in production.
+ */
+@DataJpaTest
+@Import({NoteService.class, NoteSearchIndex.class, EntityCache.class, CacheConfig.class, ChangeLogService.class,
+        NoteContentService.class, NoteRevisionService.class, TagService.class, StatsService.class,
+        TestSecurityConfig.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TagBrowsingIntegrationTest {
+
+    private static final String USER_1 = "tags-user1";
+
+    @Autowired
+    private TagService tagService;
+    @Autowired
+    private NoteService noteService;
+    @Autowired
+    private NoteRepository noteRepository;
+    @Autowired
+    private TagRepository tagRepository;
+    @Autowired
+    private StatCounterRepository statCounterRepository;
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+    @Autowired
+    private ChangeSequenceRepository changeSequenceRepository;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new TagController(tagService, noteService))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(USER_1, null, Set.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        noteRepository.findAll().forEach(note -> {
+            note.setTags(new HashSet<>());
+            noteRepository.save(note);
+        });
+        noteRepository.deleteAllInBatch();
+        tagRepository.deleteAllInBatch();
+        statCounterRepository.deleteAllInBatch();
+        changeLogRepository.deleteAllInBatch();
+        changeSequenceRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void t181_tagListing_carriesNoteCounts() {
+        Tag work = tag("work");
+        Tag home = tag("Home");
+        tag("unused");
+        noteService.createNote(Note.builder().title("one").tags(Set.of(work, home)).build());
+        noteService.createNote(Note.builder().title("two").tags(Set.of(work)).build());
+        noteService.createNote(Note.builder().title("archived").archived(true).tags(Set.of(work)).build());
+
+        List<TagUsage> usages = tagService.getUsagesForUser(USER_1);
+
+        assertEquals(List.of("Home", "unused", "work"), usages.stream().map(TagUsage::name).toList());
+        assertEquals(List.of(1L, 0L, 3L), usages.stream().map(TagUsage::noteCount).toList());
+        assertEquals(work.getId(), usages.getLast().id());
+        assertEquals(home.getId(), usages.getFirst().id());
+    }
+
+    @Test
+    void t182_suggestions_matchThePrefixAndPreferUsedTags() {
+        Tag workshop = tag("Workshop");
+        Tag work = tag("work");
+        tag("world");
+        tag("home");
+        noteService.createNote(Note.builder().title("one").tags(Set.of(workshop)).build());
+        noteService.createNote(Note.builder().title("two").tags(Set.of(workshop, work)).build());
+
+        assertEquals(List.of("Workshop", "work", "world"),
+                tagService.suggest(USER_1, "WO", 10).stream().map(TagUsage::name).toList());
+        assertEquals(List.of("Workshop"), tagService.suggest(USER_1, "wo", 1).stream().map(TagUsage::name).toList());
+
+        // renaming a tag replaces the trie after commit
+        tagService.update(Tag.builder().id(work.getId()).name("job").build());
+        assertEquals(List.of("job"), tagService.suggest(USER_1, "j", 10).stream().map(TagUsage::name).toList());
+        assertEquals(2, tagService.suggest(USER_1, "wo", 10).size());
+    }
+
+    @Test
+    void t183_tagNotes_arePagedNewestFirst() throws Exception {
+        Tag tag = tag("paged");
+        Note first = noteService.createNote(Note.builder().title("first").tags(Set.of(tag)).build());
+        noteService.createNote(Note.builder().title("untagged").build());
+        Note second = noteService.createNote(Note.builder().title("second").tags(Set.of(tag)).build());
+        Note third = noteService.createNote(Note.builder().title("third").tags(Set.of(tag)).build());
+
+        String cursor = mockMvc.perform(get("/api/tags/{id}/notes", tag.getId()).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[*].id", contains(third.getId().intValue(), second.getId().intValue())))
+                .andExpect(header().string("Link", containsString("rel=\"next\"")))
+                .andReturn().getResponse().getContentAsString()
+                .replaceAll(".*\"nextCursor\":\"([^\"]+)\".*", "$1");
+
+        mockMvc.perform(get("/api/tags/{id}/notes", tag.getId()).param("limit", "2").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[*].id", contains(first.getId().intValue())))
+                .andExpect(jsonPath("$.nextCursor", nullValue()));
+    }
+
+    @Test
+    void t184_foreignTags_areNotFound() throws Exception {
+        Tag foreign = tagRepository.save(Tag.builder().name("foreign").userId("someone-else").build());
+
+        mockMvc.perform(get("/api/tags/{id}/notes", foreign.getId())).andExpect(status().isNotFound());
+        assertTrue(tagService.suggest(USER_1, "f", 10).isEmpty());
+    }
+
+    private Tag tag(String name) {
+        return tagService.create(Tag.builder().name(name).userId(USER_1).build());
+    }
+}
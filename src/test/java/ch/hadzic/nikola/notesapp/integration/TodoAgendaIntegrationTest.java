@@ -0,0 +1,204 @@
+package ch.hadzic.nikola.notesapp.integration;
+
+import ch.hadzic.nikola.notesapp.config.TestSecurityConfig;
+import ch.hadzic.nikola.notesapp.config.cache.CacheConfig;
+import ch.hadzic.nikola.notesapp.config.cache.EntityCache;
+import ch.hadzic.nikola.notesapp.config.execptions.InvalidCursorException;
+import ch.hadzic.nikola.notesapp.config.execptions.NoteNotFoundException;
+import ch.hadzic.nikola.notesapp.config.execptions.TodoNotFoundException;
+import ch.hadzic.nikola.notesapp.data.dto.CursorPage;
+import ch.hadzic.nikola.notesapp.data.dto.TodoSummary;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.entity.Todo;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
+import ch.hadzic.nikola.notesapp.data.repository.TodoAgenda;
+import ch.hadzic.nikola.notesapp.data.repository.TodoRepository;
+import ch.hadzic.nikola.notesapp.data.service.ChangeLogService;
+import ch.hadzic.nikola.notesapp.data.service.StatsService;
+import ch.hadzic.nikola.notesapp.data.service.TodoService;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({TodoService.class, EntityCache.class, CacheConfig.class, ChangeLogService.class, StatsService.class,
+        TestSecurityConfig.class})
+@ActiveProfiles("test")
+class TodoAgendaIntegrationTest {
+
+    private static final String USER_1 = "todo-user1";
+    private static final String USER_2 = "todo-user2";
+
+    @Autowired
+    private TodoService todoService;
+    @Autowired
+    private TodoRepository todoRepository;
+    @Autowired
+    private NoteRepository noteRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManager entityManager;
+
+    private Note note;
+
+    @BeforeEach
+    void setUp() {
+        note = noteRepository.save(Note.builder().title("note").userId(USER_1).build());
+        loginAs(USER_1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void t161_listing_isScopedToTheUserAndPaged() {
+        Note otherNote = noteRepository.save(Note.builder().title("other").userId(USER_2).build());
+        loginAs(USER_2);
+        todoService.create(Todo.builder().title("foreign").note(otherNote).build());
+        loginAs(USER_1);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(todoService.create(Todo.builder().title("todo " + i).done(i == 0).note(note).build()).getId());
+        }
+
+        CursorPage<TodoSummary> first = todoService.getPageForCurrentUser(null, null, 3);
+        CursorPage<TodoSummary> second = todoService.getPageForCurrentUser(null, first.nextCursor(), 3);
+
+        assertEquals(ids.subList(0, 3), first.items().stream().map(TodoSummary::id).toList());
+        assertEquals(ids.subList(3, 5), second.items().stream().map(TodoSummary::id).toList());
+        assertNull(second.nextCursor());
+        assertEquals(note.getId(), first.items().getFirst().noteId());
+        assertEquals(List.of(ids.getFirst()),
+                todoService.getPageForCurrentUser(true, null, 10).items().stream().map(TodoSummary::id).toList());
+        assertEquals(4, todoService.getPageForCurrentUser(false, null, 10).items().size());
+    }
+
+    @Test
+    void t162_agenda_givesOpenTodosOfEachRangeByDueDate() {
+        LocalDate today = LocalDate.now();
+        Todo longOverdue = todo("long overdue", today.minusYears(1), false);
+        Todo overdue = todo("overdue", today.minusDays(1), false);
+        todo("done", today.minusDays(1), true);
+        Todo dueToday = todo("today", today, false);
+        Todo tomorrow = todo("tomorrow", today.plusDays(1), false);
+        Todo nextWeek = todo("in a week", today.plusDays(7), false);
+        todo("later", today.plusDays(8), false);
+        todo("undated", null, false);
+
+        assertEquals(List.of(longOverdue.getId(), overdue.getId()), agenda(TodoAgenda.OVERDUE));
+        assertEquals(List.of(dueToday.getId()), agenda(TodoAgenda.TODAY));
+        assertEquals(List.of(tomorrow.getId(), nextWeek.getId()), agenda(TodoAgenda.NEXT_7_DAYS));
+    }
+
+    @Test
+    void t163_agenda_continuesAfterTheCursor() {
+        LocalDate today = LocalDate.now();
+        Todo second = todo("second", today.plusDays(3), false);
+        Todo first = todo("first", today.plusDays(2), false);
+        Todo third = todo("third", today.plusDays(3), false);
+
+        CursorPage<TodoSummary> page = todoService.getAgendaForCurrentUser(TodoAgenda.NEXT_7_DAYS, null, 2);
+        CursorPage<TodoSummary> next = todoService.getAgendaForCurrentUser(TodoAgenda.NEXT_7_DAYS,
+                page.nextCursor(), 2);
+
+        assertEquals(List.of(first.getId(), second.getId()), page.items().stream().map(TodoSummary::id).toList());
+        assertEquals(List.of(third.getId()), next.items().stream().map(TodoSummary::id).toList());
+        assertNull(next.nextCursor());
+        String listingCursor = todoService.getPageForCurrentUser(null, null, 1).nextCursor();
+        assertThrows(InvalidCursorException.class,
+                () -> todoService.getAgendaForCurrentUser(TodoAgenda.TODAY, listingCursor, 2));
+    }
+
+    @Test
+    void t164_pages_doNotLoadNotes() {
+        for (int i = 0; i < 20; i++) {
+            todo("todo " + i, LocalDate.now(), false);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        todoService.getPageForCurrentUser(null, null, 50);
+        todoService.getAgendaForCurrentUser(TodoAgenda.TODAY, null, 50);
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void t165_todosWithoutOwner_getTheOwnerOfTheirNote() {
+        Todo todo = todo("legacy", LocalDate.now(), false);
+        entityManager.flush();
+        jdbcTemplate.update("update todo set user_id = null where id = ?", todo.getId());
+        entityManager.clear();
+        assertTrue(todoService.getAgendaForCurrentUser(TodoAgenda.TODAY, null, 10).items().isEmpty());
+
+        todoService.assignMissingOwners();
+
+        assertEquals(USER_1, todoRepository.findById(todo.getId()).orElseThrow().getUserId());
+        assertEquals(1, todoService.getAgendaForCurrentUser(TodoAgenda.TODAY, null, 10).items().size());
+    }
+
+    @Test
+    void t166_todosAndNotesOfOtherUsers_areNotFound() {
+        Note otherNote = noteRepository.save(Note.builder().title("other").userId(USER_2).build());
+        loginAs(USER_2);
+        Todo foreign = todoService.create(Todo.builder().title("foreign").note(otherNote).build());
+        loginAs(USER_1);
+        Todo own = todo("own", null, false);
+
+        assertTrue(todoService.getById(foreign.getId()).isEmpty());
+        assertEquals(own.getId(), todoService.getById(own.getId()).orElseThrow().id());
+        assertThrows(NoteNotFoundException.class, () -> todoService.getByNoteId(otherNote.getId()));
+        assertEquals(List.of(own.getId()),
+                todoService.getByNoteId(note.getId()).stream().map(TodoSummary::id).toList());
+        assertThrows(NoteNotFoundException.class,
+                () -> todoService.create(Todo.builder().title("intruder").note(otherNote).build()));
+        assertThrows(TodoNotFoundException.class,
+                () -> todoService.update(Todo.builder().id(foreign.getId()).title("taken").note(note).build()));
+        assertThrows(NoteNotFoundException.class,
+                () -> todoService.update(Todo.builder().id(own.getId()).title("moved").note(otherNote).build()));
+        assertThrows(TodoNotFoundException.class, () -> todoService.delete(foreign.getId()));
+
+        entityManager.flush();
+        entityManager.clear();
+        Todo untouched = todoRepository.findById(foreign.getId()).orElseThrow();
+        assertEquals("foreign", untouched.getTitle());
+        assertEquals(USER_2, untouched.getUserId());
+        assertEquals(note.getId(), todoRepository.findById(own.getId()).orElseThrow().getNote().getId());
+    }
+
+    private Todo todo(String title, LocalDate dueDate, boolean done) {
+        return todoService.create(Todo.builder().title(title).dueDate(dueDate).done(done).note(note).build());
+    }
+
+    private List<Long> agenda(TodoAgenda range) {
+        return todoService.getAgendaForCurrentUser(range, null, 50).items().stream().map(TodoSummary::id).toList();
+    }
+
+    private static void loginAs(String userId) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(userId, null, Set.of()));
+    }
+}
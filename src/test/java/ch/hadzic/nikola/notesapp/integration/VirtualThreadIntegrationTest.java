@@ -0,0 +1,86 @@
+package ch.hadzic.nikola.notesapp.integration;
+
+import ch.hadzic.nikola.notesapp.config.threads.ConcurrencyLimitedDataSource;
+import ch.hadzic.nikola.notesapp.config.threads.PinnedThreadMonitor;
+import ch.hadzic.nikola.notesapp.config.threads.VirtualThreadConfig;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.threads.virtual.enabled=true",
+        "notesapp.db.max-concurrency=2",
+        "notesapp.db.permit-timeout=200ms"
+})
+@Import(VirtualThreadConfig.class)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class VirtualThreadIntegrationTest {
+
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private NoteRepository noteRepository;
+    @Autowired
+    private ApplicationContext context;
+
+    @Test
+    void t101_dataSource_isLimitedAndStillUsableByRepositories() {
+        assertInstanceOf(ConcurrencyLimitedDataSource.class, dataSource);
+        assertDoesNotThrow(() -> noteRepository.count());
+        assertTrue(context.getBean(PinnedThreadMonitor.class).isRunning());
+    }
+
+    @Test
+    void t102_connectionsBeyondLimit_waitAndTimeOut() throws Exception {
+        ConcurrencyLimitedDataSource limited = (ConcurrencyLimitedDataSource) dataSource;
+        try (Connection first = dataSource.getConnection();
+             Connection second = dataSource.getConnection()) {
+            assertEquals(0, limited.getAvailablePermits());
+            assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        }
+        assertEquals(2, limited.getAvailablePermits());
+    }
+
+    @Test
+    void t103_waitingVirtualThread_getsConnectionOnceOneIsClosed() throws Exception {
+        ConcurrencyLimitedDataSource limited = (ConcurrencyLimitedDataSource) dataSource;
+        Connection first = dataSource.getConnection();
+        Connection second = dataSource.getConnection();
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletableFuture<Boolean> waiting = CompletableFuture.supplyAsync(() -> {
+                try (Connection connection = dataSource.getConnection()) {
+                    return connection.isValid(1);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }, executor);
+
+            while (limited.getWaitingThreads() == 0) {
+                Thread.onSpinWait();
+            }
+            first.close();
+            first.close(); // closing twice must not hand out an extra permit
+
+            assertTrue(waiting.get(1, TimeUnit.SECONDS));
+        }
+        second.close();
+        assertEquals(2, limited.getAvailablePermits());
+    }
+}
@@ -0,0 +1,114 @@
+package ch.hadzic.nikola.notesapp.integration;
+
+import ch.hadzic.nikola.notesapp.config.security.Roles;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Throughput of the note listing with {@value #CLIENTS} concurrent clients against the real
+ * Tomcat. Not part of the regular build; run it once per thread mode and compare:
+ * {@code mvn test -Dtest=VirtualThreadLoadBenchmarkTest -Dbenchmark=true -Dspring.threads.virtual.enabled=true}
+ * and the same with {@code false}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "management.server.port=0",
+        "server.tomcat.max-connections=10000",
+        "server.tomcat.accept-count=10000",
+        "logging.level.org.hibernate.SQL=INFO",
+        "logging.level.ACCESS=WARN"
+})
+@ActiveProfiles("test")
+class VirtualThreadLoadBenchmarkTest {
+
+    private static final String USER_ID = "load-user";
+    private static final int CLIENTS = 5_000;
+    private static final int REQUESTS_PER_CLIENT = 10;
+
+    @LocalServerPort
+    private int port;
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @TestConfiguration
+    static class LoadTestSecurityConfig {
+
+        @Bean
+        JwtDecoder jwtDecoder() {
+            return token -> Jwt.withTokenValue(token)
+                    .header("alg", "none")
+                    .subject(USER_ID)
+                    .claim("roles", List.of(Roles.Read))
+                    .issuedAt(Instant.now())
+                    .expiresAt(Instant.now().plusSeconds(3600))
+                    .build();
+        }
+    }
+
+    @Test
+    void concurrentClients_listNotes() throws Exception {
+        noteRepository.saveAll(IntStream.range(0, 100)
+                .mapToObj(i -> Note.builder().title("Note " + i).content("content " + i).userId(USER_ID).build())
+                .toList());
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/notes?limit=20"))
+                .header("Authorization", "Bearer load")
+                .timeout(Duration.ofMinutes(2))
+                .build();
+        AtomicInteger ok = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(CLIENTS);
+
+        long start = System.nanoTime();
+        try (HttpClient client = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+             var clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CLIENTS; i++) {
+                clients.execute(() -> {
+                    try {
+                        for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+                            int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                            (status == 200 ? ok : failed).incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            done.await();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%s threads, %d clients: %d requests in %.1f s, %.0f requests/s, %d failed%n",
+                virtualThreads ? "virtual" : "platform", CLIENTS, ok.get(), seconds, ok.get() / seconds, failed.get());
+        assertEquals(0, failed.get());
+    }
+}
@@ -0,0 +1,117 @@
+package ch.hadzic.nikola.notesapp.search;
+
+import ch.hadzic.nikola.notesapp.data.dto.NoteSearchHit;
+import ch.hadzic.nikola.notesapp.data.dto.NoteText;
+import ch.hadzic.nikola.notesapp.data.entity.Note;
+import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
+import ch.hadzic.nikola.notesapp.data.service.NoteContentService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class NoteSearchIndexTest {
+
+    private static final String USER_ID = "user-123";
+
+    private NoteRepository noteRepository;
+    private NoteContentService noteContentService;
+    private NoteSearchIndex index;
+
+    @BeforeEach
+    void setup() {
+        noteRepository = mock(NoteRepository.class);
+        noteContentService = mock(NoteContentService.class);
+        index = new NoteSearchIndex(noteRepository, noteContentService);
+    }
+
+    @Test
+    void search_ranksTitleMatchesAboveContentMatches() {
+        index.put(USER_ID, 1L, "Groceries", "buy milk and bread");
+        index.put(USER_ID, 2L, "Milk", "remember the groceries");
+        index.put(USER_ID, 3L, "Unrelated", "nothing here");
+
+        List<NoteSearchHit> hits = index.search(USER_ID, "milk", 10);
+
+        assertEquals(List.of(2L, 1L), hits.stream().map(NoteSearchHit::id).toList());
+        assertTrue(hits.get(0).score() > hits.get(1).score());
+    }
+
+    @Test
+    void search_matchesPrefixesButPrefersExactTerms() {
+        index.put(USER_ID, 1L, "Meeting", "project kickoff");
+        index.put(USER_ID, 2L, "Meet", "coffee");
+
+        List<NoteSearchHit> hits = index.search(USER_ID, "meet", 10);
+
+        assertEquals(List.of(2L, 1L), hits.stream().map(NoteSearchHit::id).toList());
+    }
+
+    @Test
+    void search_isScopedToUser() {
+        index.put(USER_ID, 1L, "Secret", "plans");
+        index.put("other", 2L, "Secret", "plans");
+
+        assertEquals(List.of(1L), index.search(USER_ID, "secret", 10).stream().map(NoteSearchHit::id).toList());
+        assertTrue(index.search("nobody", "secret", 10).isEmpty());
+    }
+
+    @Test
+    void index_replacesPreviousVersionAndRemoveDropsNote() {
+        index.index(Note.builder().id(1L).userId(USER_ID).title("Draft").content("alpha").build());
+        index.index(Note.builder().id(1L).userId(USER_ID).title("Final").content("omega").build());
+
+        assertTrue(index.search(USER_ID, "alpha", 10).isEmpty());
+        assertEquals(1, index.search(USER_ID, "omega", 10).size());
+
+        index.remove(USER_ID, 1L);
+        assertTrue(index.search(USER_ID, "omega", 10).isEmpty());
+    }
+
+    @Test
+    void search_respectsLimit() {
+        for (long id = 1; id <= 30; id++) {
+            index.put(USER_ID, id, "Note " + id, "common word");
+        }
+
+        assertEquals(5, index.search(USER_ID, "common", 5).size());
+    }
+
+    @Test
+    void snippet_highlightsMatchesAndEscapesHtml() {
+        String snippet = NoteSearchIndex.snippet("t", "<b>Shopping</b> list: milk & eggs", Set.of("milk"));
+
+        assertEquals("&lt;b&gt;Shopping&lt;/b&gt; list: <mark>milk</mark> &amp; eggs", snippet);
+    }
+
+    @Test
+    void snippet_startsNearFirstMatchForLongContent() {
+        String content = "filler ".repeat(50) + "needle" + " tail".repeat(50);
+        String snippet = NoteSearchIndex.snippet("t", content, Set.of("needle"));
+
+        assertTrue(snippet.startsWith("…filler"));
+        assertTrue(snippet.contains("<mark>needle</mark>"));
+        assertTrue(snippet.endsWith("…"));
+    }
+
+    @Test
+    void rebuild_readsAllNotesInChunks() {
+        when(noteRepository.findTextsAfter(eq(0L), any(Limit.class)))
+                .thenReturn(List.of(new NoteText(1L, USER_ID, "Rebuilt", "hash", null)));
+        when(noteContentService.loadAll(List.of("hash"))).thenReturn(Map.of("hash", "from content store"));
+
+        index.rebuild();
+
+        assertEquals(1, index.search(USER_ID, "rebuilt", 10).size());
+        assertEquals(1, index.search(USER_ID, "store", 10).size());
+        verify(noteRepository, times(1)).findTextsAfter(anyLong(), any(Limit.class));
+    }
+}
@@ -0,0 +1,31 @@
+package ch.hadzic.nikola.notesapp.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NoteTokenizerTest {
+
+    @Test
+    void terms_areLowercasedAndStrippedOfDiacritics() {
+        assertEquals(List.of("uber", "grune", "apfel", "2025"), NoteTokenizer.terms("Über GRÜNE Äpfel, 2025!"));
+    }
+
+    @Test
+    void tokenize_keepsOffsetsIntoOriginalText() {
+        String text = "Hello, wörld";
+        List<NoteTokenizer.Token> tokens = NoteTokenizer.tokenize(text);
+
+        assertEquals(2, tokens.size());
+        assertEquals("wörld", text.substring(tokens.get(1).start(), tokens.get(1).end()));
+        assertEquals("world", tokens.get(1).term());
+    }
+
+    @Test
+    void tokenize_handlesNullAndBlank() {
+        assertTrue(NoteTokenizer.terms(null).isEmpty());
+        assertTrue(NoteTokenizer.terms("  -- ").isEmpty());
+    }
+}
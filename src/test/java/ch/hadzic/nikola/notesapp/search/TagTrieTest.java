@@ -0,0 +1,42 @@
+package ch.hadzic.nikola.notesapp.search;
+
+import ch.hadzic.nikola.notesapp.data.dto.TagSummary;
+import ch.hadzic.nikola.notesapp.data.entity.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TagTrieTest {
+
+    private static final TagTrie TRIE = TagTrie.of(List.of(
+            tag(1L, "work"), tag(2L, "Workshop"), tag(3L, "world"), tag(4L, "home"), tag(5L, "WORK")));
+
+    @Test
+    void find_returnsTagsStartingWithThePrefixByName() {
+        assertEquals(List.of(1L, 5L, 2L, 3L), ids(TRIE.find("wor")));
+        assertEquals(List.of(1L, 5L, 2L), ids(TRIE.find("WORK")));
+        assertEquals(List.of(4L), ids(TRIE.find(" ho")));
+    }
+
+    @Test
+    void find_withoutMatch_returnsNothing() {
+        assertTrue(TRIE.find("garden").isEmpty());
+        assertTrue(TRIE.find("worker").isEmpty());
+    }
+
+    @Test
+    void find_withEmptyPrefix_returnsAllTags() {
+        assertEquals(List.of(4L, 1L, 5L, 2L, 3L), ids(TRIE.find("")));
+        assertEquals(5, TRIE.find(null).size());
+    }
+
+    private static Tag tag(Long id, String name) {
+        return Tag.builder().id(id).name(name).build();
+    }
+
+    private static List<Long> ids(List<TagSummary> tags) {
+        return tags.stream().map(TagSummary::id).toList();
+    }
+}
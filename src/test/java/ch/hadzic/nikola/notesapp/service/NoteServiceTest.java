@@ -1,19 +1,33 @@
 package ch.hadzic.nikola.notesapp.service;
 
+import ch.hadzic.nikola.notesapp.config.cache.EntityCache;
 import ch.hadzic.nikola.notesapp.config.execptions.NoteNotFoundException;
+import ch.hadzic.nikola.notesapp.config.execptions.TagNotFoundException;
+import ch.hadzic.nikola.notesapp.data.dto.ExportScope;
+import ch.hadzic.nikola.notesapp.data.dto.NoteExportRow;
+import ch.hadzic.nikola.notesapp.data.dto.NoteExportText;
+import ch.hadzic.nikola.notesapp.data.dto.NoteTagName;
 import ch.hadzic.nikola.notesapp.data.entity.Note;
 import ch.hadzic.nikola.notesapp.data.entity.Tag;
 import ch.hadzic.nikola.notesapp.data.repository.NoteRepository;
 import ch.hadzic.nikola.notesapp.data.repository.TagRepository;
 import ch.hadzic.nikola.notesapp.data.repository.TodoRepository;
+import ch.hadzic.nikola.notesapp.data.service.ChangeLogService;
+import ch.hadzic.nikola.notesapp.data.service.NoteContentService;
+import ch.hadzic.nikola.notesapp.data.service.NoteRevisionService;
 import ch.hadzic.nikola.notesapp.data.service.NoteService;
+import ch.hadzic.nikola.notesapp.data.service.StatsService;
+import ch.hadzic.nikola.notesapp.search.NoteSearchIndex;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.*;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 
 import java.util.*;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -23,6 +37,7 @@ class NoteServiceTest {
     private NoteRepository noteRepository;
     private TagRepository tagRepository;
     private TodoRepository todoRepository;
+    private NoteContentService noteContentService;
     private NoteService noteService;
 
     private static final String USER_ID = "user-123";
@@ -32,7 +47,11 @@ class NoteServiceTest {
         noteRepository = mock(NoteRepository.class);
         tagRepository = mock(TagRepository.class);
         todoRepository = mock(TodoRepository.class);
-        noteService = new NoteService(noteRepository, tagRepository, todoRepository);
+        noteContentService = mock(NoteContentService.class);
+        noteService = new NoteService(noteRepository, tagRepository, todoRepository,
+                new NoteSearchIndex(noteRepository, noteContentService),
+                new EntityCache(new ConcurrentMapCacheManager()), mock(ChangeLogService.class), noteContentService,
+                mock(NoteRevisionService.class), mock(StatsService.class));
 
         SecurityContext context = SecurityContextHolder.createEmptyContext();
         context.setAuthentication(new UsernamePasswordAuthenticationToken(USER_ID, "pw"));
@@ -100,7 +119,7 @@ class NoteServiceTest {
                 .archived(true)
                 .build(); // tags is null on purpose
 
-        when(noteRepository.findById(1L)).thenReturn(Optional.of(existing));
+        when(noteRepository.findForUpdateById(1L)).thenReturn(Optional.of(existing));
         when(noteRepository.save(any(Note.class))).thenAnswer(inv -> inv.getArgument(0));
 
         Note result = noteService.updateNote(update);
@@ -118,7 +137,7 @@ class NoteServiceTest {
     }
 
     @Test
-    void updateNote_withTags_replacesAndMaintainsBidirectionalLinks() {
+    void updateNote_withTags_replacesTagsWithoutTouchingTheirNotes() {
         // existing note with one old tag
         Tag oldTag = Tag.builder().id(10L).name("old").notes(new HashSet<>()).userId(USER_ID).build();
         Note existing = Note.builder().id(2L).title("t").userId(USER_ID)
@@ -135,39 +154,35 @@ class NoteServiceTest {
         // repository returns persistent tags for those ids
         Tag persistent1 = Tag.builder().id(1L).name("A").notes(new HashSet<>()).userId(USER_ID).build();
         Tag persistent2 = Tag.builder().id(2L).name("B").notes(new HashSet<>()).userId(USER_ID).build();
-        when(tagRepository.findById(1L)).thenReturn(Optional.of(persistent1));
-        when(tagRepository.findById(2L)).thenReturn(Optional.of(persistent2));
-        when(noteRepository.findById(2L)).thenReturn(Optional.of(existing));
+        when(tagRepository.findAllById(Set.of(1L, 2L))).thenReturn(List.of(persistent1, persistent2));
+        when(noteRepository.findForUpdateById(2L)).thenReturn(Optional.of(existing));
         when(noteRepository.save(any(Note.class))).thenAnswer(inv -> inv.getArgument(0));
 
         Note result = noteService.updateNote(update);
 
-        // old tag must no longer refer to this note
-        assertFalse(oldTag.getNotes().contains(existing));
-        // new tags must have bidirectional link
-        assertTrue(persistent1.getNotes().contains(existing));
-        assertTrue(persistent2.getNotes().contains(existing));
         assertEquals(Set.of(persistent1, persistent2), result.getTags());
+        // the inverse side is left alone, the join table is written from the note
+        assertEquals(1, oldTag.getNotes().size());
+        assertTrue(persistent1.getNotes().isEmpty());
 
-        // verify lookup for each incoming tag id
-        verify(tagRepository).findById(1L);
-        verify(tagRepository).findById(2L);
+        // all added tags are read with one lookup
+        verify(tagRepository).findAllById(Set.of(1L, 2L));
+        verify(tagRepository, never()).findById(anyLong());
         verify(noteRepository).save(existing);
     }
 
     @Test
-    void updateNote_withUnknownTag_throwsRuntimeException() {
+    void updateNote_withUnknownTag_throwsTagNotFound() {
         Note existing = Note.builder().id(3L).title("t").userId(USER_ID)
                 .tags(new HashSet<>()).build();
         Note update = Note.builder().id(3L).title("t")
                 .tags(new HashSet<>(Set.of(Tag.builder().id(99L).build())))
                 .build();
 
-        when(noteRepository.findById(3L)).thenReturn(Optional.of(existing));
-        when(tagRepository.findById(99L)).thenReturn(Optional.empty());
+        when(noteRepository.findForUpdateById(3L)).thenReturn(Optional.of(existing));
+        when(tagRepository.findAllById(Set.of(99L))).thenReturn(List.of());
 
-        RuntimeException ex = assertThrows(RuntimeException.class, () -> noteService.updateNote(update));
-        assertTrue(ex.getMessage().contains("Tag nicht gefunden"));
+        assertThrows(TagNotFoundException.class, () -> noteService.updateNote(update));
         verify(noteRepository, never()).save(any());
     }
 
@@ -177,4 +192,32 @@ class NoteServiceTest {
         assertThrows(EntityNotFoundException.class, () -> noteService.deleteNote(123L));
         verify(noteRepository, never()).delete(any());
     }
+
+    @Test
+    void streamNotesForExport_readsChunksLazilyUntilShortChunk() {
+        List<NoteExportText> fullChunk = LongStream.rangeClosed(1, NoteService.EXPORT_CHUNK_SIZE)
+                .mapToObj(id -> new NoteExportText(id, "t" + id, "h", null, false, null, null))
+                .toList();
+        List<NoteExportText> lastChunk = List.of(new NoteExportText(1000L, "last", "h", "work", true, null, null));
+        when(noteRepository.findExportTextsAfter(eq(USER_ID), isNull(), isNull(), eq(0L), any(Limit.class)))
+                .thenReturn(fullChunk);
+        when(noteRepository.findExportTextsAfter(eq(USER_ID), isNull(), isNull(),
+                eq((long) NoteService.EXPORT_CHUNK_SIZE), any(Limit.class)))
+                .thenReturn(lastChunk);
+        when(noteRepository.findTagNames(List.of(1000L)))
+                .thenReturn(List.of(new NoteTagName(1000L, "a"), new NoteTagName(1000L, "b")));
+        when(noteContentService.loadAll(anyCollection())).thenReturn(Map.of("h", "c"));
+
+        var stream = noteService.streamNotesForExport(ExportScope.ALL);
+        verify(noteRepository, times(1)).findExportTextsAfter(anyString(), any(), any(), anyLong(), any(Limit.class));
+
+        List<NoteExportRow> rows = stream.toList();
+        assertEquals(NoteService.EXPORT_CHUNK_SIZE + 1, rows.size());
+        assertEquals("c", rows.getLast().content());
+        assertEquals(List.of("a", "b"), rows.getLast().tags());
+        assertEquals("work", rows.getLast().notebook());
+        verify(noteRepository, times(2)).findExportTextsAfter(anyString(), any(), any(), anyLong(), any(Limit.class));
+        verify(noteRepository, times(2)).findTagNames(anyCollection());
+        verify(noteContentService, times(2)).loadAll(anyCollection());
+    }
 }
@@ -0,0 +1,73 @@
+package ch.hadzic.nikola.notesapp.util;
+
+import ch.hadzic.nikola.notesapp.data.dto.NoteExportRow;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PdfExportUtilTest {
+
+  @Test
+  void exportNotesToPdf_writesCompleteDocumentAndKeepsStreamOpen() throws Exception {
+    AtomicBoolean closed = new AtomicBoolean();
+    ByteArrayOutputStream out = new ByteArrayOutputStream() {
+      @Override
+      public void close() {
+        closed.set(true);
+      }
+    };
+
+    PdfExportUtil.exportNotesToPdf(notes(3), out);
+
+    String pdf = out.toString(StandardCharsets.ISO_8859_1);
+    assertTrue(pdf.startsWith("%PDF"));
+    assertTrue(pdf.trim().endsWith("%%EOF"));
+    assertFalse(closed.get(), "caller owns the response stream");
+  }
+
+  @Test
+  void exportNotesToPdf_streamsPagesBeforeAllNotesAreRead() throws Exception {
+    AtomicLong written = new AtomicLong();
+    AtomicLong writtenAtLastNote = new AtomicLong(-1);
+    OutputStream counting = new OutputStream() {
+      @Override
+      public void write(int b) {
+        written.incrementAndGet();
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) {
+        written.addAndGet(len);
+      }
+    };
+    int count = 2000;
+    Stream<NoteExportRow> notes = notes(count).peek(note -> {
+      if (note.id() == count) {
+        writtenAtLastNote.set(written.get());
+      }
+    });
+
+    PdfExportUtil.exportNotesToPdf(notes, counting);
+
+    // most of the document must already be on the wire when the last note is pulled
+    assertTrue(writtenAtLastNote.get() > written.get() / 2,
+        "written before last note: " + writtenAtLastNote.get() + " of " + written.get());
+  }
+
+  private static Stream<NoteExportRow> notes(int count) {
+    LocalDateTime created = LocalDateTime.of(2025, 1, 1, 12, 0);
+    return LongStream.rangeClosed(1, count)
+        .mapToObj(id -> new NoteExportRow(id, "Note " + id, "Content of note " + id, null, List.of(), false,
+            created, created));
+  }
+}
@@ -0,0 +1,37 @@
+package ch.hadzic.nikola.notesapp.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextDeltaTest {
+
+  @Test
+  void between_keepsCommonPrefixAndSuffix() {
+    String from = "The quick brown fox jumps over the lazy dog";
+    String to = "The quick red fox jumps over the lazy dog";
+
+    TextDelta delta = TextDelta.between(from, to);
+
+    assertEquals("red", delta.text());
+    assertEquals("The quick ".length(), delta.prefixLength());
+    assertEquals(to, delta.apply(from));
+  }
+
+  @Test
+  void between_handlesInsertsDeletesAndRepeats() {
+    for (String[] pair : new String[][]{
+        {"", "new"}, {"old", ""}, {"aaaa", "aaaaaa"}, {"abcabc", "abc"}, {"same", "same"}, {"x", "y"}}) {
+      TextDelta delta = TextDelta.between(pair[0], pair[1]);
+      assertEquals(pair[1], delta.apply(pair[0]), pair[0] + " -> " + pair[1]);
+    }
+    assertEquals("", TextDelta.between("same", "same").text());
+  }
+
+  @Test
+  void apply_rejectsOtherBase() {
+    TextDelta delta = TextDelta.between("one", "two");
+
+    assertThrows(IllegalArgumentException.class, () -> delta.apply("three"));
+  }
+}